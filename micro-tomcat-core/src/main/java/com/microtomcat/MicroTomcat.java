@@ -1,11 +1,7 @@
 package com.microtomcat;
 
+import com.microtomcat.logging.Log;
 import java.io.*;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
 
 import com.microtomcat.server.ServerConfig;
 import com.microtomcat.server.AbstractHttpServer;
@@ -14,6 +10,7 @@ import com.microtomcat.container.Context;
 import com.microtomcat.session.SessionManager;
 import com.microtomcat.context.SimpleServletContext;
 import com.microtomcat.servlet.DefaultServlet;
+import com.microtomcat.net.WorkerExecutor;
 
 import javax.servlet.Servlet;
 import com.microtomcat.protocol.Protocol;
@@ -22,10 +19,11 @@ import com.microtomcat.protocol.Http11Protocol;
 //TODO: connector -> protocol handler -> protocol
 
 public class MicroTomcat extends AbstractHttpServer {
+    private static final Log LOG = Log.getLog(MicroTomcat.class);
     private static final int DEFAULT_PORT = 8080;
     private final int port;
     private static final String WEB_ROOT = "webroot";
-    private final ExecutorService executorService;
+    private final WorkerExecutor executor;
     private Context context;
     private SessionManager sessionManager;
     private Protocol protocol;
@@ -33,12 +31,16 @@ public class MicroTomcat extends AbstractHttpServer {
     public MicroTomcat(int port) throws IOException {
         super(new ServerConfig(port, false, 10, WEB_ROOT));
         this.port = port;
-        this.executorService = Executors.newFixedThreadPool(10);
+        this.executor = new WorkerExecutor("http-" + port, config.getWorkerMode(),
+            config.getThreadPoolSize(), config.getWorkerQueueSize());
         this.sessionManager = new SessionManager(new SimpleServletContext(""));
         
         Http11Protocol http11Protocol = new Http11Protocol();
         http11Protocol.setSessionManager(sessionManager);
         http11Protocol.setPort(port);
+        http11Protocol.setSendfileThreshold(config.getSendfileThreshold());
+        http11Protocol.setMaxPostSize(config.getMaxPostSize());
+        http11Protocol.setExecutor(executor);
         this.protocol = http11Protocol;
     }
 
@@ -49,16 +51,13 @@ public class MicroTomcat extends AbstractHttpServer {
         }
     }
 
-    @Override
-    protected void log(String message) {
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_TIME);
-        System.out.printf("[HttpServer %s] %s%n", timestamp, message);
-    }
-
     @Override
     public void start() throws LifecycleException {
         try {
+            // 先启动容器树（设置了 Engine 时），再开始接收连接
+            startContainers();
             // 启动协议处理器
+            executor.registerMBean();
             protocol.init();
             protocol.start();
             
@@ -115,8 +114,7 @@ public class MicroTomcat extends AbstractHttpServer {
             Thread.currentThread().join();
             
         } catch (Exception e) {
-            System.err.println("Server startup failed: " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Server startup failed", e);
         }
     }
 
@@ -129,19 +127,9 @@ public class MicroTomcat extends AbstractHttpServer {
         } catch (Exception e) {
             log("Error while stopping server: " + e.getMessage());
         }
-        
-        if (executorService != null && !executorService.isShutdown()) {
-            executorService.shutdown();
-            try {
-                if (!executorService.awaitTermination(60, TimeUnit.SECONDS)) {
-                    executorService.shutdownNow();
-                }
-            } catch (InterruptedException e) {
-                executorService.shutdownNow();
-                Thread.currentThread().interrupt();
-                throw new LifecycleException("Error while stopping server", e);
-            }
-        }
+
+        executor.shutdown(60000);
+        executor.unregisterMBean();
         log("Server stopped");
     }
 
@@ -200,4 +188,8 @@ public class MicroTomcat extends AbstractHttpServer {
     public Protocol getProtocol() {
         return protocol;
     }
+
+    public WorkerExecutor getExecutor() {
+        return executor;
+    }
 }
@@ -0,0 +1,131 @@
+package com.microtomcat.connector;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Range 请求头中的一个字节区间 [start, end]，两端都包含在内。
+ */
+public final class ByteRange {
+    // 区间过多的请求通常是在试探或放大攻击，整体忽略，按普通 GET 回复
+    static final int MAX_RANGES = 16;
+
+    private final long start;
+    private final long end;
+
+    ByteRange(long start, long end) {
+        this.start = start;
+        this.end = end;
+    }
+
+    public long getStart() {
+        return start;
+    }
+
+    public long getEnd() {
+        return end;
+    }
+
+    public long getLength() {
+        return end - start + 1;
+    }
+
+    /**
+     * Content-Range 响应头的值，如 "bytes 0-99/1000"
+     */
+    public String toContentRange(long completeLength) {
+        return "bytes " + start + "-" + end + "/" + completeLength;
+    }
+
+    /**
+     * 按资源长度解析 Range 请求头，支持 "a-b"、"a-" 和 "-n" 三种形式。
+     * 请求头为 null、不是 bytes 单位、语法错误或区间过多时返回 null，调用方应忽略 Range 发送整个资源；
+     * 所有区间都不可满足时返回空列表（416）。
+     * 返回的区间按起点排序，重叠或相邻的区间合并为一个。
+     */
+    public static List<ByteRange> parse(String header, long length) {
+        if (header == null || !header.regionMatches(true, 0, "bytes=", 0, 6)) {
+            return null;
+        }
+        List<ByteRange> ranges = new ArrayList<>();
+        int specs = 0;
+        for (String spec : header.substring(6).split(",")) {
+            spec = spec.trim();
+            if (spec.isEmpty()) {
+                continue;
+            }
+            if (++specs > MAX_RANGES) {
+                return null;
+            }
+            int dash = spec.indexOf('-');
+            if (dash < 0) {
+                return null;
+            }
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            long start;
+            long end;
+            try {
+                if (first.isEmpty()) {
+                    // 后缀区间：最后 n 个字节
+                    long suffix = parseDigits(last);
+                    if (suffix == 0) {
+                        continue;
+                    }
+                    start = Math.max(0, length - suffix);
+                    end = length - 1;
+                } else {
+                    start = parseDigits(first);
+                    end = last.isEmpty() ? Long.MAX_VALUE : parseDigits(last);
+                    if (end < start) {
+                        return null;
+                    }
+                    end = Math.min(end, length - 1);
+                }
+            } catch (NumberFormatException e) {
+                return null;
+            }
+            if (start < length) {
+                ranges.add(new ByteRange(start, end));
+            }
+        }
+        if (specs == 0) {
+            return null;
+        }
+        return coalesce(ranges);
+    }
+
+    private static long parseDigits(String value) {
+        if (value.isEmpty() || value.charAt(0) < '0' || value.charAt(0) > '9') {
+            throw new NumberFormatException(value);
+        }
+        return Long.parseLong(value);
+    }
+
+    private static List<ByteRange> coalesce(List<ByteRange> ranges) {
+        if (ranges.size() < 2) {
+            return ranges;
+        }
+        Collections.sort(ranges, Comparator.comparingLong(ByteRange::getStart));
+        List<ByteRange> merged = new ArrayList<>(ranges.size());
+        ByteRange current = ranges.get(0);
+        for (int i = 1; i < ranges.size(); i++) {
+            ByteRange next = ranges.get(i);
+            if (next.start <= current.end + 1) {
+                current = new ByteRange(current.start, Math.max(current.end, next.end));
+            } else {
+                merged.add(current);
+                current = next;
+            }
+        }
+        merged.add(current);
+        return merged;
+    }
+
+    @Override
+    public String toString() {
+        return start + "-" + end;
+    }
+}
@@ -0,0 +1,278 @@
+package com.microtomcat.connector;
+
+import com.microtomcat.jmx.MBeanRegistry;
+import com.microtomcat.logging.Log;
+
+import javax.management.JMException;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.Deflater;
+
+/**
+ * 响应压缩的配置和 Deflater 池。
+ * 只有客户端在 Accept-Encoding 中接受 gzip 或 deflate、类型可压缩、长度不小于 minSize 的响应体才会被压缩。
+ * Deflater 持有本地内存，创建和 end() 都不便宜，用完后 reset 放回池中复用。
+ * 共享实例注册为 com.microtomcat:type=Compression。
+ */
+public final class Compression implements CompressionMBean {
+    private static final Log LOG = Log.getLog(Compression.class);
+
+    public static final String GZIP = "gzip";
+    public static final String DEFLATE = "deflate";
+    public static final String BROTLI = "br";
+
+    public static final int DEFAULT_MIN_SIZE = 2048;
+    public static final String DEFAULT_MIME_TYPES =
+        "text/*,application/javascript,application/json,application/xml,image/svg+xml";
+    static final int MAX_POOLED_DEFLATERS = 64;
+
+    private static final Compression SHARED = new Compression();
+    private static volatile boolean registered;
+
+    private volatile boolean enabled = true;
+    private volatile int minSize = DEFAULT_MIN_SIZE;
+    private volatile int level = Deflater.DEFAULT_COMPRESSION;
+    private volatile Set<String> mimeTypes;
+
+    // gzip 自己写头部和尾部，使用不带 zlib 包装的 Deflater；deflate 编码使用 zlib 格式
+    private final ArrayBlockingQueue<Deflater> gzipDeflaters = new ArrayBlockingQueue<>(MAX_POOLED_DEFLATERS);
+    private final ArrayBlockingQueue<Deflater> zlibDeflaters = new ArrayBlockingQueue<>(MAX_POOLED_DEFLATERS);
+
+    private final LongAdder compressed = new LongAdder();
+    private final LongAdder bytesIn = new LongAdder();
+    private final LongAdder bytesOut = new LongAdder();
+
+    public Compression() {
+        setCompressibleMimeTypes(DEFAULT_MIME_TYPES);
+    }
+
+    public static Compression getShared() {
+        if (!registered) {
+            register();
+        }
+        return SHARED;
+    }
+
+    private static synchronized void register() {
+        if (registered) {
+            return;
+        }
+        registered = true;
+        try {
+            new MBeanRegistry().registerMBean(SHARED, "Compression");
+        } catch (JMException e) {
+            LOG.warn("Failed to register MBean: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 按 Accept-Encoding 选择动态压缩使用的编码，优先 gzip；都不接受时返回 null
+     */
+    public String negotiate(String acceptEncoding) {
+        if (accepts(acceptEncoding, GZIP)) {
+            return GZIP;
+        }
+        return accepts(acceptEncoding, DEFLATE) ? DEFLATE : null;
+    }
+
+    /**
+     * Accept-Encoding 是否接受指定的编码：q=0 表示拒绝，"*" 匹配没有单独列出的编码
+     */
+    public static boolean accepts(String acceptEncoding, String coding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Boolean wildcard = null;
+        for (String element : acceptEncoding.split(",")) {
+            int semicolon = element.indexOf(';');
+            String name = (semicolon < 0 ? element : element.substring(0, semicolon)).trim();
+            boolean allowed = semicolon < 0 || qualityOf(element.substring(semicolon + 1)) > 0;
+            if (name.equalsIgnoreCase(coding)) {
+                return allowed;
+            }
+            if ("*".equals(name)) {
+                wildcard = allowed;
+            }
+        }
+        return wildcard != null && wildcard;
+    }
+
+    private static double qualityOf(String params) {
+        for (String param : params.split(";")) {
+            param = param.trim();
+            if (param.length() > 2 && (param.charAt(0) == 'q' || param.charAt(0) == 'Q') && param.charAt(1) == '=') {
+                try {
+                    return Double.parseDouble(param.substring(2).trim());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * Content-Type（可带参数）是否属于可压缩的类型
+     */
+    public boolean isCompressible(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        int semicolon = contentType.indexOf(';');
+        String mimeType = (semicolon < 0 ? contentType : contentType.substring(0, semicolon))
+            .trim().toLowerCase(Locale.ROOT);
+        Set<String> types = mimeTypes;
+        if (types.contains(mimeType)) {
+            return true;
+        }
+        int slash = mimeType.indexOf('/');
+        return slash > 0 && types.contains(mimeType.substring(0, slash) + "/*");
+    }
+
+    /**
+     * 一次压缩整段内容，不改变 content 的 position
+     */
+    public byte[] compress(ByteBuffer content, String encoding) {
+        ByteBuffer source = content.duplicate();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, source.remaining() / 2));
+        DeflateEncoder encoder = new DeflateEncoder(this, encoding, new byte[8192], out::write);
+        try {
+            if (source.hasArray()) {
+                encoder.write(source.array(), source.arrayOffset() + source.position(), source.remaining());
+            } else {
+                byte[] chunk = new byte[Math.min(8192, Math.max(source.remaining(), 1))];
+                while (source.hasRemaining()) {
+                    int length = Math.min(chunk.length, source.remaining());
+                    source.get(chunk, 0, length);
+                    encoder.write(chunk, 0, length);
+                }
+            }
+            encoder.finish();
+        } catch (IOException e) {
+            // 写入 ByteArrayOutputStream 不会失败
+            encoder.abort();
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    Deflater borrow(String encoding) {
+        Deflater deflater = pool(encoding).poll();
+        if (deflater == null) {
+            deflater = new Deflater(level, GZIP.equals(encoding));
+        } else {
+            deflater.setLevel(level);
+        }
+        return deflater;
+    }
+
+    void release(String encoding, Deflater deflater) {
+        deflater.reset();
+        if (!pool(encoding).offer(deflater)) {
+            deflater.end();
+        }
+    }
+
+    private ArrayBlockingQueue<Deflater> pool(String encoding) {
+        return GZIP.equals(encoding) ? gzipDeflaters : zlibDeflaters;
+    }
+
+    void recordCompressed(long in, long out) {
+        compressed.increment();
+        bytesIn.add(in);
+        bytesOut.add(out);
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @Override
+    public int getMinSize() {
+        return minSize;
+    }
+
+    @Override
+    public void setMinSize(int minSize) {
+        if (minSize < 0) {
+            throw new IllegalArgumentException("minSize must be >= 0");
+        }
+        this.minSize = minSize;
+    }
+
+    @Override
+    public int getLevel() {
+        return level;
+    }
+
+    @Override
+    public void setLevel(int level) {
+        if (level != Deflater.DEFAULT_COMPRESSION && (level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION)) {
+            throw new IllegalArgumentException("level must be between 0 and 9, or -1 for the default");
+        }
+        this.level = level;
+    }
+
+    @Override
+    public String getCompressibleMimeTypes() {
+        return String.join(",", mimeTypes);
+    }
+
+    /**
+     * 逗号分隔的 MIME 类型列表，"text/*" 形式匹配整个大类
+     */
+    @Override
+    public void setCompressibleMimeTypes(String mimeTypes) {
+        if (mimeTypes == null) {
+            throw new IllegalArgumentException("mimeTypes must not be null");
+        }
+        Set<String> types = new LinkedHashSet<>();
+        for (String type : mimeTypes.split(",")) {
+            type = type.trim().toLowerCase(Locale.ROOT);
+            if (!type.isEmpty()) {
+                types.add(type);
+            }
+        }
+        this.mimeTypes = Collections.unmodifiableSet(types);
+    }
+
+    @Override
+    public int getPooledDeflaterCount() {
+        return gzipDeflaters.size() + zlibDeflaters.size();
+    }
+
+    @Override
+    public long getCompressedCount() {
+        return compressed.sum();
+    }
+
+    @Override
+    public long getBytesIn() {
+        return bytesIn.sum();
+    }
+
+    @Override
+    public long getBytesOut() {
+        return bytesOut.sum();
+    }
+
+    @Override
+    public double getCompressionRatio() {
+        long in = bytesIn.sum();
+        return in == 0 ? 0.0 : (double) bytesOut.sum() / in;
+    }
+}
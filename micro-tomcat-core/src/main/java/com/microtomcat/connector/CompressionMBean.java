@@ -0,0 +1,25 @@
+package com.microtomcat.connector;
+
+/**
+ * Compression 的 JMX 管理接口
+ */
+public interface CompressionMBean {
+    // 配置
+    boolean isEnabled();
+    void setEnabled(boolean enabled);
+    int getMinSize();
+    void setMinSize(int minSize);
+    int getLevel();
+    void setLevel(int level);
+    String getCompressibleMimeTypes();
+    void setCompressibleMimeTypes(String mimeTypes);
+
+    // 当前状态
+    int getPooledDeflaterCount();
+
+    // 累计统计
+    long getCompressedCount();
+    long getBytesIn();
+    long getBytesOut();
+    double getCompressionRatio();
+}
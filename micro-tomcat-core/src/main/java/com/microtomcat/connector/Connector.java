@@ -1,28 +1,27 @@
 package com.microtomcat.connector;
 
+import com.microtomcat.logging.Log;
 import java.io.IOException;
 import java.net.ServerSocket;
 import java.net.Socket;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import com.microtomcat.processor.ProcessorPool;
 import com.microtomcat.lifecycle.LifecycleBase;
 import com.microtomcat.lifecycle.LifecycleException;
+import com.microtomcat.net.WorkerExecutor;
 import javax.management.StandardMBean;
 
 public class Connector extends LifecycleBase implements Runnable, ConnectorMBean {
+    private static final Log LOG = Log.getLog(Connector.class);
     private final ServerSocket serverSocket;
     private final ProcessorPool processorPool;
     private volatile boolean running = true;
     private final BlockingQueue<Socket> connectionQueue;
     private final Object lock = new Object();
-    private final ExecutorService executorService;
+    private final WorkerExecutor executor;
     private final AtomicInteger activeConnections = new AtomicInteger(0);
     private final AtomicLong totalRequests = new AtomicLong(0);
     private final AtomicLong totalProcessingTime = new AtomicLong(0);
@@ -32,7 +31,7 @@ public class Connector extends LifecycleBase implements Runnable, ConnectorMBean
         this.serverSocket = new ServerSocket(port);
         this.processorPool = processorPool;
         this.connectionQueue = new ArrayBlockingQueue<>(200);
-        this.executorService = processorPool.getExecutor();
+        this.executor = processorPool.getExecutor();
     }
     
     @Override
@@ -93,8 +92,7 @@ public class Connector extends LifecycleBase implements Runnable, ConnectorMBean
     }
     
     private void log(String message) {
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_TIME);
-        System.out.printf("[Connector %s] %s%n", timestamp, message);
+        LOG.info(message);
     }
     
     @Override
@@ -140,7 +138,7 @@ public class Connector extends LifecycleBase implements Runnable, ConnectorMBean
     
     @Override
     public int getCurrentThreadCount() {
-        return ((ThreadPoolExecutor) executorService).getActiveCount();
+        return executor.getActiveCount();
     }
     
     @Override
@@ -161,9 +159,7 @@ public class Connector extends LifecycleBase implements Runnable, ConnectorMBean
     
     @Override
     public void setMaxThreads(int maxThreads) {
-        if (executorService instanceof ThreadPoolExecutor) {
-            ((ThreadPoolExecutor) executorService).setMaximumPoolSize(maxThreads);
-        }
+        executor.setMaxThreads(maxThreads);
     }
     
     @Override
@@ -0,0 +1,123 @@
+package com.microtomcat.connector;
+
+import java.io.IOException;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * 流式 gzip / deflate 编码，压缩结果交给 Sink 写出。
+ * Deflater 从 Compression 的池中借用，finish() 或 abort() 后归还；gzip 的头部和尾部（CRC32、原始长度）由这里写出。
+ */
+final class DeflateEncoder {
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+    interface Sink {
+        void write(byte[] b, int off, int len) throws IOException;
+    }
+
+    private final Compression compression;
+    private final String encoding;
+    private final byte[] buffer;
+    private final Sink sink;
+    private final CRC32 crc;
+    private Deflater deflater;
+    private boolean headerWritten;
+    private long bytesIn;
+    private long bytesOut;
+
+    DeflateEncoder(Compression compression, String encoding, byte[] buffer, Sink sink) {
+        this.compression = compression;
+        this.encoding = encoding;
+        this.buffer = buffer;
+        this.sink = sink;
+        this.crc = Compression.GZIP.equals(encoding) ? new CRC32() : null;
+        this.deflater = compression.borrow(encoding);
+    }
+
+    void write(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return;
+        }
+        writeHeader();
+        if (crc != null) {
+            crc.update(b, off, len);
+        }
+        bytesIn += len;
+        deflater.setInput(b, off, len);
+        // setInput 只保存数组引用，返回前必须全部消耗
+        while (!deflater.needsInput()) {
+            drain(Deflater.NO_FLUSH);
+        }
+    }
+
+    /**
+     * 把已经输入的数据全部输出，客户端可以立即解压到当前位置；用于 Servlet 主动 flush
+     */
+    void flush() throws IOException {
+        writeHeader();
+        while (drain(Deflater.SYNC_FLUSH) == buffer.length) {
+            // 输出缓冲区写满说明可能还有剩余
+        }
+    }
+
+    /**
+     * 结束压缩流并写出 gzip 尾部，归还 Deflater
+     */
+    void finish() throws IOException {
+        try {
+            writeHeader();
+            deflater.finish();
+            while (!deflater.finished()) {
+                drain(Deflater.NO_FLUSH);
+            }
+            if (crc != null) {
+                byte[] trailer = new byte[8];
+                putIntLE(trailer, 0, (int) crc.getValue());
+                putIntLE(trailer, 4, (int) bytesIn);
+                output(trailer, 0, trailer.length);
+            }
+            compression.recordCompressed(bytesIn, bytesOut);
+        } finally {
+            abort();
+        }
+    }
+
+    /**
+     * 不再写出任何内容，只归还 Deflater；可以重复调用
+     */
+    void abort() {
+        if (deflater != null) {
+            compression.release(encoding, deflater);
+            deflater = null;
+        }
+    }
+
+    private void writeHeader() throws IOException {
+        if (!headerWritten) {
+            headerWritten = true;
+            if (crc != null) {
+                output(GZIP_HEADER, 0, GZIP_HEADER.length);
+            }
+        }
+    }
+
+    private int drain(int flush) throws IOException {
+        int length = deflater.deflate(buffer, 0, buffer.length, flush);
+        if (length > 0) {
+            output(buffer, 0, length);
+        }
+        return length;
+    }
+
+    private void output(byte[] b, int off, int len) throws IOException {
+        bytesOut += len;
+        sink.write(b, off, len);
+    }
+
+    private static void putIntLE(byte[] b, int off, int value) {
+        b[off] = (byte) value;
+        b[off + 1] = (byte) (value >>> 8);
+        b[off + 2] = (byte) (value >>> 16);
+        b[off + 3] = (byte) (value >>> 24);
+    }
+}
@@ -0,0 +1,116 @@
+package com.microtomcat.connector;
+
+import java.nio.charset.StandardCharsets;
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * HTTP 日期（RFC 1123）格式化和解析。
+ * 当前时间的 Date 响应头由一个后台时钟线程每秒刷新一次，写响应头时直接取用预编码的字节。
+ */
+public final class HttpDate {
+    private static final String PATTERN = "EEE, dd MMM yyyy HH:mm:ss zzz";
+    private static final TimeZone GMT = TimeZone.getTimeZone("GMT");
+    private static final ThreadLocal<SimpleDateFormat> FORMAT = ThreadLocal.withInitial(() -> newFormat(PATTERN));
+    // RFC 7231 要求接收方同时接受的两种旧格式：RFC 850 和 asctime
+    private static final ThreadLocal<SimpleDateFormat[]> OBSOLETE_FORMATS = ThreadLocal.withInitial(() ->
+        new SimpleDateFormat[] {
+            newFormat("EEEE, dd-MMM-yy HH:mm:ss zzz"),
+            newFormat("EEE MMM d HH:mm:ss yyyy")
+        });
+
+    // 日期字符串和对应的响应头字节作为一个整体替换，读者不会看到不一致的组合
+    private static final class Snapshot {
+        final String date;
+        final byte[] headerLine;
+
+        Snapshot(String date) {
+            this.date = date;
+            this.headerLine = ("Date: " + date + "\r\n").getBytes(StandardCharsets.ISO_8859_1);
+        }
+    }
+
+    private static volatile Snapshot current = new Snapshot(format(System.currentTimeMillis()));
+
+    static {
+        Thread clock = new Thread(HttpDate::runClock, "http-date-clock");
+        clock.setDaemon(true);
+        clock.start();
+    }
+
+    private HttpDate() {
+    }
+
+    private static void runClock() {
+        while (true) {
+            try {
+                // 对齐到下一秒的开始
+                Thread.sleep(1000 - System.currentTimeMillis() % 1000);
+            } catch (InterruptedException e) {
+                return;
+            }
+            current = new Snapshot(format(System.currentTimeMillis()));
+        }
+    }
+
+    private static SimpleDateFormat newFormat(String pattern) {
+        SimpleDateFormat format = new SimpleDateFormat(pattern, Locale.US);
+        format.setTimeZone(GMT);
+        format.setLenient(false);
+        return format;
+    }
+
+    public static String format(long millis) {
+        return FORMAT.get().format(new Date(millis));
+    }
+
+    /**
+     * 解析 RFC 1123、RFC 850 或 asctime 格式的 HTTP 日期
+     * @return 毫秒时间，无法解析时返回 -1
+     */
+    public static long parse(String value) {
+        if (value == null) {
+            return -1;
+        }
+        String trimmed = value.trim();
+        long millis = parse(FORMAT.get(), trimmed);
+        if (millis >= 0) {
+            return millis;
+        }
+        // asctime 的日期不足两位时用空格补齐，统一成单个空格再解析
+        String collapsed = trimmed.replaceAll("\\s+", " ");
+        for (SimpleDateFormat format : OBSOLETE_FORMATS.get()) {
+            millis = parse(format, collapsed);
+            if (millis >= 0) {
+                return millis;
+            }
+        }
+        return -1;
+    }
+
+    private static long parse(SimpleDateFormat format, String value) {
+        ParsePosition position = new ParsePosition(0);
+        Date date = format.parse(value, position);
+        if (date == null || position.getIndex() != value.length()) {
+            return -1;
+        }
+        return date.getTime();
+    }
+
+    /**
+     * 当前时间的 HTTP 日期，精度为秒
+     */
+    public static String getCurrentDate() {
+        return current.date;
+    }
+
+    /**
+     * 预编码的 "Date: ...\r\n"，调用方不得修改返回的数组
+     */
+    static byte[] getCurrentDateHeader() {
+        return current.headerLine;
+    }
+}
@@ -0,0 +1,123 @@
+package com.microtomcat.connector;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 响应头序列化用到的预编码字节：状态行和常用响应头名称。
+ * 全部在类加载时生成，写响应头时直接复制字节，不再逐行拼接字符串再编码。
+ */
+public final class HttpMessages {
+    private static final int MAX_STATUS = 600;
+    private static final String[] REASON_PHRASES = new String[MAX_STATUS];
+    private static final byte[][] STATUS_LINES = new byte[MAX_STATUS][];
+
+    // 常用响应头：小写名称 -> 规范写法
+    private static final String[] WELL_KNOWN_HEADERS = {
+        "Accept-Ranges", "Cache-Control", "Connection", "Content-Disposition", "Content-Encoding",
+        "Content-Language", "Content-Length", "Content-Location", "Content-Range", "Content-Type",
+        "Date", "ETag", "Expires", "Keep-Alive", "Last-Modified", "Location", "Pragma", "Retry-After",
+        "Server", "Set-Cookie", "Transfer-Encoding", "Vary", "WWW-Authenticate"
+    };
+    // 不区分大小写查找，命中时返回小写常量，避免每次 setHeader 都 toLowerCase
+    private static final Map<String, String> LOWER_CASE_NAMES = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    // 小写名称 -> "Name: " 的字节
+    private static final Map<String, byte[]> HEADER_NAMES = new HashMap<>();
+
+    static {
+        reason(100, "Continue");
+        reason(101, "Switching Protocols");
+        reason(200, "OK");
+        reason(201, "Created");
+        reason(202, "Accepted");
+        reason(203, "Non-Authoritative Information");
+        reason(204, "No Content");
+        reason(205, "Reset Content");
+        reason(206, "Partial Content");
+        reason(300, "Multiple Choices");
+        reason(301, "Moved Permanently");
+        reason(302, "Found");
+        reason(303, "See Other");
+        reason(304, "Not Modified");
+        reason(307, "Temporary Redirect");
+        reason(308, "Permanent Redirect");
+        reason(400, "Bad Request");
+        reason(401, "Unauthorized");
+        reason(403, "Forbidden");
+        reason(404, "Not Found");
+        reason(405, "Method Not Allowed");
+        reason(406, "Not Acceptable");
+        reason(408, "Request Timeout");
+        reason(409, "Conflict");
+        reason(410, "Gone");
+        reason(411, "Length Required");
+        reason(412, "Precondition Failed");
+        reason(413, "Payload Too Large");
+        reason(414, "URI Too Long");
+        reason(415, "Unsupported Media Type");
+        reason(416, "Range Not Satisfiable");
+        reason(417, "Expectation Failed");
+        reason(426, "Upgrade Required");
+        reason(429, "Too Many Requests");
+        reason(431, "Request Header Fields Too Large");
+        reason(500, "Internal Server Error");
+        reason(501, "Not Implemented");
+        reason(502, "Bad Gateway");
+        reason(503, "Service Unavailable");
+        reason(504, "Gateway Timeout");
+        reason(505, "HTTP Version Not Supported");
+
+        for (int status = 100; status < MAX_STATUS; status++) {
+            STATUS_LINES[status] = encodeStatusLine(status);
+        }
+        for (String name : WELL_KNOWN_HEADERS) {
+            String lowerCase = name.toLowerCase(Locale.ROOT);
+            LOWER_CASE_NAMES.put(name, lowerCase);
+            HEADER_NAMES.put(lowerCase, (name + ": ").getBytes(StandardCharsets.ISO_8859_1));
+        }
+    }
+
+    private HttpMessages() {
+    }
+
+    private static void reason(int status, String phrase) {
+        REASON_PHRASES[status] = phrase;
+    }
+
+    private static byte[] encodeStatusLine(int status) {
+        return ("HTTP/1.1 " + status + " " + getReasonPhrase(status) + "\r\n").getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    public static String getReasonPhrase(int status) {
+        String phrase = status >= 0 && status < MAX_STATUS ? REASON_PHRASES[status] : null;
+        return phrase != null ? phrase : "Unknown";
+    }
+
+    /**
+     * 完整的状态行字节（含 CRLF），调用方不得修改返回的数组
+     */
+    public static byte[] getStatusLine(int status) {
+        if (status >= 100 && status < MAX_STATUS) {
+            return STATUS_LINES[status];
+        }
+        return encodeStatusLine(status);
+    }
+
+    /**
+     * 常用响应头的 "Name: " 字节，参数必须是小写名称；不是常用响应头时返回 null
+     */
+    public static byte[] getHeaderName(String lowerCaseName) {
+        return HEADER_NAMES.get(lowerCaseName);
+    }
+
+    /**
+     * 统一的响应头名称写法：常用响应头返回共享的小写常量，其余按 ASCII 转小写
+     */
+    public static String toLowerCaseName(String name) {
+        String lowerCase = LOWER_CASE_NAMES.get(name);
+        return lowerCase != null ? lowerCase : name.toLowerCase(Locale.ROOT);
+    }
+}
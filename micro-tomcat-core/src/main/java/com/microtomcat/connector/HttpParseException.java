@@ -0,0 +1,19 @@
+package com.microtomcat.connector;
+
+import java.io.IOException;
+
+/**
+ * 请求格式错误，携带要返回给客户端的状态码
+ */
+public class HttpParseException extends IOException {
+    private final int status;
+
+    public HttpParseException(int status, String message) {
+        super(message);
+        this.status = status;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+}
@@ -0,0 +1,408 @@
+package com.microtomcat.connector;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 基于字节的增量 HTTP 请求头解析器。
+ * 请求头字节复制到一个可复用的 byte[] 中，解析时只记录请求行和各个请求头的起止偏移，
+ * 不创建中间对象；String 只在调用方真正访问时才生成。
+ *
+ * 同一个实例可以通过 recycle() 反复使用，非线程安全。
+ */
+public class HttpParser {
+    public static final int DEFAULT_MAX_HEADER_SIZE = 8 * 1024;
+    private static final int INITIAL_HEADER_COUNT = 16;
+
+    private static final String HTTP_11 = "HTTP/1.1";
+    private static final String HTTP_10 = "HTTP/1.0";
+    // 常见方法直接返回常量，避免每个请求都创建 String
+    private static final String[] KNOWN_METHODS = {
+        "GET", "POST", "PUT", "DELETE", "HEAD", "OPTIONS", "PATCH", "TRACE", "CONNECT"
+    };
+
+    private final byte[] buf;
+    private int filled;
+    private int scanned;
+    private int lineStart;
+    private int headLength = -1;
+
+    private boolean requestLineParsed;
+    private int methodStart, methodEnd;
+    private int uriStart, uriEnd;
+    private int protocolStart, protocolEnd;
+
+    // 每个请求头占 4 个 int：名称起止、值起止
+    private int[] headerOffsets = new int[INITIAL_HEADER_COUNT * 4];
+    private int headerCount;
+
+    private String method;
+    private String uri;
+    private String protocol;
+
+    public HttpParser() {
+        this(DEFAULT_MAX_HEADER_SIZE);
+    }
+
+    public HttpParser(int maxHeaderSize) {
+        if (maxHeaderSize <= 0) {
+            throw new IllegalArgumentException("maxHeaderSize must be > 0");
+        }
+        this.buf = new byte[maxHeaderSize];
+    }
+
+    /**
+     * 从非阻塞缓冲区中增量解析请求头，可以多次调用直到返回 true。
+     * 完成时 input 的 position 恰好停在请求体的第一个字节上。
+     * @return 请求头已完整解析时返回 true
+     */
+    public boolean parse(ByteBuffer input) throws HttpParseException {
+        if (isComplete()) {
+            return true;
+        }
+        int n = Math.min(input.remaining(), buf.length - filled);
+        input.get(buf, filled, n);
+        filled += n;
+        if (scan()) {
+            // 多读入的字节属于请求体或下一个请求，退回给调用方
+            input.position(input.position() - (filled - headLength));
+            filled = headLength;
+            return true;
+        }
+        if (filled == buf.length) {
+            throw new HttpParseException(431, "Request Header Fields Too Large");
+        }
+        return false;
+    }
+
+    /**
+     * 从阻塞流中读取并解析请求头。多读入的请求体字节通过 getRemainingInput 取回。
+     * @return 流在请求开始前就已结束时返回 false
+     */
+    public boolean parse(InputStream input) throws IOException {
+        while (!isComplete()) {
+            if (filled == buf.length) {
+                throw new HttpParseException(431, "Request Header Fields Too Large");
+            }
+            int n = input.read(buf, filled, buf.length - filled);
+            if (n < 0) {
+                if (!requestLineParsed && lineStart == filled) {
+                    return false;
+                }
+                throw new HttpParseException(400, "Unexpected end of request headers");
+            }
+            filled += n;
+            scan();
+        }
+        return true;
+    }
+
+    /**
+     * 请求体的输入流：先返回解析请求头时多读入的字节，再继续读取原始流
+     */
+    public InputStream getRemainingInput(InputStream input) {
+        if (!isComplete() || filled <= headLength) {
+            return input;
+        }
+        return new SequenceInputStream(
+            new ByteArrayInputStream(Arrays.copyOfRange(buf, headLength, filled)), input);
+    }
+
+    private boolean scan() throws HttpParseException {
+        while (scanned < filled) {
+            if (buf[scanned++] != '\n') {
+                continue;
+            }
+            int lineEnd = scanned - 1;
+            if (lineEnd > lineStart && buf[lineEnd - 1] == '\r') {
+                lineEnd--;
+            }
+            if (!requestLineParsed) {
+                // 请求之前多余的空行直接跳过
+                if (lineEnd > lineStart) {
+                    parseRequestLine(lineStart, lineEnd);
+                }
+            } else if (lineEnd == lineStart) {
+                headLength = scanned;
+                return true;
+            } else {
+                parseHeaderLine(lineStart, lineEnd);
+            }
+            lineStart = scanned;
+        }
+        return false;
+    }
+
+    private void parseRequestLine(int start, int end) throws HttpParseException {
+        int firstSpace = indexOf((byte) ' ', start, end);
+        int secondSpace = firstSpace < 0 ? -1 : indexOf((byte) ' ', firstSpace + 1, end);
+        if (firstSpace <= start || secondSpace <= firstSpace + 1 || secondSpace + 1 >= end
+                || indexOf((byte) ' ', secondSpace + 1, end) >= 0) {
+            throw new HttpParseException(400, "Invalid request line");
+        }
+        methodStart = start;
+        methodEnd = firstSpace;
+        uriStart = firstSpace + 1;
+        uriEnd = secondSpace;
+        protocolStart = secondSpace + 1;
+        protocolEnd = end;
+        requestLineParsed = true;
+    }
+
+    private void parseHeaderLine(int start, int end) {
+        int colon = indexOf((byte) ':', start, end);
+        if (colon <= start) {
+            // 不合法的请求头行直接忽略
+            return;
+        }
+        int nameEnd = colon;
+        while (nameEnd > start && isWhitespace(buf[nameEnd - 1])) {
+            nameEnd--;
+        }
+        int valueStart = colon + 1;
+        while (valueStart < end && isWhitespace(buf[valueStart])) {
+            valueStart++;
+        }
+        int valueEnd = end;
+        while (valueEnd > valueStart && isWhitespace(buf[valueEnd - 1])) {
+            valueEnd--;
+        }
+        if (headerCount * 4 == headerOffsets.length) {
+            headerOffsets = Arrays.copyOf(headerOffsets, headerOffsets.length * 2);
+        }
+        int i = headerCount * 4;
+        headerOffsets[i] = start;
+        headerOffsets[i + 1] = nameEnd;
+        headerOffsets[i + 2] = valueStart;
+        headerOffsets[i + 3] = valueEnd;
+        headerCount++;
+    }
+
+    private int indexOf(byte b, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (buf[i] == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t';
+    }
+
+    /**
+     * 是否已经读入了当前请求的字节
+     */
+    public boolean isStarted() {
+        return filled > 0;
+    }
+
+    public boolean isComplete() {
+        return headLength >= 0;
+    }
+
+    /**
+     * 请求头（含结尾空行）的字节数，未完成时返回 -1
+     */
+    public int getHeadLength() {
+        return headLength;
+    }
+
+    public String getMethod() {
+        if (method == null && requestLineParsed) {
+            for (String known : KNOWN_METHODS) {
+                if (regionEquals(methodStart, methodEnd, known, false)) {
+                    method = known;
+                    return method;
+                }
+            }
+            method = new String(buf, methodStart, methodEnd - methodStart, StandardCharsets.ISO_8859_1);
+        }
+        return method;
+    }
+
+    public String getRequestUri() {
+        if (uri == null && requestLineParsed) {
+            uri = new String(buf, uriStart, uriEnd - uriStart, StandardCharsets.UTF_8);
+        }
+        return uri;
+    }
+
+    public String getProtocol() {
+        if (protocol == null && requestLineParsed) {
+            if (regionEquals(protocolStart, protocolEnd, HTTP_11, false)) {
+                protocol = HTTP_11;
+            } else if (regionEquals(protocolStart, protocolEnd, HTTP_10, false)) {
+                protocol = HTTP_10;
+            } else {
+                protocol = new String(buf, protocolStart, protocolEnd - protocolStart, StandardCharsets.ISO_8859_1);
+            }
+        }
+        return protocol;
+    }
+
+    public boolean isHttp11() {
+        return requestLineParsed && regionEquals(protocolStart, protocolEnd, HTTP_11, false);
+    }
+
+    public int getHeaderCount() {
+        return headerCount;
+    }
+
+    public String getHeaderName(int index) {
+        int i = index * 4;
+        return new String(buf, headerOffsets[i], headerOffsets[i + 1] - headerOffsets[i], StandardCharsets.ISO_8859_1);
+    }
+
+    public String getHeaderValue(int index) {
+        int i = index * 4;
+        return new String(buf, headerOffsets[i + 2], headerOffsets[i + 3] - headerOffsets[i + 2],
+            StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * 按名称（不区分大小写）查找请求头，没有时返回 -1
+     */
+    public int findHeader(String name) {
+        for (int index = 0; index < headerCount; index++) {
+            int i = index * 4;
+            if (regionEquals(headerOffsets[i], headerOffsets[i + 1], name, true)) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    public String getHeader(String name) {
+        int index = findHeader(name);
+        return index < 0 ? null : getHeaderValue(index);
+    }
+
+    /**
+     * 请求头值中是否包含给定的逗号分隔标记（不区分大小写），如 Connection: keep-alive。
+     * 同名请求头出现多次时视为一个逗号分隔的列表，逐个检查
+     */
+    public boolean headerContainsToken(String name, String token) {
+        for (int index = 0; index < headerCount; index++) {
+            int i = index * 4;
+            if (regionEquals(headerOffsets[i], headerOffsets[i + 1], name, true)
+                    && valueContainsToken(index, token)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean valueContainsToken(int index, String token) {
+        int start = headerOffsets[index * 4 + 2];
+        int end = headerOffsets[index * 4 + 3];
+        int tokenStart = start;
+        for (int i = start; i <= end; i++) {
+            if (i == end || buf[i] == ',') {
+                int s = tokenStart;
+                int e = i;
+                while (s < e && isWhitespace(buf[s])) s++;
+                while (e > s && isWhitespace(buf[e - 1])) e--;
+                if (regionEquals(s, e, token, true)) {
+                    return true;
+                }
+                tokenStart = i + 1;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 直接从字节解析 Content-Length，没有该请求头时返回 -1。
+     * 出现多次时各值必须相同，否则请求边界有歧义
+     * @throws NumberFormatException 值不是合法的非负整数，或多个值互相矛盾
+     */
+    public long getContentLength() {
+        long contentLength = -1;
+        for (int index = 0; index < headerCount; index++) {
+            int i = index * 4;
+            if (!regionEquals(headerOffsets[i], headerOffsets[i + 1], "Content-Length", true)) {
+                continue;
+            }
+            long value = parseContentLength(headerOffsets[i + 2], headerOffsets[i + 3]);
+            if (contentLength >= 0 && value != contentLength) {
+                throw new NumberFormatException("Conflicting Content-Length");
+            }
+            contentLength = value;
+        }
+        return contentLength;
+    }
+
+    private long parseContentLength(int start, int end) {
+        if (start == end || end - start > 18) {
+            throw new NumberFormatException("Invalid Content-Length");
+        }
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            byte b = buf[i];
+            if (b < '0' || b > '9') {
+                throw new NumberFormatException("Invalid Content-Length");
+            }
+            value = value * 10 + (b - '0');
+        }
+        return value;
+    }
+
+    /**
+     * 检查所有 Transfer-Encoding 请求头中是否出现 chunked
+     */
+    public boolean isChunked() {
+        return headerContainsToken("Transfer-Encoding", "chunked");
+    }
+
+    /**
+     * HTTP/1.1 默认保持连接，HTTP/1.0 需要显式声明 keep-alive
+     */
+    public boolean isKeepAlive() {
+        if (isHttp11()) {
+            return !headerContainsToken("Connection", "close");
+        }
+        return headerContainsToken("Connection", "keep-alive");
+    }
+
+    private boolean regionEquals(int start, int end, String s, boolean ignoreCase) {
+        if (end - start != s.length()) {
+            return false;
+        }
+        for (int i = 0; i < s.length(); i++) {
+            int b = buf[start + i] & 0xFF;
+            int c = s.charAt(i);
+            if (b != c) {
+                if (!ignoreCase || toLower(b) != toLower(c)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static int toLower(int c) {
+        return (c >= 'A' && c <= 'Z') ? c + ('a' - 'A') : c;
+    }
+
+    /**
+     * 重置解析状态以便解析下一个请求，保留内部缓冲区
+     */
+    public void recycle() {
+        filled = 0;
+        scanned = 0;
+        lineStart = 0;
+        headLength = -1;
+        requestLineParsed = false;
+        headerCount = 0;
+        method = null;
+        uri = null;
+        protocol = null;
+    }
+}
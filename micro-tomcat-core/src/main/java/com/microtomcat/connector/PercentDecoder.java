@@ -0,0 +1,55 @@
+package com.microtomcat.connector;
+
+import java.nio.charset.Charset;
+
+/**
+ * 基于字节的百分号解码。
+ * 没有 '%' 和 '+' 的片段直接按字符集生成 String，只有真正需要解码时才复制字节。
+ */
+public final class PercentDecoder {
+
+    private PercentDecoder() {
+    }
+
+    /**
+     * 解码 bytes[start, end) 并按 charset 生成字符串
+     * @param plusAsSpace 表单编码（application/x-www-form-urlencoded）中 '+' 表示空格
+     */
+    public static String decode(byte[] bytes, int start, int end, Charset charset, boolean plusAsSpace) {
+        int i = start;
+        while (i < end) {
+            byte b = bytes[i];
+            if (b == '%' || (plusAsSpace && b == '+')) {
+                break;
+            }
+            i++;
+        }
+        if (i == end) {
+            // 快速路径：无需解码
+            return new String(bytes, start, end - start, charset);
+        }
+
+        byte[] decoded = new byte[end - start];
+        int length = i - start;
+        System.arraycopy(bytes, start, decoded, 0, length);
+        while (i < end) {
+            byte b = bytes[i++];
+            if (b == '+' && plusAsSpace) {
+                decoded[length++] = ' ';
+            } else if (b == '%' && i + 1 < end) {
+                int high = Character.digit(bytes[i], 16);
+                int low = Character.digit(bytes[i + 1], 16);
+                if (high < 0 || low < 0) {
+                    // 不合法的转义序列按原样保留
+                    decoded[length++] = b;
+                } else {
+                    decoded[length++] = (byte) ((high << 4) | low);
+                    i += 2;
+                }
+            } else {
+                decoded[length++] = b;
+            }
+        }
+        return new String(decoded, 0, length, charset);
+    }
+}
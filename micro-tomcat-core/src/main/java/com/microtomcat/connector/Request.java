@@ -1,6 +1,8 @@
 package com.microtomcat.connector;
 
 import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import javax.servlet.*;
 import javax.servlet.http.*;
@@ -9,7 +11,16 @@ import com.microtomcat.session.SessionManager;
 import com.microtomcat.container.Context;
 import com.microtomcat.session.HttpSessionWrapper;
 
+/**
+ * HTTP 请求。每个 Processor 持有一个实例反复使用，请求处理结束后必须调用 recycle()。
+ */
 public class Request implements HttpServletRequest {
+    /**
+     * 调试模式：recycle() 时丢弃交给 Servlet 的外观对象，回收后再使用会抛出 IllegalStateException
+     */
+    public static final boolean RECYCLE_FACADES = Boolean.getBoolean("microtomcat.recycleFacades");
+    public static final int DEFAULT_MAX_POST_SIZE = 2 * 1024 * 1024;
+
     private InputStream input;
     private String method;
     private String uri;
@@ -17,13 +28,27 @@ public class Request implements HttpServletRequest {
     private Session session;
     private final SessionManager sessionManager;
     private static final String SESSION_COOKIE_NAME = "JSESSIONID";
-    private final Map<String, String> headers = new HashMap<>();
+    // 请求头按需从解析器中取出；getHeaderNames 或 addHeader 时才整体生成小写名称的 Map
+    private final HttpParser ownParser = new HttpParser();
+    // 通常就是 ownParser；NIO 连接器交来已解析好的解析器时临时指向它，recycle 时还原
+    private HttpParser parser = ownParser;
+    private final Map<String, String> headers = new LinkedHashMap<>();
+    private boolean headersMaterialized;
     private Context context;
+    // 由 Host 请求头得出，第一次访问时才解析
     private String serverName;
-    private final StringBuilder requestContent = new StringBuilder();
+    private boolean hostParsed;
     private BufferedReader reader;
+    private String queryString;
+    // 由 Context 的 Servlet 映射得出，未映射时按请求 URI 计算
+    private boolean servletMapped;
+    private String servletPath;
+    private String pathInfo;
+    private byte[] bodyBytes;
     private String body;
-    private final Map<String, String[]> parameters = new HashMap<>();
+    // 参数和 Cookie 在第一次访问时才解析，容器本身随 Request 复用
+    private final Map<String, String[]> parameters = new LinkedHashMap<>();
+    private boolean parametersParsed;
     private final Map<String, Object> attributes = new HashMap<>();
     private int serverPort = 8080;
     private String remoteAddr;
@@ -31,48 +56,267 @@ public class Request implements HttpServletRequest {
     private java.util.Locale locale = java.util.Locale.getDefault();
     private String characterEncoding = "UTF-8";
     private long contentLength = -1;
+    // 请求体整个读入内存，声明的长度超过上限时在分配缓冲区之前回复 413
+    private int maxPostSize = DEFAULT_MAX_POST_SIZE;
     private final List<Cookie> cookies = new ArrayList<>();
+    private boolean cookiesParsed;
+    private ServletRequestWrapper facade;
+
+    public Request(SessionManager sessionManager) {
+        this(null, sessionManager);
+    }
 
     public Request(InputStream input, SessionManager sessionManager) {
         this.input = input;
         this.sessionManager = sessionManager;
-        this.reader = new BufferedReader(new InputStreamReader(input));
+    }
+
+    public int getMaxPostSize() {
+        return maxPostSize;
+    }
+
+    public void setMaxPostSize(int maxPostSize) {
+        if (maxPostSize < 0) {
+            throw new IllegalArgumentException("maxPostSize must be >= 0");
+        }
+        this.maxPostSize = maxPostSize;
+    }
+
+    public void setInputStream(InputStream input) {
+        this.input = input;
+    }
+
+    /**
+     * 交给 Servlet 的外观对象，随 Request 一起复用
+     */
+    public ServletRequestWrapper getFacade() {
+        if (facade == null) {
+            facade = new ServletRequestWrapper(this);
+        }
+        return facade;
+    }
+
+    /**
+     * 清空本次请求的全部状态以便下一个请求复用；保留解析缓冲区和各个集合对象
+     */
+    public void recycle() {
+        input = null;
+        method = null;
+        uri = null;
+        protocol = null;
+        session = null;
+        if (parser == ownParser) {
+            parser.recycle();
+        } else {
+            parser = ownParser;
+        }
+        headers.clear();
+        headersMaterialized = false;
+        context = null;
+        serverName = null;
+        hostParsed = false;
+        reader = null;
+        queryString = null;
+        servletMapped = false;
+        servletPath = null;
+        pathInfo = null;
+        bodyBytes = null;
+        body = null;
+        parameters.clear();
+        parametersParsed = false;
+        attributes.clear();
+        serverPort = 8080;
+        remoteAddr = null;
+        scheme = "http";
+        locale = Locale.getDefault();
+        characterEncoding = "UTF-8";
+        contentLength = -1;
+        cookies.clear();
+        cookiesParsed = false;
+        if (RECYCLE_FACADES && facade != null) {
+            facade.release();
+            facade = null;
+        }
     }
 
     public void parse() throws IOException {
-        String requestLine = reader.readLine();
-        if (requestLine != null) {
-            String[] parts = requestLine.split(" ");
-            if (parts.length == 3) {
-                method = parts[0];
-                uri = parts[1];
-                protocol = parts[2];
+        if (!parser.parse(input)) {
+            return;
+        }
+        // 解析请求头时多读入的字节属于请求体
+        input = parser.getRemainingInput(input);
+        applyHead();
+        if ("POST".equals(method) && contentLength > 0) {
+            byte[] bytes = new byte[(int) contentLength];
+            int readCount = 0;
+            while (readCount < bytes.length) {
+                int n = input.read(bytes, readCount, bytes.length - readCount);
+                if (n < 0) {
+                    break;
+                }
+                readCount += n;
+            }
+            if (readCount > 0) {
+                // 请求体按字节保留，需要时再解码成字符串或表单参数
+                this.bodyBytes = readCount == bytes.length ? bytes : Arrays.copyOf(bytes, readCount);
             }
         }
-        
-        String headerLine;
-        while ((headerLine = reader.readLine()) != null && !headerLine.isEmpty()) {
-            int colonPos = headerLine.indexOf(':');
-            if (colonPos > 0) {
-                String headerName = headerLine.substring(0, colonPos).trim();
-                String headerValue = headerLine.substring(colonPos + 1).trim();
-                headers.put(headerName, headerValue);
+    }
+
+    /**
+     * 使用连接器已经解析好的请求头和完整读入的请求体，不再重新解析。
+     * parser 在 recycle 之前归本请求使用，之后由调用方回收复用
+     */
+    public void setParsedRequest(HttpParser parser, byte[] body) throws HttpParseException {
+        this.parser = parser;
+        this.input = new ByteArrayInputStream(body);
+        applyHead();
+        if ("POST".equals(method) && body.length > 0) {
+            if (body.length > maxPostSize) {
+                throw new HttpParseException(413, "Payload Too Large");
+            }
+            this.bodyBytes = body;
+        }
+    }
+
+    /**
+     * 从解析器中取出请求行和 Content-Length
+     */
+    private void applyHead() throws HttpParseException {
+        method = parser.getMethod();
+        uri = parser.getRequestUri();
+        protocol = parser.getProtocol();
+        int questionPos = uri.indexOf('?');
+        if (questionPos != -1) {
+            queryString = uri.substring(questionPos + 1);
+            uri = uri.substring(0, questionPos);
+        }
+
+        try {
+            contentLength = parser.getContentLength();
+        } catch (NumberFormatException e) {
+            throw new HttpParseException(400, "Invalid Content-Length");
+        }
+        if (contentLength >= 0 && parser.isChunked()) {
+            // RFC 7230 3.3.3：同时带 chunked 和 Content-Length 的请求边界有歧义，直接拒绝
+            throw new HttpParseException(400, "Bad Request");
+        }
+        if (contentLength > maxPostSize) {
+            throw new HttpParseException(413, "Payload Too Large");
+        }
+    }
+
+    /**
+     * 第一次访问参数时解析查询字符串和 application/x-www-form-urlencoded 请求体
+     */
+    private Map<String, String[]> parameters() {
+        if (!parametersParsed) {
+            parametersParsed = true;
+            Charset charset = charset();
+            if (queryString != null) {
+                // 查询字符串统一按 UTF-8 解码
+                byte[] query = queryString.getBytes(StandardCharsets.UTF_8);
+                parseParameters(query, 0, query.length, StandardCharsets.UTF_8);
+            }
+            String contentType = getContentType();
+            if (bodyBytes != null && contentType != null
+                    && contentType.toLowerCase().startsWith("application/x-www-form-urlencoded")) {
+                parseParameters(bodyBytes, 0, bodyBytes.length, charset);
+            }
+        }
+        return parameters;
+    }
+
+    private void parseParameters(byte[] bytes, int start, int end, Charset charset) {
+        int pairStart = start;
+        for (int i = start; i <= end; i++) {
+            if (i < end && bytes[i] != '&') {
+                continue;
+            }
+            if (i > pairStart) {
+                int equals = pairStart;
+                while (equals < i && bytes[equals] != '=') {
+                    equals++;
+                }
+                String name = PercentDecoder.decode(bytes, pairStart, equals, charset, true);
+                String value = equals < i
+                    ? PercentDecoder.decode(bytes, equals + 1, i, charset, true)
+                    : "";
+                if (!name.isEmpty()) {
+                    String[] values = parameters.get(name);
+                    if (values == null) {
+                        parameters.put(name, new String[] {value});
+                    } else {
+                        String[] merged = Arrays.copyOf(values, values.length + 1);
+                        merged[values.length] = value;
+                        parameters.put(name, merged);
+                    }
+                }
+            }
+            pairStart = i + 1;
+        }
+    }
+
+    /**
+     * 第一次访问 Cookie 时对 Cookie 请求头分词
+     */
+    private List<Cookie> cookies() {
+        if (!cookiesParsed) {
+            cookiesParsed = true;
+            String header = getHeader("Cookie");
+            if (header != null) {
+                parseCookies(header);
             }
         }
+        return cookies;
+    }
 
-        if ("POST".equalsIgnoreCase(method)) {
-            String contentLengthStr = headers.get("Content-Length");
-            if (contentLengthStr != null) {
-                int contentLength = Integer.parseInt(contentLengthStr);
-                char[] bodyChars = new char[contentLength];
-                int readCount = reader.read(bodyChars);
-                if (readCount > 0) {
-                    this.body = new String(bodyChars, 0, readCount);
+    private void parseCookies(String header) {
+        int length = header.length();
+        int start = 0;
+        while (start < length) {
+            int end = header.indexOf(';', start);
+            if (end < 0) {
+                end = length;
+            }
+            int equals = header.indexOf('=', start);
+            if (equals > start && equals < end) {
+                String name = header.substring(start, equals).trim();
+                String value = header.substring(equals + 1, end).trim();
+                if (value.length() >= 2 && value.charAt(0) == '"' && value.charAt(value.length() - 1) == '"') {
+                    value = value.substring(1, value.length() - 1);
+                }
+                try {
+                    cookies.add(new Cookie(name, value));
+                } catch (IllegalArgumentException e) {
+                    // 名称不合法（如 $Version 等保留属性）的 Cookie 直接跳过
                 }
             }
+            start = end + 1;
         }
     }
 
+    private Charset charset() {
+        try {
+            return Charset.forName(getCharacterEncoding());
+        } catch (IllegalArgumentException e) {
+            return StandardCharsets.UTF_8;
+        }
+    }
+
+    /**
+     * 第一次需要完整的请求头集合时，把解析器中的请求头按小写名称放入 Map
+     */
+    private Map<String, String> headers() {
+        if (!headersMaterialized) {
+            headersMaterialized = true;
+            for (int i = 0; i < parser.getHeaderCount(); i++) {
+                headers.putIfAbsent(parser.getHeaderName(i).toLowerCase(), parser.getHeaderValue(i));
+            }
+        }
+        return headers;
+    }
+
     @Override
     public Object getAttribute(String name) {
         return attributes.get(name);
@@ -105,7 +349,7 @@ public class Request implements HttpServletRequest {
 
     @Override
     public String getContentType() {
-        return headers.get("Content-Type");
+        return getHeader("Content-Type");
     }
 
     @Override
@@ -137,23 +381,23 @@ public class Request implements HttpServletRequest {
 
     @Override
     public String getParameter(String name) {
-        String[] values = parameters.get(name);
+        String[] values = parameters().get(name);
         return values != null && values.length > 0 ? values[0] : null;
     }
 
     @Override
     public Enumeration<String> getParameterNames() {
-        return Collections.enumeration(parameters.keySet());
+        return Collections.enumeration(parameters().keySet());
     }
 
     @Override
     public String[] getParameterValues(String name) {
-        return parameters.get(name);
+        return parameters().get(name);
     }
 
     @Override
     public Map<String, String[]> getParameterMap() {
-        return Collections.unmodifiableMap(parameters);
+        return Collections.unmodifiableMap(parameters());
     }
 
     @Override
@@ -168,14 +412,56 @@ public class Request implements HttpServletRequest {
 
     @Override
     public String getServerName() {
+        if (!hostParsed) {
+            parseHost();
+        }
         return serverName != null ? serverName : "localhost";
     }
 
     @Override
     public int getServerPort() {
+        if (!hostParsed) {
+            parseHost();
+        }
         return serverPort;
     }
 
+    /**
+     * 解析 Host 请求头：名称转为小写，支持 "[::1]:8080" 形式的 IPv6 地址；
+     * 带 Host 头但未写端口时使用协议的默认端口，没有 Host 头时保持连接器的端口
+     */
+    private void parseHost() {
+        hostParsed = true;
+        String host = getHeader("Host");
+        if (host == null) {
+            return;
+        }
+        host = host.trim();
+        if (host.isEmpty()) {
+            return;
+        }
+        int colon;
+        if (host.charAt(0) == '[') {
+            int close = host.indexOf(']');
+            colon = close > 0 && close + 1 < host.length() && host.charAt(close + 1) == ':' ? close + 1 : -1;
+        } else {
+            colon = host.lastIndexOf(':');
+        }
+        String name = colon >= 0 ? host.substring(0, colon) : host;
+        int port = "https".equals(scheme) ? 443 : 80;
+        if (colon >= 0) {
+            try {
+                port = Integer.parseInt(host.substring(colon + 1));
+            } catch (NumberFormatException e) {
+                // 端口不合法时忽略，保留协议的默认端口
+            }
+        }
+        if (!name.isEmpty()) {
+            serverName = name.toLowerCase(Locale.ROOT);
+            serverPort = port;
+        }
+    }
+
     @Override
     public BufferedReader getReader() throws IOException {
         if (reader == null) {
@@ -330,6 +616,9 @@ public class Request implements HttpServletRequest {
     }
 
     public String getBody() {
+        if (body == null && bodyBytes != null) {
+            body = new String(bodyBytes, charset());
+        }
         if (body == null) {
             try {
                 StringBuilder content = new StringBuilder();
@@ -353,7 +642,7 @@ public class Request implements HttpServletRequest {
             return new HttpSessionWrapper(session);
         }
         
-        String sessionId = headers.get(SESSION_COOKIE_NAME);
+        String sessionId = getRequestedSessionId();
         if (sessionId != null) {
             session = sessionManager.getSession(sessionId);
             if (session != null) {
@@ -384,8 +673,20 @@ public class Request implements HttpServletRequest {
         throw new UnsupportedOperationException("Upgrade not supported");
     }
 
+    /**
+     * 记录 Servlet 映射的结果，之后 getServletPath/getPathInfo 直接返回
+     */
+    public void setServletMapping(String servletPath, String pathInfo) {
+        this.servletMapped = true;
+        this.servletPath = servletPath;
+        this.pathInfo = pathInfo;
+    }
+
     @Override
     public String getServletPath() {
+        if (servletMapped) {
+            return servletPath;
+        }
         String contextPath = getContextPath();
         if (uri != null && contextPath != null && uri.startsWith(contextPath)) {
             return uri.substring(contextPath.length());
@@ -445,7 +746,7 @@ public class Request implements HttpServletRequest {
         Cookie[] cookies = getCookies();
         if (cookies != null) {
             for (Cookie cookie : cookies) {
-                if ("JSESSIONID".equals(cookie.getName())) {
+                if (SESSION_COOKIE_NAME.equals(cookie.getName())) {
                     return true;
                 }
             }
@@ -455,7 +756,7 @@ public class Request implements HttpServletRequest {
 
     @Override
     public boolean isRequestedSessionIdValid() {
-        String sessionId = headers.get(SESSION_COOKIE_NAME);
+        String sessionId = getRequestedSessionId();
         if (sessionId != null) {
             Session session = sessionManager.getSession(sessionId);
             return session != null && session.isValid();
@@ -515,12 +816,9 @@ public class Request implements HttpServletRequest {
     @Override
     public String getRequestedSessionId() {
         // 首先从 Cookie 中查找
-        Cookie[] cookies = getCookies();
-        if (cookies != null) {
-            for (Cookie cookie : cookies) {
-                if (SESSION_COOKIE_NAME.equals(cookie.getName())) {
-                    return cookie.getValue();
-                }
+        for (Cookie cookie : cookies()) {
+            if (SESSION_COOKIE_NAME.equals(cookie.getName())) {
+                return cookie.getValue();
             }
         }
         
@@ -529,11 +827,12 @@ public class Request implements HttpServletRequest {
         if (uri != null) {
             int sessionStart = uri.indexOf(";jsessionid=");
             if (sessionStart != -1) {
-                int sessionEnd = uri.indexOf(';', sessionStart + 11);
+                int idStart = sessionStart + ";jsessionid=".length();
+                int sessionEnd = uri.indexOf(';', idStart);
                 if (sessionEnd == -1) {
                     sessionEnd = uri.length();
                 }
-                return uri.substring(sessionStart + 11, sessionEnd);
+                return uri.substring(idStart, sessionEnd);
             }
         }
         
@@ -567,12 +866,7 @@ public class Request implements HttpServletRequest {
 
     @Override
     public String getQueryString() {
-        String uri = getRequestURI();
-        int questionPos = uri.indexOf('?');
-        if (questionPos != -1) {
-            return uri.substring(questionPos + 1);
-        }
-        return null;
+        return queryString;
     }
 
     @Override
@@ -588,6 +882,9 @@ public class Request implements HttpServletRequest {
 
     @Override
     public String getPathInfo() {
+        if (servletMapped) {
+            return pathInfo;
+        }
         String servletPath = getServletPath();
         String requestURI = getRequestURI();
         
@@ -624,12 +921,12 @@ public class Request implements HttpServletRequest {
 
     @Override
     public java.util.Enumeration<String> getHeaderNames() {
-        return java.util.Collections.enumeration(headers.keySet());
+        return java.util.Collections.enumeration(headers().keySet());
     }
 
     @Override
     public Enumeration<String> getHeaders(String name) {
-        String value = headers.get(name.toLowerCase());
+        String value = getHeader(name);
         return value != null ? 
             Collections.enumeration(Collections.singletonList(value)) : 
             Collections.emptyEnumeration();
@@ -640,13 +937,16 @@ public class Request implements HttpServletRequest {
         if (colonPos > 0) {
             String headerName = headerLine.substring(0, colonPos).trim().toLowerCase();
             String headerValue = headerLine.substring(colonPos + 1).trim();
-            headers.put(headerName, headerValue);
+            headers().put(headerName, headerValue);
         }
     }
 
     @Override
     public String getHeader(String name) {
-        return headers.get(name.toLowerCase());
+        if (headersMaterialized) {
+            return headers.get(name.toLowerCase());
+        }
+        return parser.getHeader(name);
     }
 
     @Override
@@ -655,20 +955,21 @@ public class Request implements HttpServletRequest {
         if (value == null) {
             return -1L;
         }
-        try {
-            return Date.parse(value);
-        } catch (IllegalArgumentException e) {
+        long date = HttpDate.parse(value);
+        if (date < 0) {
             throw new IllegalArgumentException("Cannot parse date header: " + value);
         }
+        return date;
     }
 
     @Override
     public Cookie[] getCookies() {
-        return cookies.toArray(new Cookie[0]);
+        List<Cookie> parsed = cookies();
+        return parsed.isEmpty() ? null : parsed.toArray(new Cookie[0]);
     }
 
     public void addCookie(Cookie cookie) {
-        cookies.add(cookie);
+        cookies().add(cookie);
     }
 
     @Override
@@ -1,18 +1,42 @@
 package com.microtomcat.connector;
 
+import com.microtomcat.logging.Log;
+import com.microtomcat.resources.MappedFile;
+import com.microtomcat.resources.MappedFilePool;
+import com.microtomcat.resources.StaticResource;
+import com.microtomcat.resources.StaticResourceCache;
 import java.io.*;
 import java.util.*;
 import javax.servlet.*;
 import javax.servlet.http.*;
-import java.text.SimpleDateFormat;
-import java.util.TimeZone;
 import java.util.Locale;
 import java.nio.charset.StandardCharsets;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ThreadLocalRandom;
 
+/**
+ * HTTP 响应。每个 Processor 持有一个实例反复使用，请求处理结束后必须调用 recycle()。
+ */
 public class Response implements HttpServletResponse {
-    private final OutputStream output;
-    private final PrintWriter writer;
-    private final Map<String, String> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    private static final Log LOG = Log.getLog(Response.class);
+    private static final int DEFAULT_BUFFER_SIZE = 8192;
+    private static final byte[] CRLF = {'\r', '\n'};
+    private static final byte[] LAST_CHUNK = {'0', '\r', '\n', '\r', '\n'};
+    private static final byte[] HEX_DIGITS = {
+        '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b', 'c', 'd', 'e', 'f'
+    };
+    private static final byte[] COLON_SPACE = {':', ' '};
+    private static final byte[] SERVER_HEADER = "Server: MicroTomcat\r\n".getBytes(StandardCharsets.ISO_8859_1);
+    // 静态资源预压缩文件的查找顺序
+    private static final String[] STATIC_ENCODINGS = {Compression.BROTLI, Compression.GZIP};
+
+    private OutputStream output;
+    private final ResponseWriter writer;
+    // 键统一为小写名称，见 HttpMessages.toLowerCaseName
+    private final Map<String, String> headers = new LinkedHashMap<>();
     private final List<Cookie> cookies = new ArrayList<>();
     private String contentType;
     private String characterEncoding = "UTF-8";
@@ -21,15 +45,64 @@ public class Response implements HttpServletResponse {
     private boolean committed = false;
     private String errorMessage;
     private Locale locale = Locale.getDefault();
-    private int bufferSize = 8192;
-    private ServletOutputStream servletOutputStream;
-    private ByteArrayOutputStream buffer;
+    private int bufferSize = DEFAULT_BUFFER_SIZE;
+    private final ServletOutputStream servletOutputStream;
+    // 响应体缓冲区，只使用前 bufferSize 个字节；写满后提交响应头，之后的数据直接写入连接
+    private byte[] outputBuffer = new byte[DEFAULT_BUFFER_SIZE];
+    private int outputCount;
+    // 提交时长度未知则使用 chunked 编码，HTTP/1.0 请求不允许 chunked，只能以关闭连接结束响应体
+    private boolean chunkingAllowed = true;
+    private boolean chunked;
+    // 块大小行（最多 8 位十六进制 + CRLF）在这里拼出，每个块不再分配 String 和 byte[]
+    private final byte[] chunkHeader = new byte[10];
+    // 响应体已经全部写出，之后的写入被丢弃
+    private boolean finished;
+    // 丢弃缓冲内容期间的写入不进入缓冲区
+    private boolean discarding;
+    // 序列化响应头用的缓冲区，整个响应头一次写出
+    private byte[] headerBuffer = new byte[512];
+    private int headerCount;
+
+    // 超过该大小的文件走 FileChannel.transferTo 零拷贝路径
+    public static final long DEFAULT_SENDFILE_THRESHOLD = 48 * 1024;
+    private long sendfileThreshold = DEFAULT_SENDFILE_THRESHOLD;
+    // 已写入连接的响应体字节数，不含 chunked 编码的分块头
+    private long bytesWritten;
+    // 连接器提供的底层 socket 通道，为 null 时只能走流复制
+    private WritableByteChannel socketChannel;
+    private boolean nonBlocking;
+    // 非阻塞连接上尚未完成的文件发送，由连接器在 OP_WRITE 时继续
+    private SendfileData sendfileData;
+    private ServletResponseWrapper facade;
+    // 请求的 Accept-Encoding，由连接器设置；为 null 时不压缩
+    private String acceptEncoding;
+    private Compression compression;
+    // 不为 null 时响应体经它压缩后再写出
+    private DeflateEncoder encoder;
+    private byte[] deflateBuffer;
+    // sendFile 等方法声明了准确长度的响应体原样发送
+    private boolean compressionBypassed;
+
+    public Response() {
+        this(null);
+    }
 
     public Response(OutputStream output) {
         this.output = output;
-        this.buffer = new ByteArrayOutputStream(bufferSize);
-        this.writer = new PrintWriter(new OutputStreamWriter(buffer, StandardCharsets.UTF_8));
+        this.writer = new ResponseWriter(new OutputStreamWriter(new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                append(new byte[] {(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                append(b, off, len);
+            }
+        }, StandardCharsets.UTF_8));
         this.servletOutputStream = new ServletOutputStream() {
+            private final byte[] single = new byte[1];
+
             @Override
             public boolean isReady() {
                 return true;
@@ -41,16 +114,121 @@ public class Response implements HttpServletResponse {
 
             @Override
             public void write(int b) throws IOException {
-                buffer.write(b);
+                single[0] = (byte) b;
+                append(single, 0, 1);
             }
 
             @Override
             public void write(byte[] b, int off, int len) throws IOException {
-                buffer.write(b, off, len);
+                append(b, off, len);
+            }
+
+            @Override
+            public void flush() throws IOException {
+                flushBuffer();
             }
         };
     }
 
+    /**
+     * Servlet 使用的 writer：flush 会提交响应，close 只做 flush 以便随 Response 复用
+     */
+    private class ResponseWriter extends PrintWriter {
+        ResponseWriter(Writer out) {
+            super(out);
+        }
+
+        @Override
+        public void flush() {
+            drain();
+            try {
+                flushBuffer();
+            } catch (IOException e) {
+                setError();
+            }
+        }
+
+        @Override
+        public void close() {
+            flush();
+        }
+
+        /**
+         * 把编码器中待写的字符转成字节放入响应缓冲区，不提交响应
+         */
+        void drain() {
+            super.flush();
+        }
+
+        void recycle() {
+            clearError();
+        }
+    }
+
+    public void setOutputStream(OutputStream output) {
+        this.output = output;
+    }
+
+    /**
+     * 交给 Servlet 的外观对象，随 Response 一起复用
+     */
+    public ServletResponseWrapper getFacade() {
+        if (facade == null) {
+            facade = new ServletResponseWrapper(this);
+        }
+        return facade;
+    }
+
+    /**
+     * 清空本次响应的全部状态以便下一个请求复用；连接器应在此之前用 takeSendfileData() 取走待发送的文件，
+     * 没有取走的会被关闭
+     */
+    public void recycle() {
+        discardBuffered();
+        writer.recycle();
+        output = null;
+        headers.clear();
+        cookies.clear();
+        contentType = null;
+        characterEncoding = "UTF-8";
+        contentLength = -1;
+        status = HttpServletResponse.SC_OK;
+        committed = false;
+        errorMessage = null;
+        locale = Locale.getDefault();
+        bufferSize = DEFAULT_BUFFER_SIZE;
+        chunkingAllowed = true;
+        chunked = false;
+        finished = false;
+        sendfileThreshold = DEFAULT_SENDFILE_THRESHOLD;
+        socketChannel = null;
+        nonBlocking = false;
+        if (sendfileData != null) {
+            // 处理过程中出错、连接器没有取走的文件在这里关闭，释放文件句柄或映射引用
+            try {
+                sendfileData.close();
+            } catch (IOException e) {
+                LOG.debug("Failed to close unsent file: {}", e.getMessage());
+            }
+            sendfileData = null;
+        }
+        bytesWritten = 0;
+        acceptEncoding = null;
+        compressionBypassed = false;
+        if (encoder != null) {
+            encoder.abort();
+            encoder = null;
+        }
+        if (facade != null) {
+            if (Request.RECYCLE_FACADES) {
+                facade.release();
+                facade = null;
+            } else {
+                facade.recycle();
+            }
+        }
+    }
+
     @Override
     public String getContentType() {
         return contentType;
@@ -58,15 +236,20 @@ public class Response implements HttpServletResponse {
 
     @Override
     public void setContentType(String type) {
+        if (committed) {
+            return;
+        }
         this.contentType = type;
-        if (!committed && type != null) {
-            if (!type.contains("charset=") && getCharacterEncoding() != null) {
-                headers.put("Content-Type", type + "; charset=" + getCharacterEncoding());
-                System.out.println("Response DEBUG: Setting Content-Type header: " + type + "; charset=" + getCharacterEncoding());
-            } else {
-                headers.put("Content-Type", type);
-                System.out.println("Response DEBUG: Setting Content-Type header: " + type);
-            }
+        updateContentTypeHeader();
+    }
+
+    private void updateContentTypeHeader() {
+        if (contentType == null) {
+            headers.remove("content-type");
+        } else if (!contentType.contains("charset=") && getCharacterEncoding() != null) {
+            headers.put("content-type", contentType + "; charset=" + getCharacterEncoding());
+        } else {
+            headers.put("content-type", contentType);
         }
     }
 
@@ -77,35 +260,37 @@ public class Response implements HttpServletResponse {
 
     @Override
     public Collection<String> getHeaders(String name) {
-        String value = headers.get(name.toLowerCase());
+        String value = headers.get(HttpMessages.toLowerCaseName(name));
         return value != null ? Collections.singletonList(value) : Collections.emptyList();
     }
 
     @Override
     public String getHeader(String name) {
-        return headers.get(name.toLowerCase());
+        return headers.get(HttpMessages.toLowerCaseName(name));
     }
 
     @Override
     public void addHeader(String name, String value) {
-        if (!committed) {
-            headers.put(name.toLowerCase(), value);
-        }
+        setHeader(name, value);
     }
 
     @Override
     public void setHeader(String name, String value) {
-        if (!committed) {
-            headers.put(name, value);
-            System.out.println("Response DEBUG: Setting header: " + name + " = " + value);
+        if (committed) {
+            return;
+        }
+        String lowerCaseName = HttpMessages.toLowerCaseName(name);
+        if ("content-type".equals(lowerCaseName)) {
+            setContentType(value);
+        } else if (value == null) {
+            headers.remove(lowerCaseName);
+        } else {
+            headers.put(lowerCaseName, value);
         }
     }
 
     @Override
     public PrintWriter getWriter() throws IOException {
-        if (!committed) {
-            sendHeaders();
-        }
         return writer;
     }
 
@@ -113,8 +298,7 @@ public class Response implements HttpServletResponse {
     public void setContentLength(int len) {
         if (!isCommitted()) {
             this.contentLength = len;
-            headers.put("Content-Length", String.valueOf(len));
-            System.out.println("Response DEBUG: Setting Content-Length: " + len);
+            headers.put("content-length", String.valueOf(len));
         }
     }
 
@@ -139,6 +323,10 @@ public class Response implements HttpServletResponse {
         if (isCommitted()) {
             throw new IllegalStateException("Response already committed");
         }
+        // 错误页替换掉已缓冲的内容和之前声明的长度
+        discardBuffered();
+        headers.remove("content-length");
+        contentLength = -1;
         this.status = sc;
         this.errorMessage = msg;
         
@@ -151,56 +339,421 @@ public class Response implements HttpServletResponse {
             out.println("<p>" + msg + "</p>");
         }
         out.println("</body></html>");
-        out.flush();
-        committed = true;
+        finishResponse();
     }
 
     public void sendStaticResource(File resource) throws IOException {
-        if (resource.exists()) {
-            try (FileInputStream fis = new FileInputStream(resource)) {
-                setContentLength((int) resource.length());
-                String contentType = getContentTypeFromFileName(resource.getName());
-                System.out.println("Response DEBUG: Setting Content-Type for static resource: " + contentType);
-                setContentType(contentType);
-                
-                // 确保发送响应头
-                sendHeaders();
-                
-                // 再发送内容
-                byte[] buffer = new byte[1024];
-                int bytesRead;
-                while ((bytesRead = fis.read(buffer)) != -1) {
-                    output.write(buffer, 0, bytesRead);
+        sendStaticResource(StaticResourceCache.getShared().lookup(resource.toPath()));
+    }
+
+    /**
+     * 发送静态资源：内容在缓存中时直接从内存写出，否则经 sendFile 读取文件
+     */
+    public void sendStaticResource(StaticResource resource) throws IOException {
+        if (!resource.isFile()) {
+            sendError(HttpServletResponse.SC_NOT_FOUND, "Resource not found: " + resource.getPath().getFileName());
+            return;
+        }
+        setStaticHeaders(resource);
+        sendRange(resource, 0, resource.getLength());
+    }
+
+    /**
+     * 按请求发送静态资源。先按 Accept-Encoding 选择表示：.br / .gz 预压缩文件，或缓存中压缩过一次的 gzip 内容；
+     * 再对选中的表示做条件 GET（304）和 Range 处理：一个区间回复 206 和 Content-Range，多个区间回复 multipart/byteranges，
+     * 区间都不可满足时回复 416。不是 GET、If-Range 与当前版本不符或 Range 无法解析时发送整个资源。
+     * HEAD 请求只发送与 GET 相同的响应头，不发送响应体。
+     */
+    public void sendStaticResource(StaticResource resource, HttpServletRequest request) throws IOException {
+        if (!resource.isFile()) {
+            sendStaticResource(resource);
+            return;
+        }
+        resource = selectEncoding(resource, request.getHeader("Accept-Encoding"));
+        if (checkNotModified(request, this, resource)) {
+            return;
+        }
+        if ("HEAD".equals(request.getMethod())) {
+            setStaticHeaders(resource);
+            setContentLengthLong(resource.getLength());
+            compressionBypassed = true;
+            finishResponse();
+            return;
+        }
+        List<ByteRange> ranges = requestedRanges(request, resource);
+        if (ranges == null) {
+            sendStaticResource(resource);
+            return;
+        }
+        long length = resource.getLength();
+        if (ranges.isEmpty()) {
+            setHeader("Content-Range", "bytes */" + length);
+            sendError(SC_REQUESTED_RANGE_NOT_SATISFIABLE, "Requested range not satisfiable");
+            return;
+        }
+        setStatus(SC_PARTIAL_CONTENT);
+        setStaticHeaders(resource);
+        if (ranges.size() == 1) {
+            // 单个区间与整个文件走同一条路径：内存、映射切片或 transferTo，只读取请求的字节
+            ByteRange range = ranges.get(0);
+            setHeader("Content-Range", range.toContentRange(length));
+            sendRange(resource, range.getStart(), range.getLength());
+        } else {
+            sendMultipart(resource, ranges);
+        }
+    }
+
+    /**
+     * 选择客户端接受的编码版本：预压缩文件优先（br 先于 gzip），其次是可压缩且在缓存中的内容压缩一次后的 gzip 版本。
+     * 存在编码版本时同一 URL 的响应随 Accept-Encoding 变化，加上 Vary
+     */
+    private StaticResource selectEncoding(StaticResource resource, String acceptEncoding) {
+        StaticResourceCache cache = StaticResourceCache.getShared();
+        StaticResource selected = null;
+        boolean varies = false;
+        for (String encoding : STATIC_ENCODINGS) {
+            StaticResource sidecar = cache.lookupSidecar(resource, encoding);
+            if (sidecar != null) {
+                varies = true;
+                if (selected == null && Compression.accepts(acceptEncoding, encoding)) {
+                    selected = sidecar;
                 }
+            }
+        }
+        Compression compression = getCompression();
+        if (selected == null && compression.isEnabled() && resource.hasContent()
+                && resource.getLength() >= compression.getMinSize() && compression.isCompressible(resource.getMimeType())) {
+            varies = true;
+            if (Compression.accepts(acceptEncoding, Compression.GZIP)) {
+                selected = cache.lookupPrecompressed(resource, Compression.GZIP,
+                    content -> compression.compress(content, Compression.GZIP));
+            }
+        }
+        if (varies) {
+            addVary("Accept-Encoding");
+        }
+        return selected != null ? selected : resource;
+    }
+
+    private static List<ByteRange> requestedRanges(HttpServletRequest request, StaticResource resource) {
+        String range = request.getHeader("Range");
+        if (range == null || !"GET".equals(request.getMethod())) {
+            return null;
+        }
+        String ifRange = request.getHeader("If-Range");
+        if (ifRange != null && !matchesIfRange(ifRange.trim(), resource)) {
+            return null;
+        }
+        return ByteRange.parse(range, resource.getLength());
+    }
+
+    /**
+     * If-Range 使用强比较：弱 ETag 永远不匹配，日期必须与 Last-Modified 在秒级上相等
+     */
+    private static boolean matchesIfRange(String ifRange, StaticResource resource) {
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(resource.getETag());
+        }
+        long date = HttpDate.parse(ifRange);
+        return date >= 0 && date / 1000 == resource.getLastModified() / 1000;
+    }
+
+    private void setStaticHeaders(StaticResource resource) {
+        LOG.debug("Setting Content-Type for static resource: {}", resource.getMimeType());
+        setContentType(resource.getMimeType());
+        setHeader("ETag", resource.getETag());
+        setHeader("Last-Modified", resource.getLastModifiedHttpDate());
+        setHeader("Accept-Ranges", "bytes");
+        if (resource.getContentEncoding() != null) {
+            setHeader("Content-Encoding", resource.getContentEncoding());
+        }
+    }
+
+    // 发送资源中 [offset, offset + length) 部分，规则与 sendFile 相同
+    private void sendRange(StaticResource resource, long offset, long length) throws IOException {
+        ByteBuffer content = resource.getContent();
+        if (content != null) {
+            content.limit((int) (offset + length));
+            content.position((int) offset);
+            sendContent(content);
+            return;
+        }
+        // 堆缓存放不下的文件优先从映射池发送，更大的文件走 transferTo
+        MappedFile mapped = MappedFilePool.getShared().acquire(resource);
+        if (mapped != null) {
+            sendMapped(mapped, offset, length);
+        } else {
+            sendFile(resource.getPath().toFile(), offset, length);
+        }
+    }
+
+    /**
+     * multipart/byteranges 响应体。各部分的头部预先生成，总长度可以提前算出，响应不必分块
+     */
+    private void sendMultipart(StaticResource resource, List<ByteRange> ranges) throws IOException {
+        long length = resource.getLength();
+        String boundary = Long.toHexString(ThreadLocalRandom.current().nextLong() | Long.MIN_VALUE);
+        String partType = getHeader("Content-Type");
+        byte[][] partHeaders = new byte[ranges.size()][];
+        long total = 0;
+        for (int i = 0; i < ranges.size(); i++) {
+            ByteRange range = ranges.get(i);
+            partHeaders[i] = ("\r\n--" + boundary + "\r\nContent-Type: " + partType
+                + "\r\nContent-Range: " + range.toContentRange(length) + "\r\n\r\n")
+                .getBytes(StandardCharsets.ISO_8859_1);
+            total += partHeaders[i].length + range.getLength();
+        }
+        byte[] closing = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.ISO_8859_1);
+        total += closing.length;
+
+        // boundary 参数后不能再追加 charset，直接写入响应头
+        contentType = "multipart/byteranges; boundary=" + boundary;
+        headers.put("content-type", contentType);
+        setContentLengthLong(total);
+        compressionBypassed = true;
+        for (int i = 0; i < ranges.size(); i++) {
+            ByteRange range = ranges.get(i);
+            servletOutputStream.write(partHeaders[i]);
+            sendRange(resource, range.getStart(), range.getLength());
+        }
+        servletOutputStream.write(closing);
+    }
+
+    /**
+     * 条件 GET：写出 ETag、Last-Modified 响应头，再按 If-None-Match / If-Modified-Since 判断客户端的副本是否仍然有效。
+     * 有效时把状态设为 304 并返回 true，调用方不应再写响应体，也不必读取资源内容。
+     * 两个请求头都存在时只看 If-None-Match；只对 GET 和 HEAD 生效。
+     * etag 为 null 或 lastModified 小于 0 时忽略对应的验证器。
+     */
+    public static boolean checkNotModified(HttpServletRequest request, HttpServletResponse response,
+                                           String etag, long lastModified) {
+        if (etag != null) {
+            response.setHeader("ETag", etag);
+        }
+        if (lastModified >= 0) {
+            response.setDateHeader("Last-Modified", lastModified);
+        }
+        return evaluateNotModified(request, response, etag, lastModified);
+    }
+
+    /**
+     * 静态资源的条件 GET，使用随元数据缓存的 ETag 和 Last-Modified
+     */
+    public static boolean checkNotModified(HttpServletRequest request, HttpServletResponse response,
+                                           StaticResource resource) {
+        if (!resource.isFile()) {
+            return false;
+        }
+        response.setHeader("ETag", resource.getETag());
+        response.setHeader("Last-Modified", resource.getLastModifiedHttpDate());
+        return evaluateNotModified(request, response, resource.getETag(), resource.getLastModified());
+    }
+
+    private static boolean evaluateNotModified(HttpServletRequest request, HttpServletResponse response,
+                                               String etag, long lastModified) {
+        String method = request.getMethod();
+        if (!"GET".equals(method) && !"HEAD".equals(method)) {
+            return false;
+        }
+        boolean notModified;
+        String ifNoneMatch = request.getHeader("If-None-Match");
+        if (ifNoneMatch != null) {
+            notModified = etag != null && matchesAny(ifNoneMatch, etag);
+        } else {
+            // HTTP 日期只精确到秒；无法解析的日期按未携带处理
+            long since = HttpDate.parse(request.getHeader("If-Modified-Since"));
+            notModified = since >= 0 && lastModified >= 0 && lastModified / 1000 <= since / 1000;
+        }
+        if (notModified) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        }
+        return notModified;
+    }
+
+    /**
+     * If-None-Match 使用弱比较：忽略两边的 W/ 前缀
+     */
+    private static boolean matchesAny(String header, String etag) {
+        String target = stripWeak(etag);
+        for (String candidate : header.split(",")) {
+            String tag = candidate.trim();
+            if ("*".equals(tag) || stripWeak(tag).equals(target)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String stripWeak(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+
+    /**
+     * 发送内存中的内容作为响应体，规则与 sendFile 相同：
+     * 响应尚未开始时作为整个响应体并声明 Content-Length，否则接在已有响应体之后
+     */
+    public void sendContent(ByteBuffer content) throws IOException {
+        writer.drain();
+        boolean whole = !committed && outputCount == 0;
+        if (whole) {
+            setContentLengthLong(content.remaining());
+            compressionBypassed = true;
+            commit(false);
+        } else {
+            flushBuffer();
+        }
+        byte[] chunk = new byte[Math.min(8192, Math.max(content.remaining(), 1))];
+        while (content.hasRemaining()) {
+            int length = Math.min(chunk.length, content.remaining());
+            content.get(chunk, 0, length);
+            writeBody(chunk, 0, length);
+        }
+        output.flush();
+        if (whole) {
+            finished = true;
+        }
+    }
+
+    /**
+     * 发送映射文件的一段内容，规则与 sendFile 相同，并接管调用方持有的映射引用。
+     * 有 socket 通道时把映射切片交给连接器直接写出（非阻塞连接与响应头合并为一次 gathering write），
+     * 否则复制到输出流；映射在写完后才释放。
+     */
+    public void sendMapped(MappedFile file, long offset, long length) throws IOException {
+        SendfileData data = new SendfileData(file, offset, length);
+        try {
+            writer.drain();
+            boolean whole = !committed && outputCount == 0;
+            if (whole) {
+                setContentLengthLong(length);
+                compressionBypassed = true;
+                commit(false);
+            } else {
+                flushBuffer();
+            }
+
+            if (whole && socketChannel != null) {
                 output.flush();
-                committed = true;
+                bytesWritten += length;
+                if (nonBlocking) {
+                    this.sendfileData = data;
+                    data = null;
+                } else {
+                    data.transferTo(socketChannel);
+                }
+            } else {
+                ByteBuffer slice = data.getMappedSlice();
+                byte[] chunk = new byte[(int) Math.min(8192, Math.max(length, 1))];
+                while (slice.hasRemaining()) {
+                    int read = Math.min(chunk.length, slice.remaining());
+                    slice.get(chunk, 0, read);
+                    writeBody(chunk, 0, read);
+                }
+                output.flush();
+            }
+            if (whole) {
+                finished = true;
+            }
+        } finally {
+            if (data != null) {
+                data.close();
             }
+        }
+    }
+
+    /**
+     * 发送文件的一段内容作为响应体。
+     * 长度达到 sendfileThreshold 且连接器提供了 socket 通道时，绕过响应缓冲区直接 transferTo；
+     * 非阻塞连接只登记 SendfileData，由连接器在 OP_WRITE 时驱动传输。
+     */
+    public void sendFile(File file, long offset, long length) throws IOException {
+        writer.drain();
+        // 文件是整个响应体时才能声明 Content-Length；否则作为已有响应体的后续部分写出
+        boolean whole = !committed && outputCount == 0;
+        if (whole) {
+            setContentLengthLong(length);
+            compressionBypassed = true;
+            commit(false);
         } else {
-            sendError(HttpServletResponse.SC_NOT_FOUND, "Resource not found: " + resource.getName());
-        }
-    }
-
-    private String getContentTypeFromFileName(String fileName) {
-        String contentType;
-        if (fileName.endsWith(".html") || fileName.endsWith(".htm")) {
-            contentType = "text/html";
-        } else if (fileName.endsWith(".txt")) {
-            contentType = "text/plain";
-        } else if (fileName.endsWith(".css")) {
-            contentType = "text/css";
-        } else if (fileName.endsWith(".js")) {
-            contentType = "application/javascript";
-        } else if (fileName.endsWith(".jpg") || fileName.endsWith(".jpeg")) {
-            contentType = "image/jpeg";
-        } else if (fileName.endsWith(".png")) {
-            contentType = "image/png";
-        } else if (fileName.endsWith(".gif")) {
-            contentType = "image/gif";
+            flushBuffer();
+        }
+
+        if (whole && socketChannel != null && length >= sendfileThreshold) {
+            output.flush();
+            SendfileData data = new SendfileData(file.toPath(), offset, length);
+            bytesWritten += length;
+            if (nonBlocking) {
+                this.sendfileData = data;
+            } else {
+                try {
+                    data.transferTo(socketChannel);
+                } finally {
+                    data.close();
+                }
+            }
         } else {
-            contentType = "application/octet-stream";
+            try (FileChannel fileChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                byte[] chunk = new byte[(int) Math.min(8192, Math.max(length, 1))];
+                ByteBuffer wrapped = ByteBuffer.wrap(chunk);
+                long position = offset;
+                long remaining = length;
+                while (remaining > 0) {
+                    wrapped.clear();
+                    wrapped.limit((int) Math.min(chunk.length, remaining));
+                    int read = fileChannel.read(wrapped, position);
+                    if (read < 0) {
+                        break;
+                    }
+                    writeBody(chunk, 0, read);
+                    position += read;
+                    remaining -= read;
+                }
+            }
+            output.flush();
         }
-        System.out.println("DEBUG: getContentTypeFromFileName: " + fileName + " -> " + contentType);
-        return contentType;
+        if (whole) {
+            finished = true;
+        }
+    }
+
+    /**
+     * 由连接器注入底层 socket 通道，使大文件可以零拷贝发送
+     */
+    public void setSocketChannel(WritableByteChannel socketChannel, boolean nonBlocking) {
+        this.socketChannel = socketChannel;
+        this.nonBlocking = nonBlocking;
+    }
+
+    public long getSendfileThreshold() {
+        return sendfileThreshold;
+    }
+
+    public void setSendfileThreshold(long sendfileThreshold) {
+        this.sendfileThreshold = sendfileThreshold;
+    }
+
+    /**
+     * 非阻塞连接上待由连接器完成的文件发送，没有则返回 null
+     */
+    public SendfileData getSendfileData() {
+        return sendfileData;
+    }
+
+    /**
+     * 连接器取走待发送的文件并接管其关闭；之后 recycle() 不再关闭它
+     */
+    public SendfileData takeSendfileData() {
+        SendfileData data = sendfileData;
+        sendfileData = null;
+        return data;
+    }
+
+    /**
+     * 响应体是否有明确的结束边界（Content-Length、chunked 或无响应体的状态码），
+     * 只有有边界的响应才能在同一连接上继续处理下一个请求
+     */
+    public boolean isBodyDelimited() {
+        return !isBodyAllowed() || headers.containsKey("content-length") || chunked;
     }
 
     @Override
@@ -213,6 +766,7 @@ public class Response implements HttpServletResponse {
         if (committed) {
             throw new IllegalStateException("Cannot reset a committed response");
         }
+        discardBuffered();
         headers.clear();
         cookies.clear();
         status = HttpServletResponse.SC_OK;
@@ -223,21 +777,247 @@ public class Response implements HttpServletResponse {
 
     @Override
     public void flushBuffer() throws IOException {
-        // 确保响应头已发送
-        if (!committed) {
-            sendHeaders();
+        if (finished) {
+            return;
         }
-        
-        // 刷新缓冲区内容
-        if (buffer.size() > 0) {
-            buffer.writeTo(output);
-            buffer.reset();
+        writer.drain();
+        // 此时响应体长度未知，提交后按 chunked 发送
+        commit(false);
+        writeBody(outputBuffer, 0, outputCount);
+        outputCount = 0;
+        if (encoder != null) {
+            encoder.flush();
         }
-        
-        // 刷新输出流
-        writer.flush();
         output.flush();
-        committed = true;
+    }
+
+    /**
+     * 结束响应，由连接器在请求处理完成后调用，可重复调用。
+     * 尚未提交的响应整个都在缓冲区中，此时可以补上准确的 Content-Length；
+     * chunked 响应写出结束块。
+     */
+    public void finishResponse() throws IOException {
+        if (finished) {
+            return;
+        }
+        writer.drain();
+        commit(true);
+        writeBody(outputBuffer, 0, outputCount);
+        outputCount = 0;
+        if (encoder != null) {
+            DeflateEncoder finishing = encoder;
+            encoder = null;
+            finishing.finish();
+        }
+        if (chunked) {
+            output.write(LAST_CHUNK);
+        }
+        finished = true;
+        output.flush();
+    }
+
+    /**
+     * 由连接器根据请求协议设置，HTTP/1.0 的客户端不支持 chunked 编码
+     */
+    public void setChunkingAllowed(boolean chunkingAllowed) {
+        this.chunkingAllowed = chunkingAllowed;
+    }
+
+    /**
+     * 到目前为止产生的响应体字节数：已写入连接的部分加上仍在缓冲区中的部分
+     */
+    public long getBytesWritten() {
+        return bytesWritten + outputCount;
+    }
+
+    /**
+     * 由连接器在解析请求后设置，决定响应体能否压缩以及使用的编码
+     */
+    public void setAcceptEncoding(String acceptEncoding) {
+        this.acceptEncoding = acceptEncoding;
+    }
+
+    public Compression getCompression() {
+        return compression != null ? compression : Compression.getShared();
+    }
+
+    public void setCompression(Compression compression) {
+        this.compression = compression;
+    }
+
+    private void append(byte[] b, int off, int len) throws IOException {
+        if (finished || discarding) {
+            return;
+        }
+        if (outputCount + len > bufferSize) {
+            // 缓冲区放不下：提交响应头，已缓冲的数据直接写入连接
+            commit(false);
+            writeBody(outputBuffer, 0, outputCount);
+            outputCount = 0;
+            if (len >= bufferSize) {
+                writeBody(b, off, len);
+                return;
+            }
+        }
+        System.arraycopy(b, off, outputBuffer, outputCount, len);
+        outputCount += len;
+    }
+
+    /**
+     * 提交响应头。没有声明长度时：last 为 true 说明整个响应体都在缓冲区中，
+     * 直接使用缓冲区长度；否则使用 chunked 编码，不支持时以关闭连接结束响应体
+     */
+    private void commit(boolean last) throws IOException {
+        if (committed) {
+            return;
+        }
+        startCompression(last);
+        String transferEncoding = headers.get("transfer-encoding");
+        if (transferEncoding != null && transferEncoding.toLowerCase().contains("chunked")) {
+            chunked = true;
+        } else if (!headers.containsKey("content-length") && isBodyAllowed()) {
+            if (last) {
+                contentLength = outputCount;
+                headers.put("content-length", String.valueOf(outputCount));
+            } else if (chunkingAllowed) {
+                headers.put("transfer-encoding", "chunked");
+                chunked = true;
+            } else {
+                headers.put("connection", "close");
+            }
+        }
+        sendHeaders();
+    }
+
+    /**
+     * 提交前决定是否压缩响应体：客户端接受 gzip 或 deflate、类型可压缩、已知长度不小于 minSize，
+     * 且响应体没有编码过、不是部分内容、也不是 sendFile 等方法原样发送的内容。
+     * 整个响应体都在缓冲区中时当场压缩并声明压缩后的长度（压缩后不更小就放弃），否则流式压缩、长度未知。
+     */
+    private void startCompression(boolean last) {
+        if (compressionBypassed || !isBodyAllowed() || status == SC_PARTIAL_CONTENT
+                || headers.containsKey("content-encoding")) {
+            return;
+        }
+        Compression compression = getCompression();
+        if (!compression.isEnabled() || !compression.isCompressible(contentType)) {
+            return;
+        }
+        // Servlet 可以经 setHeader 写入任意 Content-Length，无法解析时按长度未知处理
+        long length = declaredContentLength();
+        if (length < 0 && last) {
+            length = outputCount;
+        }
+        if (length >= 0 && length < compression.getMinSize()) {
+            return;
+        }
+        addVary("Accept-Encoding");
+        String encoding = compression.negotiate(acceptEncoding);
+        if (encoding == null) {
+            return;
+        }
+        if (deflateBuffer == null) {
+            deflateBuffer = new byte[DEFAULT_BUFFER_SIZE];
+        }
+        if (last) {
+            byte[] compressed = compression.compress(ByteBuffer.wrap(outputBuffer, 0, outputCount), encoding);
+            if (compressed.length >= outputCount) {
+                return;
+            }
+            System.arraycopy(compressed, 0, outputBuffer, 0, compressed.length);
+            outputCount = compressed.length;
+            contentLength = outputCount;
+            headers.put("content-length", String.valueOf(outputCount));
+        } else {
+            headers.remove("content-length");
+            contentLength = -1;
+            encoder = new DeflateEncoder(compression, encoding, deflateBuffer, this::writeOutput);
+        }
+        headers.put("content-encoding", encoding);
+    }
+
+    /**
+     * Servlet 声明的响应体长度；没有声明或不是合法的非负整数时返回 -1
+     */
+    private long declaredContentLength() {
+        String declared = headers.get("content-length");
+        if (declared == null) {
+            return -1;
+        }
+        try {
+            return Math.max(-1, Long.parseLong(declared.trim()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private void addVary(String name) {
+        String vary = headers.get("vary");
+        if (vary == null) {
+            headers.put("vary", name);
+            return;
+        }
+        for (String token : vary.split(",")) {
+            token = token.trim();
+            if (token.equalsIgnoreCase(name) || "*".equals(token)) {
+                return;
+            }
+        }
+        headers.put("vary", vary + ", " + name);
+    }
+
+    private void writeBody(byte[] b, int off, int len) throws IOException {
+        if (encoder != null) {
+            encoder.write(b, off, len);
+        } else {
+            writeOutput(b, off, len);
+        }
+    }
+
+    private void writeOutput(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return;
+        }
+        bytesWritten += len;
+        if (chunked) {
+            writeChunkHeader(len);
+            output.write(b, off, len);
+            output.write(CRLF);
+        } else {
+            output.write(b, off, len);
+        }
+    }
+
+    /**
+     * 从后往前填入十六进制块大小和 CRLF，只写出用到的部分
+     */
+    private void writeChunkHeader(int len) throws IOException {
+        int pos = chunkHeader.length;
+        chunkHeader[--pos] = '\n';
+        chunkHeader[--pos] = '\r';
+        do {
+            chunkHeader[--pos] = HEX_DIGITS[len & 0xF];
+            len >>>= 4;
+        } while (len != 0);
+        output.write(chunkHeader, pos, chunkHeader.length - pos);
+    }
+
+    /**
+     * 丢弃 writer 和缓冲区中尚未写出的内容
+     */
+    private void discardBuffered() {
+        discarding = true;
+        try {
+            writer.drain();
+        } finally {
+            discarding = false;
+        }
+        outputCount = 0;
+    }
+
+    private boolean isBodyAllowed() {
+        return status != HttpServletResponse.SC_NO_CONTENT && status != HttpServletResponse.SC_NOT_MODIFIED
+            && (status < 100 || status >= 200);
     }
 
     // Add other required methods from HttpServletResponse interface with default implementations
@@ -253,7 +1033,13 @@ public class Response implements HttpServletResponse {
 
     @Override
     public void setCharacterEncoding(String charset) {
+        if (committed) {
+            return;
+        }
         this.characterEncoding = charset;
+        if (contentType != null) {
+            updateContentTypeHeader();
+        }
     }
 
     @Override
@@ -268,16 +1054,12 @@ public class Response implements HttpServletResponse {
 
     @Override
     public void addDateHeader(String name, long date) {
-        addHeader(name, formatDate(date));
+        addHeader(name, HttpDate.format(date));
     }
 
     @Override
     public void setDateHeader(String name, long date) {
-        setHeader(name, formatDate(date));
-    }
-
-    private String formatDate(long date) {
-        return new Date(date).toGMTString();
+        setHeader(name, HttpDate.format(date));
     }
 
     @Override
@@ -304,7 +1086,7 @@ public class Response implements HttpServletResponse {
                    + location + "\">here</a>.</p>");
         out.println("</body></html>");
         
-        flushBuffer();
+        finishResponse();
     }
 
     @Override
@@ -346,7 +1128,7 @@ public class Response implements HttpServletResponse {
 
     @Override
     public boolean containsHeader(String name) {
-        return headers.containsKey(name.toLowerCase());
+        return headers.containsKey(HttpMessages.toLowerCaseName(name));
     }
 
     @Override
@@ -373,15 +1155,7 @@ public class Response implements HttpServletResponse {
             throw new IllegalStateException("Cannot reset buffer - response is already committed");
         }
         
-        // 清空输出流
-        try {
-            writer.flush();
-            // 由于我们使用的是 PrintWriter 包装的 OutputStream，
-            // 这里我们只能确保刷新缓冲，但不能真正清除已写入的内容
-            // 在实际生产环境中，可能需要使用可重置的缓冲流实现
-        } catch (Exception e) {
-            // 忽略异常
-        }
+        discardBuffered();
     }
 
     @Override
@@ -397,6 +1171,12 @@ public class Response implements HttpServletResponse {
         if (size <= 0) {
             throw new IllegalArgumentException("Buffer size <= 0");
         }
+        if (outputCount > 0) {
+            throw new IllegalStateException("Cannot set buffer size after content has been written");
+        }
+        if (size > outputBuffer.length) {
+            outputBuffer = new byte[size];
+        }
         this.bufferSize = size;
     }
 
@@ -404,67 +1184,99 @@ public class Response implements HttpServletResponse {
     public void setContentLengthLong(long length) {
         if (!isCommitted()) {
             this.contentLength = (int) length;
-            headers.put("Content-Length", String.valueOf(length));
-            System.out.println("Response DEBUG: Setting Content-Length (long): " + length);
+            headers.put("content-length", String.valueOf(length));
         }
     }
 
     @Override
     public ServletOutputStream getOutputStream() throws IOException {
-        if (!committed) {
-            sendHeaders();
-        }
         return servletOutputStream;
     }
 
+    /**
+     * 把状态行和全部响应头序列化到 headerBuffer 后一次写出。
+     * 状态行、常用响应头名称和 Date 都是预编码的字节，值按 ISO-8859-1 逐字符写入，不生成中间字符串。
+     */
     public void sendHeaders() throws IOException {
-        if (!isCommitted()) {
-            // 1. 写入状态行
-            String statusLine = String.format("HTTP/1.1 %d %s\r\n", status, getStatusMessage(status));
-            output.write(statusLine.getBytes(StandardCharsets.ISO_8859_1));
-            
-            // 2. 确保基本响应头存在
-            setHeader("Server", "MicroTomcat");
-            
-            // 设置 Content-Type
-            if (contentType != null) {
-                if (!contentType.contains("charset=") && getCharacterEncoding() != null) {
-                    setHeader("Content-Type", contentType + "; charset=" + getCharacterEncoding());
-                } else {
-                    setHeader("Content-Type", contentType);
-                }
-            }
-            
-            // 3. 写入所有响应头
-            for (Map.Entry<String, String> header : headers.entrySet()) {
-                String headerLine = String.format("%s: %s\r\n", header.getKey(), header.getValue());
-                System.out.println("Response DEBUG: Writing header: " + headerLine.trim());
-                output.write(headerLine.getBytes(StandardCharsets.ISO_8859_1));
+        if (committed) {
+            return;
+        }
+        headerCount = 0;
+        putHeaderBytes(HttpMessages.getStatusLine(status));
+        if (!headers.containsKey("server")) {
+            putHeaderBytes(SERVER_HEADER);
+        }
+        if (!headers.containsKey("date")) {
+            putHeaderBytes(HttpDate.getCurrentDateHeader());
+        }
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            byte[] name = HttpMessages.getHeaderName(header.getKey());
+            if (name != null) {
+                putHeaderBytes(name);
+            } else {
+                putHeaderChars(header.getKey());
+                putHeaderBytes(COLON_SPACE);
             }
-            
-            // 4. 写入空行
-            output.write("\r\n".getBytes(StandardCharsets.ISO_8859_1));
-            
-            // 5. 写入缓冲区内容（如果有的话）
-            if (buffer.size() > 0) {
-                buffer.writeTo(output);
-                buffer.reset();
+            putHeaderChars(header.getValue());
+            putHeaderBytes(CRLF);
+        }
+        for (Cookie cookie : cookies) {
+            putHeaderBytes(HttpMessages.getHeaderName("set-cookie"));
+            putHeaderChars(formatCookie(cookie));
+            putHeaderBytes(CRLF);
+        }
+        // 空行之后的响应体由调用方随后写出
+        putHeaderBytes(CRLF);
+        output.write(headerBuffer, 0, headerCount);
+        committed = true;
+    }
+
+    private void ensureHeaderCapacity(int length) {
+        if (headerCount + length > headerBuffer.length) {
+            headerBuffer = Arrays.copyOf(headerBuffer, Math.max(headerBuffer.length * 2, headerCount + length));
+        }
+    }
+
+    private void putHeaderBytes(byte[] bytes) {
+        ensureHeaderCapacity(bytes.length);
+        System.arraycopy(bytes, 0, headerBuffer, headerCount, bytes.length);
+        headerCount += bytes.length;
+    }
+
+    private void putHeaderChars(String value) {
+        int length = value.length();
+        ensureHeaderCapacity(length);
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            // 不能用 ISO-8859-1 表示的字符替换为 '?'，CR/LF 替换为空格以防响应头注入
+            if (c == '\r' || c == '\n') {
+                c = ' ';
+            } else if (c > 0xFF) {
+                c = '?';
             }
-            
-            // 6. 刷新输出流
-            output.flush();
-            
-            committed = true;
+            headerBuffer[headerCount++] = (byte) c;
         }
     }
 
-    private String getStatusMessage(int status) {
-        switch (status) {
-            case 200: return "OK";
-            case 404: return "Not Found";
-            case 500: return "Internal Server Error";
-            default: return "Unknown";
+    private String formatCookie(Cookie cookie) {
+        StringBuilder value = new StringBuilder();
+        value.append(cookie.getName()).append('=').append(cookie.getValue() != null ? cookie.getValue() : "");
+        if (cookie.getPath() != null) {
+            value.append("; Path=").append(cookie.getPath());
+        }
+        if (cookie.getDomain() != null) {
+            value.append("; Domain=").append(cookie.getDomain());
+        }
+        if (cookie.getMaxAge() >= 0) {
+            value.append("; Max-Age=").append(cookie.getMaxAge());
+        }
+        if (cookie.getSecure()) {
+            value.append("; Secure");
+        }
+        if (cookie.isHttpOnly()) {
+            value.append("; HttpOnly");
         }
+        return value.toString();
     }
 
     public int getContentLength() {
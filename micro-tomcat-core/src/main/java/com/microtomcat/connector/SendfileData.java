@@ -0,0 +1,95 @@
+package com.microtomcat.connector;
+
+import com.microtomcat.resources.MappedFile;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 一次零拷贝文件发送的状态：文件通道、当前位置和结束位置。
+ * 非阻塞连接在 OP_WRITE 就绪时反复调用 transferTo，直到传输完成。
+ * 来自 MappedFilePool 的文件直接写出映射切片，连接器可以把它和响应头放进同一次 gathering write；
+ * close 时释放映射的引用。
+ */
+public class SendfileData implements Closeable {
+    private final FileChannel fileChannel;
+    private long position;
+    private final long end;
+    private final MappedFile mappedFile;
+    private final ByteBuffer mappedSlice;
+    private boolean closed;
+
+    public SendfileData(Path path, long offset, long length) throws IOException {
+        this.fileChannel = FileChannel.open(path, StandardOpenOption.READ);
+        this.position = offset;
+        this.end = offset + length;
+        this.mappedFile = null;
+        this.mappedSlice = null;
+    }
+
+    /**
+     * 发送映射文件的一段，接管调用方持有的映射引用
+     */
+    public SendfileData(MappedFile mappedFile, long offset, long length) {
+        this.fileChannel = null;
+        this.mappedFile = mappedFile;
+        this.mappedSlice = mappedFile.slice(offset, length);
+        this.position = offset;
+        this.end = offset + length;
+    }
+
+    /**
+     * 通过 FileChannel.transferTo 把剩余内容写入目标通道
+     * @return 全部传输完成返回 true；非阻塞通道写满时返回 false，等待下一次 OP_WRITE
+     */
+    public boolean transferTo(WritableByteChannel target) throws IOException {
+        if (mappedSlice != null) {
+            while (mappedSlice.hasRemaining()) {
+                if (target.write(mappedSlice) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        while (position < end) {
+            long transferred = fileChannel.transferTo(position, end - position, target);
+            if (transferred <= 0) {
+                if (position >= fileChannel.size()) {
+                    throw new IOException("File truncated during sendfile");
+                }
+                return false;
+            }
+            position += transferred;
+        }
+        return true;
+    }
+
+    /**
+     * 映射文件的剩余部分，非映射发送返回 null；连接器写出后切片的 position 随之前进
+     */
+    public ByteBuffer getMappedSlice() {
+        return mappedSlice;
+    }
+
+    public long getRemaining() {
+        return mappedSlice != null ? mappedSlice.remaining() : end - position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (mappedFile != null) {
+            mappedFile.release();
+        } else {
+            fileChannel.close();
+        }
+    }
+}
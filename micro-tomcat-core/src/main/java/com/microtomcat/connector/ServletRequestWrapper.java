@@ -1,47 +1,28 @@
 package com.microtomcat.connector;
 
 import javax.servlet.http.*;
-import java.io.*;
-import java.util.*;
+import java.lang.reflect.Proxy;
 
+/**
+ * 交给 Servlet 的请求外观对象，随所属的 Request 一起复用
+ */
 public class ServletRequestWrapper extends HttpServletRequestWrapper {
-    private final Request request;
+    // 回收后替换进来的占位对象，任何调用都会抛出 IllegalStateException
+    private static final HttpServletRequest RECYCLED = (HttpServletRequest) Proxy.newProxyInstance(
+        ServletRequestWrapper.class.getClassLoader(),
+        new Class<?>[] {HttpServletRequest.class},
+        (proxy, method, args) -> {
+            throw new IllegalStateException("Request object used after recycle: " + method.getName());
+        });
 
     public ServletRequestWrapper(Request request) {
         super(request);
-        this.request = request;
     }
 
-    // 继承自 HttpServletRequest 的方法
-    @Override
-    public String getMethod() {
-        return request.getMethod();
+    /**
+     * 解除与 Request 的关联，之后通过该外观的任何访问都会失败
+     */
+    void release() {
+        setRequest(RECYCLED);
     }
-
-    @Override
-    public String getPathInfo() {
-        return request.getPathInfo();
-    }
-
-    @Override
-    public String getServletPath() {
-        return request.getServletPath();
-    }
-
-    @Override
-    public String getContextPath() {
-        return request.getContextPath();
-    }
-
-    @Override
-    public String getQueryString() {
-        return request.getQueryString();
-    }
-
-    @Override
-    public String getRequestURI() {
-        return request.getRequestURI();
-    }
-
-    // 其他 HTTP 相关方法保持不变...
-} 
\ No newline at end of file
+}
@@ -1,12 +1,26 @@
 package com.microtomcat.connector;
 
+import com.microtomcat.logging.Log;
 import javax.servlet.http.*;
 import javax.servlet.*;
 import java.io.*;
+import java.lang.reflect.Proxy;
 import java.util.*;
 
+/**
+ * 交给 Servlet 的响应外观对象，随所属的 Response 一起复用
+ */
 public class ServletResponseWrapper extends HttpServletResponseWrapper {
-    private final Response response;
+    private static final Log LOG = Log.getLog(ServletResponseWrapper.class);
+    // 回收后替换进来的占位对象，任何调用都会抛出 IllegalStateException
+    private static final HttpServletResponse RECYCLED = (HttpServletResponse) Proxy.newProxyInstance(
+        ServletResponseWrapper.class.getClassLoader(),
+        new Class<?>[] {HttpServletResponse.class},
+        (proxy, method, args) -> {
+            throw new IllegalStateException("Response object used after recycle: " + method.getName());
+        });
+
+    private Response response;
     private boolean statusSet = false;
     private boolean contentLengthSet = false;
 
@@ -15,10 +29,33 @@ public class ServletResponseWrapper extends HttpServletResponseWrapper {
         this.response = response;
     }
 
+    private Response response() {
+        if (response == null) {
+            throw new IllegalStateException("Response object used after recycle");
+        }
+        return response;
+    }
+
+    /**
+     * 清空外观自身的状态，供下一个请求复用
+     */
+    void recycle() {
+        statusSet = false;
+        contentLengthSet = false;
+    }
+
+    /**
+     * 解除与 Response 的关联，之后通过该外观的任何访问都会失败
+     */
+    void release() {
+        response = null;
+        setResponse(RECYCLED);
+    }
+
     @Override
     public void setStatus(int sc) {
         if (!isCommitted() && !statusSet) {
-            response.setStatus(sc);
+            response().setStatus(sc);
             statusSet = true;
         }
     }
@@ -26,109 +63,109 @@ public class ServletResponseWrapper extends HttpServletResponseWrapper {
     @Override
     public void setHeader(String name, String value) {
         if (!isCommitted()) {
-            System.out.println("ServletResponseWrapper DEBUG: Setting header: " + name + " = " + value);
+            LOG.debug("Setting header: {} = {}", name, value);
             if ("Content-Length".equalsIgnoreCase(name)) {
                 setContentLength(Integer.parseInt(value));
             } else {
-                response.setHeader(name, value);
+                response().setHeader(name, value);
             }
         }
     }
 
     @Override
     public void addHeader(String name, String value) {
-        response.addHeader(name, value);
+        response().addHeader(name, value);
     }
 
     @Override
     public void sendError(int sc, String msg) throws IOException {
-        response.sendError(sc, msg);
+        response().sendError(sc, msg);
     }
 
     @Override
     public PrintWriter getWriter() throws IOException {
-        return response.getWriter();
+        return response().getWriter();
     }
 
     @Override
     public String getCharacterEncoding() {
-        return response.getCharacterEncoding();
+        return response().getCharacterEncoding();
     }
 
     @Override
     public String getContentType() {
-        return response.getContentType();
+        return response().getContentType();
     }
 
     @Override
     public ServletOutputStream getOutputStream() throws IOException {
-        return response.getOutputStream();
+        return response().getOutputStream();
     }
 
     @Override
     public void setCharacterEncoding(String charset) {
-        response.setCharacterEncoding(charset);
+        response().setCharacterEncoding(charset);
     }
 
     @Override
     public void setContentLength(int len) {
         if (!isCommitted() && !contentLengthSet) {
-            System.out.println("ServletResponseWrapper DEBUG: Setting Content-Length: " + len);
-            response.setContentLength(len);
-            response.setHeader("Content-Length", String.valueOf(len));
+            LOG.debug("Setting Content-Length: {}", len);
+            response().setContentLength(len);
+            response().setHeader("Content-Length", String.valueOf(len));
             contentLengthSet = true;
         }
     }
 
     @Override
     public void setBufferSize(int size) {
-        response.setBufferSize(size);
+        response().setBufferSize(size);
     }
 
     @Override
     public int getBufferSize() {
-        return response.getBufferSize();
+        return response().getBufferSize();
     }
 
     @Override
     public void flushBuffer() throws IOException {
-        response.flushBuffer();
+        response().flushBuffer();
     }
 
     @Override
     public void resetBuffer() {
-        response.resetBuffer();
+        response().resetBuffer();
     }
 
     @Override
     public boolean isCommitted() {
-        return response.isCommitted();
+        return response().isCommitted();
     }
 
     @Override
     public void reset() {
-        response.reset();
+        response().reset();
     }
 
     @Override
     public void setLocale(Locale loc) {
-        response.setLocale(loc);
+        response().setLocale(loc);
     }
 
     @Override
     public Locale getLocale() {
-        return response.getLocale();
+        return response().getLocale();
     }
 
     @Override
     public void setContentLengthLong(long length) {
-        response.setContentLengthLong(length);
+        response().setContentLengthLong(length);
     }
 
     @Override
     public void setContentType(String type) {
         if (!isCommitted()) {
-            response.setContentType(type);
+            response().setContentType(type);
         }
     }
 } 
\ No newline at end of file
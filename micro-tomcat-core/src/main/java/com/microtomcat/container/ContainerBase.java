@@ -1,21 +1,175 @@
 package com.microtomcat.container;
 
+import com.microtomcat.connector.Request;
+import com.microtomcat.connector.Response;
+import com.microtomcat.lifecycle.Lifecycle;
+import com.microtomcat.logging.Log;
 import com.microtomcat.lifecycle.LifecycleBase;
+import com.microtomcat.lifecycle.LifecycleException;
 import com.microtomcat.pipeline.Pipeline;
 import com.microtomcat.pipeline.StandardPipeline;
+import com.microtomcat.servlet.ServletException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
 import com.microtomcat.container.event.ContainerEvent;
 import com.microtomcat.container.event.ContainerListener;
-import java.util.ArrayList;
 import java.util.List;
 import com.microtomcat.loader.WebAppClassLoader;
 
 public abstract class ContainerBase extends LifecycleBase implements Container {
+    protected final Log logger = Log.getLog(getClass());
     protected Container parent = null;
     protected final ConcurrentHashMap<String, Container> children = new ConcurrentHashMap<>();
-    protected Pipeline pipeline = new StandardPipeline();
+    protected Pipeline pipeline = new StandardPipeline(this);
     protected String name = null;
-    private final List<ContainerListener> listeners = new ArrayList<>();
+    private final List<ContainerListener> listeners = new CopyOnWriteArrayList<>();
+    // 大于 1 时在有界的 ForkJoinPool 上并行启动子容器，后代容器共用最近的祖先创建的线程池
+    private volatile int startStopThreads = 1;
+    private volatile ForkJoinPool startStopPool;
+
+    protected ContainerBase() {
+        // 基础阀门总在管道末尾，负责本容器自身的处理并交给下一级容器
+        pipeline.setBasic(new StandardContainerValve(this));
+    }
+
+    /**
+     * 请求经过本容器管道中的阀门后，由基础阀门调用这里完成本级的处理
+     */
+    protected abstract void invokeBasic(Request request, Response response)
+        throws IOException, ServletException;
+
+    @Override
+    public void invoke(Request request, Response response) {
+        try {
+            pipeline.invoke(request, response);
+        } catch (IOException | ServletException e) {
+            log("Error processing request: " + e.getMessage());
+            try {
+                if (!response.isCommitted()) {
+                    response.sendError(500, "Internal Server Error");
+                }
+            } catch (IOException ex) {
+                log("Failed to send error response: " + ex.getMessage());
+            }
+        }
+    }
+
+    protected void startPipeline() throws LifecycleException {
+        if (!Lifecycle.STARTED.equals(pipeline.getState())) {
+            pipeline.start();
+        }
+    }
+
+    protected void stopPipeline() throws LifecycleException {
+        if (Lifecycle.STARTED.equals(pipeline.getState())) {
+            pipeline.stop();
+        }
+    }
+
+    /**
+     * 启动尚未启动的子容器。
+     * 配置了并行启动时兄弟容器在线程池上并发启动，全部结束后才返回，
+     * 所以父容器仍然先于子容器进入 STARTING、晚于子容器进入 STARTED。
+     */
+    protected void startChildren(Container[] children) throws LifecycleException {
+        ForkJoinPool pool = findStartStopPool();
+        boolean owner = false;
+        if (pool == null && startStopThreads > 1) {
+            // 即使自己只有一个子容器也创建，供后代容器并行启动使用
+            pool = new ForkJoinPool(startStopThreads, ContainerBase::newStartStopThread, null, false);
+            startStopPool = pool;
+            owner = true;
+        }
+        try {
+            if (pool == null || children.length < 2) {
+                for (Container child : children) {
+                    startChild(child);
+                }
+            } else {
+                startInParallel(pool, children);
+            }
+        } finally {
+            if (owner) {
+                startStopPool = null;
+                pool.shutdown();
+            }
+        }
+    }
+
+    private static void startChild(Container child) throws LifecycleException {
+        if (!Lifecycle.STARTED.equals(child.getState())) {
+            child.start();
+        }
+    }
+
+    private void startInParallel(ForkJoinPool pool, Container[] children) throws LifecycleException {
+        Queue<LifecycleException> failures = new ConcurrentLinkedQueue<>();
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(children.length);
+        for (Container child : children) {
+            tasks.add(ForkJoinTask.adapt(() -> {
+                try {
+                    startChild(child);
+                } catch (LifecycleException e) {
+                    failures.add(e);
+                } catch (RuntimeException e) {
+                    failures.add(new LifecycleException("Error starting " + child.getName(), e));
+                }
+            }));
+        }
+        if (ForkJoinTask.getPool() == pool) {
+            // 已经在池中（由祖先容器的并行启动调用），当前线程参与执行子任务，不会因为等待而占满线程池
+            ForkJoinTask.invokeAll(tasks);
+        } else {
+            pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+        }
+
+        LifecycleException failure = failures.poll();
+        if (failure != null) {
+            for (LifecycleException other : failures) {
+                failure.addSuppressed(other);
+            }
+            throw failure;
+        }
+    }
+
+    private ForkJoinPool findStartStopPool() {
+        for (Container container = this; container != null; container = container.getParent()) {
+            if (container instanceof ContainerBase) {
+                ForkJoinPool pool = ((ContainerBase) container).startStopPool;
+                if (pool != null) {
+                    return pool;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static ForkJoinWorkerThread newStartStopThread(ForkJoinPool pool) {
+        ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        thread.setName("container-start-" + thread.getPoolIndex());
+        return thread;
+    }
+
+    /**
+     * 并行启动子容器的线程数，1 表示逐个启动，0 表示使用 CPU 核数
+     */
+    public void setStartStopThreads(int startStopThreads) {
+        if (startStopThreads < 0) {
+            throw new IllegalArgumentException("startStopThreads must not be negative");
+        }
+        this.startStopThreads = startStopThreads == 0 ? Runtime.getRuntime().availableProcessors() : startStopThreads;
+    }
+
+    public int getStartStopThreads() {
+        return startStopThreads;
+    }
 
     @Override
     public Container getParent() { return parent; }
@@ -75,7 +229,7 @@ public abstract class ContainerBase extends LifecycleBase implements Container {
     }
 
     protected void log(String message) {
-        System.out.println("[" + getClass().getSimpleName() + "] " + message);
+        logger.info(message);
     }
 
     @Override
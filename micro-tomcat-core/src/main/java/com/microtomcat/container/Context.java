@@ -9,6 +9,8 @@ import com.microtomcat.lifecycle.LifecycleException;
 import com.microtomcat.session.SessionManager;
 import com.microtomcat.loader.WebAppClassLoader;
 import com.microtomcat.loader.ClassLoaderManager;
+import com.microtomcat.resources.StaticResource;
+import com.microtomcat.resources.StaticResourceCache;
 import com.microtomcat.session.distributed.DistributedSessionManager;
 import com.microtomcat.session.distributed.InMemoryReplicatedSessionStore;
 import com.microtomcat.session.distributed.SessionStoreAdapter;
@@ -21,8 +23,11 @@ import javax.servlet.ServletConfig;
 import javax.servlet.ServletContext;
 import java.util.Enumeration;
 
-import java.io.File;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -45,6 +50,8 @@ public class Context extends ContainerBase {
     private ServletContext servletContext;
     private final SessionStoreAdapter sessionStore = new InMemorySessionStoreAdapter();
     private final Map<String, String> servletMappings = new ConcurrentHashMap<>();
+    // servletMappings 的编译形式，映射变化时整体重建后替换，请求线程无锁读取
+    private volatile ServletMapper servletMapper = ServletMapper.EMPTY;
     private final FilterManager filterManager;
 
     public Context(String name, String docBase) throws IOException {
@@ -75,6 +82,7 @@ public class Context extends ContainerBase {
                 // 注册默认的 DefaultServlet 处理静态资源
                 log("Registering DefaultServlet...");
                 Wrapper defaultWrapper = new Wrapper("default", "com.microtomcat.servlet.DefaultServlet");
+                defaultWrapper.setLoadOnStartup(1);
                 addChild(defaultWrapper);
                 
                 // 初始化和启动 Wrapper
@@ -84,8 +92,7 @@ public class Context extends ContainerBase {
             
             log("Successfully registered servlets for context: " + name);
         } catch (Exception e) {
-            log("Error registering servlets: " + e.getMessage());
-            e.printStackTrace();
+            logger.error("Error registering servlets", e);
         }
     }
 
@@ -161,19 +168,20 @@ public class Context extends ContainerBase {
     }
 
     @Override
-    public void invoke(Request request, Response response) {
+    protected void invokeBasic(Request request, Response response) {
         String uri = request.getRequestURI();
-        log("Processing request for URI: " + uri);
-        
-        // 创建 FilterChain
-        ApplicationFilterChain filterChain = filterManager.createFilterChain(uri);
+        logger.debug("Processing request for URI: {}", uri);
         
         // 设置目标 servlet
-        Servlet servlet = findServletForPath(uri);
-        if (servlet != null) {
-            filterChain.setServlet(servlet);
+        ServletMapper.Result mapping = servletMapper.map(getServletPath(uri));
+        if (mapping != null) {
+            request.setServletMapping(mapping.getServletPath(), mapping.getPathInfo());
+        }
+        Wrapper wrapper = findWrapperForPath(mapping);
+        if (wrapper != null && wrapper.isAvailable()) {
+            // 过滤器链和 Servlet 在 Wrapper 的管道中执行
             try {
-                filterChain.doFilter(request, response);
+                wrapper.getPipeline().invoke(request, response);
                 return;
             } catch (Exception e) {
                 log("Error in filter chain: " + e.getMessage());
@@ -184,12 +192,22 @@ public class Context extends ContainerBase {
         handleStaticResource(request, response);
     }
 
+    /**
+     * 为请求创建匹配的过滤器链，由 Wrapper 的基础阀门调用
+     */
+    ApplicationFilterChain createFilterChain(Request request) {
+        return filterManager.createFilterChain(getServletPath(request.getRequestURI()));
+    }
+
+    /**
+     * 去掉上下文路径后的请求路径，用于 Servlet 映射
+     */
     private String getServletPath(String uri) {
         if (uri == null) {
             return null;
         }
         // 如果URI以上下文路径开头，移除它
-        if (uri.startsWith(name) && !name.equals("/")) {
+        if (!name.isEmpty() && uri.startsWith(name) && !name.equals("/")) {
             return uri.substring(name.length());
         }
         return uri;
@@ -204,6 +222,7 @@ public class Context extends ContainerBase {
             // 创建并注册 DefaultServlet
             Wrapper defaultWrapper = new Wrapper("default", 
                 "com.microtomcat.servlet.DefaultServlet");
+            defaultWrapper.setLoadOnStartup(1);
             addChild(defaultWrapper);
             
             // 不再需要初始化 webAppClassLoader，因为它在构造函数中已经初始化
@@ -219,21 +238,35 @@ public class Context extends ContainerBase {
             // 在启动时注册默认 servlet
             registerDefaultServlets();
             
-            // 启动所有子容器
+            // 启动所有子容器，loadOnStartup >= 0 的 Wrapper 按序号从小到大先启动，
+            // 顺序有意义，所以这里不并行
             Container[] children = findChildren();
+            Arrays.sort(children, Comparator.comparingInt(Context::startupOrder));
             for (Container child : children) {
                 if (!Lifecycle.STARTED.equals(child.getState())) {
                     child.start();
                 }
             }
+            startPipeline();
         } catch (Exception e) {
             throw new LifecycleException("Error starting context", e);
         }
     }
 
+    private static int startupOrder(Container child) {
+        if (child instanceof Wrapper) {
+            int loadOnStartup = ((Wrapper) child).getLoadOnStartup();
+            if (loadOnStartup >= 0) {
+                return loadOnStartup;
+            }
+        }
+        return Integer.MAX_VALUE;
+    }
+
     @Override
     protected void stopInternal() throws LifecycleException {
         log("Stopping context: " + name);
+        stopPipeline();
         Container[] children = findChildren();
         for (Container child : children) {
             child.stop();
@@ -274,10 +307,11 @@ public class Context extends ContainerBase {
             }
             
             // 先尝试查找并调用 Servlet
-            String mappedServletName = findServletMapping(uri);
-            if (mappedServletName != null) {
-                Container wrapper = findChild(mappedServletName);
+            ServletMapper.Result mapping = servletMapper.map(getServletPath(uri));
+            if (mapping != null) {
+                Container wrapper = findChild(mapping.getServletName());
                 if (wrapper instanceof Wrapper) {
+                    request.setServletMapping(mapping.getServletPath(), mapping.getPathInfo());
                     wrapper.invoke(request, response);
                     return;
                 }
@@ -285,12 +319,11 @@ public class Context extends ContainerBase {
             
             // 如果没有找到匹配的 Servlet，再处理欢迎页面
             if (uri.equals("/") || uri.equals("/index.html")) {
-                ServletResponseWrapper wrappedResponse = new ServletResponseWrapper(response);
+                ServletResponseWrapper wrappedResponse = response.getFacade();
                 // ... 原有的欢迎页面处理逻辑 ...
             }
         } catch (Exception e) {
-            System.err.println("ERROR in Context.service: " + e.getMessage());
-            e.printStackTrace();
+            logger.error("Error in Context.service", e);
             throw e;
         }
     }
@@ -319,8 +352,11 @@ public class Context extends ContainerBase {
             urlPattern = "/" + urlPattern;
         }
 
-        // 存储映射
-        servletMappings.put(urlPattern, servletName);
+        // 存储映射并重新编译映射表
+        synchronized (servletMappings) {
+            servletMappings.put(urlPattern, servletName);
+            servletMapper = ServletMapper.compile(servletMappings);
+        }
         log("Added servlet mapping: " + urlPattern + " -> " + servletName);
     }
 
@@ -330,41 +366,8 @@ public class Context extends ContainerBase {
      * @return 匹配的 Servlet 名称，如果没有匹配返回 null
      */
     protected String findServletMapping(String uri) {
-        // 1. 精确匹配
-        String servletName = servletMappings.get(uri);
-        if (servletName != null) {
-            return servletName;
-        }
-
-        // 2. 路径匹配（最长匹配优先）
-        String longestMatch = "";
-        String matchedServlet = null;
-        for (Map.Entry<String, String> entry : servletMappings.entrySet()) {
-            String pattern = entry.getKey();
-            if (pattern.endsWith("/*")) {
-                String prefix = pattern.substring(0, pattern.length() - 2);
-                if (uri.startsWith(prefix) && prefix.length() > longestMatch.length()) {
-                    longestMatch = prefix;
-                    matchedServlet = entry.getValue();
-                }
-            }
-        }
-        if (matchedServlet != null) {
-            return matchedServlet;
-        }
-
-        // 3. 扩展名匹配
-        int lastDot = uri.lastIndexOf('.');
-        if (lastDot >= 0) {
-            String extension = "*" + uri.substring(lastDot);
-            servletName = servletMappings.get(extension);
-            if (servletName != null) {
-                return servletName;
-            }
-        }
-
-        // 4. 默认匹配 "/*"
-        return servletMappings.get("/*");
+        ServletMapper.Result mapping = servletMapper.map(getServletPath(uri));
+        return mapping != null ? mapping.getServletName() : null;
     }
 
     public void addFilter(String filterName, Filter filter) {
@@ -375,19 +378,18 @@ public class Context extends ContainerBase {
         filterManager.addFilterMapping(urlPattern, filterName);
     }
 
-    private Servlet findServletForPath(String uri) {
+    private Wrapper findWrapperForPath(ServletMapper.Result mapping) {
         // 先尝试 dispatcherServlet
-        Servlet dispatcher = servletMap.get("dispatcherServlet");
-        if (dispatcher != null) {
-            return dispatcher;
-        }
+        String servletName = servletMap.containsKey("dispatcherServlet") ? "dispatcherServlet" : null;
 
         // 查找匹配的 servlet
-        String mappedServletName = findServletMapping(uri);
-        if (mappedServletName != null) {
-            Container wrapper = findChild(mappedServletName);
+        if (servletName == null && mapping != null) {
+            servletName = mapping.getServletName();
+        }
+        if (servletName != null) {
+            Container wrapper = findChild(servletName);
             if (wrapper instanceof Wrapper) {
-                return ((Wrapper) wrapper).getServlet();
+                return (Wrapper) wrapper;
             }
         }
         
@@ -409,9 +411,13 @@ public class Context extends ContainerBase {
                 relativePath += "index.html";
             }
             
-            File file = new File(docBase, relativePath);
-            if (file.exists() && file.isFile()) {
-                response.sendStaticResource(file);
+            // 规范化后不能跳出 docBase；存在性检查由资源缓存完成，不必每次访问文件系统
+            Path root = Paths.get(docBase).toAbsolutePath().normalize();
+            Path file = root.resolve(relativePath.replaceFirst("^/+", "")).normalize();
+            StaticResource resource = file.startsWith(root) ? StaticResourceCache.getShared().lookup(file) : null;
+            if (resource != null && resource.isFile()) {
+                // 条件 GET、Range 和压缩版本的选择都在 sendStaticResource 中完成
+                response.sendStaticResource(resource, request);
             } else {
                 response.sendError(404, "File Not Found: " + relativePath);
             }
@@ -2,18 +2,54 @@ package com.microtomcat.container;
 
 import com.microtomcat.connector.Request;
 import com.microtomcat.connector.Response;
+import com.microtomcat.container.event.ContainerEvent;
+import com.microtomcat.container.event.ContainerListener;
 import com.microtomcat.lifecycle.LifecycleException;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import javax.servlet.ServletContext;
 import com.microtomcat.context.SimpleServletContext;
 
 public class Engine extends ContainerBase {
     private String defaultHost;
     private ServletContext servletContext;
+    // 主机路由表，增删主机或别名时整体重建后替换，请求线程无锁读取
+    private volatile HostMapper hostMapper = HostMapper.EMPTY;
+    // 同时监听本容器和各个 Host 的事件
+    private final ContainerListener routingListener = this::routingEvent;
 
     public Engine(String name, String defaultHost) {
         this.name = name;
         this.defaultHost = defaultHost;
+        addContainerListener(routingListener);
+    }
+
+    private void routingEvent(ContainerEvent event) {
+        String type = event.getType();
+        if (event.getSource() == this && event.getData() instanceof ContainerBase) {
+            ContainerBase child = (ContainerBase) event.getData();
+            if (ContainerEvent.CHILD_ADDED.equals(type)) {
+                child.addContainerListener(routingListener);
+            } else if (ContainerEvent.CHILD_REMOVED.equals(type)) {
+                child.removeContainerListener(routingListener);
+            } else {
+                return;
+            }
+            rebuildHostMapper();
+        } else if (ContainerEvent.ADD_ALIAS.equals(type) || ContainerEvent.REMOVE_ALIAS.equals(type)) {
+            rebuildHostMapper();
+        }
+    }
+
+    private synchronized void rebuildHostMapper() {
+        List<Host> hosts = new ArrayList<>();
+        for (Container child : findChildren()) {
+            if (child instanceof Host) {
+                hosts.add((Host) child);
+            }
+        }
+        hostMapper = HostMapper.compile(hosts.toArray(new Host[0]), defaultHost);
     }
 
     public String getDefaultHost() {
@@ -26,28 +62,18 @@ public class Engine extends ContainerBase {
 
     public void setDefaultHost(String defaultHost) {
         this.defaultHost = defaultHost;
+        rebuildHostMapper();
     }
 
     @Override
-    public void invoke(Request request, Response response) {
+    protected void invokeBasic(Request request, Response response) throws IOException {
         String hostName = request.getServerName();
-        if (hostName == null) {
-            hostName = defaultHost;
-        }
-        
-        Host host = (Host) findChild(hostName);
-        if (host == null) {
-            host = (Host) findChild(defaultHost);
-        }
+        Host host = hostMapper.map(hostName);
         
         if (host != null) {
             host.invoke(request, response);
         } else {
-            try {
-                response.sendError(400, "Invalid virtual host: " + hostName);
-            } catch (IOException e) {
-                log("Error sending 400 response: " + e.getMessage());
-            }
+            response.sendError(400, "Invalid virtual host: " + hostName);
         }
     }
 
@@ -59,15 +85,14 @@ public class Engine extends ContainerBase {
     @Override
     protected void startInternal() throws LifecycleException {
         log("Starting Engine: " + name);
-        Container[] children = findChildren();
-        for (Container child : children) {
-            child.start();
-        }
+        startChildren(findChildren());
+        startPipeline();
     }
 
     @Override
     protected void stopInternal() throws LifecycleException {
         log("Stopping Engine: " + name);
+        stopPipeline();
         Container[] children = findChildren();
         for (Container child : children) {
             child.stop();
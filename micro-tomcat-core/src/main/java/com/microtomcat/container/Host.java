@@ -2,15 +2,71 @@ package com.microtomcat.container;
 
 import com.microtomcat.connector.Request;
 import com.microtomcat.connector.Response;
+import com.microtomcat.container.event.ContainerEvent;
 import com.microtomcat.lifecycle.LifecycleException;
 
 import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class Host extends ContainerBase {
     private String appBase = "webapps";
+    private final List<String> aliases = new CopyOnWriteArrayList<>();
+    // 上下文路径的前缀树，增删上下文时整体重建后替换，请求线程无锁读取
+    private volatile PathTrie<Context> contextMap = new PathTrie<>();
 
     public Host(String name) {
         this.name = name;
+        addContainerListener(event -> {
+            if (event.getSource() == this
+                    && (ContainerEvent.CHILD_ADDED.equals(event.getType())
+                        || ContainerEvent.CHILD_REMOVED.equals(event.getType()))) {
+                rebuildContextMap();
+            }
+        });
+    }
+
+    private synchronized void rebuildContextMap() {
+        PathTrie<Context> contexts = new PathTrie<>();
+        for (Container child : findChildren()) {
+            if (child instanceof Context) {
+                contexts.put(child.getName(), (Context) child);
+            }
+        }
+        contextMap = contexts;
+    }
+
+    /**
+     * 添加主机别名，别名也可以是 "*.example.com" 形式的通配名称
+     */
+    public void addAlias(String alias) {
+        alias = alias.toLowerCase(Locale.ROOT);
+        if (aliases.contains(alias)) {
+            return;
+        }
+        aliases.add(alias);
+        fireContainerEvent(ContainerEvent.ADD_ALIAS, alias);
+    }
+
+    public void removeAlias(String alias) {
+        alias = alias.toLowerCase(Locale.ROOT);
+        if (aliases.remove(alias)) {
+            fireContainerEvent(ContainerEvent.REMOVE_ALIAS, alias);
+        }
+    }
+
+    public String[] findAliases() {
+        return aliases.toArray(new String[0]);
+    }
+
+    /**
+     * 按路径段取上下文路径最长匹配的 Context，如 "/api/v2/users" 优先匹配 "/api/v2"，
+     * 都不匹配时返回根上下文，没有根上下文时返回 null
+     */
+    public Context map(String uri) {
+        PathTrie.Entry<Context> entry = contextMap.longestMatch(uri != null ? uri : "/");
+        return entry != null ? entry.getValue() : null;
     }
 
     public String getAppBase() {
@@ -22,34 +78,16 @@ public class Host extends ContainerBase {
     }
 
     @Override
-    public void invoke(Request request, Response response) {
-        String contextPath = getContextPath(request.getUri());
-        Context context = (Context) findChild(contextPath);
-        
-        if (context == null) {
-            context = (Context) findChild("");
-        }
+    protected void invokeBasic(Request request, Response response) throws IOException {
+        Context context = map(request.getUri());
         
         if (context != null) {
             context.invoke(request, response);
         } else {
-            try {
-                response.sendError(404, "Context not found for: " + request.getUri());
-            } catch (IOException e) {
-                log("Error sending 404 response: " + e.getMessage());
-            }
+            response.sendError(404, "Context not found for: " + request.getUri());
         }
     }
 
-    private String getContextPath(String uri) {
-        if (uri == null) return "";
-        int nextSlash = uri.indexOf('/', 1);
-        if (nextSlash != -1) {
-            return uri.substring(0, nextSlash);
-        }
-        return uri;
-    }
-
     @Override
     protected void initInternal() throws LifecycleException {
         log("Initializing Host: " + name);
@@ -58,15 +96,14 @@ public class Host extends ContainerBase {
     @Override
     protected void startInternal() throws LifecycleException {
         log("Starting Host: " + name);
-        Container[] children = findChildren();
-        for (Container child : children) {
-            child.start();
-        }
+        startChildren(findChildren());
+        startPipeline();
     }
 
     @Override
     protected void stopInternal() throws LifecycleException {
         log("Stopping Host: " + name);
+        stopPipeline();
         Container[] children = findChildren();
         for (Container child : children) {
             child.stop();
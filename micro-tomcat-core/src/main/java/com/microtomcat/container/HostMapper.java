@@ -0,0 +1,90 @@
+package com.microtomcat.container;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 编译后的虚拟主机路由表，创建后不可变，主机或别名变化时整体重建后替换。
+ * 匹配顺序：
+ * 1. 主机名或别名精确匹配，哈希查找
+ * 2. 通配主机 "*.example.com"，从请求主机名逐级去掉最左边的标签，取最长的后缀匹配
+ * 3. 默认主机
+ * 名称一律按小写比较。
+ */
+public final class HostMapper {
+    public static final HostMapper EMPTY = new HostMapper(
+        Collections.<String, Host>emptyMap(), Collections.<String, Host>emptyMap(), null);
+
+    private static final String WILDCARD_PREFIX = "*.";
+
+    private final Map<String, Host> exactHosts;
+    // 通配主机去掉 "*." 之后的后缀 -> 主机
+    private final Map<String, Host> wildcardHosts;
+    private final Host defaultHost;
+
+    private HostMapper(Map<String, Host> exactHosts, Map<String, Host> wildcardHosts, Host defaultHost) {
+        this.exactHosts = exactHosts;
+        this.wildcardHosts = wildcardHosts;
+        this.defaultHost = defaultHost;
+    }
+
+    /**
+     * 根据主机列表（含各自的别名）编译路由表，defaultHostName 对应的主机作为兜底
+     */
+    public static HostMapper compile(Host[] hosts, String defaultHostName) {
+        Map<String, Host> exact = new HashMap<>();
+        Map<String, Host> wildcard = new HashMap<>();
+        Host defaultHost = null;
+
+        for (Host host : hosts) {
+            register(exact, wildcard, host.getName(), host);
+            for (String alias : host.findAliases()) {
+                register(exact, wildcard, alias, host);
+            }
+            if (host.getName().equalsIgnoreCase(defaultHostName)) {
+                defaultHost = host;
+            }
+        }
+
+        return new HostMapper(exact, wildcard, defaultHost);
+    }
+
+    private static void register(Map<String, Host> exact, Map<String, Host> wildcard, String name, Host host) {
+        String lowerCase = name.toLowerCase(Locale.ROOT);
+        if (lowerCase.startsWith(WILDCARD_PREFIX)) {
+            wildcard.putIfAbsent(lowerCase.substring(WILDCARD_PREFIX.length()), host);
+        } else {
+            exact.putIfAbsent(lowerCase, host);
+        }
+    }
+
+    /**
+     * 按请求的主机名（已转小写）查找主机，都不匹配时返回默认主机，没有默认主机时返回 null
+     */
+    public Host map(String serverName) {
+        if (serverName == null) {
+            return defaultHost;
+        }
+        Host host = exactHosts.get(serverName);
+        if (host != null) {
+            return host;
+        }
+        if (!wildcardHosts.isEmpty()) {
+            int dot = serverName.indexOf('.');
+            while (dot >= 0) {
+                host = wildcardHosts.get(serverName.substring(dot + 1));
+                if (host != null) {
+                    return host;
+                }
+                dot = serverName.indexOf('.', dot + 1);
+            }
+        }
+        return defaultHost;
+    }
+
+    public Host getDefaultHost() {
+        return defaultHost;
+    }
+}
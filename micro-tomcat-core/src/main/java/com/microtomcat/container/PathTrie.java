@@ -0,0 +1,149 @@
+package com.microtomcat.container;
+
+import java.util.Arrays;
+
+/**
+ * 按路径段组织的前缀树，用于 "/a/b/*" 形式的最长前缀匹配。
+ * 构建阶段调用 put，构建完成后只读，可以安全地被多个线程共享。
+ * 子节点按路径段排序，匹配时二分查找并直接与请求路径的区间比较，不创建子串。
+ */
+public final class PathTrie<T> {
+
+    /**
+     * 一个前缀及其关联的值
+     */
+    public static final class Entry<T> {
+        private final String prefix;
+        private final T value;
+
+        Entry(String prefix, T value) {
+            this.prefix = prefix;
+            this.value = value;
+        }
+
+        /**
+         * 规范化后的前缀，如 "/a/b"；根节点为 ""
+         */
+        public String getPrefix() {
+            return prefix;
+        }
+
+        public T getValue() {
+            return value;
+        }
+    }
+
+    private static final class Node<T> {
+        String[] segments = new String[0];
+        Node<T>[] children = newChildren();
+        Entry<T> entry;
+
+        Node<T> child(String path, int start, int end) {
+            int low = 0;
+            int high = segments.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int cmp = compare(segments[mid], path, start, end);
+                if (cmp < 0) {
+                    low = mid + 1;
+                } else if (cmp > 0) {
+                    high = mid - 1;
+                } else {
+                    return children[mid];
+                }
+            }
+            return null;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> Node<T>[] newChildren() {
+            return (Node<T>[]) new Node<?>[0];
+        }
+    }
+
+    private final Node<T> root = new Node<>();
+
+    /**
+     * 登记前缀（不含结尾的 "/*"），"" 表示根，即匹配所有路径
+     */
+    public void put(String prefix, T value) {
+        Node<T> node = root;
+        StringBuilder normalized = new StringBuilder();
+        int start = 1;
+        while (start <= prefix.length()) {
+            int end = prefix.indexOf('/', start);
+            if (end < 0) {
+                end = prefix.length();
+            }
+            if (end > start) {
+                String segment = prefix.substring(start, end);
+                normalized.append('/').append(segment);
+                Node<T> child = node.child(segment, 0, segment.length());
+                if (child == null) {
+                    child = new Node<>();
+                    int index = -(Arrays.binarySearch(node.segments, segment) + 1);
+                    node.segments = insertAt(node.segments, index, segment);
+                    node.children = insertAt(node.children, index, child);
+                }
+                node = child;
+            }
+            start = end + 1;
+        }
+        node.entry = new Entry<>(normalized.toString(), value);
+    }
+
+    /**
+     * 按路径段匹配，返回最深的带值前缀，没有匹配时返回 null
+     */
+    public Entry<T> longestMatch(String path) {
+        Node<T> node = root;
+        Entry<T> matched = root.entry;
+        if (!path.startsWith("/")) {
+            return matched;
+        }
+        int start = 1;
+        int length = path.length();
+        while (start <= length) {
+            int end = path.indexOf('/', start);
+            if (end < 0) {
+                end = length;
+            }
+            if (end == start && end < length) {
+                // 连续的 '/' 不属于任何规范前缀，匹配到此为止
+                break;
+            }
+            if (end > start) {
+                node = node.child(path, start, end);
+                if (node == null) {
+                    break;
+                }
+                if (node.entry != null) {
+                    matched = node.entry;
+                }
+            }
+            start = end + 1;
+        }
+        return matched;
+    }
+
+    private static <E> E[] insertAt(E[] array, int index, E value) {
+        E[] result = Arrays.copyOf(array, array.length + 1);
+        System.arraycopy(result, index, result, index + 1, result.length - index - 1);
+        result[index] = value;
+        return result;
+    }
+
+    /**
+     * 按字典序比较 segment 与 path[start, end)，与 String.compareTo 一致
+     */
+    private static int compare(String segment, String path, int start, int end) {
+        int length = Math.min(segment.length(), end - start);
+        for (int i = 0; i < length; i++) {
+            int diff = segment.charAt(i) - path.charAt(start + i);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return segment.length() - (end - start);
+    }
+}
@@ -0,0 +1,122 @@
+package com.microtomcat.container;
+
+import com.microtomcat.pipeline.LatencyHistogram;
+
+import javax.servlet.Servlet;
+import javax.servlet.ServletException;
+import javax.servlet.UnavailableException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 非线程安全 Servlet 的实例池，每个实例同一时刻只服务一个请求。
+ * 许可数即最大实例数：先取得许可再取空闲实例，没有空闲实例时才创建新实例，
+ * 因此实例总数不会超过上限。归还的实例放在队首，下一次优先复用最近用过的实例。
+ */
+final class ServletInstancePool {
+
+    /**
+     * 创建并初始化一个新实例
+     */
+    interface Factory {
+        Servlet create() throws ServletException;
+    }
+
+    private final int maxInstances;
+    private final Semaphore permits;
+    private final ConcurrentLinkedDeque<Servlet> idle = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger created = new AtomicInteger();
+    private final LatencyHistogram waitTimes = new LatencyHistogram();
+    private final LongAdder timeouts = new LongAdder();
+
+    ServletInstancePool(int maxInstances, Servlet first) {
+        this.maxInstances = maxInstances;
+        this.permits = new Semaphore(maxInstances, true);
+        idle.offerFirst(first);
+        created.set(1);
+    }
+
+    /**
+     * 取出一个实例，最多等待 timeoutMillis 毫秒；超时抛出 UnavailableException
+     */
+    Servlet borrow(long timeoutMillis, Factory factory) throws ServletException {
+        long start = System.nanoTime();
+        if (!permits.tryAcquire()) {
+            boolean acquired;
+            try {
+                acquired = permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ServletException("Interrupted while waiting for a servlet instance");
+            }
+            if (!acquired) {
+                timeouts.increment();
+                throw new UnavailableException("No servlet instance available within " + timeoutMillis + " ms", 1);
+            }
+        }
+        waitTimes.record(System.nanoTime() - start);
+
+        Servlet servlet = idle.pollFirst();
+        if (servlet == null) {
+            try {
+                servlet = factory.create();
+            } catch (ServletException | RuntimeException e) {
+                permits.release();
+                throw e;
+            }
+            created.incrementAndGet();
+        }
+        return servlet;
+    }
+
+    void giveBack(Servlet servlet) {
+        idle.offerFirst(servlet);
+        permits.release();
+    }
+
+    /**
+     * 等待正在使用的实例归还（最多 timeoutMillis 毫秒），然后取出全部空闲实例供销毁
+     */
+    List<Servlet> drain(long timeoutMillis) {
+        try {
+            permits.tryAcquire(maxInstances, timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<Servlet> servlets = new ArrayList<>();
+        Servlet servlet;
+        while ((servlet = idle.pollFirst()) != null) {
+            servlets.add(servlet);
+        }
+        return servlets;
+    }
+
+    int getMaxInstances() {
+        return maxInstances;
+    }
+
+    int getCreated() {
+        return created.get();
+    }
+
+    int getActive() {
+        return maxInstances - permits.availablePermits();
+    }
+
+    int getIdle() {
+        return idle.size();
+    }
+
+    long getTimeouts() {
+        return timeouts.sum();
+    }
+
+    LatencyHistogram getWaitTimes() {
+        return waitTimes;
+    }
+}
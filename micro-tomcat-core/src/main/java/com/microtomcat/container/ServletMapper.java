@@ -0,0 +1,134 @@
+package com.microtomcat.container;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 编译后的 Servlet 映射表，创建后不可变，映射变化时整体重建后替换。
+ * 匹配顺序与 Context 原有语义一致：
+ * 1. 精确匹配（含 "/"），哈希查找
+ * 2. 路径前缀匹配 "/a/b/*"，由 PathTrie 按路径段取最长匹配
+ * 3. 扩展名匹配 "*.jsp"，只看最后一个路径段
+ * 4. 默认映射 "/*"
+ * 查找代价只与请求路径的段数有关，与映射数量无关。
+ */
+public final class ServletMapper {
+    public static final ServletMapper EMPTY = compile(Collections.<String, String>emptyMap());
+
+    private static final String DEFAULT_PATTERN = "/*";
+
+    /**
+     * 一次匹配的结果
+     */
+    public static final class Result {
+        private final String servletName;
+        private final String servletPath;
+        private final String pathInfo;
+
+        Result(String servletName, String servletPath, String pathInfo) {
+            this.servletName = servletName;
+            this.servletPath = servletPath;
+            this.pathInfo = pathInfo;
+        }
+
+        public String getServletName() {
+            return servletName;
+        }
+
+        public String getServletPath() {
+            return servletPath;
+        }
+
+        /**
+         * servletPath 之后的剩余路径，没有时为 null
+         */
+        public String getPathInfo() {
+            return pathInfo;
+        }
+    }
+
+    private final Map<String, String> exactMappings;
+    private final PathTrie<String> prefixMappings;
+    private final Map<String, String> extensionMappings;
+    private final String defaultServlet;
+
+    private ServletMapper(Map<String, String> exactMappings, PathTrie<String> prefixMappings,
+                          Map<String, String> extensionMappings, String defaultServlet) {
+        this.exactMappings = exactMappings;
+        this.prefixMappings = prefixMappings;
+        this.extensionMappings = extensionMappings;
+        this.defaultServlet = defaultServlet;
+    }
+
+    /**
+     * 根据 URL 模式 -> Servlet 名称的映射编译出新的映射表
+     */
+    public static ServletMapper compile(Map<String, String> mappings) {
+        Map<String, String> exact = new HashMap<>();
+        Map<String, String> extension = new HashMap<>();
+        PathTrie<String> prefixes = new PathTrie<>();
+        String defaultServlet = null;
+
+        for (Map.Entry<String, String> entry : mappings.entrySet()) {
+            String pattern = entry.getKey();
+            String servletName = entry.getValue();
+            if (DEFAULT_PATTERN.equals(pattern)) {
+                defaultServlet = servletName;
+            } else if (pattern.startsWith("*.")) {
+                extension.put(pattern.substring(2), servletName);
+            } else if (pattern.endsWith("/*")) {
+                prefixes.put(pattern.substring(0, pattern.length() - 2), servletName);
+            } else {
+                exact.put(pattern, servletName);
+            }
+        }
+
+        return new ServletMapper(exact, prefixes, extension, defaultServlet);
+    }
+
+    /**
+     * 匹配上下文内的请求路径（已去掉上下文路径），没有匹配时返回 null
+     */
+    public Result map(String path) {
+        if (path == null || path.isEmpty()) {
+            path = "/";
+        }
+
+        String servletName = exactMappings.get(path);
+        if (servletName != null) {
+            return new Result(servletName, path, null);
+        }
+
+        Result prefixMatch = mapPrefix(path);
+        if (prefixMatch != null) {
+            return prefixMatch;
+        }
+
+        if (!extensionMappings.isEmpty()) {
+            int lastSlash = path.lastIndexOf('/');
+            int lastDot = path.lastIndexOf('.');
+            if (lastDot > lastSlash && lastDot < path.length() - 1) {
+                servletName = extensionMappings.get(path.substring(lastDot + 1));
+                if (servletName != null) {
+                    return new Result(servletName, path, null);
+                }
+            }
+        }
+
+        if (defaultServlet != null) {
+            return new Result(defaultServlet, "", path);
+        }
+        return null;
+    }
+
+    private Result mapPrefix(String path) {
+        PathTrie.Entry<String> entry = prefixMappings.longestMatch(path);
+        if (entry == null) {
+            return null;
+        }
+        String servletPath = entry.getPrefix();
+        String pathInfo = path.length() > servletPath.length() ? path.substring(servletPath.length()) : null;
+        return new Result(entry.getValue(), servletPath, pathInfo);
+    }
+}
@@ -0,0 +1,25 @@
+package com.microtomcat.container;
+
+import com.microtomcat.connector.Request;
+import com.microtomcat.connector.Response;
+import com.microtomcat.pipeline.Valve;
+import com.microtomcat.pipeline.ValveContext;
+import com.microtomcat.servlet.ServletException;
+import java.io.IOException;
+
+/**
+ * 容器管道的基础阀门：普通阀门执行完后，把请求交给容器自身的处理逻辑
+ */
+final class StandardContainerValve implements Valve {
+    private final ContainerBase container;
+
+    StandardContainerValve(ContainerBase container) {
+        this.container = container;
+    }
+
+    @Override
+    public void invoke(Request request, Response response, ValveContext context)
+            throws IOException, ServletException {
+        container.invokeBasic(request, response);
+    }
+}
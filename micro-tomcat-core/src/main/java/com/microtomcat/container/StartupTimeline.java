@@ -0,0 +1,180 @@
+package com.microtomcat.container;
+
+import com.microtomcat.container.event.ContainerEvent;
+import com.microtomcat.container.event.ContainerListener;
+import com.microtomcat.lifecycle.Lifecycle;
+import com.microtomcat.lifecycle.LifecycleEvent;
+import com.microtomcat.lifecycle.LifecycleListener;
+import com.microtomcat.logging.Log;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * 启动时间线：监听容器树上每个容器的 AFTER_INIT_EVENT / AFTER_START_EVENT，
+ * 记录各容器 init、start 阶段的开始时刻、耗时和执行线程。
+ * 之后添加的子容器会自动纳入；根容器启动完成时把时间线输出到日志。
+ */
+public final class StartupTimeline implements LifecycleListener, ContainerListener {
+    private static final Log LOG = Log.getLog(StartupTimeline.class);
+
+    /**
+     * 一个容器的一个阶段
+     */
+    public static final class Entry {
+        private final String container;
+        private final String phase;
+        private final long startNanos;
+        private final long durationNanos;
+        private final String thread;
+
+        Entry(String container, String phase, long startNanos, long durationNanos, String thread) {
+            this.container = container;
+            this.phase = phase;
+            this.startNanos = startNanos;
+            this.durationNanos = durationNanos;
+            this.thread = thread;
+        }
+
+        /**
+         * 容器路径，如 "Engine[main]/Host[localhost]/Context[/app]"
+         */
+        public String getContainer() {
+            return container;
+        }
+
+        /**
+         * "init" 或 "start"
+         */
+        public String getPhase() {
+            return phase;
+        }
+
+        /**
+         * 相对时间线创建时刻的开始时间
+         */
+        public double getStartMillis() {
+            return startNanos / 1_000_000.0;
+        }
+
+        public double getDurationMillis() {
+            return durationNanos / 1_000_000.0;
+        }
+
+        public String getThread() {
+            return thread;
+        }
+    }
+
+    private final Container root;
+    private final long origin = System.nanoTime();
+    private final Queue<Entry> entries = new ConcurrentLinkedQueue<>();
+    private final Set<Container> watched = ConcurrentHashMap.newKeySet();
+
+    private StartupTimeline(Container root) {
+        this.root = root;
+    }
+
+    /**
+     * 在 root 及其所有后代容器上开始记录，应在 root.start() 之前调用
+     */
+    public static StartupTimeline attach(Container root) {
+        StartupTimeline timeline = new StartupTimeline(root);
+        timeline.watch(root);
+        return timeline;
+    }
+
+    /**
+     * 停止记录，移除所有监听器
+     */
+    public void detach() {
+        for (Container container : watched) {
+            container.removeLifecycleListener(this);
+            if (container instanceof ContainerBase) {
+                ((ContainerBase) container).removeContainerListener(this);
+            }
+        }
+        watched.clear();
+    }
+
+    private void watch(Container container) {
+        if (!watched.add(container)) {
+            return;
+        }
+        container.addLifecycleListener(this);
+        if (container instanceof ContainerBase) {
+            ((ContainerBase) container).addContainerListener(this);
+        }
+        for (Container child : container.findChildren()) {
+            watch(child);
+        }
+    }
+
+    @Override
+    public void lifecycleEvent(LifecycleEvent event) {
+        String phase;
+        if (Lifecycle.AFTER_INIT_EVENT.equals(event.getType())) {
+            phase = "init";
+        } else if (Lifecycle.AFTER_START_EVENT.equals(event.getType())) {
+            phase = "start";
+        } else {
+            return;
+        }
+        if (!(event.getData() instanceof Long)) {
+            return;
+        }
+        long duration = (Long) event.getData();
+        long start = System.nanoTime() - duration - origin;
+        entries.add(new Entry(pathName(event.getLifecycle()), phase, start, duration,
+            Thread.currentThread().getName()));
+
+        if (event.getLifecycle() == root && "start".equals(phase)) {
+            LOG.info(format());
+        }
+    }
+
+    @Override
+    public void containerEvent(ContainerEvent event) {
+        if (ContainerEvent.CHILD_ADDED.equals(event.getType()) && event.getData() instanceof Container) {
+            watch((Container) event.getData());
+        }
+    }
+
+    /**
+     * 已记录的阶段，按开始时间排序
+     */
+    public List<Entry> getEntries() {
+        List<Entry> sorted = new ArrayList<>(entries);
+        sorted.sort(Comparator.comparingLong(entry -> entry.startNanos));
+        return sorted;
+    }
+
+    /**
+     * 每个阶段一行：开始时间、耗时、阶段、容器路径、执行线程
+     */
+    public String format() {
+        List<Entry> sorted = getEntries();
+        StringBuilder out = new StringBuilder("Startup timeline (" + sorted.size() + " phases)");
+        for (Entry entry : sorted) {
+            out.append(System.lineSeparator())
+               .append(String.format("  +%9.1f ms %9.1f ms  %-5s %s [%s]", entry.getStartMillis(),
+                   entry.getDurationMillis(), entry.getPhase(), entry.getContainer(), entry.getThread()));
+        }
+        return out.toString();
+    }
+
+    private static String pathName(Lifecycle lifecycle) {
+        if (!(lifecycle instanceof Container)) {
+            return lifecycle.getClass().getSimpleName();
+        }
+        Container container = (Container) lifecycle;
+        String own = container.getClass().getSimpleName() + "[" + container.getName() + "]";
+        Container parent = container.getParent();
+        return parent != null ? pathName(parent) + "/" + own : own;
+    }
+}
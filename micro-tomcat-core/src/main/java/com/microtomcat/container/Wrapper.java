@@ -2,17 +2,45 @@ package com.microtomcat.container;
 
 import com.microtomcat.connector.Request;
 import com.microtomcat.connector.Response;
+import com.microtomcat.jmx.MBeanRegistry;
+import com.microtomcat.lifecycle.Lifecycle;
 import com.microtomcat.lifecycle.LifecycleException;
 import com.microtomcat.connector.ServletRequestWrapper;
 import com.microtomcat.connector.ServletResponseWrapper;
+import com.microtomcat.filter.ApplicationFilterChain;
+import com.microtomcat.pipeline.LatencyHistogram;
+import javax.management.JMException;
+import javax.management.ObjectName;
 import javax.servlet.*;
 import java.io.IOException;
 import java.util.Collections;
 import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 包装单个 Servlet 的容器。
+ * 默认所有请求共享一个实例，首次使用时加载（loadOnStartup >= 0 时在启动阶段加载）；
+ * 实现了 SingleThreadModel 或显式标记为非线程安全的 Servlet 改用实例池，
+ * 最多创建 maxInstances 个实例，池满时请求最多等待 waitTimeout 毫秒，超时返回 503。
+ */
+public class Wrapper extends ContainerBase implements WrapperMBean {
+    public static final int DEFAULT_MAX_INSTANCES = 20;
+    public static final long DEFAULT_WAIT_TIMEOUT = 5000;
 
-public class Wrapper extends ContainerBase {
     private final String servletClass;
-    private Servlet servlet;
+    // 共享实例（实例池模式下为池中的第一个实例），双重检查加锁后通过 volatile 发布
+    private volatile Servlet instance;
+    private volatile ServletInstancePool pool;
+    private final Object instanceLock = new Object();
+    private final AtomicInteger countAllocated = new AtomicInteger();
+    private volatile boolean singleThreadModel;
+    private volatile int loadOnStartup = -1;
+    private volatile int maxInstances = DEFAULT_MAX_INSTANCES;
+    private volatile long waitTimeout = DEFAULT_WAIT_TIMEOUT;
+    // 初始化抛出 UnavailableException 后不可用的截止时间，Long.MAX_VALUE 表示永久不可用
+    private volatile long unavailableUntil;
 
     public Wrapper(String name, String servletClass) {
         this.name = name;
@@ -20,44 +48,172 @@ public class Wrapper extends ContainerBase {
     }
 
     public void service(Request request, Response response) throws ServletException, IOException {
+        Servlet servlet = allocate();
+        try {
+            // 使用随请求/响应复用的外观对象
+            ServletRequestWrapper servletRequest = request.getFacade();
+            ServletResponseWrapper servletResponse = response.getFacade();
+
+            // 调用 servlet 的 service 方法
+            // 响应由连接器在请求结束时统一提交，未写满缓冲区的响应可以带上准确的 Content-Length
+            servlet.service(servletRequest, servletResponse);
+        } finally {
+            deallocate(servlet);
+        }
+    }
+
+    /**
+     * 管道的基础阀门：执行所属上下文为该请求匹配的过滤器链，链的末端是本 Servlet
+     */
+    @Override
+    protected void invokeBasic(Request request, Response response)
+            throws IOException, com.microtomcat.servlet.ServletException {
+        Servlet servlet = null;
+        try {
+            servlet = allocate();
+            ApplicationFilterChain filterChain = getParent() instanceof Context
+                ? ((Context) getParent()).createFilterChain(request)
+                : new ApplicationFilterChain();
+            filterChain.setServlet(servlet);
+            filterChain.doFilter(request, response);
+        } catch (UnavailableException e) {
+            sendUnavailable(response, e);
+        } catch (ServletException e) {
+            throw new com.microtomcat.servlet.ServletException(e.getMessage(), e);
+        } finally {
+            if (servlet != null) {
+                deallocate(servlet);
+            }
+        }
+    }
+
+    /**
+     * 取得处理本次请求的实例，用完后必须调用 deallocate 归还
+     */
+    Servlet allocate() throws ServletException {
+        Servlet servlet = loadServlet();
+        ServletInstancePool instancePool = pool;
+        if (instancePool != null) {
+            servlet = instancePool.borrow(waitTimeout, this::createServlet);
+        }
+        countAllocated.incrementAndGet();
+        return servlet;
+    }
+
+    void deallocate(Servlet servlet) {
+        countAllocated.decrementAndGet();
+        ServletInstancePool instancePool = pool;
+        if (instancePool != null) {
+            instancePool.giveBack(servlet);
+        }
+    }
+
+    /**
+     * 加载共享实例，多个线程同时首次请求时只有一个线程创建并初始化
+     */
+    private Servlet loadServlet() throws ServletException {
+        Servlet servlet = instance;
         if (servlet == null) {
-            try {
-                // 使用上下文的类加载器加载 servlet
-                ClassLoader loader = getParent().getWebAppClassLoader();
-                Class<?> clazz = loader.loadClass(servletClass);
-                servlet = (Servlet) clazz.newInstance();
-                
-                // 初始化 servlet
-                servlet.init(getServletConfig());
-            } catch (Exception e) {
-                throw new ServletException("Error initializing servlet", e);
+            synchronized (instanceLock) {
+                servlet = instance;
+                if (servlet == null) {
+                    servlet = createServlet();
+                    publish(servlet);
+                }
+            }
+        }
+        return servlet;
+    }
+
+    // 调用方持有 instanceLock；先建好实例池再发布实例，读到实例的线程一定能看到池
+    @SuppressWarnings("deprecation")
+    private void publish(Servlet servlet) {
+        if (servlet instanceof SingleThreadModel) {
+            singleThreadModel = true;
+        }
+        pool = singleThreadModel ? new ServletInstancePool(maxInstances, servlet) : null;
+        instance = servlet;
+    }
+
+    private Servlet createServlet() throws ServletException {
+        long until = unavailableUntil;
+        if (until != 0 && System.currentTimeMillis() < until) {
+            if (until == Long.MAX_VALUE) {
+                throw new UnavailableException("Servlet " + getName() + " is permanently unavailable");
             }
+            int seconds = (int) Math.max(1, TimeUnit.MILLISECONDS.toSeconds(until - System.currentTimeMillis()));
+            throw new UnavailableException("Servlet " + getName() + " is currently unavailable", seconds);
         }
-        
-        // 包装请求和响应
-        ServletRequestWrapper servletRequest = new ServletRequestWrapper(request);
-        ServletResponseWrapper servletResponse = new ServletResponseWrapper(response);
-        
-        // 调用 servlet 的 service 方法
-        servlet.service(servletRequest, servletResponse);
-        
-        // 确保响应被提交
-        if (!response.isCommitted()) {
-            // 从包装器中获取设置的 Content-Type
-            String contentType = servletResponse.getContentType();
-            log("Content-Type from wrapper: " + contentType);
-            log("Original response Content-Type: " + response.getContentType());
-            
-            if (contentType != null) {
-                response.setContentType(contentType);
-                log("After setting Content-Type: " + response.getContentType());
+        try {
+            // 使用上下文的类加载器加载 servlet
+            ClassLoader loader = getParent().getWebAppClassLoader();
+            Class<?> clazz = loader.loadClass(servletClass);
+            Servlet servlet = (Servlet) clazz.newInstance();
+
+            // 初始化 servlet
+            servlet.init(getServletConfig());
+            return servlet;
+        } catch (UnavailableException e) {
+            unavailableUntil = e.isPermanent() || e.getUnavailableSeconds() <= 0
+                ? Long.MAX_VALUE
+                : System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(e.getUnavailableSeconds());
+            throw e;
+        } catch (Exception e) {
+            throw new ServletException("Error initializing servlet", e);
+        }
+    }
+
+    private void sendUnavailable(Response response, UnavailableException e) throws IOException {
+        logger.warn("Servlet {} unavailable: {}", getName(), e.getMessage());
+        if (response.isCommitted()) {
+            return;
+        }
+        if (e.isPermanent()) {
+            response.sendError(404, e.getMessage());
+        } else {
+            response.setHeader("Retry-After", String.valueOf(Math.max(1, e.getUnavailableSeconds())));
+            response.sendError(503, e.getMessage());
+        }
+    }
+
+    /**
+     * 销毁所有实例；实例池模式下先等待正在使用的实例归还
+     */
+    private void unload() {
+        List<Servlet> servlets;
+        synchronized (instanceLock) {
+            ServletInstancePool instancePool = pool;
+            Servlet servlet = instance;
+            if (instancePool != null) {
+                // 排空期间池仍然可见，正在使用的实例可以正常归还
+                servlets = instancePool.drain(waitTimeout);
+            } else {
+                servlets = servlet != null ? Collections.singletonList(servlet) : Collections.<Servlet>emptyList();
+            }
+            pool = null;
+            instance = null;
+        }
+        for (Servlet servlet : servlets) {
+            try {
+                servlet.destroy();
+            } catch (RuntimeException e) {
+                logger.warn("Error destroying servlet " + getName(), e);
             }
-            response.flushBuffer();
         }
     }
 
+    /**
+     * 直接设置已初始化的实例，实现 SingleThreadModel 时它成为实例池中的第一个实例
+     */
     public void setServlet(Servlet servlet) {
-        this.servlet = servlet;
+        synchronized (instanceLock) {
+            if (servlet == null) {
+                pool = null;
+                instance = null;
+            } else {
+                publish(servlet);
+            }
+        }
     }
 
     private ServletConfig getServletConfig() {
@@ -87,22 +243,15 @@ public class Wrapper extends ContainerBase {
 
     @Override
     protected void destroyInternal() throws LifecycleException {
-        try {
-            if (servlet != null) {
-                servlet.destroy();
-            }
-        } finally {
-            servlet = null;
-        }
+        unload();
     }
 
     @Override
     protected void stopInternal() throws LifecycleException {
         try {
-            if (servlet != null) {
-                servlet.destroy();
-                servlet = null;
-            }
+            stopPipeline();
+            unregisterMBean();
+            unload();
         } catch (Exception e) {
             throw new LifecycleException("Error stopping servlet", e);
         }
@@ -111,16 +260,15 @@ public class Wrapper extends ContainerBase {
     @Override
     protected void startInternal() throws LifecycleException {
         try {
-            // 在启动时初始化 servlet
-            if (servlet == null) {
-                ClassLoader loader = getParent().getWebAppClassLoader();
-                Class<?> clazz = loader.loadClass(servletClass);
-                servlet = (Servlet) clazz.newInstance();
-                servlet.init(getServletConfig());
+            // loadOnStartup >= 0 的 Servlet 在启动时加载，其余在首次请求时加载
+            if (loadOnStartup >= 0) {
+                loadServlet();
             }
+            startPipeline();
         } catch (Exception e) {
             throw new LifecycleException("Error starting servlet", e);
         }
+        registerMBean();
     }
 
     @Override
@@ -131,39 +279,150 @@ public class Wrapper extends ContainerBase {
             if (servletClass == null) {
                 throw new LifecycleException("No servlet class configured");
             }
-            
+
             // 验证父容器是否是 Context
             if (!(getParent() instanceof Context)) {
                 throw new LifecycleException("Wrapper container must have Context as parent");
             }
-            
+
         } catch (Exception e) {
             throw new LifecycleException("Error initializing wrapper", e);
         }
     }
 
-    @Override
-    public void invoke(Request request, Response response) {
+    private void registerMBean() {
         try {
-            // 调用 service 方法处理请求
-            service(request, response);
-            
-            // 确保响应被提交
-            if (!response.isCommitted()) {
-                response.flushBuffer();
-            }
-        } catch (ServletException | IOException e) {
-            // 记录错误并可能设置错误响应
-            log("Error processing request: " + e.getMessage());
-            try {
-                response.sendError(500, "Internal Server Error");
-            } catch (IOException ex) {
-                log("Failed to send error response: " + ex.getMessage());
-            }
+            new MBeanRegistry().registerMBean(this, mbeanName());
+        } catch (JMException e) {
+            log("Failed to register MBean: " + e.getMessage());
+        }
+    }
+
+    private void unregisterMBean() {
+        try {
+            new MBeanRegistry().unregisterMBean(mbeanName());
+        } catch (JMException e) {
+            log("Failed to unregister MBean: " + e.getMessage());
         }
     }
 
+    private String mbeanName() {
+        String context = getParent() != null ? getParent().getName() : "";
+        return "Wrapper,context=" + ObjectName.quote(context) + ",name=" + ObjectName.quote(getName());
+    }
+
     public Servlet getServlet() {
-        return servlet;
+        return instance;
+    }
+
+    /**
+     * 是否可以把请求交给该 Wrapper：实例已加载，或者已启动、可以在首次请求时加载
+     */
+    public boolean isAvailable() {
+        return instance != null || Lifecycle.STARTED.equals(getState());
+    }
+
+    public void setLoadOnStartup(int loadOnStartup) {
+        this.loadOnStartup = loadOnStartup;
+    }
+
+    /**
+     * 按非线程安全的方式使用实例池，在实例加载前设置
+     */
+    public void setSingleThreadModel(boolean singleThreadModel) {
+        this.singleThreadModel = singleThreadModel;
+    }
+
+    /**
+     * 实例池的最大实例数，在实例加载前设置
+     */
+    public void setMaxInstances(int maxInstances) {
+        if (maxInstances <= 0) {
+            throw new IllegalArgumentException("maxInstances must be positive");
+        }
+        this.maxInstances = maxInstances;
+    }
+
+    public void setWaitTimeout(long waitTimeout) {
+        this.waitTimeout = waitTimeout;
+    }
+
+    @Override
+    public String getServletClass() {
+        return servletClass;
+    }
+
+    @Override
+    public int getLoadOnStartup() {
+        return loadOnStartup;
+    }
+
+    @Override
+    public boolean isSingleThreadModel() {
+        return singleThreadModel;
+    }
+
+    @Override
+    public int getMaxInstances() {
+        return maxInstances;
+    }
+
+    @Override
+    public long getWaitTimeout() {
+        return waitTimeout;
+    }
+
+    @Override
+    public boolean isLoaded() {
+        return instance != null;
+    }
+
+    @Override
+    public int getInstanceCount() {
+        ServletInstancePool instancePool = pool;
+        if (instancePool != null) {
+            return instancePool.getCreated();
+        }
+        return instance != null ? 1 : 0;
+    }
+
+    @Override
+    public int getActiveAllocations() {
+        return countAllocated.get();
+    }
+
+    @Override
+    public double getPoolUtilization() {
+        ServletInstancePool instancePool = pool;
+        return instancePool != null ? (double) instancePool.getActive() / instancePool.getMaxInstances() : 0;
+    }
+
+    @Override
+    public long getWaitTimeouts() {
+        ServletInstancePool instancePool = pool;
+        return instancePool != null ? instancePool.getTimeouts() : 0;
+    }
+
+    @Override
+    public double getAverageWaitMillis() {
+        LatencyHistogram waitTimes = waitTimes();
+        return waitTimes != null ? waitTimes.getMeanNanos() / 1_000_000.0 : 0;
+    }
+
+    @Override
+    public double getP99WaitMillis() {
+        LatencyHistogram waitTimes = waitTimes();
+        return waitTimes != null ? waitTimes.getPercentileNanos(99) / 1_000_000.0 : 0;
+    }
+
+    @Override
+    public double getMaxWaitMillis() {
+        LatencyHistogram waitTimes = waitTimes();
+        return waitTimes != null ? waitTimes.getMaxNanos() / 1_000_000.0 : 0;
+    }
+
+    private LatencyHistogram waitTimes() {
+        ServletInstancePool instancePool = pool;
+        return instancePool != null ? instancePool.getWaitTimes() : null;
     }
-} 
\ No newline at end of file
+}
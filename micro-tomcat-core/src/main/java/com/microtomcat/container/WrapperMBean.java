@@ -0,0 +1,25 @@
+package com.microtomcat.container;
+
+/**
+ * Wrapper 的 JMX 管理接口
+ */
+public interface WrapperMBean {
+    // 配置
+    String getServletClass();
+    int getLoadOnStartup();
+    boolean isSingleThreadModel();
+    int getMaxInstances();
+    long getWaitTimeout();
+
+    // 实例池状态
+    boolean isLoaded();
+    int getInstanceCount();
+    int getActiveAllocations();
+    double getPoolUtilization();
+
+    // 等待实例的统计（仅实例池模式）
+    long getWaitTimeouts();
+    double getAverageWaitMillis();
+    double getP99WaitMillis();
+    double getMaxWaitMillis();
+}
@@ -29,6 +29,8 @@ public class ContainerEvent extends EventObject {
     // 定义标准事件类型
     public static final String CHILD_ADDED = "childAdded";
     public static final String CHILD_REMOVED = "childRemoved";
+    public static final String ADD_ALIAS = "addAlias";
+    public static final String REMOVE_ALIAS = "removeAlias";
     public static final String START_EVENT = "start";
     public static final String STOP_EVENT = "stop";
     public static final String INIT_EVENT = "init";
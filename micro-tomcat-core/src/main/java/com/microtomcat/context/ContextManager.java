@@ -1,5 +1,6 @@
 package com.microtomcat.context;
 
+import com.microtomcat.logging.Log;
 import java.io.IOException;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -8,6 +9,7 @@ import com.microtomcat.container.Context;
 import com.microtomcat.lifecycle.LifecycleBase;
 import com.microtomcat.lifecycle.LifecycleException;
 public class ContextManager extends LifecycleBase {
+    private static final Log LOG = Log.getLog(ContextManager.class);
     private final Map<String, Context> contexts = new ConcurrentHashMap<>();
     private final String webRoot;
 
@@ -72,6 +74,6 @@ public class ContextManager extends LifecycleBase {
     }
 
     private void log(String message) {
-        System.out.println("[ContextManager] " + message);
+        LOG.info(message);
     }
 }
\ No newline at end of file
@@ -1,5 +1,7 @@
 package com.microtomcat.context;
 
+import com.microtomcat.logging.Log;
+import com.microtomcat.resources.MimeTypes;
 import javax.servlet.*;
 import javax.servlet.descriptor.JspConfigDescriptor;
 import java.io.InputStream;
@@ -9,6 +11,7 @@ import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 
 public class SimpleServletContext implements ServletContext {
+    private static final Log LOG = Log.getLog(SimpleServletContext.class);
     private final String contextPath;
     private final Map<String, Object> attributes = new ConcurrentHashMap<>();
     private final Map<String, String> initParameters = new ConcurrentHashMap<>();
@@ -32,13 +35,7 @@ public class SimpleServletContext implements ServletContext {
 
     @Override
     public String getMimeType(String file) {
-        // 简单的MIME类型映射
-        if (file.endsWith(".html")) return "text/html";
-        if (file.endsWith(".css")) return "text/css";
-        if (file.endsWith(".js")) return "application/javascript";
-        if (file.endsWith(".png")) return "image/png";
-        if (file.endsWith(".jpg") || file.endsWith(".jpeg")) return "image/jpeg";
-        return "application/octet-stream";
+        return MimeTypes.getMimeType(file);
     }
 
     @Override
@@ -68,13 +65,12 @@ public class SimpleServletContext implements ServletContext {
 
     @Override
     public void log(String msg) {
-        System.out.println("[" + contextPath + "] " + msg);
+        LOG.info("[{}] {}", contextPath, msg);
     }
 
     @Override
     public void log(String message, Throwable throwable) {
-        System.out.println("[" + contextPath + "] " + message);
-        throwable.printStackTrace();
+        LOG.error("[" + contextPath + "] " + message, throwable);
     }
 
     @Override
@@ -2,16 +2,22 @@ package com.microtomcat.filter;
 
 import javax.servlet.*;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
 
+/**
+ * 单个请求的过滤器链游标。filters 数组由 FilterManager 缓存并在请求之间共享，
+ * 这里只保存当前执行到的位置。
+ */
 public class ApplicationFilterChain implements FilterChain {
-    private final List<Filter> filters = new ArrayList<>();
+    private final Filter[] filters;
     private int position = 0;
     private Servlet servlet;
 
-    public void addFilter(Filter filter) {
-        filters.add(filter);
+    public ApplicationFilterChain() {
+        this(FilterMapper.NO_FILTERS);
+    }
+
+    ApplicationFilterChain(Filter[] filters) {
+        this.filters = filters;
     }
 
     public void setServlet(Servlet servlet) {
@@ -21,8 +27,8 @@ public class ApplicationFilterChain implements FilterChain {
     @Override
     public void doFilter(ServletRequest request, ServletResponse response) 
             throws IOException, ServletException {
-        if (position < filters.size()) {
-            Filter filter = filters.get(position++);
+        if (position < filters.length) {
+            Filter filter = filters[position++];
             filter.doFilter(request, response, this);
         } else if (servlet != null) {
             servlet.service(request, response);
@@ -32,4 +38,4 @@ public class ApplicationFilterChain implements FilterChain {
     public void reset() {
         position = 0;
     }
-} 
\ No newline at end of file
+}
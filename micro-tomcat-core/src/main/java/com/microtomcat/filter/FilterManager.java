@@ -1,17 +1,21 @@
 package com.microtomcat.filter;
 
+import com.microtomcat.logging.Log;
 import javax.servlet.Filter;
 import javax.servlet.FilterConfig;
 import javax.servlet.ServletContext;
 import javax.servlet.ServletException;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 
 public class FilterManager {
+    private static final Log LOG = Log.getLog(FilterManager.class);
     // 使用 LinkedHashMap 保持插入顺序
     private final Map<String, Filter> filterMap = new LinkedHashMap<>();
-    private final Map<String, String> filterMappings = new LinkedHashMap<>();
+    // 过滤器名称 -> url-pattern 列表，一个过滤器可以映射多个模式
+    private final Map<String, List<String>> filterMappings = new LinkedHashMap<>();
     private final ServletContext servletContext;
+    // 配置的编译形式，配置变化时整体替换，旧的过滤器链缓存随之失效
+    private volatile FilterMapper filterMapper = FilterMapper.EMPTY;
     
     public FilterManager(ServletContext servletContext) {
         this.servletContext = servletContext;
@@ -22,8 +26,11 @@ public class FilterManager {
             // 初始化filter
             FilterConfig filterConfig = new ApplicationFilterConfig(filterName, servletContext);
             filter.init(filterConfig);
-            filterMap.put(filterName, filter);
-            System.out.println("Added filter: " + filterName); // 添加日志
+            synchronized (this) {
+                filterMap.put(filterName, filter);
+                rebuild();
+            }
+            LOG.info("Added filter: {}", filterName);
         } catch (ServletException e) {
             throw new RuntimeException("Failed to initialize filter: " + filterName, e);
         }
@@ -34,67 +41,40 @@ public class FilterManager {
         if (!urlPattern.startsWith("/") && !urlPattern.startsWith("*")) {
             urlPattern = "/" + urlPattern;
         }
-        filterMappings.put(filterName, urlPattern); // 注意：键值对调换了
-        System.out.println("Added filter mapping: " + filterName + " -> " + urlPattern); // 添加日志
-    }
-    
-    public ApplicationFilterChain createFilterChain(String requestUri) {
-        ApplicationFilterChain filterChain = new ApplicationFilterChain();
-        System.out.println("Creating filter chain for URI: " + requestUri);
-        
-        // 遍历所有过滤器，按添加顺序处理
-        for (Map.Entry<String, Filter> entry : filterMap.entrySet()) {
-            String filterName = entry.getKey();
-            String urlPattern = filterMappings.get(filterName);
-            
-            System.out.println("Checking filter: " + filterName + " with pattern: " + urlPattern);
-            
-            if (urlPattern != null && matchFiltersURL(requestUri, urlPattern)) {
-                Filter filter = entry.getValue();
-                filterChain.addFilter(filter);
+        synchronized (this) {
+            List<String> patterns = filterMappings.computeIfAbsent(filterName, k -> new ArrayList<>());
+            if (!patterns.contains(urlPattern)) {
+                patterns.add(urlPattern);
             }
+            rebuild();
         }
-        
-        return filterChain;
+        LOG.info("Added filter mapping: {} -> {}", filterName, urlPattern);
+    }
+
+    private void rebuild() {
+        filterMapper = FilterMapper.compile(new ArrayList<>(filterMap.entrySet()), filterMappings);
     }
     
-    private boolean matchFiltersURL(String uri, String urlPattern) {
-        
-        // 处理 /* 模式
-        if (urlPattern.equals("/*")) {
-            return true;
-        }
-        
-        // 处理 /path/* 模式
-        if (urlPattern.endsWith("/*")) {
-            String prefix = urlPattern.substring(0, urlPattern.length() - 2);
-            // 确保 uri 以 prefix 开头，并且后面跟着 / 或者是完全匹配
-            boolean matches = uri.equals(prefix) || 
-                            (uri.startsWith(prefix) && uri.charAt(prefix.length()) == '/');
-            return matches;
-        }
-        
-        // 处理 *.extension 模式
-        if (urlPattern.startsWith("*.")) {
-            String suffix = urlPattern.substring(2); // 改为从第2个字符开始，跳过 *.
-            boolean matches = uri.endsWith("." + suffix);
-            return matches;
-        }
-        
-        // 精确匹配
-        boolean matches = uri.equals(urlPattern);
-        return matches;
+    /**
+     * 为上下文内的请求路径创建过滤器链。
+     * 命中的 Filter[] 来自编译后的映射并在请求之间共享，每个请求只分配一个记录执行位置的链对象。
+     */
+    public ApplicationFilterChain createFilterChain(String path) {
+        return new ApplicationFilterChain(filterMapper.match(path));
     }
     
     public void destroy() {
-        for (Filter filter : filterMap.values()) {
-            try {
-                filter.destroy();
-            } catch (Exception e) {
-                System.err.println("Error destroying filter: " + e.getMessage());
+        synchronized (this) {
+            for (Filter filter : filterMap.values()) {
+                try {
+                    filter.destroy();
+                } catch (Exception e) {
+                    LOG.warn("Error destroying filter", e);
+                }
             }
+            filterMap.clear();
+            filterMappings.clear();
+            rebuild();
         }
-        filterMap.clear();
-        filterMappings.clear();
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,163 @@
+package com.microtomcat.filter;
+
+import com.microtomcat.container.PathTrie;
+
+import javax.servlet.Filter;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 编译后的过滤器映射，创建后不可变，配置变化时整体重建后替换。
+ *
+ * 一个请求路径命中的过滤器只取决于三项：精确匹配的模式、最深的前缀模式（"/*" 是根前缀）
+ * 和扩展名模式。每个分组在编译时分配编号并预先算好它包含的过滤器，三个编号组成的键
+ * 对应一条按声明顺序排好的 Filter[]，缓存后被所有请求共享。
+ */
+final class FilterMapper {
+    static final Filter[] NO_FILTERS = new Filter[0];
+    static final FilterMapper EMPTY = compile(new ArrayList<>(), new HashMap<>());
+
+    // 不同键的数量上限，超过后清空重新累积，防止异常路径撑大缓存
+    private static final int MAX_CACHED_CHAINS = 1024;
+
+    /**
+     * 一组模式命中的过滤器集合
+     */
+    private static final class Group {
+        final int id;
+        final BitSet filters = new BitSet();
+
+        Group(int id) {
+            this.id = id;
+        }
+    }
+
+    private final Filter[] filters;
+    private final Map<String, Group> exactGroups;
+    private final PathTrie<Group> prefixGroups;
+    private final Map<String, Group> extensionGroups;
+    private final ConcurrentHashMap<Long, Filter[]> chains = new ConcurrentHashMap<>();
+
+    private FilterMapper(Filter[] filters, Map<String, Group> exactGroups, PathTrie<Group> prefixGroups,
+                         Map<String, Group> extensionGroups) {
+        this.filters = filters;
+        this.exactGroups = exactGroups;
+        this.prefixGroups = prefixGroups;
+        this.extensionGroups = extensionGroups;
+    }
+
+    /**
+     * @param filterNames 按声明顺序排列的过滤器名称，决定链中的执行顺序
+     * @param patterns    过滤器名称 -> 该过滤器的 url-pattern 列表
+     */
+    static FilterMapper compile(List<Map.Entry<String, Filter>> filterNames, Map<String, List<String>> patterns) {
+        Filter[] filters = new Filter[filterNames.size()];
+        Map<String, Group> exact = new HashMap<>();
+        Map<String, Group> extension = new HashMap<>();
+        // 前缀（不含 "/*"，根为 ""）-> 直接映射到该前缀的过滤器
+        Map<String, BitSet> prefixes = new HashMap<>();
+        int nextId = 0;
+
+        for (int index = 0; index < filters.length; index++) {
+            Map.Entry<String, Filter> entry = filterNames.get(index);
+            filters[index] = entry.getValue();
+            List<String> filterPatterns = patterns.get(entry.getKey());
+            if (filterPatterns == null) {
+                continue;
+            }
+            for (String pattern : filterPatterns) {
+                if (pattern.startsWith("*.")) {
+                    Group group = extension.get(pattern.substring(2));
+                    if (group == null) {
+                        group = new Group(nextId++);
+                        extension.put(pattern.substring(2), group);
+                    }
+                    group.filters.set(index);
+                } else if (pattern.endsWith("/*")) {
+                    prefixes.computeIfAbsent(pattern.substring(0, pattern.length() - 2), k -> new BitSet()).set(index);
+                } else {
+                    Group group = exact.get(pattern);
+                    if (group == null) {
+                        group = new Group(nextId++);
+                        exact.put(pattern, group);
+                    }
+                    group.filters.set(index);
+                }
+            }
+        }
+
+        // 前缀匹配会同时命中所有祖先前缀，每个节点预先合并祖先的过滤器
+        PathTrie<Group> prefixTrie = new PathTrie<>();
+        for (String prefix : prefixes.keySet()) {
+            Group group = new Group(nextId++);
+            for (Map.Entry<String, BitSet> ancestor : prefixes.entrySet()) {
+                String candidate = ancestor.getKey();
+                if (candidate.isEmpty() || prefix.equals(candidate) || prefix.startsWith(candidate + "/")) {
+                    group.filters.or(ancestor.getValue());
+                }
+            }
+            prefixTrie.put(prefix, group);
+        }
+        return new FilterMapper(filters, exact, prefixTrie, extension);
+    }
+
+    /**
+     * 返回上下文内路径命中的过滤器，按声明顺序排列；返回的数组被共享，调用方不得修改
+     */
+    Filter[] match(String path) {
+        if (filters.length == 0) {
+            return NO_FILTERS;
+        }
+        if (path == null || path.isEmpty()) {
+            path = "/";
+        }
+        Group exact = exactGroups.get(path);
+        PathTrie.Entry<Group> prefixEntry = prefixGroups.longestMatch(path);
+        Group prefix = prefixEntry != null ? prefixEntry.getValue() : null;
+        Group extension = null;
+        if (!extensionGroups.isEmpty()) {
+            int lastSlash = path.lastIndexOf('/');
+            int lastDot = path.lastIndexOf('.');
+            if (lastDot > lastSlash && lastDot < path.length() - 1) {
+                extension = extensionGroups.get(path.substring(lastDot + 1));
+            }
+        }
+        if (exact == null && prefix == null && extension == null) {
+            return NO_FILTERS;
+        }
+
+        long key = ((long) id(exact) << 42) | ((long) id(prefix) << 21) | id(extension);
+        Filter[] chain = chains.get(key);
+        if (chain == null) {
+            chain = buildChain(exact, prefix, extension);
+            if (chains.size() >= MAX_CACHED_CHAINS) {
+                chains.clear();
+            }
+            chains.put(key, chain);
+        }
+        return chain;
+    }
+
+    private static int id(Group group) {
+        return group != null ? group.id + 1 : 0;
+    }
+
+    private Filter[] buildChain(Group... groups) {
+        BitSet matched = new BitSet(filters.length);
+        for (Group group : groups) {
+            if (group != null) {
+                matched.or(group.filters);
+            }
+        }
+        Filter[] chain = new Filter[matched.cardinality()];
+        int i = 0;
+        for (int index = matched.nextSetBit(0); index >= 0; index = matched.nextSetBit(index + 1)) {
+            chain[i++] = filters[index];
+        }
+        return chain;
+    }
+}
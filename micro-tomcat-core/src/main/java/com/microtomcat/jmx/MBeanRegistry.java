@@ -1,30 +1,30 @@
 package com.microtomcat.jmx;
 
+import com.microtomcat.logging.Log;
 import javax.management.JMException;
 import javax.management.MBeanServer;
 import javax.management.ObjectName;
 import java.lang.management.ManagementFactory;
 
 public class MBeanRegistry {
+    private static final Log LOG = Log.getLog(MBeanRegistry.class);
     private final MBeanServer mBeanServer;
     
     public MBeanRegistry() {
         this.mBeanServer = ManagementFactory.getPlatformMBeanServer();
-        System.out.println("Created MBeanRegistry with server: " + mBeanServer);
+        LOG.debug("Created MBeanRegistry with server: {}", mBeanServer);
     }
     
     public void registerMBean(Object mbean, String name) throws JMException {
-        System.out.println("Attempting to register MBean: " + name);
-        System.out.println("MBean class: " + mbean.getClass().getName());
+        LOG.debug("Attempting to register MBean: {} ({})", name, mbean.getClass().getName());
         
         ObjectName objectName = new ObjectName("com.microtomcat:type=" + name);
-        System.out.println("Created ObjectName: " + objectName);
         
         if (!mBeanServer.isRegistered(objectName)) {
             mBeanServer.registerMBean(mbean, objectName);
-            System.out.println("Successfully registered MBean: " + objectName);
+            LOG.info("Successfully registered MBean: {}", objectName);
         } else {
-            System.out.println("MBean already registered: " + objectName);
+            LOG.debug("MBean already registered: {}", objectName);
         }
     }
     
@@ -32,7 +32,7 @@ public class MBeanRegistry {
         ObjectName objectName = new ObjectName("com.microtomcat:type=" + name);
         if (mBeanServer.isRegistered(objectName)) {
             mBeanServer.unregisterMBean(objectName);
-            System.out.println("Unregistered MBean: " + objectName);
+            LOG.info("Unregistered MBean: {}", objectName);
         }
     }
 } 
\ No newline at end of file
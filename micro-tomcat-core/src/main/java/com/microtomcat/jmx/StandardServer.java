@@ -1,6 +1,7 @@
 package com.microtomcat.jmx;
 
 import com.microtomcat.container.Engine;
+import com.microtomcat.logging.LogManager;
 import com.microtomcat.processor.ProcessorPool;
 
 /**
@@ -47,6 +48,17 @@ public class StandardServer implements StandardServerMBean {
     
     @Override
     public void setLogLevel(String level) {
-        // TODO: 实现日志级别设置
+        // 支持 "DEBUG" 或 "com.microtomcat.protocol=DEBUG,com.microtomcat.loader=WARN"
+        LogManager.configure(level);
+    }
+
+    @Override
+    public String getLogLevel() {
+        return LogManager.getLevel().name();
+    }
+
+    @Override
+    public long getDroppedLogMessages() {
+        return LogManager.getDroppedMessages();
     }
 }
\ No newline at end of file
@@ -12,6 +12,10 @@ public interface StandardServerMBean {
     int getActiveThreads();
     long getTotalRequests();
     double getAverageResponseTime();
+
+    // 日志
+    String getLogLevel();
+    long getDroppedLogMessages();
     
     // 操作方法
     void reload();
@@ -2,6 +2,10 @@ package com.microtomcat.lifecycle;
 
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+/**
+ * 生命周期的模板实现。每个阶段依次触发：状态变为 *ING、BEFORE_*_EVENT、执行 *Internal、
+ * 状态变为 *ED、AFTER_*_EVENT；AFTER_*_EVENT 的数据是该阶段 *Internal 的耗时（纳秒，Long）。
+ */
 public abstract class LifecycleBase implements Lifecycle {
     private final LifecycleSupport lifecycleSupport = new LifecycleSupport(this);
     private final ReentrantReadWriteLock lifecycleLock = new ReentrantReadWriteLock();
@@ -15,8 +19,11 @@ public abstract class LifecycleBase implements Lifecycle {
                 throw new LifecycleException("Component already initialized");
             }
             setStateInternal(INITIALIZING, null);
+            lifecycleSupport.fireLifecycleEvent(BEFORE_INIT_EVENT, null);
+            long begin = System.nanoTime();
             initInternal();
             setStateInternal(INITIALIZED, null);
+            lifecycleSupport.fireLifecycleEvent(AFTER_INIT_EVENT, System.nanoTime() - begin);
         } finally {
             lifecycleLock.writeLock().unlock();
         }
@@ -33,8 +40,11 @@ public abstract class LifecycleBase implements Lifecycle {
                 throw new LifecycleException("Component not initialized or stopped");
             }
             setStateInternal(STARTING, null);
+            lifecycleSupport.fireLifecycleEvent(BEFORE_START_EVENT, null);
+            long begin = System.nanoTime();
             startInternal();
             setStateInternal(STARTED, null);
+            lifecycleSupport.fireLifecycleEvent(AFTER_START_EVENT, System.nanoTime() - begin);
         } finally {
             lifecycleLock.writeLock().unlock();
         }
@@ -48,8 +58,11 @@ public abstract class LifecycleBase implements Lifecycle {
                 throw new LifecycleException("Component not started");
             }
             setStateInternal(STOPPING, null);
+            lifecycleSupport.fireLifecycleEvent(BEFORE_STOP_EVENT, null);
+            long begin = System.nanoTime();
             stopInternal();
             setStateInternal(STOPPED, null);
+            lifecycleSupport.fireLifecycleEvent(AFTER_STOP_EVENT, System.nanoTime() - begin);
         } finally {
             lifecycleLock.writeLock().unlock();
         }
@@ -63,8 +76,11 @@ public abstract class LifecycleBase implements Lifecycle {
                 stop();
             }
             setStateInternal(DESTROYING, null);
+            lifecycleSupport.fireLifecycleEvent(BEFORE_DESTROY_EVENT, null);
+            long begin = System.nanoTime();
             destroyInternal();
             setStateInternal(DESTROYED, null);
+            lifecycleSupport.fireLifecycleEvent(AFTER_DESTROY_EVENT, System.nanoTime() - begin);
         } finally {
             lifecycleLock.writeLock().unlock();
         }
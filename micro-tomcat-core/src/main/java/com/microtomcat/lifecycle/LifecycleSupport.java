@@ -1,11 +1,13 @@
 package com.microtomcat.lifecycle;
 
+import com.microtomcat.logging.Log;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
 public class LifecycleSupport {
+    private static final Log LOG = Log.getLog(LifecycleSupport.class);
     private final Lifecycle lifecycle;
     private final List<LifecycleListener> listeners = new CopyOnWriteArrayList<>();
     private final ExecutorService asyncEventExecutor = Executors.newSingleThreadExecutor();
@@ -44,7 +46,7 @@ public class LifecycleSupport {
             try {
                 listener.lifecycleEvent(event);
             } catch (Exception e) {
-                System.err.println("Error notifying lifecycle listener: " + e.getMessage());
+                LOG.warn("Error notifying lifecycle listener", e);
             }
         }
     }
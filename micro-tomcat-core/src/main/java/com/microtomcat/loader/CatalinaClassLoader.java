@@ -1,5 +1,6 @@
 package com.microtomcat.loader;
 
+import com.microtomcat.logging.Log;
 import java.net.URL;
 import java.io.IOException;
 import java.io.File;
@@ -9,6 +10,7 @@ import java.io.File;
  * 在这儿我们只是在演示，所以主要依赖 parent = CommonClassLoader
  */
 public class CatalinaClassLoader extends MicroTomcatClassLoader {
+    private static final Log LOG = Log.getLog(CatalinaClassLoader.class);
 
     public CatalinaClassLoader(ClassLoader parent) throws IOException {
         super(new URL[0], parent);
@@ -24,7 +26,7 @@ public class CatalinaClassLoader extends MicroTomcatClassLoader {
     @Override
     public Class<?> loadClass(String name) throws ClassNotFoundException {
         synchronized (getClassLoadingLock(name)) {
-            log("CatalinaClassLoader is loading class: " + name);
+            LOG.debug("Loading class: {}", name);
             // 直接走父类的逻辑即可（里面有双亲委派）
             return super.loadClass(name);
         }
@@ -1,10 +1,12 @@
 package com.microtomcat.loader;
 
+import com.microtomcat.logging.Log;
 import java.io.IOException;
 import java.lang.reflect.Field;
 import java.util.Vector;
 
 public class ClassLoaderManager {
+    private static final Log LOG = Log.getLog(ClassLoaderManager.class);
     private static CommonClassLoader   commonLoader;
     private static CatalinaClassLoader catalinaLoader;
     private static SharedClassLoader   sharedLoader;
@@ -127,6 +129,6 @@ public class ClassLoaderManager {
     }
 
     private static void log(String message) {
-        System.out.println("[ClassLoaderManager] " + message);
+        LOG.info(message);
     }
 }
@@ -1,5 +1,6 @@
 package com.microtomcat.loader;
 
+import com.microtomcat.logging.Log;
 import java.io.File;
 import java.io.IOException;
 import java.net.URL;
@@ -14,6 +15,7 @@ import java.util.List;
  * 提供了通用的添加仓库路径、以及简单的双亲委派逻辑。
  */
 public abstract class MicroTomcatClassLoader extends URLClassLoader {
+    private static final Log LOG = Log.getLog(MicroTomcatClassLoader.class);
     
     // 存放我们手动添加的仓库（文件夹、jar包等）的绝对路径
     protected final List<File> repositoryPaths = new ArrayList<>();
@@ -44,7 +46,7 @@ public abstract class MicroTomcatClassLoader extends URLClassLoader {
      * 日志打印，方便调试
      */
     protected void log(String message) {
-        System.out.println("[" + getClass().getSimpleName() + "] " + message);
+        LOG.info("[{}] {}", getClass().getSimpleName(), message);
     }
 
     /**
@@ -53,31 +55,31 @@ public abstract class MicroTomcatClassLoader extends URLClassLoader {
     @Override
     public Class<?> loadClass(String name) throws ClassNotFoundException {
         synchronized (getClassLoadingLock(name)) {
-            log("Attempting to load class: " + name);
+            LOG.debug("Attempting to load class: {}", name);
 
             // 1. 如果已经加载过，直接返回
             Class<?> c = findLoadedClass(name);
             if (c != null) {
-                log("Class already loaded: " + name + " by " + c.getClassLoader());
+                LOG.debug("Class already loaded: {} by {}", name, c.getClassLoader());
                 return c;
             }
 
             // 2. 先走父加载器 (双亲委派)
             try {
                 c = getParent().loadClass(name);
-                log("Class loaded by parent: " + name);
+                LOG.debug("Class loaded by parent: {}", name);
                 return c;
             } catch (ClassNotFoundException e) {
-                log("Parent couldn't load class: " + name + ", trying locally");
+                LOG.debug("Parent couldn't load class: {}, trying locally", name);
             }
 
             // 3. 父加载器也加载不了，就自己 findClass
             try {
                 c = findClass(name);
-                log("Successfully loaded class locally: " + name);
+                LOG.debug("Successfully loaded class locally: {}", name);
                 return c;
             } catch (ClassNotFoundException e) {
-                log("Failed to load class: " + name);
+                LOG.debug("Failed to load class: {}", name);
                 throw e;
             }
         }
@@ -105,7 +107,7 @@ public abstract class MicroTomcatClassLoader extends URLClassLoader {
             while ((bytesRead = fis.read(buffer)) != -1) {
                 bos.write(buffer, 0, bytesRead);
             }
-            log("Found class file: " + classFile.getAbsolutePath());
+            LOG.debug("Found class file: {}", classFile.getAbsolutePath());
             return bos.toByteArray();
         } catch (IOException e) {
             log("Error reading class file: " + classFile + ", error: " + e.getMessage());
@@ -0,0 +1,205 @@
+package com.microtomcat.logging;
+
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 异步日志输出。调用线程只把级别、格式串和参数引用填进预分配的环形缓冲区槽位，
+ * 参数替换、时间格式化和写 System.out 都由后台线程批量完成。
+ * 缓冲区满时 WARN 及以上级别改为在调用线程上直接输出，其余级别丢弃并计数。
+ */
+final class AsyncLogWriter {
+    private static final int BATCH_SIZE = 256;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private static final class Event {
+        volatile long sequence = -1;
+        long claimedSequence;
+        long timestamp;
+        LogLevel level;
+        Log log;
+        String format;
+        Object arg1;
+        Object arg2;
+        Object[] args;
+        int argCount;
+        Throwable thrown;
+
+        void clear() {
+            log = null;
+            format = null;
+            arg1 = null;
+            arg2 = null;
+            args = null;
+            thrown = null;
+        }
+    }
+
+    private final Event[] events;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    // 只由写线程推进
+    private volatile long head;
+    private final LongAdder dropped = new LongAdder();
+    private final Thread writerThread;
+
+    // 以下只在写线程（或持有 System.out 锁的直接输出）中使用
+    private final StringBuilder batch = new StringBuilder(8192);
+    private final SimpleDateFormat timeFormat = new SimpleDateFormat("HH:mm:ss.");
+    private long cachedSecond = Long.MIN_VALUE;
+    private String cachedTime;
+
+    AsyncLogWriter(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.events = new Event[size];
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            events[i] = new Event();
+        }
+        writerThread = new Thread(this::run, "log-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        // 进程退出前写完队列中剩余的日志
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> flush(1000), "log-writer-shutdown"));
+    }
+
+    void append(Log log, LogLevel level, String format, Object arg1, Object arg2,
+                Object[] args, int argCount, Throwable thrown) {
+        long sequence;
+        do {
+            sequence = tail.get();
+            if (sequence - head >= events.length) {
+                if (level.ordinal() >= LogLevel.WARN.ordinal()) {
+                    writeDirect(log, level, format, arg1, arg2, args, argCount, thrown);
+                } else {
+                    dropped.increment();
+                }
+                return;
+            }
+        } while (!tail.compareAndSet(sequence, sequence + 1));
+
+        Event event = events[(int) sequence & mask];
+        event.claimedSequence = sequence;
+        event.timestamp = System.currentTimeMillis();
+        event.level = level;
+        event.log = log;
+        event.format = format;
+        event.arg1 = arg1;
+        event.arg2 = arg2;
+        event.args = args;
+        event.argCount = argCount;
+        event.thrown = thrown;
+        event.sequence = sequence;
+    }
+
+    long getDropped() {
+        return dropped.sum();
+    }
+
+    void flush(long timeoutMillis) {
+        long target = tail.get();
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (head < target && System.currentTimeMillis() < deadline) {
+            LockSupport.unpark(writerThread);
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+    }
+
+    private void run() {
+        while (true) {
+            int drained = 0;
+            synchronized (batch) {
+                long next = head;
+                Event event;
+                while (drained < BATCH_SIZE && (event = events[(int) next & mask]).sequence == next) {
+                    format(event.timestamp, event.level, event.log, event.format,
+                        event.arg1, event.arg2, event.args, event.argCount, event.thrown);
+                    event.clear();
+                    head = ++next;
+                    drained++;
+                }
+                if (batch.length() > 0) {
+                    PrintStream out = System.out;
+                    out.print(batch);
+                    out.flush();
+                    batch.setLength(0);
+                }
+            }
+            if (drained == 0) {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+        }
+    }
+
+    private void writeDirect(Log log, LogLevel level, String format, Object arg1, Object arg2,
+                             Object[] args, int argCount, Throwable thrown) {
+        synchronized (batch) {
+            int start = batch.length();
+            format(System.currentTimeMillis(), level, log, format, arg1, arg2, args, argCount, thrown);
+            System.out.print(batch.substring(start));
+            System.out.flush();
+            batch.setLength(start);
+        }
+    }
+
+    /**
+     * 追加一行："HH:mm:ss.SSS LEVEL [组件] 消息"
+     */
+    private void format(long timestamp, LogLevel level, Log log, String format, Object arg1, Object arg2,
+                        Object[] args, int argCount, Throwable thrown) {
+        long second = timestamp / 1000;
+        if (second != cachedSecond) {
+            cachedTime = timeFormat.format(new Date(timestamp));
+            cachedSecond = second;
+        }
+        long millis = timestamp % 1000;
+        batch.append(cachedTime);
+        if (millis < 100) {
+            batch.append('0');
+        }
+        if (millis < 10) {
+            batch.append('0');
+        }
+        batch.append(millis).append(' ').append(level.name());
+        for (int i = level.name().length(); i < 5; i++) {
+            batch.append(' ');
+        }
+        batch.append(" [").append(log.getDisplayName()).append("] ");
+        appendMessage(format, arg1, arg2, args, argCount);
+        batch.append(System.lineSeparator());
+        if (thrown != null) {
+            StringWriter trace = new StringWriter();
+            thrown.printStackTrace(new PrintWriter(trace));
+            batch.append(trace);
+        }
+    }
+
+    private void appendMessage(String format, Object arg1, Object arg2, Object[] args, int argCount) {
+        if (format == null) {
+            batch.append("null");
+            return;
+        }
+        if (argCount == 0) {
+            batch.append(format);
+            return;
+        }
+        int argIndex = 0;
+        int start = 0;
+        int placeholder;
+        while (argIndex < argCount && (placeholder = format.indexOf("{}", start)) >= 0) {
+            batch.append(format, start, placeholder);
+            Object arg = args != null ? args[argIndex] : (argIndex == 0 ? arg1 : arg2);
+            batch.append(String.valueOf(arg));
+            argIndex++;
+            start = placeholder + 2;
+        }
+        batch.append(format, start, format.length());
+    }
+}
@@ -0,0 +1,169 @@
+package com.microtomcat.logging;
+
+/**
+ * 组件使用的日志接口。
+ * 每个方法先比较级别再做任何事情，未启用的级别不会拼接字符串也不会分配对象；
+ * 消息中的 "{}" 依次替换为参数，替换和输出都在后台写线程上完成。
+ */
+public final class Log {
+    private final String name;
+    private final String displayName;
+    // 当前生效级别的序号，由 LogManager 在级别变化时更新
+    private volatile int threshold;
+
+    Log(String name, String displayName, LogLevel level) {
+        this.name = name;
+        this.displayName = displayName;
+        this.threshold = level.ordinal();
+    }
+
+    public static Log getLog(Class<?> type) {
+        return LogManager.getLog(type.getName(), type.getSimpleName());
+    }
+
+    public static Log getLog(String name) {
+        return LogManager.getLog(name, name);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    String getDisplayName() {
+        return displayName;
+    }
+
+    void setLevel(LogLevel level) {
+        this.threshold = level.ordinal();
+    }
+
+    public boolean isEnabled(LogLevel level) {
+        return level.ordinal() >= threshold;
+    }
+
+    public boolean isTraceEnabled() {
+        return LogLevel.TRACE.ordinal() >= threshold;
+    }
+
+    public boolean isDebugEnabled() {
+        return LogLevel.DEBUG.ordinal() >= threshold;
+    }
+
+    public boolean isInfoEnabled() {
+        return LogLevel.INFO.ordinal() >= threshold;
+    }
+
+    public void trace(String message) {
+        if (isTraceEnabled()) {
+            LogManager.append(this, LogLevel.TRACE, message, null, null, null, 0, null);
+        }
+    }
+
+    public void trace(String format, Object arg) {
+        if (isTraceEnabled()) {
+            LogManager.append(this, LogLevel.TRACE, format, arg, null, null, 1, null);
+        }
+    }
+
+    public void trace(String format, Object arg1, Object arg2) {
+        if (isTraceEnabled()) {
+            LogManager.append(this, LogLevel.TRACE, format, arg1, arg2, null, 2, null);
+        }
+    }
+
+    public void debug(String message) {
+        if (isDebugEnabled()) {
+            LogManager.append(this, LogLevel.DEBUG, message, null, null, null, 0, null);
+        }
+    }
+
+    public void debug(String format, Object arg) {
+        if (isDebugEnabled()) {
+            LogManager.append(this, LogLevel.DEBUG, format, arg, null, null, 1, null);
+        }
+    }
+
+    public void debug(String format, Object arg1, Object arg2) {
+        if (isDebugEnabled()) {
+            LogManager.append(this, LogLevel.DEBUG, format, arg1, arg2, null, 2, null);
+        }
+    }
+
+    public void debug(String format, Object... args) {
+        if (isDebugEnabled()) {
+            LogManager.append(this, LogLevel.DEBUG, format, null, null, args, args.length, null);
+        }
+    }
+
+    public void info(String message) {
+        if (isInfoEnabled()) {
+            LogManager.append(this, LogLevel.INFO, message, null, null, null, 0, null);
+        }
+    }
+
+    public void info(String format, Object arg) {
+        if (isInfoEnabled()) {
+            LogManager.append(this, LogLevel.INFO, format, arg, null, null, 1, null);
+        }
+    }
+
+    public void info(String format, Object arg1, Object arg2) {
+        if (isInfoEnabled()) {
+            LogManager.append(this, LogLevel.INFO, format, arg1, arg2, null, 2, null);
+        }
+    }
+
+    public void info(String format, Object... args) {
+        if (isInfoEnabled()) {
+            LogManager.append(this, LogLevel.INFO, format, null, null, args, args.length, null);
+        }
+    }
+
+    public void warn(String message) {
+        if (isEnabled(LogLevel.WARN)) {
+            LogManager.append(this, LogLevel.WARN, message, null, null, null, 0, null);
+        }
+    }
+
+    public void warn(String format, Object arg) {
+        if (isEnabled(LogLevel.WARN)) {
+            LogManager.append(this, LogLevel.WARN, format, arg, null, null, 1, null);
+        }
+    }
+
+    public void warn(String format, Object arg1, Object arg2) {
+        if (isEnabled(LogLevel.WARN)) {
+            LogManager.append(this, LogLevel.WARN, format, arg1, arg2, null, 2, null);
+        }
+    }
+
+    public void warn(String message, Throwable thrown) {
+        if (isEnabled(LogLevel.WARN)) {
+            LogManager.append(this, LogLevel.WARN, message, null, null, null, 0, thrown);
+        }
+    }
+
+    public void error(String message) {
+        if (isEnabled(LogLevel.ERROR)) {
+            LogManager.append(this, LogLevel.ERROR, message, null, null, null, 0, null);
+        }
+    }
+
+    public void error(String format, Object arg) {
+        if (isEnabled(LogLevel.ERROR)) {
+            LogManager.append(this, LogLevel.ERROR, format, arg, null, null, 1, null);
+        }
+    }
+
+    public void error(String format, Object arg1, Object arg2) {
+        if (isEnabled(LogLevel.ERROR)) {
+            LogManager.append(this, LogLevel.ERROR, format, arg1, arg2, null, 2, null);
+        }
+    }
+
+    public void error(String message, Throwable thrown) {
+        if (isEnabled(LogLevel.ERROR)) {
+            LogManager.append(this, LogLevel.ERROR, message, null, null, null, 0, thrown);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.microtomcat.logging;
+
+import java.util.Locale;
+
+/**
+ * 日志级别，按严重程度递增
+ */
+public enum LogLevel {
+    TRACE, DEBUG, INFO, WARN, ERROR, OFF;
+
+    /**
+     * 不区分大小写解析级别名称，无法识别时抛出 IllegalArgumentException
+     */
+    public static LogLevel parse(String name) {
+        if (name == null) {
+            throw new IllegalArgumentException("Log level must not be null");
+        }
+        String normalized = name.trim().toUpperCase(Locale.ROOT);
+        if ("WARNING".equals(normalized)) {
+            return WARN;
+        }
+        try {
+            return valueOf(normalized);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown log level: " + name);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.microtomcat.logging;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 日志级别的配置中心，可在运行时调整。
+ * 级别按名称前缀配置，例如 "com.microtomcat.container" 对该包下所有组件生效，
+ * 取最长匹配的前缀；没有匹配时使用根级别（默认 INFO，可用 -Dmicrotomcat.logLevel 指定）。
+ */
+public final class LogManager {
+    private static final Map<String, Log> LOGS = new ConcurrentHashMap<>();
+    private static final Map<String, LogLevel> LEVELS = new ConcurrentHashMap<>();
+    private static volatile LogLevel rootLevel = initialLevel();
+    private static final AsyncLogWriter WRITER = new AsyncLogWriter(8192);
+
+    private LogManager() {
+    }
+
+    private static LogLevel initialLevel() {
+        try {
+            return LogLevel.parse(System.getProperty("microtomcat.logLevel", "INFO"));
+        } catch (IllegalArgumentException e) {
+            return LogLevel.INFO;
+        }
+    }
+
+    static Log getLog(String name, String displayName) {
+        return LOGS.computeIfAbsent(name, key -> new Log(key, displayName, effectiveLevel(key)));
+    }
+
+    static void append(Log log, LogLevel level, String format, Object arg1, Object arg2,
+                       Object[] args, int argCount, Throwable thrown) {
+        WRITER.append(log, level, format, arg1, arg2, args, argCount, thrown);
+    }
+
+    public static LogLevel getLevel() {
+        return rootLevel;
+    }
+
+    public static synchronized void setLevel(LogLevel level) {
+        rootLevel = level;
+        refresh();
+    }
+
+    /**
+     * 设置某个名称前缀的级别，level 为 null 时移除该前缀的单独配置
+     */
+    public static synchronized void setLevel(String prefix, LogLevel level) {
+        if (level == null) {
+            LEVELS.remove(prefix);
+        } else {
+            LEVELS.put(prefix, level);
+        }
+        refresh();
+    }
+
+    /**
+     * 按配置串调整级别："DEBUG" 设置根级别，"com.microtomcat.container=DEBUG,com.microtomcat.loader=WARN"
+     * 设置各个前缀的级别，两种写法可以混用
+     */
+    public static void configure(String spec) {
+        if (spec == null || spec.trim().isEmpty()) {
+            throw new IllegalArgumentException("Log level must not be empty");
+        }
+        for (String part : spec.split(",")) {
+            part = part.trim();
+            if (part.isEmpty()) {
+                continue;
+            }
+            int equals = part.indexOf('=');
+            if (equals < 0) {
+                setLevel(LogLevel.parse(part));
+            } else {
+                setLevel(part.substring(0, equals).trim(), LogLevel.parse(part.substring(equals + 1)));
+            }
+        }
+    }
+
+    /**
+     * 因队列已满而丢弃的日志条数
+     */
+    public static long getDroppedMessages() {
+        return WRITER.getDropped();
+    }
+
+    /**
+     * 等待队列中已有的日志写出，最多等待 timeoutMillis
+     */
+    public static void flush(long timeoutMillis) {
+        WRITER.flush(timeoutMillis);
+    }
+
+    private static void refresh() {
+        for (Log log : LOGS.values()) {
+            log.setLevel(effectiveLevel(log.getName()));
+        }
+    }
+
+    private static LogLevel effectiveLevel(String name) {
+        LogLevel level = rootLevel;
+        int matched = -1;
+        for (Map.Entry<String, LogLevel> entry : LEVELS.entrySet()) {
+            String prefix = entry.getKey();
+            boolean matches = name.equals(prefix)
+                || (name.startsWith(prefix) && name.length() > prefix.length() && name.charAt(prefix.length()) == '.');
+            if (matches && prefix.length() > matched) {
+                matched = prefix.length();
+                level = entry.getValue();
+            }
+        }
+        return level;
+    }
+}
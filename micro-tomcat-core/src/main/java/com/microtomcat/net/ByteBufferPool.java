@@ -0,0 +1,240 @@
+package com.microtomcat.net;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按尺寸分级的直接内存缓冲区池。
+ * 连接只有在有数据收发时才借用缓冲区，空闲时归还，避免每个 keep-alive 连接常驻堆内存。
+ */
+public class ByteBufferPool implements ByteBufferPoolMBean {
+    private static final int[] DEFAULT_SIZE_CLASSES = {4 * 1024, 8 * 1024, 16 * 1024, 32 * 1024, 64 * 1024};
+    private static final int DEFAULT_MAX_FREE_PER_CLASS = 1024;
+
+    private static final ByteBufferPool INSTANCE =
+        new ByteBufferPool(DEFAULT_SIZE_CLASSES, DEFAULT_MAX_FREE_PER_CLASS);
+
+    private final SizeClass[] sizeClasses;
+    private final AtomicLong totalAllocations = new AtomicLong(0);
+    private final AtomicLong unpooledAllocations = new AtomicLong(0);
+    private final AtomicLong invalidReleases = new AtomicLong(0);
+
+    public ByteBufferPool(int[] sizes, int maxFreePerClass) {
+        int[] sorted = sizes.clone();
+        Arrays.sort(sorted);
+        this.sizeClasses = new SizeClass[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            sizeClasses[i] = new SizeClass(sorted[i], maxFreePerClass);
+        }
+    }
+
+    public static ByteBufferPool getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * 借用一个容量不小于 minCapacity 的缓冲区，返回时已 clear
+     */
+    public ByteBuffer acquire(int minCapacity) {
+        SizeClass sizeClass = findSizeClass(minCapacity);
+        if (sizeClass == null) {
+            // 超出最大分级的请求不入池
+            unpooledAllocations.incrementAndGet();
+            return ByteBuffer.allocateDirect(minCapacity);
+        }
+        sizeClass.expungeLeaks();
+        ByteBuffer buffer = sizeClass.free.poll();
+        if (buffer != null) {
+            sizeClass.freeCount.decrementAndGet();
+        } else {
+            buffer = ByteBuffer.allocateDirect(sizeClass.size);
+            totalAllocations.incrementAndGet();
+        }
+        sizeClass.leased.put(new Lease(buffer, sizeClass.collected), Boolean.TRUE);
+        sizeClass.inUseCount.incrementAndGet();
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * 归还缓冲区；非池化尺寸的缓冲区直接丢弃。
+     * 只接受当前借出的缓冲区，重复归还或归还不属于本池的缓冲区只计数，不会让同一块缓冲区两次进入空闲列表
+     */
+    public void release(ByteBuffer buffer) {
+        if (buffer == null || !buffer.isDirect()) {
+            return;
+        }
+        SizeClass sizeClass = findSizeClass(buffer.capacity());
+        if (sizeClass == null || sizeClass.size != buffer.capacity()) {
+            return;
+        }
+        if (sizeClass.leased.remove(new Lease(buffer, null)) == null) {
+            invalidReleases.incrementAndGet();
+            return;
+        }
+        sizeClass.inUseCount.decrementAndGet();
+        if (sizeClass.freeCount.incrementAndGet() <= sizeClass.maxFree) {
+            buffer.clear();
+            sizeClass.free.offer(buffer);
+        } else {
+            sizeClass.freeCount.decrementAndGet();
+        }
+    }
+
+    /**
+     * 大于该值的容量请求不会被池化
+     */
+    public int getMaxPooledSize() {
+        return sizeClasses[sizeClasses.length - 1].size;
+    }
+
+    private SizeClass findSizeClass(int capacity) {
+        for (SizeClass sizeClass : sizeClasses) {
+            if (sizeClass.size >= capacity) {
+                return sizeClass;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public int getInUseSlabs() {
+        int total = 0;
+        for (SizeClass sizeClass : sizeClasses) {
+            total += sizeClass.inUseCount.get();
+        }
+        return total;
+    }
+
+    @Override
+    public int getFreeSlabs() {
+        int total = 0;
+        for (SizeClass sizeClass : sizeClasses) {
+            total += sizeClass.freeCount.get();
+        }
+        return total;
+    }
+
+    @Override
+    public long getInUseBytes() {
+        long total = 0;
+        for (SizeClass sizeClass : sizeClasses) {
+            total += (long) sizeClass.inUseCount.get() * sizeClass.size;
+        }
+        return total;
+    }
+
+    @Override
+    public long getFreeBytes() {
+        long total = 0;
+        for (SizeClass sizeClass : sizeClasses) {
+            total += (long) sizeClass.freeCount.get() * sizeClass.size;
+        }
+        return total;
+    }
+
+    @Override
+    public long getTotalAllocations() {
+        return totalAllocations.get();
+    }
+
+    @Override
+    public long getUnpooledAllocations() {
+        return unpooledAllocations.get();
+    }
+
+    @Override
+    public long getInvalidReleases() {
+        return invalidReleases.get();
+    }
+
+    @Override
+    public String getSizeClasses() {
+        StringBuilder sb = new StringBuilder();
+        for (SizeClass sizeClass : sizeClasses) {
+            if (sb.length() > 0) {
+                sb.append(", ");
+            }
+            sb.append(sizeClass.size).append(": inUse=").append(sizeClass.inUseCount.get())
+              .append(" free=").append(sizeClass.freeCount.get());
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public void trim() {
+        // 释放所有空闲缓冲区，交给 GC 回收直接内存
+        for (SizeClass sizeClass : sizeClasses) {
+            while (sizeClass.free.poll() != null) {
+                sizeClass.freeCount.decrementAndGet();
+            }
+        }
+    }
+
+    private static class SizeClass {
+        final int size;
+        final int maxFree;
+        final Queue<ByteBuffer> free = new ConcurrentLinkedQueue<>();
+        final AtomicInteger freeCount = new AtomicInteger(0);
+        final AtomicInteger inUseCount = new AtomicInteger(0);
+        // 当前借出的缓冲区；ConcurrentHashMap 的 remove 是原子的，同一次借出只能成功归还一次
+        final Map<Lease, Boolean> leased = new ConcurrentHashMap<>();
+        final ReferenceQueue<ByteBuffer> collected = new ReferenceQueue<>();
+
+        SizeClass(int size, int maxFree) {
+            this.size = size;
+            this.maxFree = maxFree;
+        }
+
+        /**
+         * 清除借用方丢失、已被 GC 回收的缓冲区的借出记录
+         */
+        void expungeLeaks() {
+            Reference<? extends ByteBuffer> lease;
+            while ((lease = collected.poll()) != null) {
+                if (leased.remove(lease) != null) {
+                    inUseCount.decrementAndGet();
+                }
+            }
+        }
+    }
+
+    /**
+     * 一次借出的记录，按缓冲区的对象身份比较（ByteBuffer.equals 比较的是内容）。
+     * 只弱引用缓冲区，借用方泄漏的缓冲区不会被池一直持有
+     */
+    private static final class Lease extends WeakReference<ByteBuffer> {
+        private final int hash;
+
+        Lease(ByteBuffer buffer, ReferenceQueue<ByteBuffer> queue) {
+            super(buffer, queue);
+            this.hash = System.identityHashCode(buffer);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Lease)) {
+                return false;
+            }
+            ByteBuffer buffer = get();
+            return buffer != null && buffer == ((Lease) o).get();
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.microtomcat.net;
+
+/**
+ * ByteBufferPool的JMX管理接口
+ */
+public interface ByteBufferPoolMBean {
+    // 缓冲区使用情况
+    int getInUseSlabs();
+    int getFreeSlabs();
+    long getInUseBytes();
+    long getFreeBytes();
+
+    // 分配统计
+    long getTotalAllocations();
+    long getUnpooledAllocations();
+    long getInvalidReleases();
+    String getSizeClasses();
+
+    // 操作
+    void trim();
+}
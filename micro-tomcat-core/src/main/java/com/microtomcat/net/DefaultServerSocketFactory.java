@@ -4,11 +4,16 @@ import java.io.IOException;
 import java.net.ServerSocket;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
 
+/**
+ * 基于 ServerSocketChannel 创建服务端 socket，
+ * 这样 accept 得到的 Socket 带有 SocketChannel，可用于零拷贝发送文件。
+ */
 public class DefaultServerSocketFactory implements ServerSocketFactory {
     @Override
     public ServerSocket createSocket(int port) throws IOException {
-        ServerSocket serverSocket = new ServerSocket();
+        ServerSocket serverSocket = ServerSocketChannel.open().socket();
         serverSocket.setReuseAddress(true);
         serverSocket.bind(new InetSocketAddress(port), 200);
         return serverSocket;
@@ -16,7 +21,7 @@ public class DefaultServerSocketFactory implements ServerSocketFactory {
 
     @Override
     public ServerSocket createSocket(int port, int backlog) throws IOException {
-        ServerSocket serverSocket = new ServerSocket();
+        ServerSocket serverSocket = ServerSocketChannel.open().socket();
         serverSocket.setReuseAddress(true);
         serverSocket.bind(new InetSocketAddress(port), backlog);
         return serverSocket;
@@ -24,7 +29,7 @@ public class DefaultServerSocketFactory implements ServerSocketFactory {
 
     @Override
     public ServerSocket createSocket(int port, int backlog, InetAddress ifAddress) throws IOException {
-        ServerSocket serverSocket = new ServerSocket();
+        ServerSocket serverSocket = ServerSocketChannel.open().socket();
         serverSocket.setReuseAddress(true);
         serverSocket.bind(new InetSocketAddress(ifAddress, port), backlog);
         return serverSocket;
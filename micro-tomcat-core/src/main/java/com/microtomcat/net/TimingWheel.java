@@ -0,0 +1,166 @@
+package com.microtomcat.net;
+
+import java.util.function.Consumer;
+
+/**
+ * 哈希时间轮，用于连接的空闲超时管理。
+ * 每个槽位是一个双向链表，调度、重置和取消都是 O(1)；
+ * 到期检查只遍历经过的槽位，而不是扫描全部连接。
+ *
+ * 非线程安全：调度和到期都应在同一个线程（Poller 线程）上进行。
+ */
+public class TimingWheel<T> {
+
+    /**
+     * 时间轮上的一个超时节点，可反复调度以避免每次读写都分配新对象
+     */
+    public static final class Timeout<T> {
+        private final T item;
+        private long deadlineTick;
+        private Timeout<T> prev;
+        private Timeout<T> next;
+        private int bucket = -1;
+
+        private Timeout(T item) {
+            this.item = item;
+        }
+
+        public T getItem() {
+            return item;
+        }
+
+        public boolean isScheduled() {
+            return bucket >= 0;
+        }
+    }
+
+    private final long tickMillis;
+    private final int mask;
+    private final Timeout<T>[] heads;
+    // 最近一次 expire 已处理到的 tick
+    private long processedTick = -1;
+    private int size;
+
+    public TimingWheel(long tickMillis, int wheelSize) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("tickMillis must be > 0");
+        }
+        if (wheelSize <= 0) {
+            throw new IllegalArgumentException("wheelSize must be > 0");
+        }
+        // 槽位数向上取 2 的幂，用位运算定位槽位
+        int buckets = Integer.highestOneBit(wheelSize);
+        if (buckets < wheelSize) {
+            buckets <<= 1;
+        }
+        this.tickMillis = tickMillis;
+        this.mask = buckets - 1;
+        this.heads = newHeads(buckets);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Timeout<T>[] newHeads(int buckets) {
+        return (Timeout<T>[]) new Timeout<?>[buckets];
+    }
+
+    public Timeout<T> newTimeout(T item) {
+        return new Timeout<>(item);
+    }
+
+    /**
+     * 将节点调度到 now + delayMillis 之后到期；已调度的节点会先移出原槽位，相当于重置超时
+     */
+    public void schedule(Timeout<T> timeout, long delayMillis, long now) {
+        cancel(timeout);
+        if (processedTick < 0) {
+            processedTick = now / tickMillis;
+        }
+        // 向上取整，保证不会早于指定时间到期；已处理过的槽位不会再被检查，所以至少落在下一个 tick
+        long tick = (now + delayMillis + tickMillis - 1) / tickMillis;
+        if (tick <= processedTick) {
+            tick = processedTick + 1;
+        }
+        int bucket = (int) (tick & mask);
+        timeout.deadlineTick = tick;
+        timeout.bucket = bucket;
+        timeout.prev = null;
+        timeout.next = heads[bucket];
+        if (heads[bucket] != null) {
+            heads[bucket].prev = timeout;
+        }
+        heads[bucket] = timeout;
+        size++;
+    }
+
+    public void cancel(Timeout<T> timeout) {
+        if (timeout == null || timeout.bucket < 0) {
+            return;
+        }
+        if (timeout.prev != null) {
+            timeout.prev.next = timeout.next;
+        } else {
+            heads[timeout.bucket] = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+        timeout.prev = null;
+        timeout.next = null;
+        timeout.bucket = -1;
+        size--;
+    }
+
+    /**
+     * 处理从上次调用到 now 之间经过的槽位，对每个到期节点调用 handler
+     * @return 到期的节点数
+     */
+    public int expire(long now, Consumer<T> handler) {
+        long currentTick = now / tickMillis;
+        long previousTick = processedTick;
+        if (currentTick <= previousTick) {
+            return 0;
+        }
+        processedTick = currentTick;
+        if (previousTick < 0 || size == 0) {
+            return 0;
+        }
+        // 间隔超过一整圈时每个槽位只需遍历一次
+        long ticks = Math.min(currentTick - previousTick, heads.length);
+
+        // 先把到期节点摘下串成链表再回调，回调中可以安全地重新调度或取消节点
+        Timeout<T> expired = null;
+        for (long tick = currentTick - ticks + 1; tick <= currentTick; tick++) {
+            Timeout<T> node = heads[(int) (tick & mask)];
+            while (node != null) {
+                Timeout<T> next = node.next;
+                if (node.deadlineTick <= currentTick) {
+                    cancel(node);
+                    node.next = expired;
+                    expired = node;
+                }
+                node = next;
+            }
+        }
+
+        int count = 0;
+        while (expired != null) {
+            Timeout<T> next = expired.next;
+            expired.next = null;
+            count++;
+            handler.accept(expired.item);
+            expired = next;
+        }
+        return count;
+    }
+
+    public long getTickMillis() {
+        return tickMillis;
+    }
+
+    /**
+     * 当前已调度的节点数
+     */
+    public int size() {
+        return size;
+    }
+}
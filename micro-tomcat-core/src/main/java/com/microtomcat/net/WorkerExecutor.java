@@ -0,0 +1,320 @@
+package com.microtomcat.net;
+
+import com.microtomcat.jmx.MBeanRegistry;
+import com.microtomcat.logging.Log;
+import com.microtomcat.pipeline.LatencyHistogram;
+
+import javax.management.JMException;
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 所有连接器共用的请求处理线程池。
+ * 同时在处理和排队的任务数不超过 maxThreads + maxQueueSize，超出时 tryExecute 返回 false，
+ * 由调用方直接回复 503，接收线程和 Poller 线程从不亲自执行请求。
+ * PLATFORM 模式使用固定上限的平台线程，线程先于队列增长，空闲 60 秒后回收；
+ * VIRTUAL 模式每个任务一个虚拟线程（需要 Java 21，更早的 JDK 上退回 PLATFORM），
+ * 适合在 I/O 上阻塞的 Servlet，此时 maxThreads + maxQueueSize 就是并发上限。
+ */
+public class WorkerExecutor implements Executor, WorkerExecutorMBean {
+    private static final Log LOG = Log.getLog(WorkerExecutor.class);
+
+    public enum Mode {
+        PLATFORM,
+        VIRTUAL
+    }
+
+    public static final int DEFAULT_MAX_THREADS = 200;
+    public static final int DEFAULT_MAX_QUEUE_SIZE = 100;
+    private static final long KEEP_ALIVE_SECONDS = 60;
+
+    private static WorkerExecutor shared;
+
+    private final String name;
+    private final Mode mode;
+    // PLATFORM 模式下的线程池；VIRTUAL 模式下为 null，改用 virtualThreads 每个任务建一个线程
+    private final ThreadPoolExecutor platformPool;
+    private final ThreadFactory virtualThreads;
+    private volatile int maxThreads;
+    private volatile int maxQueueSize;
+    private volatile boolean shutdown;
+
+    // 已接受但尚未结束的任务数（排队 + 执行中）
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LatencyHistogram queueWait = new LatencyHistogram();
+
+    public WorkerExecutor(String name, Mode mode, int maxThreads, int maxQueueSize) {
+        if (maxThreads <= 0 || maxQueueSize < 0) {
+            throw new IllegalArgumentException("maxThreads must be > 0 and maxQueueSize >= 0");
+        }
+        this.name = name;
+        this.maxThreads = maxThreads;
+        this.maxQueueSize = maxQueueSize;
+
+        ThreadFactory virtual = mode == Mode.VIRTUAL ? virtualThreadFactory(name + "-vworker-") : null;
+        if (virtual != null) {
+            this.mode = Mode.VIRTUAL;
+            this.virtualThreads = virtual;
+            this.platformPool = null;
+        } else {
+            if (mode == Mode.VIRTUAL) {
+                LOG.warn("Virtual threads are not available on this JVM, {} falls back to platform threads", name);
+            }
+            this.mode = Mode.PLATFORM;
+            this.virtualThreads = null;
+            // 核心线程数等于最大线程数：有空闲名额时先建线程而不是先排队，空闲线程超时回收
+            this.platformPool = new ThreadPoolExecutor(maxThreads, maxThreads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), platformThreadFactory(name + "-exec-"));
+            this.platformPool.allowCoreThreadTimeOut(true);
+        }
+    }
+
+    /**
+     * 默认的共享实例，首次使用时创建并注册 MBean
+     */
+    public static synchronized WorkerExecutor getShared() {
+        if (shared == null) {
+            shared = new WorkerExecutor("http", Mode.PLATFORM, DEFAULT_MAX_THREADS, DEFAULT_MAX_QUEUE_SIZE);
+            shared.registerMBean();
+        }
+        return shared;
+    }
+
+    /**
+     * 尝试提交任务，已达到上限或已关闭时返回 false，不会阻塞
+     */
+    public boolean tryExecute(Runnable task) {
+        if (shutdown) {
+            rejected.increment();
+            return false;
+        }
+        if (inFlight.incrementAndGet() > maxThreads + maxQueueSize) {
+            inFlight.decrementAndGet();
+            rejected.increment();
+            return false;
+        }
+        Task wrapped = new Task(task, System.nanoTime());
+        try {
+            if (platformPool != null) {
+                platformPool.execute(wrapped);
+            } else {
+                virtualThreads.newThread(wrapped).start();
+            }
+        } catch (RejectedExecutionException e) {
+            inFlight.decrementAndGet();
+            rejected.increment();
+            return false;
+        }
+        submitted.increment();
+        return true;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        if (!tryExecute(task)) {
+            throw new RejectedExecutionException("Worker executor " + name + " is saturated");
+        }
+    }
+
+    /**
+     * 拒绝新任务，并等待已接受的任务结束（最多 timeoutMillis 毫秒）
+     */
+    public void shutdown(long timeoutMillis) {
+        shutdown = true;
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        if (platformPool != null) {
+            platformPool.shutdown();
+            try {
+                if (!platformPool.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                    platformPool.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                platformPool.shutdownNow();
+            }
+            return;
+        }
+        while (inFlight.get() > 0 && System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    public void registerMBean() {
+        try {
+            new MBeanRegistry().registerMBean(this, "WorkerExecutor,name=" + name);
+        } catch (JMException e) {
+            LOG.warn("Failed to register MBean: {}", e.getMessage());
+        }
+    }
+
+    public void unregisterMBean() {
+        try {
+            new MBeanRegistry().unregisterMBean("WorkerExecutor,name=" + name);
+        } catch (JMException e) {
+            LOG.warn("Failed to unregister MBean: {}", e.getMessage());
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isVirtual() {
+        return mode == Mode.VIRTUAL;
+    }
+
+    @Override
+    public String getMode() {
+        return mode.name();
+    }
+
+    @Override
+    public int getMaxThreads() {
+        return maxThreads;
+    }
+
+    @Override
+    public synchronized void setMaxThreads(int maxThreads) {
+        if (maxThreads <= 0) {
+            throw new IllegalArgumentException("maxThreads must be > 0");
+        }
+        if (platformPool != null) {
+            // 核心线程数不能大于最大线程数，按调整方向决定先改哪一个
+            if (maxThreads > platformPool.getMaximumPoolSize()) {
+                platformPool.setMaximumPoolSize(maxThreads);
+                platformPool.setCorePoolSize(maxThreads);
+            } else {
+                platformPool.setCorePoolSize(maxThreads);
+                platformPool.setMaximumPoolSize(maxThreads);
+            }
+        }
+        this.maxThreads = maxThreads;
+    }
+
+    @Override
+    public int getMaxQueueSize() {
+        return maxQueueSize;
+    }
+
+    @Override
+    public void setMaxQueueSize(int maxQueueSize) {
+        if (maxQueueSize < 0) {
+            throw new IllegalArgumentException("maxQueueSize must be >= 0");
+        }
+        this.maxQueueSize = maxQueueSize;
+    }
+
+    @Override
+    public int getActiveCount() {
+        return active.get();
+    }
+
+    @Override
+    public int getQueueSize() {
+        return Math.max(0, inFlight.get() - active.get());
+    }
+
+    @Override
+    public int getPoolSize() {
+        return platformPool != null ? platformPool.getPoolSize() : active.get();
+    }
+
+    @Override
+    public long getSubmittedCount() {
+        return submitted.sum();
+    }
+
+    @Override
+    public long getCompletedCount() {
+        return completed.sum();
+    }
+
+    @Override
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    @Override
+    public double getAverageQueueWaitMillis() {
+        return queueWait.getMeanNanos() / 1_000_000.0;
+    }
+
+    @Override
+    public double getP99QueueWaitMillis() {
+        return queueWait.getPercentileNanos(99) / 1_000_000.0;
+    }
+
+    @Override
+    public double getMaxQueueWaitMillis() {
+        return queueWait.getMaxNanos() / 1_000_000.0;
+    }
+
+    /**
+     * 记录任务从提交到开始执行的排队时间
+     */
+    private final class Task implements Runnable {
+        private final Runnable delegate;
+        private final long enqueuedNanos;
+
+        Task(Runnable delegate, long enqueuedNanos) {
+            this.delegate = delegate;
+            this.enqueuedNanos = enqueuedNanos;
+        }
+
+        @Override
+        public void run() {
+            queueWait.record(System.nanoTime() - enqueuedNanos);
+            active.incrementAndGet();
+            try {
+                delegate.run();
+            } catch (RuntimeException | Error e) {
+                LOG.error("Uncaught exception in worker task", e);
+            } finally {
+                active.decrementAndGet();
+                inFlight.decrementAndGet();
+                completed.increment();
+            }
+        }
+    }
+
+    private static ThreadFactory platformThreadFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return task -> {
+            Thread thread = new Thread(task, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * 通过反射取得 Thread.ofVirtual().name(prefix, 0).factory()，编译目标仍是 Java 8；
+     * 当前 JVM 不支持虚拟线程时返回 null
+     */
+    private static ThreadFactory virtualThreadFactory(String prefix) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            Method nameMethod = builderType.getMethod("name", String.class, long.class);
+            builder = nameMethod.invoke(builder, prefix, 0L);
+            return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.microtomcat.net;
+
+/**
+ * WorkerExecutor 的 JMX 管理接口
+ */
+public interface WorkerExecutorMBean {
+    // 配置
+    String getMode();
+    int getMaxThreads();
+    void setMaxThreads(int maxThreads);
+    int getMaxQueueSize();
+    void setMaxQueueSize(int maxQueueSize);
+
+    // 当前状态
+    int getActiveCount();
+    int getQueueSize();
+    int getPoolSize();
+
+    // 累计统计
+    long getSubmittedCount();
+    long getCompletedCount();
+    long getRejectedCount();
+    double getAverageQueueWaitMillis();
+    double getP99QueueWaitMillis();
+    double getMaxQueueWaitMillis();
+}
@@ -0,0 +1,87 @@
+package com.microtomcat.pipeline;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 无锁的延迟直方图，按 2 的幂划分纳秒区间，记录一次只做几次原子累加。
+ * 分位数在区间内线性插值，误差不超过所在区间的宽度。
+ */
+public final class LatencyHistogram {
+    private static final int BUCKETS = 64;
+
+    // 第 i 个区间覆盖 [2^(i-1), 2^i) 纳秒，第 0 个区间只有 0
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        counts.incrementAndGet(BUCKETS - Long.numberOfLeadingZeros(nanos));
+        count.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    public double getMeanNanos() {
+        long n = count.sum();
+        return n == 0 ? 0 : (double) totalNanos.sum() / n;
+    }
+
+    /**
+     * 估算分位数，percentile 取值 0 到 100
+     */
+    public double getPercentileNanos(double percentile) {
+        long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        double rank = Math.max(0, Math.min(100, percentile)) / 100 * total;
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            if (snapshot[i] == 0) {
+                continue;
+            }
+            if (seen + snapshot[i] >= rank) {
+                if (i == 0) {
+                    return 0;
+                }
+                double low = 1L << (i - 1);
+                double high = Math.min(low * 2, Math.max(low, maxNanos.get()));
+                return low + (high - low) * (rank - seen) / snapshot[i];
+            }
+            seen += snapshot[i];
+        }
+        return maxNanos.get();
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        count.reset();
+        totalNanos.reset();
+        maxNanos.reset();
+    }
+}
@@ -0,0 +1,103 @@
+package com.microtomcat.pipeline;
+
+import com.microtomcat.logging.Log;
+import com.microtomcat.jmx.MBeanRegistry;
+
+import javax.management.JMException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * 按阶段汇总的管道延迟直方图，全局一份，注册为 com.microtomcat:type=PipelineStats。
+ * 阶段名形如 "Engine[main]/Host[localhost]"（容器的基础阀门）或
+ * "Engine[main]/Host[localhost]/AccessLogValve"（普通阀门）。
+ * 记录的是阶段自身的耗时，不含它交给下游阀门和子容器的时间。
+ */
+public final class PipelineStats implements PipelineStatsMBean {
+    private static final Log LOG = Log.getLog(PipelineStats.class);
+    private static final PipelineStats INSTANCE = new PipelineStats();
+    private static volatile boolean registered;
+
+    private final Map<String, LatencyHistogram> stages = new ConcurrentSkipListMap<>();
+
+    private PipelineStats() {
+    }
+
+    public static PipelineStats getInstance() {
+        if (!registered) {
+            register();
+        }
+        return INSTANCE;
+    }
+
+    private static synchronized void register() {
+        if (registered) {
+            return;
+        }
+        registered = true;
+        try {
+            new MBeanRegistry().registerMBean(INSTANCE, "PipelineStats");
+        } catch (JMException e) {
+            LOG.warn("Failed to register MBean: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 取得阶段对应的直方图，不存在时创建
+     */
+    public LatencyHistogram histogram(String stage) {
+        return stages.computeIfAbsent(stage, key -> new LatencyHistogram());
+    }
+
+    @Override
+    public String[] getStageNames() {
+        return stages.keySet().toArray(new String[0]);
+    }
+
+    @Override
+    public String getSummary() {
+        StringBuilder summary = new StringBuilder();
+        for (Map.Entry<String, LatencyHistogram> entry : stages.entrySet()) {
+            LatencyHistogram histogram = entry.getValue();
+            summary.append(String.format("%s count=%d mean=%.1fus p50=%.1fus p99=%.1fus max=%.1fus%n",
+                entry.getKey(),
+                histogram.getCount(),
+                histogram.getMeanNanos() / 1000,
+                histogram.getPercentileNanos(50) / 1000,
+                histogram.getPercentileNanos(99) / 1000,
+                histogram.getMaxNanos() / 1000.0));
+        }
+        return summary.toString();
+    }
+
+    @Override
+    public long getCount(String stage) {
+        LatencyHistogram histogram = stages.get(stage);
+        return histogram != null ? histogram.getCount() : 0;
+    }
+
+    @Override
+    public double getMeanMicros(String stage) {
+        LatencyHistogram histogram = stages.get(stage);
+        return histogram != null ? histogram.getMeanNanos() / 1000 : 0;
+    }
+
+    @Override
+    public double getPercentileMicros(String stage, double percentile) {
+        LatencyHistogram histogram = stages.get(stage);
+        return histogram != null ? histogram.getPercentileNanos(percentile) / 1000 : 0;
+    }
+
+    @Override
+    public double getMaxMicros(String stage) {
+        LatencyHistogram histogram = stages.get(stage);
+        return histogram != null ? histogram.getMaxNanos() / 1000.0 : 0;
+    }
+
+    @Override
+    public void reset() {
+        for (LatencyHistogram histogram : stages.values()) {
+            histogram.reset();
+        }
+    }
+}
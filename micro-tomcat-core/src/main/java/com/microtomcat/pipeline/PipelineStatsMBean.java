@@ -0,0 +1,19 @@
+package com.microtomcat.pipeline;
+
+/**
+ * 管道各阶段延迟统计的JMX管理接口，时间单位为微秒
+ */
+public interface PipelineStatsMBean {
+    // 阶段列表与汇总
+    String[] getStageNames();
+    String getSummary();
+
+    // 单个阶段的指标
+    long getCount(String stage);
+    double getMeanMicros(String stage);
+    double getPercentileMicros(String stage, double percentile);
+    double getMaxMicros(String stage);
+
+    // 操作
+    void reset();
+}
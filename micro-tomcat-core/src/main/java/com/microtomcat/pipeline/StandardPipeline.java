@@ -1,10 +1,11 @@
 package com.microtomcat.pipeline;
 
+import com.microtomcat.logging.Log;
 import com.microtomcat.connector.Request;
 import com.microtomcat.connector.Response;
+import com.microtomcat.container.Container;
 import com.microtomcat.lifecycle.LifecycleBase;
 import com.microtomcat.lifecycle.LifecycleException;
-// import com.microtomcat.pipeline.valve.Valve;
 import com.microtomcat.servlet.ServletException;
 import java.io.IOException;
 import java.util.ArrayList;
@@ -12,14 +13,42 @@ import java.util.List;
 import com.microtomcat.lifecycle.Lifecycle;
 
 public class StandardPipeline extends LifecycleBase implements Pipeline {
+    private static final Log LOG = Log.getLog(StandardPipeline.class);
+    // 配置用的阀门列表，修改时持有它的锁
     private final List<Valve> valves = new ArrayList<>();
-    private Valve basic = null;
+    private volatile Valve basic = null;
+    // 编译后的执行数组，写时复制，请求线程只读
+    private volatile Chain chain = new Chain(new Valve[0]);
+    // 所属容器，用于给各阶段的延迟统计命名；为 null 时不做统计
+    private final Container container;
+    // 每个线程一个上下文，所有管道共用，嵌套调用时保存并恢复游标
+    private static final ThreadLocal<StandardPipelineValveContext> CONTEXTS =
+        ThreadLocal.withInitial(StandardPipelineValveContext::new);
+
+    // 一次编译的结果：阀门数组和对应的延迟直方图
+    private static final class Chain {
+        final Valve[] valves;
+        // 首次执行时才解析，此时容器的父子关系已经建立
+        volatile LatencyHistogram[] histograms;
+
+        Chain(Valve[] valves) {
+            this.valves = valves;
+        }
+    }
+
+    public StandardPipeline() {
+        this(null);
+    }
+
+    public StandardPipeline(Container container) {
+        this.container = container;
+    }
 
     @Override
     protected void initInternal() throws LifecycleException {
         log("Initializing pipeline with " + valves.size() + " valves");
         // 初始化所有阀门
-        for (Valve valve : valves) {
+        for (Valve valve : getValves()) {
             log("Initializing valve: " + valve.getClass().getSimpleName());
             if (valve instanceof Lifecycle) {
                 ((Lifecycle) valve).init();
@@ -35,7 +64,7 @@ public class StandardPipeline extends LifecycleBase implements Pipeline {
     protected void startInternal() throws LifecycleException {
         log("Starting pipeline with " + valves.size() + " valves");
         // 启动所有阀门
-        for (Valve valve : valves) {
+        for (Valve valve : getValves()) {
             log("Starting valve: " + valve.getClass().getSimpleName());
             if (valve instanceof Lifecycle) {
                 ((Lifecycle) valve).start();
@@ -45,13 +74,15 @@ public class StandardPipeline extends LifecycleBase implements Pipeline {
             log("Starting basic valve: " + basic.getClass().getSimpleName());
             ((Lifecycle) basic).start();
         }
+        // 阀门启动后再编译，启动过程中可能改变阀门是否直通
+        rebuild();
     }
 
     @Override
     protected void stopInternal() throws LifecycleException {
         log("Stopping pipeline with " + valves.size() + " valves");
         // 停止所有阀门
-        for (Valve valve : valves) {
+        for (Valve valve : getValves()) {
             log("Stopping valve: " + valve.getClass().getSimpleName());
             if (valve instanceof Lifecycle) {
                 ((Lifecycle) valve).stop();
@@ -67,7 +98,7 @@ public class StandardPipeline extends LifecycleBase implements Pipeline {
     protected void destroyInternal() throws LifecycleException {
         log("Destroying pipeline with " + valves.size() + " valves");
         // 销毁所有阀门
-        for (Valve valve : valves) {
+        for (Valve valve : getValves()) {
             log("Destroying valve: " + valve.getClass().getSimpleName());
             if (valve instanceof Lifecycle) {
                 ((Lifecycle) valve).destroy();
@@ -81,17 +112,25 @@ public class StandardPipeline extends LifecycleBase implements Pipeline {
 
     @Override
     public void addValve(Valve valve) {
-        valves.add(valve);
+        synchronized (valves) {
+            valves.add(valve);
+            rebuild();
+        }
     }
 
     @Override
     public Valve[] getValves() {
-        return valves.toArray(new Valve[0]);
+        synchronized (valves) {
+            return valves.toArray(new Valve[0]);
+        }
     }
 
     @Override
     public void removeValve(Valve valve) {
-        valves.remove(valve);
+        synchronized (valves) {
+            valves.remove(valve);
+            rebuild();
+        }
     }
 
     @Override
@@ -101,37 +140,121 @@ public class StandardPipeline extends LifecycleBase implements Pipeline {
 
     @Override
     public void setBasic(Valve valve) {
-        this.basic = valve;
+        synchronized (valves) {
+            this.basic = valve;
+            rebuild();
+        }
+    }
+
+    /**
+     * 重新编译执行用的阀门数组：跳过直通的阀门，基础阀门放在最后。
+     * 新数组整体替换旧数组，正在执行的请求继续使用它开始时拿到的数组。
+     */
+    public void rebuild() {
+        synchronized (valves) {
+            List<Valve> active = new ArrayList<>(valves.size() + 1);
+            for (Valve valve : getValves()) {
+                if (!valve.isPassThrough()) {
+                    active.add(valve);
+                }
+            }
+            if (basic != null) {
+                active.add(basic);
+            }
+            chain = new Chain(active.toArray(new Valve[0]));
+        }
+    }
+
+    /**
+     * 当前实际执行的阀门（不含直通阀门，基础阀门在最后）
+     */
+    Valve[] getCompiledValves() {
+        return chain.valves;
     }
 
     @Override
     public void invoke(Request request, Response response) throws IOException, ServletException {
-        // 创建阀门上下文并开始处理
-        StandardPipelineValveContext context = new StandardPipelineValveContext();
-        context.invokeNext(request, response);
+        Chain current = chain;
+        if (current.valves.length == 0) {
+            return;
+        }
+        LatencyHistogram[] histograms = current.histograms;
+        if (histograms == null && container != null) {
+            histograms = resolveHistograms(current);
+        }
+        // 复用本线程的上下文；保存并恢复游标，管道嵌套或在同一线程上重入（如请求转发）时互不干扰
+        StandardPipelineValveContext context = CONTEXTS.get();
+        Valve[] savedValves = context.valves;
+        LatencyHistogram[] savedHistograms = context.histograms;
+        int savedStage = context.stage;
+        context.valves = current.valves;
+        context.histograms = histograms;
+        context.stage = 0;
+        try {
+            context.invokeNext(request, response);
+        } finally {
+            context.valves = savedValves;
+            context.histograms = savedHistograms;
+            context.stage = savedStage;
+        }
+    }
+
+    private LatencyHistogram[] resolveHistograms(Chain current) {
+        String prefix = stageName(container);
+        PipelineStats stats = PipelineStats.getInstance();
+        LatencyHistogram[] histograms = new LatencyHistogram[current.valves.length];
+        for (int i = 0; i < histograms.length; i++) {
+            Valve valve = current.valves[i];
+            String stage = valve == basic ? prefix : prefix + "/" + valve.getClass().getSimpleName();
+            histograms[i] = stats.histogram(stage);
+        }
+        current.histograms = histograms;
+        return histograms;
+    }
+
+    /**
+     * 容器的阶段名，从顶层容器开始，如 "Engine[main]/Host[localhost]/Context[/app]"
+     */
+    private static String stageName(Container container) {
+        String own = container.getClass().getSimpleName() + "[" + container.getName() + "]";
+        Container parent = container.getParent();
+        return parent != null ? stageName(parent) + "/" + own : own;
     }
 
     private void log(String message) {
-        System.out.println("[Pipeline] " + message);
+        LOG.info(message);
     }
 
-    // 内部阀门上下文类
-    private class StandardPipelineValveContext implements ValveContext {
-        private int stage = 0;
+    // 内部阀门上下文类，每个线程一个，按数组下标推进
+    private static final class StandardPipelineValveContext implements ValveContext {
+        private Valve[] valves;
+        private LatencyHistogram[] histograms;
+        private int stage;
+        // 最近一次返回的下游调用（后续阀门及其中嵌套的子容器管道）的耗时
+        private long downstreamNanos;
 
         @Override
         public void invokeNext(Request request, Response response) 
                 throws IOException, ServletException {
             int subscript = stage;
-            stage++;
-            
-            // 首先调用所有普通阀门
-            if (subscript < valves.size()) {
-                valves.get(subscript).invoke(request, response, this);
+            if (subscript >= valves.length) {
+                return;
+            }
+            stage = subscript + 1;
+            LatencyHistogram[] current = histograms;
+            if (current == null) {
+                valves[subscript].invoke(request, response, this);
+                return;
             }
-            // 最后调用基础阀门
-            else if (subscript == valves.size() && basic != null) {
-                basic.invoke(request, response, this);
+            long start = System.nanoTime();
+            downstreamNanos = 0;
+            try {
+                valves[subscript].invoke(request, response, this);
+            } finally {
+                long elapsed = System.nanoTime() - start;
+                // 只记录本阶段自身的耗时
+                current[subscript].record(elapsed - downstreamNanos);
+                downstreamNanos = elapsed;
             }
         }
     }
@@ -8,4 +8,13 @@ import com.microtomcat.servlet.ServletException;
 public interface Valve {
     void invoke(Request request, Response response, ValveContext context) 
         throws IOException, ServletException;
-} 
\ No newline at end of file
+
+    /**
+     * 阀门被禁用时只是把请求原样交给下一个阀门，此时返回 true，
+     * 管道在编译阀门数组时会直接跳过它。该状态在管道启动或增删阀门时读取，
+     * 运行中改变后需要调用 {@link StandardPipeline#rebuild()} 才会生效。
+     */
+    default boolean isPassThrough() {
+        return false;
+    }
+}
@@ -0,0 +1,130 @@
+package com.microtomcat.pipeline.valve;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+/**
+ * 访问日志文件，只由后台写线程使用。
+ * 文件名为 prefix + 日期 + [".序号"] + suffix：日期（按 fileDateFormat）变化时换到新文件，
+ * 单个文件超过 maxFileSize 时递增序号换到新文件。
+ */
+final class AccessLogFileWriter implements Closeable {
+    private static final long DATE_CHECK_INTERVAL = 1000;
+
+    private final Path directory;
+    private final String prefix;
+    private final String suffix;
+    private final SimpleDateFormat dateFormat;
+    private final long maxFileSize;
+
+    private FileChannel channel;
+    private Path currentFile;
+    private String currentDate;
+    private int index;
+    private long size;
+    private long nextDateCheck;
+    private long rotations;
+
+    AccessLogFileWriter(Path directory, String prefix, String fileDateFormat, String suffix, long maxFileSize) {
+        this.directory = directory;
+        this.prefix = prefix;
+        this.suffix = suffix;
+        this.dateFormat = fileDateFormat.isEmpty() ? null : new SimpleDateFormat(fileDateFormat);
+        this.maxFileSize = maxFileSize;
+    }
+
+    /**
+     * 写出缓冲区中的全部内容，必要时先轮转文件
+     */
+    void write(ByteBuffer buffer, long now) throws IOException {
+        checkDate(now);
+        if (channel == null) {
+            open();
+        } else if (maxFileSize > 0 && size > 0 && size + buffer.remaining() > maxFileSize) {
+            index++;
+            rotate();
+        }
+        while (buffer.hasRemaining()) {
+            size += channel.write(buffer);
+        }
+    }
+
+    /**
+     * 日期变化时换到新的文件，每秒最多检查一次
+     */
+    void checkDate(long now) throws IOException {
+        if (dateFormat == null || now < nextDateCheck) {
+            return;
+        }
+        nextDateCheck = now + DATE_CHECK_INTERVAL;
+        String date = dateFormat.format(new Date(now));
+        if (currentDate == null) {
+            currentDate = date;
+        } else if (!date.equals(currentDate)) {
+            currentDate = date;
+            index = 0;
+            if (channel != null) {
+                rotate();
+            }
+        }
+    }
+
+    private void rotate() throws IOException {
+        close();
+        open();
+        rotations++;
+    }
+
+    private void open() throws IOException {
+        Files.createDirectories(directory);
+        // 重启后接着写当天已有的文件，已写满的跳过
+        while (true) {
+            currentFile = directory.resolve(fileName());
+            channel = FileChannel.open(currentFile,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            size = channel.size();
+            if (maxFileSize <= 0 || size < maxFileSize) {
+                return;
+            }
+            channel.close();
+            index++;
+        }
+    }
+
+    private String fileName() {
+        StringBuilder name = new StringBuilder(prefix);
+        if (currentDate != null) {
+            name.append(currentDate);
+        }
+        if (index > 0) {
+            name.append('.').append(index);
+        }
+        return name.append(suffix).toString();
+    }
+
+    Path getCurrentFile() {
+        return currentFile;
+    }
+
+    long getRotations() {
+        return rotations;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            try {
+                channel.close();
+            } finally {
+                channel = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,344 @@
+package com.microtomcat.pipeline.valve;
+
+import com.microtomcat.connector.Request;
+import com.microtomcat.connector.Response;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 编译后的访问日志格式。格式串只在配置时解析一次，得到一组字段写入器：
+ * capture 在请求线程上把原始值放进记录，format 在写线程上把记录拼成一行。
+ * 支持的占位符：
+ * %a %h 客户端地址，%l 固定为 "-"，%u 远程用户，%t 请求结束时间，
+ * %r 请求行，%m 方法，%U 请求路径，%q 查询串（带 "?"），%H 协议，%v 主机名，
+ * %s 状态码，%b 响应体字节数（0 时为 "-"），%B 响应体字节数，
+ * %D 处理耗时（微秒），%T 处理耗时（秒，保留三位小数），%I 线程名，
+ * %{Name}i 请求头，%{Name}o 响应头，%% 百分号。
+ * "common" 和 "combined" 是对应标准格式的别名。
+ */
+final class AccessLogPattern {
+    static final String COMMON = "%h %l %u %t \"%r\" %s %b";
+    static final String COMBINED = COMMON + " \"%{Referer}i\" \"%{User-Agent}i\"";
+
+    /**
+     * 一个字段写入器，index 是它在记录字符串数组中的起始下标
+     */
+    interface Element {
+        /**
+         * 占用的字符串槽位数
+         */
+        default int slots() {
+            return 0;
+        }
+
+        default void capture(Request request, Response response, AccessLogRecord record, int index) {
+        }
+
+        void format(AccessLogRecord record, int index, StringBuilder out);
+    }
+
+    private final String pattern;
+    private final Element[] elements;
+    private final int[] indexes;
+    private final int slots;
+
+    private AccessLogPattern(String pattern, Element[] elements) {
+        this.pattern = pattern;
+        this.elements = elements;
+        this.indexes = new int[elements.length];
+        int next = 0;
+        for (int i = 0; i < elements.length; i++) {
+            indexes[i] = next;
+            next += elements[i].slots();
+        }
+        this.slots = next;
+    }
+
+    static AccessLogPattern compile(String pattern) {
+        String expanded = pattern;
+        if ("common".equals(pattern)) {
+            expanded = COMMON;
+        } else if ("combined".equals(pattern)) {
+            expanded = COMBINED;
+        }
+
+        List<Element> elements = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        int length = expanded.length();
+        for (int i = 0; i < length; i++) {
+            char c = expanded.charAt(i);
+            if (c != '%' || i + 1 >= length) {
+                literal.append(c);
+                continue;
+            }
+            char code = expanded.charAt(++i);
+            String argument = null;
+            if (code == '{') {
+                int close = expanded.indexOf('}', i);
+                if (close < 0 || close + 1 >= length) {
+                    throw new IllegalArgumentException("Unterminated %{...} in access log pattern: " + pattern);
+                }
+                argument = expanded.substring(i + 1, close);
+                i = close + 1;
+                code = expanded.charAt(i);
+            }
+            if (code == '%') {
+                literal.append('%');
+                continue;
+            }
+            if (literal.length() > 0) {
+                elements.add(new LiteralElement(literal.toString()));
+                literal.setLength(0);
+            }
+            elements.add(createElement(code, argument, pattern));
+        }
+        if (literal.length() > 0) {
+            elements.add(new LiteralElement(literal.toString()));
+        }
+        return new AccessLogPattern(pattern, elements.toArray(new Element[0]));
+    }
+
+    private static Element createElement(char code, String argument, String pattern) {
+        if (argument != null) {
+            if (code == 'i') {
+                return new StringElement(Source.REQUEST_HEADER, argument);
+            }
+            if (code == 'o') {
+                return new StringElement(Source.RESPONSE_HEADER, argument);
+            }
+            throw new IllegalArgumentException("Unsupported %{" + argument + "}" + code
+                + " in access log pattern: " + pattern);
+        }
+        switch (code) {
+            case 'a':
+            case 'h':
+                return new StringElement(Source.REMOTE_ADDR, null);
+            case 'l':
+                return new LiteralElement("-");
+            case 'u':
+                return new StringElement(Source.REMOTE_USER, null);
+            case 't':
+                return new TimestampElement();
+            case 'r':
+                return new RequestLineElement();
+            case 'm':
+                return new StringElement(Source.METHOD, null);
+            case 'U':
+                return new StringElement(Source.URI, null);
+            case 'q':
+                return new QueryStringElement();
+            case 'H':
+                return new StringElement(Source.PROTOCOL, null);
+            case 'v':
+                return new StringElement(Source.SERVER_NAME, null);
+            case 'I':
+                return new StringElement(Source.THREAD, null);
+            case 's':
+                return (record, index, out) -> out.append(record.status);
+            case 'b':
+                return (record, index, out) -> {
+                    if (record.bytes > 0) {
+                        out.append(record.bytes);
+                    } else {
+                        out.append('-');
+                    }
+                };
+            case 'B':
+                return (record, index, out) -> out.append(record.bytes);
+            case 'D':
+                return (record, index, out) -> out.append(record.latencyNanos / 1000);
+            case 'T':
+                return (record, index, out) -> {
+                    long millis = record.latencyNanos / 1_000_000;
+                    out.append(millis / 1000).append('.');
+                    long fraction = millis % 1000;
+                    if (fraction < 100) {
+                        out.append('0');
+                    }
+                    if (fraction < 10) {
+                        out.append('0');
+                    }
+                    out.append(fraction);
+                };
+            default:
+                throw new IllegalArgumentException("Unsupported %" + code + " in access log pattern: " + pattern);
+        }
+    }
+
+    String getPattern() {
+        return pattern;
+    }
+
+    int getSlots() {
+        return slots;
+    }
+
+    /**
+     * 请求线程：取出各字段需要的原始值
+     */
+    void capture(Request request, Response response, AccessLogRecord record) {
+        for (int i = 0; i < elements.length; i++) {
+            elements[i].capture(request, response, record, indexes[i]);
+        }
+    }
+
+    /**
+     * 写线程：把记录格式化为一行（不含换行）
+     */
+    void format(AccessLogRecord record, StringBuilder out) {
+        for (int i = 0; i < elements.length; i++) {
+            elements[i].format(record, indexes[i], out);
+        }
+    }
+
+    private static void appendValue(String value, StringBuilder out) {
+        if (value == null || value.isEmpty()) {
+            out.append('-');
+        } else {
+            out.append(value);
+        }
+    }
+
+    private static final class LiteralElement implements Element {
+        private final String text;
+
+        LiteralElement(String text) {
+            this.text = text;
+        }
+
+        @Override
+        public void format(AccessLogRecord record, int index, StringBuilder out) {
+            out.append(text);
+        }
+    }
+
+    private enum Source {
+        REMOTE_ADDR, REMOTE_USER, METHOD, URI, PROTOCOL, SERVER_NAME, THREAD, REQUEST_HEADER, RESPONSE_HEADER
+    }
+
+    private static final class StringElement implements Element {
+        private final Source source;
+        private final String name;
+
+        StringElement(Source source, String name) {
+            this.source = source;
+            this.name = name;
+        }
+
+        @Override
+        public int slots() {
+            return 1;
+        }
+
+        @Override
+        public void capture(Request request, Response response, AccessLogRecord record, int index) {
+            String value;
+            switch (source) {
+                case REMOTE_ADDR:
+                    value = request.getRemoteAddr();
+                    break;
+                case REMOTE_USER:
+                    value = request.getRemoteUser();
+                    break;
+                case METHOD:
+                    value = request.getMethod();
+                    break;
+                case URI:
+                    value = request.getUri();
+                    break;
+                case PROTOCOL:
+                    value = request.getProtocol();
+                    break;
+                case SERVER_NAME:
+                    value = request.getServerName();
+                    break;
+                case THREAD:
+                    value = Thread.currentThread().getName();
+                    break;
+                case REQUEST_HEADER:
+                    value = request.getHeader(name);
+                    break;
+                default:
+                    value = response.getHeader(name);
+                    break;
+            }
+            record.values[index] = value;
+        }
+
+        @Override
+        public void format(AccessLogRecord record, int index, StringBuilder out) {
+            appendValue(record.values[index], out);
+        }
+    }
+
+    private static final class RequestLineElement implements Element {
+        @Override
+        public int slots() {
+            return 4;
+        }
+
+        @Override
+        public void capture(Request request, Response response, AccessLogRecord record, int index) {
+            record.values[index] = request.getMethod();
+            record.values[index + 1] = request.getUri();
+            record.values[index + 2] = request.getQueryString();
+            record.values[index + 3] = request.getProtocol();
+        }
+
+        @Override
+        public void format(AccessLogRecord record, int index, StringBuilder out) {
+            appendValue(record.values[index], out);
+            out.append(' ');
+            appendValue(record.values[index + 1], out);
+            String query = record.values[index + 2];
+            if (query != null) {
+                out.append('?').append(query);
+            }
+            out.append(' ');
+            appendValue(record.values[index + 3], out);
+        }
+    }
+
+    private static final class QueryStringElement implements Element {
+        @Override
+        public int slots() {
+            return 1;
+        }
+
+        @Override
+        public void capture(Request request, Response response, AccessLogRecord record, int index) {
+            record.values[index] = request.getQueryString();
+        }
+
+        @Override
+        public void format(AccessLogRecord record, int index, StringBuilder out) {
+            String query = record.values[index];
+            if (query != null) {
+                out.append('?').append(query);
+            }
+        }
+    }
+
+    /**
+     * 只在写线程上使用，同一秒内复用上一次的格式化结果
+     */
+    private static final class TimestampElement implements Element {
+        private final SimpleDateFormat format = new SimpleDateFormat("[dd/MMM/yyyy:HH:mm:ss Z]", Locale.US);
+        private long cachedSecond = Long.MIN_VALUE;
+        private String cachedText;
+
+        @Override
+        public void format(AccessLogRecord record, int index, StringBuilder out) {
+            long second = record.timestamp / 1000;
+            if (second != cachedSecond) {
+                cachedText = format.format(new Date(second * 1000));
+                cachedSecond = second;
+            }
+            out.append(cachedText);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.microtomcat.pipeline.valve;
+
+import java.util.Arrays;
+
+/**
+ * 环形缓冲区中的一个槽位。请求线程只把原始值填进来，格式化留给后台写线程；
+ * 槽位在启动时一次性分配，之后反复复用。
+ */
+final class AccessLogRecord {
+    // 生产者填完后写入自己的序号，消费者据此判断槽位是否已发布
+    volatile long sequence = -1;
+    long claimedSequence;
+
+    long timestamp;
+    int status;
+    long bytes;
+    long latencyNanos;
+    // 各字符串字段按编译后的格式分配下标
+    final String[] values;
+
+    AccessLogRecord(int slots) {
+        this.values = new String[slots];
+    }
+
+    /**
+     * 释放对请求字符串的引用，避免槽位让它们一直存活
+     */
+    void clear() {
+        Arrays.fill(values, null);
+    }
+}
@@ -0,0 +1,73 @@
+package com.microtomcat.pipeline.valve;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 多生产者、单消费者的无锁环形缓冲区。
+ * 请求线程用 CAS 抢占序号后填写槽位再发布；缓冲区满时直接丢弃并计数，从不阻塞请求线程。
+ * 后台写线程按序号顺序取出已发布的槽位，处理完再推进 head，槽位才会被复用。
+ */
+final class AccessLogRingBuffer {
+    private final AccessLogRecord[] records;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    // 只由消费者写入
+    private volatile long head;
+    private final LongAdder dropped = new LongAdder();
+
+    AccessLogRingBuffer(int capacity, int slots) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.records = new AccessLogRecord[size];
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            records[i] = new AccessLogRecord(slots);
+        }
+    }
+
+    /**
+     * 抢占一个槽位，缓冲区已满时返回 null。取得的槽位必须调用 publish
+     */
+    AccessLogRecord claim() {
+        long sequence;
+        do {
+            sequence = tail.get();
+            if (sequence - head >= records.length) {
+                dropped.increment();
+                return null;
+            }
+        } while (!tail.compareAndSet(sequence, sequence + 1));
+        AccessLogRecord record = records[(int) sequence & mask];
+        record.claimedSequence = sequence;
+        return record;
+    }
+
+    void publish(AccessLogRecord record) {
+        record.sequence = record.claimedSequence;
+    }
+
+    /**
+     * 消费者查看下一个已发布的槽位，没有时返回 null；处理完后调用 release
+     */
+    AccessLogRecord peek() {
+        long next = head;
+        AccessLogRecord record = records[(int) next & mask];
+        return record.sequence == next ? record : null;
+    }
+
+    void release() {
+        head = head + 1;
+    }
+
+    int size() {
+        return (int) Math.max(0, tail.get() - head);
+    }
+
+    int capacity() {
+        return records.length;
+    }
+
+    long getDropped() {
+        return dropped.sum();
+    }
+}
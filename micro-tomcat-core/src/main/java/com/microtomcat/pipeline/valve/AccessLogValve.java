@@ -1,28 +1,370 @@
 package com.microtomcat.pipeline.valve;
 
-import com.microtomcat.pipeline.Valve;
-import com.microtomcat.pipeline.ValveContext;
+import com.microtomcat.logging.Log;
 import com.microtomcat.connector.Request;
 import com.microtomcat.connector.Response;
-import java.io.IOException;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import com.microtomcat.jmx.MBeanRegistry;
+import com.microtomcat.lifecycle.LifecycleBase;
+import com.microtomcat.lifecycle.LifecycleException;
+import com.microtomcat.pipeline.Valve;
+import com.microtomcat.pipeline.ValveContext;
 import com.microtomcat.servlet.ServletException;
-public class AccessLogValve implements Valve {
-    private static final DateTimeFormatter formatter = 
-        DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+import javax.management.JMException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 异步访问日志阀门。
+ * 请求线程在请求处理完后把状态码、字节数、耗时和格式需要的字段填进无锁环形缓冲区，
+ * 后台写线程批量格式化后通过 FileChannel 写入按日期和大小轮转的日志文件。
+ * 缓冲区满（磁盘跟不上）时丢弃记录并计数，不阻塞请求线程。
+ */
+public class AccessLogValve extends LifecycleBase implements Valve, AccessLogValveMBean {
+    private static final Log LOG = Log.getLog(AccessLogValve.class);
+    private static final int BATCH_SIZE = 512;
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    private volatile boolean enabled = true;
+    private String pattern = AccessLogPattern.COMMON + " %D";
+    private String directory = "logs";
+    private String prefix = "access_log.";
+    private String suffix = ".txt";
+    private String fileDateFormat = "yyyy-MM-dd";
+    private long maxFileSize = 64L * 1024 * 1024;
+    private int bufferCapacity = 8192;
+    private long flushIntervalMillis = 200;
+
+    private volatile AccessLogPattern compiledPattern = AccessLogPattern.compile(pattern);
+    private volatile AccessLogRingBuffer ringBuffer =
+        new AccessLogRingBuffer(bufferCapacity, compiledPattern.getSlots());
+
+    private volatile boolean running;
+    private Thread writerThread;
+    private AccessLogFileWriter fileWriter;
+    private volatile long writtenRecords;
+    private volatile long writeErrors;
+    private volatile String currentFile;
+    private volatile long rotations;
 
     @Override
     public void invoke(Request request, Response response, ValveContext context) 
             throws IOException, ServletException {
-        String logMessage = String.format("[AccessLogValve][%s] %s %s %s",
-            LocalDateTime.now().format(formatter),
-            request.getMethod(),
-            request.getUri(),
-            request.getProtocol());
-        
-        System.out.println(logMessage);
-        
-        context.invokeNext(request, response);
-    }
-} 
\ No newline at end of file
+        long start = System.nanoTime();
+        try {
+            context.invokeNext(request, response);
+        } finally {
+            log(request, response, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * 在请求线程上登记一条记录，只做字段复制
+     */
+    void log(Request request, Response response, long latencyNanos) {
+        AccessLogRingBuffer buffer = ringBuffer;
+        AccessLogRecord record = buffer.claim();
+        if (record == null) {
+            return;
+        }
+        try {
+            record.timestamp = System.currentTimeMillis();
+            record.status = response.getStatus();
+            record.bytes = response.getBytesWritten();
+            record.latencyNanos = latencyNanos;
+            compiledPattern.capture(request, response, record);
+        } finally {
+            buffer.publish(record);
+        }
+    }
+
+    @Override
+    public boolean isPassThrough() {
+        return !enabled;
+    }
+
+    @Override
+    protected void initInternal() throws LifecycleException {
+        // 配置在启动前已经确定，这里按最终配置重建格式和缓冲区
+        compiledPattern = AccessLogPattern.compile(pattern);
+        ringBuffer = new AccessLogRingBuffer(bufferCapacity, compiledPattern.getSlots());
+    }
+
+    @Override
+    protected void startInternal() throws LifecycleException {
+        fileWriter = new AccessLogFileWriter(Paths.get(directory), prefix, fileDateFormat, suffix, maxFileSize);
+        running = true;
+        writerThread = new Thread(this::runWriter, "access-log-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        try {
+            new MBeanRegistry().registerMBean(this, mbeanName());
+        } catch (JMException e) {
+            log("Failed to register MBean: " + e.getMessage());
+        }
+    }
+
+    @Override
+    protected void stopInternal() throws LifecycleException {
+        running = false;
+        LockSupport.unpark(writerThread);
+        try {
+            // 写线程退出前会写完缓冲区中剩余的记录
+            writerThread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            new MBeanRegistry().unregisterMBean(mbeanName());
+        } catch (JMException e) {
+            log("Failed to unregister MBean: " + e.getMessage());
+        }
+    }
+
+    @Override
+    protected void destroyInternal() throws LifecycleException {
+    }
+
+    private String mbeanName() {
+        return "AccessLogValve,prefix=" + prefix;
+    }
+
+    private void runWriter() {
+        StringBuilder line = new StringBuilder(256);
+        CharBuffer chars = CharBuffer.allocate(256);
+        ByteBuffer bytes = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+        CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        long parkNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, flushIntervalMillis));
+        AccessLogRingBuffer buffer = ringBuffer;
+        AccessLogPattern format = compiledPattern;
+        // bytes 中已编码但尚未写出的记录数
+        int batched = 0;
+
+        try {
+            while (running || buffer.size() > 0) {
+                int drained = 0;
+                AccessLogRecord record;
+                while (drained < BATCH_SIZE && (record = buffer.peek()) != null) {
+                    line.setLength(0);
+                    format.format(record, line);
+                    line.append('\n');
+                    record.clear();
+                    buffer.release();
+                    drained++;
+
+                    if (line.length() > chars.capacity()) {
+                        chars = CharBuffer.allocate(line.length() * 2);
+                    }
+                    chars.clear();
+                    chars.append(line);
+                    chars.flip();
+                    // 按 UTF-8 最坏情况预留空间，放不下时先写出已缓冲的内容
+                    int worstCase = chars.remaining() * 3;
+                    if (bytes.remaining() < worstCase && batched > 0) {
+                        flush(bytes, batched);
+                        batched = 0;
+                    }
+                    if (bytes.remaining() < worstCase) {
+                        // 超长的一行单独编码写出
+                        write(StandardCharsets.UTF_8.encode(chars), 1);
+                        continue;
+                    }
+                    encoder.reset();
+                    encoder.encode(chars, bytes, true);
+                    encoder.flush(bytes);
+                    batched++;
+                }
+                if (batched > 0) {
+                    flush(bytes, batched);
+                    batched = 0;
+                }
+                if (drained == 0) {
+                    checkRotation();
+                    LockSupport.parkNanos(this, parkNanos);
+                }
+            }
+        } finally {
+            try {
+                fileWriter.close();
+            } catch (IOException e) {
+                log("Error closing access log: " + e.getMessage());
+            }
+        }
+    }
+
+    private void flush(ByteBuffer bytes, int records) {
+        bytes.flip();
+        write(bytes, records);
+        bytes.clear();
+    }
+
+    private void write(ByteBuffer data, int records) {
+        try {
+            fileWriter.write(data, System.currentTimeMillis());
+            writtenRecords += records;
+        } catch (IOException e) {
+            // 写失败的这批记录丢弃，不影响后续记录
+            writeErrors++;
+            log("Error writing access log: " + e.getMessage());
+        }
+        rotations = fileWriter.getRotations();
+        currentFile = fileWriter.getCurrentFile() != null ? fileWriter.getCurrentFile().toString() : null;
+    }
+
+    private void checkRotation() {
+        try {
+            fileWriter.checkDate(System.currentTimeMillis());
+            rotations = fileWriter.getRotations();
+        } catch (IOException e) {
+            writeErrors++;
+            log("Error rotating access log: " + e.getMessage());
+        }
+    }
+
+    private void log(String message) {
+        LOG.warn(message);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @Override
+    public String getPattern() {
+        return pattern;
+    }
+
+    /**
+     * 日志格式，可以使用 "common"、"combined" 或自定义的占位符组合，启动前设置
+     */
+    public void setPattern(String pattern) {
+        checkNotRunning();
+        AccessLogPattern compiled = AccessLogPattern.compile(pattern);
+        this.pattern = pattern;
+        this.compiledPattern = compiled;
+        this.ringBuffer = new AccessLogRingBuffer(bufferCapacity, compiled.getSlots());
+    }
+
+    private void checkNotRunning() {
+        if (running) {
+            throw new IllegalStateException("AccessLogValve is running");
+        }
+    }
+
+    public String getDirectory() {
+        return directory;
+    }
+
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    public String getPrefix() {
+        return prefix;
+    }
+
+    public void setPrefix(String prefix) {
+        this.prefix = prefix;
+    }
+
+    public String getSuffix() {
+        return suffix;
+    }
+
+    public void setSuffix(String suffix) {
+        this.suffix = suffix;
+    }
+
+    public String getFileDateFormat() {
+        return fileDateFormat;
+    }
+
+    /**
+     * 文件名中的日期格式，格式化结果变化时轮转；为空时不按时间轮转
+     */
+    public void setFileDateFormat(String fileDateFormat) {
+        this.fileDateFormat = fileDateFormat;
+    }
+
+    public long getMaxFileSize() {
+        return maxFileSize;
+    }
+
+    /**
+     * 单个日志文件的最大字节数，超过后换到下一个序号的文件；0 表示不限
+     */
+    public void setMaxFileSize(long maxFileSize) {
+        this.maxFileSize = maxFileSize;
+    }
+
+    @Override
+    public int getBufferCapacity() {
+        return ringBuffer.capacity();
+    }
+
+    /**
+     * 环形缓冲区的槽位数，向上取整到 2 的幂，启动前设置
+     */
+    public void setBufferCapacity(int bufferCapacity) {
+        if (bufferCapacity <= 0) {
+            throw new IllegalArgumentException("bufferCapacity must be positive");
+        }
+        checkNotRunning();
+        this.bufferCapacity = bufferCapacity;
+        this.ringBuffer = new AccessLogRingBuffer(bufferCapacity, compiledPattern.getSlots());
+    }
+
+    public long getFlushIntervalMillis() {
+        return flushIntervalMillis;
+    }
+
+    /**
+     * 缓冲区为空时写线程的最长等待时间
+     */
+    public void setFlushIntervalMillis(long flushIntervalMillis) {
+        this.flushIntervalMillis = flushIntervalMillis;
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return ringBuffer.size();
+    }
+
+    @Override
+    public long getWrittenRecords() {
+        return writtenRecords;
+    }
+
+    @Override
+    public long getDroppedRecords() {
+        return ringBuffer.getDropped();
+    }
+
+    @Override
+    public long getWriteErrors() {
+        return writeErrors;
+    }
+
+    @Override
+    public long getRotations() {
+        return rotations;
+    }
+
+    @Override
+    public String getCurrentFile() {
+        return currentFile;
+    }
+}
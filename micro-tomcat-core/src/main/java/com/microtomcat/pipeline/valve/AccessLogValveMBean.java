@@ -0,0 +1,22 @@
+package com.microtomcat.pipeline.valve;
+
+/**
+ * AccessLogValve的JMX管理接口
+ */
+public interface AccessLogValveMBean {
+    // 配置
+    String getPattern();
+    boolean isEnabled();
+    void setEnabled(boolean enabled);
+
+    // 缓冲区状态
+    int getQueueDepth();
+    int getBufferCapacity();
+
+    // 写出统计
+    long getWrittenRecords();
+    long getDroppedRecords();
+    long getWriteErrors();
+    long getRotations();
+    String getCurrentFile();
+}
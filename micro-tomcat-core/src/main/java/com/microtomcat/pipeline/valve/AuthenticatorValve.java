@@ -1,5 +1,6 @@
 package com.microtomcat.pipeline.valve;
 
+import com.microtomcat.logging.Log;
 import com.microtomcat.pipeline.Valve;
 import com.microtomcat.pipeline.ValveContext;
 import com.microtomcat.connector.Request;
@@ -10,10 +11,11 @@ import com.microtomcat.servlet.ServletException;
 import javax.servlet.http.HttpServletResponse;
 
 public class AuthenticatorValve implements Valve {
+    private static final Log LOG = Log.getLog(AuthenticatorValve.class);
     @Override
     public void invoke(Request request, Response response, ValveContext context) 
             throws IOException, ServletException {
-        System.out.println("[AuthenticatorValve] Processing request ..");
+        LOG.debug("Processing request ..");
         
         HttpSession session = request.getSession(false);
         if (session != null) {
@@ -1,5 +1,7 @@
 package com.microtomcat.processor;
 
+import com.microtomcat.logging.Log;
+import com.microtomcat.connector.HttpParser;
 import com.microtomcat.connector.Request;
 import com.microtomcat.connector.Response;
 import com.microtomcat.container.Engine;
@@ -14,19 +16,31 @@ import com.microtomcat.session.distributed.InMemoryReplicatedSessionStore;
 
 import java.io.*;
 import java.net.Socket;
-import java.nio.ByteBuffer;
-import java.nio.channels.SelectionKey;
-import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
 
 public class Processor extends LifecycleBase {
+    private static final Log LOG = Log.getLog(Processor.class);
     private final String webRoot;
     private final Engine engine;
     private final SessionManager sessionManager;
+    // 每个 Processor 持有一对可复用的请求/响应对象，同一时刻只服务一个请求
+    private final Request request;
+    private final Response response;
 
     public Processor(String webRoot, Engine engine, SessionManager sessionManager) {
         this.webRoot = webRoot;
         this.engine = engine;
         this.sessionManager = sessionManager;
+        this.request = new Request(sessionManager);
+        this.response = new Response();
+    }
+
+    /**
+     * 回收请求/响应对象，由 ProcessorPool 在 Processor 归还时调用
+     */
+    public void recycle() {
+        request.recycle();
+        response.recycle();
     }
 
     @Override
@@ -50,51 +64,28 @@ public class Processor extends LifecycleBase {
     }
 
     private void log(String message) {
-        System.out.println("[Processor] " + message);
+        LOG.info(message);
     }
 
     public void process(Socket socket) {
-        Response response = null;
         try (InputStream input = socket.getInputStream();
              OutputStream output = socket.getOutputStream()) {
             
-            Request request = new Request(input, sessionManager);
-            request.parse();
-            
-            response = new Response(output);
-            
-            // 处理 /ping 请求
-            if ("/ping".equals(request.getUri())) {
-                // 设置响应头和状态
-                response.setContentType("text/plain");
-                response.setContentLength(2);  // "OK" 的长度
-                response.setStatus(200);
-                
-                // 获取 writer 会自动写入响应头
-                PrintWriter writer = response.getWriter();
-                writer.write("OK");
-                writer.flush();
-                return;
-            }
-            
-            if ("/_sessionReplication".equals(request.getUri())) {
-                handleSessionReplication(request, response);
-                return;
-            }
-            
-            // 继续原有的处理逻辑
-            engine.invoke(request, response);
-            
-        } catch (IOException e) {
-            log("Error processing request: " + e.getMessage());
-            if (response != null) {
-                try {
+            response.setOutputStream(output);
+            try {
+                service(input);
+            } catch (IOException e) {
+                log("Error processing request: " + e.getMessage());
+                if (!response.isCommitted()) {
                     response.sendError(500, "Internal Server Error: " + e.getMessage());
-                } catch (IOException ignored) {
-                    // 忽略发送错误响应时的异常
                 }
             }
+            // 在关闭 socket 流之前结束响应
+            response.finishResponse();
+        } catch (IOException e) {
+            log("Error writing response: " + e.getMessage());
         } finally {
+            recycle();
             try {
                 socket.close(); // 确保socket被关闭
             } catch (IOException e) {
@@ -103,6 +94,33 @@ public class Processor extends LifecycleBase {
         }
     }
 
+    private void service(InputStream input) throws IOException {
+        request.setInputStream(input);
+        request.parse();
+        response.setChunkingAllowed("HTTP/1.1".equals(request.getProtocol()));
+        response.setAcceptEncoding(request.getHeader("Accept-Encoding"));
+        
+        // 处理 /ping 请求
+        if ("/ping".equals(request.getUri())) {
+            // 设置响应头和状态
+            response.setContentType("text/plain");
+            response.setContentLength(2);  // "OK" 的长度
+            response.setStatus(200);
+            
+            PrintWriter writer = response.getWriter();
+            writer.write("OK");
+            return;
+        }
+        
+        if ("/_sessionReplication".equals(request.getUri())) {
+            handleSessionReplication(request, response);
+            return;
+        }
+        
+        // 继续原有的处理逻辑
+        engine.invoke(request, response);
+    }
+
     private void handleSessionReplication(Request request, Response response) throws IOException {
         // 直接获取已解析的body
         String rawBody = request.getBody();
@@ -168,64 +186,36 @@ public class Processor extends LifecycleBase {
                 response.sendError(400, "Invalid action");
             }
         } catch (Exception e) {
-            e.printStackTrace();
+            LOG.error("Error handling replication request", e);
             response.sendError(500, "Internal Server Error: " + e.getMessage());
         }
     }
 
-    public void processNio(SelectionKey key, ByteBuffer buffer) throws IOException {
-        SocketChannel channel = (SocketChannel) key.channel();
-        Response response = new Response(new ChannelOutputStream(channel));
-        
+    /**
+     * 处理一个 NIO 请求，请求头已由连接器解析、请求体已完整读取，响应写入连接器提供的输出流
+     * @param parser 连接器解析请求头所用的解析器，直到 Processor 归还给 ProcessorPool 之前不得复用
+     * @return 处理后的响应，连接器从中取得待发送的文件及是否可以复用连接；
+     *         该对象在 Processor 归还给 ProcessorPool 时被回收
+     */
+    public Response processNio(HttpParser parser, byte[] body, OutputStream output, WritableByteChannel channel,
+                               long sendfileThreshold) throws IOException {
+        response.setOutputStream(output);
+        response.setSendfileThreshold(sendfileThreshold);
+        response.setSocketChannel(channel, true);
+
         try {
-            Request request = new Request(new ByteBufferInputStream(buffer), sessionManager);
-            request.parse();
+            request.setParsedRequest(parser, body);
+            response.setChunkingAllowed("HTTP/1.1".equals(request.getProtocol()));
+            response.setAcceptEncoding(request.getHeader("Accept-Encoding"));
             engine.invoke(request, response);
         } catch (Exception e) {
             log("Error processing NIO request: " + e.getMessage());
-            response.sendError(500, "Internal Server Error: " + e.getMessage());
-        }
-    }
-
-    private static class ByteBufferInputStream extends InputStream {
-        private final ByteBuffer buffer;
-        
-        ByteBufferInputStream(ByteBuffer buffer) {
-            this.buffer = buffer;
-        }
-        
-        @Override
-        public int read() {
-            if (!buffer.hasRemaining()) {
-                return -1;
-            }
-            return buffer.get() & 0xFF;
-        }
-    }
-
-    private static class ChannelOutputStream extends OutputStream {
-        private final SocketChannel channel;
-        private final ByteBuffer buffer = ByteBuffer.allocate(8192);
-        
-        ChannelOutputStream(SocketChannel channel) {
-            this.channel = channel;
-        }
-        
-        @Override
-        public void write(int b) throws IOException {
-            if (!buffer.hasRemaining()) {
-                flush();
-            }
-            buffer.put((byte) b);
-        }
-        
-        @Override
-        public void flush() throws IOException {
-            buffer.flip();
-            while (buffer.hasRemaining()) {
-                channel.write(buffer);
+            if (!response.isCommitted()) {
+                response.sendError(500, "Internal Server Error: " + e.getMessage());
             }
-            buffer.clear();
         }
+        // 把缓冲的响应体写入连接器的输出流并结束响应
+        response.finishResponse();
+        return response;
     }
-} 
\ No newline at end of file
+}
@@ -1,5 +1,6 @@
 package com.microtomcat.processor;
 
+import com.microtomcat.logging.Log;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ArrayBlockingQueue;
@@ -16,10 +17,10 @@ import com.microtomcat.lifecycle.LifecycleBase;
 import com.microtomcat.lifecycle.LifecycleException;
 import com.microtomcat.container.Container;
 import com.microtomcat.container.Engine;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.ThreadPoolExecutor;
+import com.microtomcat.net.WorkerExecutor;
 
 public class ProcessorPool extends LifecycleBase implements ProcessorPoolMBean {
+    private static final Log LOG = Log.getLog(ProcessorPool.class);
     private final BlockingQueue<Processor> pool;
     private final List<Processor> allProcessors;
     private final int maxProcessors;
@@ -34,7 +35,7 @@ public class ProcessorPool extends LifecycleBase implements ProcessorPoolMBean {
     private final AtomicLong requestCount = new AtomicLong(0);
     private final AtomicInteger currentLoad = new AtomicInteger(0);
     private final AtomicLong totalRequests = new AtomicLong(0);
-    private final ExecutorService executorService;
+    private WorkerExecutor executor;
 
     public ProcessorPool(int maxProcessors, String webRoot, Engine engine, SessionManager sessionManager) {
         this.maxProcessors = maxProcessors;
@@ -49,14 +50,6 @@ public class ProcessorPool extends LifecycleBase implements ProcessorPoolMBean {
         for (int i = 0; i < initialProcessors; i++) {
             createProcessor();
         }
-        
-        this.executorService = new ThreadPoolExecutor(
-            1,                      // 核心线程数
-            maxProcessors,            // 最大线程数
-            60L,                   // 空闲线程存活时间
-            TimeUnit.SECONDS,      // 时间单位
-            new ArrayBlockingQueue<>(100)  // 工作队列
-        );
     }
 
     @Override
@@ -94,7 +87,7 @@ public class ProcessorPool extends LifecycleBase implements ProcessorPoolMBean {
     }
 
     private void log(String message) {
-        System.out.println("[ProcessorPool] " + message);
+        LOG.info(message);
     }
 
     public Processor getProcessor(long timeout) throws InterruptedException {
@@ -115,6 +108,8 @@ public class ProcessorPool extends LifecycleBase implements ProcessorPoolMBean {
     }
 
     public void releaseProcessor(Processor processor) {
+        // 归还前回收请求/响应对象，下一个借用者拿到的是干净的实例
+        processor.recycle();
         lock.lock();
         try {
             pool.offer(processor);
@@ -210,7 +205,14 @@ public class ProcessorPool extends LifecycleBase implements ProcessorPoolMBean {
         }
     }
 
-    public ExecutorService getExecutor() {
-        return executorService;
+    /**
+     * 处理请求的线程池，未设置时使用所有连接器共享的默认实例
+     */
+    public WorkerExecutor getExecutor() {
+        return executor != null ? executor : WorkerExecutor.getShared();
+    }
+
+    public void setExecutor(WorkerExecutor executor) {
+        this.executor = executor;
     }
 } 
\ No newline at end of file
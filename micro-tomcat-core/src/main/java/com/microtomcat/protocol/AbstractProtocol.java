@@ -1,11 +1,25 @@
 package com.microtomcat.protocol;
 
+import com.microtomcat.net.WorkerExecutor;
+
 import java.net.ServerSocket;
 import java.net.InetSocketAddress;
 import java.io.IOException;
 
 public abstract class AbstractProtocol implements Protocol {
     protected int port;
+    private WorkerExecutor executor;
+
+    /**
+     * 处理请求的线程池，未设置时使用所有连接器共享的默认实例
+     */
+    public void setExecutor(WorkerExecutor executor) {
+        this.executor = executor;
+    }
+
+    public WorkerExecutor getExecutor() {
+        return executor != null ? executor : WorkerExecutor.getShared();
+    }
     
     @Override
     public void setPort(int port) {
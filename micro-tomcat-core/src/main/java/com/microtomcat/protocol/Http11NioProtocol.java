@@ -1,312 +1,1069 @@
 package com.microtomcat.protocol;
 
+import com.microtomcat.logging.Log;
+import com.microtomcat.connector.HttpParseException;
+import com.microtomcat.connector.HttpParser;
+import com.microtomcat.connector.Response;
+import com.microtomcat.connector.SendfileData;
 import com.microtomcat.processor.Processor;
 import com.microtomcat.processor.ProcessorPool;
+import com.microtomcat.server.ServerConfig;
+import com.microtomcat.net.ByteBufferPool;
+import com.microtomcat.net.TimingWheel;
+import com.microtomcat.jmx.MBeanRegistry;
+import javax.management.JMException;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.nio.BufferOverflowException;
 import java.nio.channels.*;
+import java.nio.charset.StandardCharsets;
 import java.net.InetSocketAddress;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
 import java.util.Iterator;
-import java.util.Map;
-import java.util.HashMap;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * 多 Reactor 模型的 NIO 协议处理器：
+ * 一个 Acceptor 线程负责 accept，N 个 Poller 线程各自持有一个 Selector 负责读写。
+ * 连接状态作为 SelectionKey 的 attachment 只由其所属的 Poller 线程访问。
+ *
+ * 每个连接上的请求（包括 pipelining 发来的多个请求）在 Poller 上增量解析后排队，
+ * 按顺序逐个交给工作线程处理，响应按同样的顺序写回，连接保持复用。
+ */
 public class Http11NioProtocol extends AbstractProtocol {
-    private Selector selector;
+    private static final Log LOG = Log.getLog(Http11NioProtocol.class);
     private ServerSocketChannel serverChannel;
     private ProcessorPool processorPool;
     private volatile boolean running;
-    
+
     // HTTP/1.1 specific constants
-    private static final String HTTP_11 = "HTTP/1.1";
-    private static final int DEFAULT_MAX_HEADER_SIZE = 8 * 1024;
-    private static final int DEFAULT_MAX_POST_SIZE = 2 * 1024 * 1024;
-    private static final int DEFAULT_KEEP_ALIVE_TIMEOUT = 20000; // 20s
-    
+    private static final int DEFAULT_MAX_HEADER_SIZE = HttpParser.DEFAULT_MAX_HEADER_SIZE;
+    private static final int DEFAULT_MAX_POST_SIZE = 1 * 1024 * 1024;
+    private static final long DEFAULT_HEADER_READ_TIMEOUT = 20000; // 20s
+    private static final long DEFAULT_BODY_READ_TIMEOUT = 60000; // 60s
+    private static final long DEFAULT_KEEP_ALIVE_TIMEOUT = 20000; // 20s
+    // 超时时间轮：100ms 一格，512 格一圈，更长的超时在轮上多转几圈
+    private static final long TIMEOUT_TICK_MILLIS = 100;
+    private static final int TIMEOUT_WHEEL_SIZE = 512;
+    // 单个连接上最多排队的 pipelined 请求数，超出后暂停读取
+    private static final int MAX_PIPELINED_REQUESTS = 16;
+    // 一次 gathering write 最多合并的缓冲区数
+    private static final int MAX_GATHER_BUFFERS = 16;
+    // 空闲的请求头解析器最多保留这么多，超出的在归还时丢弃
+    private static final int MAX_POOLED_PARSERS = 256;
+
     // 缓冲区大小
     private static final int BUFFER_SIZE = 8 * 1024;
-    
-    // 保存每个连接的状态
-    private final Map<SocketChannel, ConnectionState> connections = new ConcurrentHashMap<>();
-    
+
     private static final int INITIAL_BUFFER_SIZE = 8 * 1024;
     private static final int MAX_BUFFER_SIZE = 64 * 1024;
-    private ExecutorService processorExecutor = 
-        Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
-    
+
+    // Poller 配置，默认取自 ServerConfig
+    private int pollerCount;
+    private ServerConfig.PollerSelection pollerSelection;
+    private Poller[] pollers;
+    private final AtomicInteger nextPoller = new AtomicInteger(0);
+
+    // 连接读写缓冲区从共享的直接内存池借用
+    private ByteBufferPool bufferPool = ByteBufferPool.getInstance();
+    private long sendfileThreshold = Response.DEFAULT_SENDFILE_THRESHOLD;
+
+    private long headerReadTimeout = DEFAULT_HEADER_READ_TIMEOUT;
+    private long bodyReadTimeout = DEFAULT_BODY_READ_TIMEOUT;
+    private long keepAliveTimeout = DEFAULT_KEEP_ALIVE_TIMEOUT;
+    // 请求体（含 chunked 解码后）允许的最大字节数，超出时回复 413
+    private int maxPostSize = DEFAULT_MAX_POST_SIZE;
+
+    // 请求头解析器只在读取请求头和处理请求期间借用，所有 Poller 共享，空闲连接不占用
+    private final ArrayBlockingQueue<HttpParser> parsers = new ArrayBlockingQueue<>(MAX_POOLED_PARSERS);
+
+    public Http11NioProtocol() {
+        this(null);
+    }
+
+    public Http11NioProtocol(ServerConfig config) {
+        if (config != null) {
+            this.port = config.getPort();
+            this.pollerCount = config.getPollerCount();
+            this.pollerSelection = config.getPollerSelection();
+            this.sendfileThreshold = config.getSendfileThreshold();
+            this.headerReadTimeout = config.getHeaderReadTimeout();
+            this.bodyReadTimeout = config.getBodyReadTimeout();
+            this.keepAliveTimeout = config.getKeepAliveTimeout();
+            this.maxPostSize = config.getMaxPostSize();
+        } else {
+            this.pollerCount = Math.max(1, Math.min(8, Runtime.getRuntime().availableProcessors()));
+            this.pollerSelection = ServerConfig.PollerSelection.ROUND_ROBIN;
+        }
+    }
+
+    private static final byte[] EMPTY_BODY = new byte[0];
+
+    /**
+     * 一个已完整读取、等待处理的请求：请求头留在解析它的解析器中，工作线程直接使用，不再重新解析
+     */
+    private static class PendingRequest {
+        final HttpParser parser;
+        final byte[] body;
+        final boolean keepAlive;
+
+        PendingRequest(HttpParser parser, byte[] body, boolean keepAlive) {
+            this.parser = parser;
+            this.body = body;
+            this.keepAlive = keepAlive;
+        }
+    }
+
     private static class ConnectionState {
         final DynamicByteBuffer readBuffer;
-        final DynamicByteBuffer writeBuffer;
-        long lastActiveTime;
+        // 连接在所属 Poller 时间轮上的超时节点，每次读写后重置
+        TimingWheel.Timeout<SelectionKey> timeout;
+        // 已完成的请求数，用于区分首个请求和 keep-alive 空闲
+        int completedRequests;
         State state;
-        StringBuilder requestLine;
-        Map<String, String> headers;
-        boolean keepAlive;
-        Processor processor;
-        
+
+        // 当前正在解析的请求：请求头交给从共享池借用的解析器，连接空闲时为 null；请求体直接读入 body
+        HttpParser parser;
+        long bodyRemaining;
+        byte[] body;
+        int bodyLength;
+        int chunkDigits;
+        boolean chunkExtension;
+        int trailerLineLength;
+        int trailerBytes;
+
+        // 已解析完、按到达顺序排队的请求
+        final Deque<PendingRequest> pendingRequests = new ArrayDeque<>();
+        // 待写出的数据：ByteBuffer 或 SendfileData（文件通道或映射切片），工作线程写入、Poller 线程消费
+        final Queue<Object> outbound = new ConcurrentLinkedQueue<>();
+        boolean processing;
+        boolean readPaused;
+        boolean closeAfterWrite;
+        volatile boolean closed;
+
+        /**
+         * 从 ByteBufferPool 按需借用的可增长缓冲区，连接空闲时归还
+         */
         private static class DynamicByteBuffer {
             ByteBuffer buffer;
+            final int initialSize;
             final int maxSize;
-            
-            DynamicByteBuffer(int initialSize, int maxSize) {
-                this.buffer = ByteBuffer.allocate(initialSize);
+            final ByteBufferPool pool;
+
+            DynamicByteBuffer(ByteBufferPool pool, int initialSize, int maxSize) {
+                this.pool = pool;
+                this.initialSize = initialSize;
                 this.maxSize = maxSize;
             }
-            
+
             ByteBuffer getBuffer() {
+                if (buffer == null) {
+                    buffer = pool.acquire(initialSize);
+                }
                 return buffer;
             }
-            
+
+            boolean isAllocated() {
+                return buffer != null;
+            }
+
             void ensureCapacity(int needed) {
-                if (buffer.remaining() < needed) {
-                    int newSize = Math.min(buffer.capacity() * 2, maxSize);
-                    if (newSize < buffer.capacity() + needed) {
+                ByteBuffer current = getBuffer();
+                if (current.remaining() < needed) {
+                    int newSize = Math.min(current.capacity() * 2, maxSize);
+                    if (newSize < current.position() + needed) {
                         throw new BufferOverflowException();
                     }
-                    ByteBuffer newBuffer = ByteBuffer.allocate(newSize);
-                    buffer.flip();
-                    newBuffer.put(buffer);
+                    ByteBuffer newBuffer = pool.acquire(newSize);
+                    current.flip();
+                    newBuffer.put(current);
+                    pool.release(current);
                     buffer = newBuffer;
                 }
             }
+
+            /**
+             * 缓冲区处于写模式且没有未处理字节时归还给池
+             */
+            void releaseIfEmpty() {
+                if (buffer != null && buffer.position() == 0) {
+                    release();
+                }
+            }
+
+            void release() {
+                if (buffer != null) {
+                    pool.release(buffer);
+                    buffer = null;
+                }
+            }
         }
-        
-        ConnectionState(int initialSize, int maxSize) {
-            this.readBuffer = new DynamicByteBuffer(initialSize, maxSize);
-            this.writeBuffer = new DynamicByteBuffer(initialSize, maxSize);
-            this.lastActiveTime = System.currentTimeMillis();
-            this.state = State.READ_REQUEST_LINE;
-            this.requestLine = new StringBuilder();
-            this.headers = new HashMap<>();
-            this.keepAlive = true;
+
+        ConnectionState(ByteBufferPool pool, int initialSize, int maxSize) {
+            this.readBuffer = new DynamicByteBuffer(pool, initialSize, maxSize);
+            this.state = State.READ_HEAD;
+        }
+
+        void resetRequest() {
+            state = State.READ_HEAD;
+            parser = null;
+            body = null;
+            bodyLength = 0;
+            bodyRemaining = 0;
+            chunkDigits = 0;
+            chunkExtension = false;
+            trailerLineLength = 0;
+            trailerBytes = 0;
+        }
+
+        void releaseBuffers(ByteBufferPool pool) {
+            closed = true;
+            readBuffer.release();
+            drainOutbound(pool);
         }
-        
+
+        /**
+         * 释放连接关闭后仍留在发送队列中的数据；Poller 和工作线程都可能调用，每一项只会被其中一方取出
+         */
+        void drainOutbound(ByteBufferPool pool) {
+            Object item;
+            while ((item = outbound.poll()) != null) {
+                if (item instanceof ByteBuffer) {
+                    pool.release((ByteBuffer) item);
+                } else if (item instanceof SendfileData) {
+                    try {
+                        ((SendfileData) item).close();
+                    } catch (IOException ignored) {
+                        // 忽略关闭错误
+                    }
+                }
+            }
+        }
+
         enum State {
-            READ_REQUEST_LINE,
-            READ_HEADERS,
+            READ_HEAD,
+            READ_BODY,
             READ_CHUNK_SIZE,
             READ_CHUNK_DATA,
             READ_CHUNK_END,
-            PROCESS_REQUEST,
-            WRITE_RESPONSE,
-            WRITE_RESPONSE_BODY,
-            COMPLETE
+            READ_TRAILERS
         }
     }
-    
+
     @Override
     public void init() throws Exception {
-        selector = Selector.open();
         serverChannel = ServerSocketChannel.open();
-        serverChannel.configureBlocking(false);
+        serverChannel.socket().setReuseAddress(true);
         serverChannel.socket().bind(new InetSocketAddress(port));
-        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        // Acceptor 使用阻塞 accept，读写事件全部交给 Poller
+        serverChannel.configureBlocking(true);
+
+        pollers = new Poller[pollerCount];
+        for (int i = 0; i < pollerCount; i++) {
+            pollers[i] = new Poller(i);
+        }
+
+        try {
+            new MBeanRegistry().registerMBean(bufferPool, "ByteBufferPool");
+        } catch (JMException e) {
+            log("Failed to register ByteBufferPool MBean: " + e.getMessage());
+        }
     }
 
     @Override
     public void start() throws Exception {
         running = true;
-        processorExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
-        
-        // 启动清理线程
-        startCleanupThread();
-        
+
+        for (Poller poller : pollers) {
+            Thread thread = new Thread(poller, "http-nio-" + port + "-Poller-" + poller.index);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        // 当前线程作为 Acceptor
         while (running) {
             try {
-                selector.select(1000);
-                processSelectedKeys();
-                processTimeouts();
-            } catch (Exception e) {
-                log("Error in event loop: " + e.getMessage());
+                SocketChannel client = serverChannel.accept();
+                client.configureBlocking(false);
+                selectPoller().register(client);
+            } catch (ClosedChannelException e) {
+                break;
+            } catch (IOException e) {
+                if (running) {
+                    log("Error accepting connection: " + e.getMessage());
+                }
             }
         }
     }
-    
-    private void processSelectedKeys() {
-        Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
-        while (keys.hasNext()) {
-            SelectionKey key = keys.next();
-            keys.remove();
-            
-            try {
-                if (!key.isValid()) continue;
-                
-                if (key.isAcceptable()) {
-                    accept(key);
-                } else if (key.isReadable()) {
-                    read(key);
-                } else if (key.isWritable()) {
-                    write(key);
+
+    /**
+     * 按照配置的策略为新连接挑选 Poller
+     */
+    private Poller selectPoller() {
+        if (pollerSelection == ServerConfig.PollerSelection.LEAST_CONNECTIONS) {
+            Poller selected = pollers[0];
+            for (int i = 1; i < pollers.length; i++) {
+                if (pollers[i].getConnectionCount() < selected.getConnectionCount()) {
+                    selected = pollers[i];
                 }
-            } catch (CancelledKeyException e) {
-                closeConnection(key);
-            } catch (Exception e) {
-                log("Error processing key: " + e.getMessage());
-                closeConnection(key);
             }
+            return selected;
         }
+        int index = (nextPoller.getAndIncrement() & Integer.MAX_VALUE) % pollers.length;
+        return pollers[index];
     }
-    
-    // 处理耗时操作
-    private void processRequest(SelectionKey key, ConnectionState state) {
-        processorExecutor.submit(() -> {
-            try {
-                Processor processor = processorPool.getProcessor(5000);
-                if (processor != null) {
+
+    /**
+     * 每个 Poller 拥有独立的 Selector 和线程，连接注册后只在该线程上读写
+     */
+    private class Poller implements Runnable {
+        private final int index;
+        private final Selector selector;
+        private final Queue<SocketChannel> pendingChannels = new ConcurrentLinkedQueue<>();
+        // 其他线程（工作线程）需要在 Poller 线程上执行的操作
+        private final Queue<Runnable> events = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger connectionCount = new AtomicInteger(0);
+        // gathering write 使用的缓冲区数组，只在 Poller 线程上使用
+        private final ByteBuffer[] gather = new ByteBuffer[MAX_GATHER_BUFFERS];
+        // 只在 Poller 线程上访问
+        private final TimingWheel<SelectionKey> timeouts =
+            new TimingWheel<>(TIMEOUT_TICK_MILLIS, TIMEOUT_WHEEL_SIZE);
+
+        Poller(int index) throws IOException {
+            this.index = index;
+            this.selector = Selector.open();
+        }
+
+        void register(SocketChannel channel) {
+            connectionCount.incrementAndGet();
+            pendingChannels.offer(channel);
+            selector.wakeup();
+        }
+
+        void addEvent(Runnable event) {
+            events.offer(event);
+            selector.wakeup();
+        }
+
+        int getConnectionCount() {
+            return connectionCount.get();
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                try {
+                    selector.select(timeouts.getTickMillis());
+                    registerPendingChannels();
+                    runEvents();
+                    processSelectedKeys();
+                    timeouts.expire(System.currentTimeMillis(), this::closeConnection);
+                } catch (ClosedSelectorException e) {
+                    break;
+                } catch (Exception e) {
+                    log("Error in poller " + index + " event loop: " + e.getMessage());
+                }
+            }
+            close();
+        }
+
+        private void registerPendingChannels() {
+            SocketChannel channel;
+            while ((channel = pendingChannels.poll()) != null) {
+                try {
+                    SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+                    ConnectionState state = new ConnectionState(bufferPool, INITIAL_BUFFER_SIZE, MAX_BUFFER_SIZE);
+                    state.timeout = timeouts.newTimeout(key);
+                    key.attach(state);
+                    updateTimeout(state);
+                } catch (IOException e) {
+                    connectionCount.decrementAndGet();
                     try {
-                        processor.processNio(key, state.writeBuffer.buffer);
-                    } finally {
-                        processorPool.releaseProcessor(processor);
+                        channel.close();
+                    } catch (IOException ignored) {
+                        // 忽略关闭错误
                     }
                 }
-            } catch (Exception e) {
-                log("Error in request processing: " + e.getMessage());
-                closeConnection(key);
             }
-        });
-    }
+        }
 
-    private void accept(SelectionKey key) throws IOException {
-        ServerSocketChannel server = (ServerSocketChannel) key.channel();
-        SocketChannel client = server.accept();
-        client.configureBlocking(false);
-        client.register(selector, SelectionKey.OP_READ);
-        connections.put(client, new ConnectionState(INITIAL_BUFFER_SIZE, MAX_BUFFER_SIZE));
-    }
+        private void runEvents() {
+            Runnable event;
+            while ((event = events.poll()) != null) {
+                try {
+                    event.run();
+                } catch (CancelledKeyException e) {
+                    // 连接已关闭，忽略
+                } catch (Exception e) {
+                    log("Error running poller event: " + e.getMessage());
+                }
+            }
+        }
 
-    private void read(SelectionKey key) throws IOException {
-        SocketChannel channel = (SocketChannel) key.channel();
-        ConnectionState state = connections.get(channel);
-        if (state == null) {
-            return;
+        private void processSelectedKeys() {
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+
+                try {
+                    if (!key.isValid()) continue;
+
+                    if (key.isWritable()) {
+                        write(key);
+                    }
+                    if (key.isValid() && key.isReadable()) {
+                        read(key);
+                    }
+                } catch (CancelledKeyException e) {
+                    closeConnection(key);
+                } catch (Exception e) {
+                    log("Error processing key: " + e.getMessage());
+                    closeConnection(key);
+                }
+            }
         }
 
-        ByteBuffer buffer = state.readBuffer.buffer;
-        int read = channel.read(buffer);
-        
-        if (read == -1) {
-            closeConnection(key);
-            return;
+        /**
+         * 根据连接当前所处的阶段重置超时：
+         * 请求头未读完用 headerReadTimeout，请求体未读完用 bodyReadTimeout，
+         * 两个请求之间的空闲用 keepAliveTimeout；工作线程处理期间不计时，
+         * 响应写不出去时沿用 headerReadTimeout 作为连接超时
+         */
+        private void updateTimeout(ConnectionState state) {
+            if (state.closed || state.timeout == null) {
+                return;
+            }
+            long timeout;
+            if (state.processing) {
+                timeouts.cancel(state.timeout);
+                return;
+            } else if (!state.outbound.isEmpty()) {
+                timeout = headerReadTimeout;
+            } else if (state.state != ConnectionState.State.READ_HEAD) {
+                timeout = bodyReadTimeout;
+            } else if (state.parser != null || state.completedRequests == 0) {
+                timeout = headerReadTimeout;
+            } else {
+                timeout = keepAliveTimeout;
+            }
+            timeouts.schedule(state.timeout, timeout, System.currentTimeMillis());
         }
 
-        buffer.flip();
-        processBuffer(key, state);
-        buffer.compact();
-    }
+        private void closeConnection(SelectionKey key) {
+            ConnectionState state = (ConnectionState) key.attachment();
+            if (state != null) {
+                timeouts.cancel(state.timeout);
+                state.releaseBuffers(bufferPool);
+                releaseParsers(state);
+                key.attach(null);
+                connectionCount.decrementAndGet();
+            }
+            try {
+                key.channel().close();
+            } catch (IOException e) {
+                // 忽略关闭错误
+            }
+            key.cancel();
+        }
 
-    private void processBuffer(SelectionKey key, ConnectionState state) throws IOException {
-        switch (state.state) {
-            case READ_REQUEST_LINE:
-                if (readLine(state.readBuffer.getBuffer(), state.requestLine)) {
-                    state.state = ConnectionState.State.READ_HEADERS;
+        private void close() {
+            if (!selector.isOpen()) {
+                return;
+            }
+            for (SelectionKey key : selector.keys()) {
+                closeConnection(key);
+            }
+            try {
+                selector.close();
+            } catch (IOException e) {
+                // 忽略关闭错误
+            }
+        }
+
+        private void setInterest(SelectionKey key, int ops, boolean enabled) {
+            if (!key.isValid()) {
+                return;
+            }
+            int current = key.interestOps();
+            int updated = enabled ? (current | ops) : (current & ~ops);
+            if (updated != current) {
+                key.interestOps(updated);
+            }
+        }
+
+        private void read(SelectionKey key) throws IOException {
+            SocketChannel channel = (SocketChannel) key.channel();
+            ConnectionState state = (ConnectionState) key.attachment();
+            if (state == null || state.closeAfterWrite) {
+                return;
+            }
+
+            ByteBuffer buffer = state.readBuffer.getBuffer();
+            if (!buffer.hasRemaining()) {
+                state.readBuffer.ensureCapacity(BUFFER_SIZE);
+                buffer = state.readBuffer.getBuffer();
+            }
+            int read = channel.read(buffer);
+
+            if (read == -1) {
+                // 对端半关闭：还有请求或响应在途时写完再关
+                if (state.processing || !state.outbound.isEmpty() || !state.pendingRequests.isEmpty()) {
+                    state.closeAfterWrite = true;
+                    setInterest(key, SelectionKey.OP_READ, false);
+                } else {
+                    closeConnection(key);
                 }
-                break;
-                
-            case READ_HEADERS:
-                StringBuilder line = new StringBuilder();
-                while (readLine(state.readBuffer.getBuffer(), line)) {
-                    if (line.length() == 0) {
-                        state.keepAlive = isKeepAlive(state.headers);
-                        state.state = ConnectionState.State.PROCESS_REQUEST;
-                        try {
-                            state.processor = processorPool.getProcessor(5000);
-                            key.interestOps(SelectionKey.OP_WRITE);
-                        } catch (InterruptedException e) {
-                            Thread.currentThread().interrupt();
-                            throw new IOException("Interrupted while getting processor", e);
+                return;
+            }
+
+            parseRequests(key, state);
+            dispatchNext(this, key, state);
+            updateTimeout(state);
+        }
+
+        /**
+         * 从读缓冲区中解析出尽可能多的完整请求放入队列
+         */
+        private void parseRequests(SelectionKey key, ConnectionState state) {
+            if (!state.readBuffer.isAllocated()) {
+                return;
+            }
+            ByteBuffer buffer = state.readBuffer.getBuffer();
+            buffer.flip();
+            try {
+                while (!state.closeAfterWrite && state.pendingRequests.size() < MAX_PIPELINED_REQUESTS) {
+                    if (!parseNext(state, buffer)) {
+                        break;
+                    }
+                }
+            } catch (HttpParseException e) {
+                sendErrorAndClose(key, state, e.getStatus(), e.getMessage());
+            } finally {
+                buffer.compact();
+            }
+            if (state.state == ConnectionState.State.READ_HEAD && state.parser != null && !state.parser.isStarted()) {
+                // 没有读到下一个请求的任何字节，连接空闲期间不占用解析器
+                returnParser(state.parser);
+                state.parser = null;
+            }
+
+            // 排队请求过多或缓冲区已满时暂停读取，由 onRequestComplete 恢复
+            boolean pause = state.pendingRequests.size() >= MAX_PIPELINED_REQUESTS
+                || (buffer.position() >= MAX_BUFFER_SIZE);
+            state.readPaused = pause;
+            setInterest(key, SelectionKey.OP_READ, !pause && !state.closeAfterWrite);
+            state.readBuffer.releaseIfEmpty();
+        }
+
+        /**
+         * 推进当前请求的解析状态机
+         * @return 完整解析出一个请求时返回 true
+         */
+        private boolean parseNext(ConnectionState state, ByteBuffer buffer) throws HttpParseException {
+            while (true) {
+                switch (state.state) {
+                    case READ_HEAD:
+                        if (!buffer.hasRemaining()) {
+                            return false;
+                        }
+                        if (state.parser == null) {
+                            state.parser = borrowParser();
+                        }
+                        if (!state.parser.parse(buffer)) {
+                            return false;
+                        }
+                        startBody(state);
+                        break;
+
+                    case READ_BODY: {
+                        int n = (int) Math.min(buffer.remaining(), state.bodyRemaining);
+                        copyBody(state, buffer, n);
+                        state.bodyRemaining -= n;
+                        if (state.bodyRemaining > 0) {
+                            return false;
+                        }
+                        completeRequest(state);
+                        return true;
+                    }
+
+                    case READ_CHUNK_SIZE:
+                        if (!readChunkSize(state, buffer)) {
+                            return false;
+                        }
+                        state.state = state.bodyRemaining == 0
+                            ? ConnectionState.State.READ_TRAILERS
+                            : ConnectionState.State.READ_CHUNK_DATA;
+                        break;
+
+                    case READ_CHUNK_DATA: {
+                        int n = (int) Math.min(buffer.remaining(), state.bodyRemaining);
+                        copyBody(state, buffer, n);
+                        state.bodyRemaining -= n;
+                        if (state.bodyRemaining > 0) {
+                            return false;
+                        }
+                        state.state = ConnectionState.State.READ_CHUNK_END;
+                        break;
+                    }
+
+                    case READ_CHUNK_END:
+                        // 块数据之后必须紧跟 CRLF
+                        while (buffer.hasRemaining()) {
+                            byte b = buffer.get();
+                            if (b == '\n') {
+                                state.state = ConnectionState.State.READ_CHUNK_SIZE;
+                                break;
+                            } else if (b != '\r') {
+                                throw new HttpParseException(400, "Invalid chunk terminator");
+                            }
+                        }
+                        if (state.state == ConnectionState.State.READ_CHUNK_END) {
+                            return false;
                         }
                         break;
+
+                    case READ_TRAILERS:
+                        if (!skipTrailers(state, buffer)) {
+                            return false;
+                        }
+                        completeRequest(state);
+                        return true;
+                }
+            }
+        }
+
+        private void startBody(ConnectionState state) throws HttpParseException {
+            HttpParser parser = state.parser;
+            long contentLength;
+            try {
+                contentLength = parser.getContentLength();
+            } catch (NumberFormatException e) {
+                throw new HttpParseException(400, "Invalid Content-Length");
+            }
+
+            if (parser.isChunked()) {
+                if (contentLength >= 0) {
+                    // RFC 7230 3.3.3：两者同时出现时前后端可能对请求边界理解不一致（请求走私），直接拒绝
+                    throw new HttpParseException(400, "Bad Request");
+                }
+                state.body = EMPTY_BODY;
+                state.state = ConnectionState.State.READ_CHUNK_SIZE;
+            } else if (contentLength > 0) {
+                if (contentLength > maxPostSize) {
+                    throw new HttpParseException(413, "Payload Too Large");
+                }
+                // 先分配一个读缓冲区大小，随数据到达再扩容，声明的长度不会提前占用内存
+                state.body = new byte[(int) Math.min(contentLength, BUFFER_SIZE)];
+                state.bodyRemaining = contentLength;
+                state.state = ConnectionState.State.READ_BODY;
+            } else {
+                state.state = ConnectionState.State.READ_BODY;
+                state.bodyRemaining = 0;
+            }
+        }
+
+        private void copyBody(ConnectionState state, ByteBuffer buffer, int n) throws HttpParseException {
+            if (n <= 0) {
+                return;
+            }
+            int needed = state.bodyLength + n;
+            if (needed > maxPostSize) {
+                throw new HttpParseException(413, "Payload Too Large");
+            }
+            if (needed > state.body.length) {
+                // 按倍数扩容；有 Content-Length 时不超过声明的长度，完成时无需再截断
+                int limit = state.state == ConnectionState.State.READ_BODY
+                    ? (int) (state.bodyLength + state.bodyRemaining) : maxPostSize;
+                state.body = Arrays.copyOf(state.body,
+                    Math.min(Math.max(needed, state.body.length * 2), limit));
+            }
+            buffer.get(state.body, state.bodyLength, n);
+            state.bodyLength = needed;
+        }
+
+        /**
+         * 逐字节解析块大小行（十六进制 + 可选扩展 + CRLF），结果放入 bodyRemaining
+         */
+        private boolean readChunkSize(ConnectionState state, ByteBuffer buffer) throws HttpParseException {
+            while (buffer.hasRemaining()) {
+                byte b = buffer.get();
+                if (b == '\n') {
+                    if (state.chunkDigits == 0) {
+                        throw new HttpParseException(400, "Invalid chunk size");
                     }
-                    parseHeader(line.toString(), state.headers);
-                    line.setLength(0);
+                    state.chunkDigits = 0;
+                    state.chunkExtension = false;
+                    return true;
                 }
-                break;
-                
-            case PROCESS_REQUEST:
-                if (state.processor != null) {
-                    state.processor.processNio(key, state.writeBuffer.getBuffer());
-                    state.state = ConnectionState.State.WRITE_RESPONSE;
+                if (state.chunkExtension || b == '\r') {
+                    continue;
                 }
-                break;
+                if (b == ';' || b == ' ' || b == '\t') {
+                    state.chunkExtension = true;
+                    continue;
+                }
+                int digit = Character.digit(b, 16);
+                if (digit < 0) {
+                    throw new HttpParseException(400, "Invalid chunk size");
+                }
+                state.bodyRemaining = (state.bodyRemaining << 4) | digit;
+                if (++state.chunkDigits > 8 || state.bodyRemaining > maxPostSize) {
+                    throw new HttpParseException(413, "Payload Too Large");
+                }
+            }
+            return false;
         }
-    }
 
-    private void write(SelectionKey key) throws IOException {
-        SocketChannel channel = (SocketChannel) key.channel();
-        ConnectionState state = connections.get(channel);
-        if (state == null) {
-            return;
+        /**
+         * 跳过最后一个块之后的 trailer 头，直到空行
+         */
+        private boolean skipTrailers(ConnectionState state, ByteBuffer buffer) throws HttpParseException {
+            while (buffer.hasRemaining()) {
+                byte b = buffer.get();
+                if (b == '\n') {
+                    if (state.trailerLineLength == 0) {
+                        return true;
+                    }
+                    state.trailerLineLength = 0;
+                } else if (b != '\r') {
+                    state.trailerLineLength++;
+                }
+                if (++state.trailerBytes > DEFAULT_MAX_HEADER_SIZE) {
+                    throw new HttpParseException(431, "Request Header Fields Too Large");
+                }
+            }
+            return false;
         }
 
-        ByteBuffer buffer = state.writeBuffer.buffer;
-        buffer.flip();
-        channel.write(buffer);
-        
-        if (!buffer.hasRemaining()) {
-            buffer.compact();
-            if (state.keepAlive) {
-                state.state = ConnectionState.State.READ_REQUEST_LINE;
-                key.interestOps(SelectionKey.OP_READ);
-            } else {
+        private void completeRequest(ConnectionState state) {
+            byte[] body = EMPTY_BODY;
+            if (state.body != null) {
+                body = state.bodyLength == state.body.length ? state.body : Arrays.copyOf(state.body, state.bodyLength);
+            }
+            boolean keepAlive = state.parser.isKeepAlive();
+            // 解析器连同请求头一起交给工作线程，下一个请求开始时再借用新的解析器
+            state.pendingRequests.offer(new PendingRequest(state.parser, body, keepAlive));
+            state.resetRequest();
+            if (!keepAlive) {
+                // Connection: close 之后的数据不再解析
+                state.closeAfterWrite = true;
+            }
+        }
+
+        private void sendErrorAndClose(SelectionKey key, ConnectionState state, int status, String message) {
+            String response = "HTTP/1.1 " + status + " " + message + "\r\n"
+                + "Content-Length: 0\r\n"
+                + "Connection: close\r\n\r\n";
+            state.closeAfterWrite = true;
+            clearPendingRequests(state);
+            if (!state.processing) {
+                state.outbound.offer(ByteBuffer.wrap(response.getBytes(StandardCharsets.ISO_8859_1)));
+                setInterest(key, SelectionKey.OP_WRITE, true);
+            }
+        }
+
+        private void write(SelectionKey key) throws IOException {
+            SocketChannel channel = (SocketChannel) key.channel();
+            ConnectionState state = (ConnectionState) key.attachment();
+            if (state == null) {
+                return;
+            }
+
+            Object item;
+            while ((item = state.outbound.peek()) != null) {
+                if (asBuffer(item) != null) {
+                    if (!writeGathered(channel, state)) {
+                        updateTimeout(state);
+                        return;
+                    }
+                } else {
+                    // 响应头写完后继续零拷贝发送文件，写满时等待下一次 OP_WRITE
+                    SendfileData sendfile = (SendfileData) item;
+                    if (!sendfile.transferTo(channel)) {
+                        updateTimeout(state);
+                        return;
+                    }
+                    state.outbound.poll();
+                    sendfile.close();
+                }
+            }
+
+            setInterest(key, SelectionKey.OP_WRITE, false);
+            if (state.closeAfterWrite && !state.processing && state.pendingRequests.isEmpty()) {
                 closeConnection(key);
+                return;
             }
+            updateTimeout(state);
         }
-    }
 
-    private boolean readLine(ByteBuffer buffer, StringBuilder line) {
-        while (buffer.hasRemaining()) {
-            char c = (char) buffer.get();
-            if (c == '\n') {
-                if (line.length() > 0 && line.charAt(line.length() - 1) == '\r') {
-                    line.setLength(line.length() - 1);
+        /**
+         * 把队首连续的内存数据（响应头、响应体缓冲区、映射文件切片）用一次 gathering write 写出，
+         * 写完的项出队并释放
+         * @return 这些数据全部写完返回 true；通道写满时返回 false
+         */
+        private boolean writeGathered(SocketChannel channel, ConnectionState state) throws IOException {
+            int count = 0;
+            for (Object item : state.outbound) {
+                ByteBuffer buffer = asBuffer(item);
+                if (buffer == null || count == gather.length) {
+                    break;
+                }
+                gather[count++] = buffer;
+            }
+            try {
+                channel.write(gather, 0, count);
+                for (int i = 0; i < count; i++) {
+                    if (gather[i].hasRemaining()) {
+                        return false;
+                    }
+                    Object item = state.outbound.poll();
+                    if (item instanceof ByteBuffer) {
+                        bufferPool.release((ByteBuffer) item);
+                    } else {
+                        ((SendfileData) item).close();
+                    }
                 }
                 return true;
+            } finally {
+                Arrays.fill(gather, 0, count, null);
             }
-            line.append(c);
         }
-        return false;
+
+        /**
+         * 工作线程处理完一个请求后在 Poller 线程上回调：
+         * 回收请求的解析器、追加文件发送、决定是否复用连接，并派发下一个排队的请求
+         */
+        private void onRequestComplete(SelectionKey key, ConnectionState state, PendingRequest request,
+                                       SendfileData sendfile, boolean keepAlive) {
+            state.processing = false;
+            // Processor 已归还，Request 不再引用该解析器
+            returnParser(request.parser);
+            state.completedRequests++;
+            if (!key.isValid() || state.closed) {
+                if (sendfile != null) {
+                    try {
+                        sendfile.close();
+                    } catch (IOException ignored) {
+                        // 忽略关闭错误
+                    }
+                }
+                return;
+            }
+            if (sendfile != null) {
+                state.outbound.offer(sendfile);
+            }
+            if (!keepAlive) {
+                state.closeAfterWrite = true;
+                clearPendingRequests(state);
+            }
+            setInterest(key, SelectionKey.OP_WRITE, true);
+            if (!state.closeAfterWrite || !state.pendingRequests.isEmpty()) {
+                if (state.readPaused) {
+                    // 之前因队列已满暂停读取，继续解析缓冲区中剩余的数据
+                    parseRequests(key, state);
+                }
+                dispatchNext(this, key, state);
+            }
+            updateTimeout(state);
+        }
     }
 
-    private void parseHeader(String line, Map<String, String> headers) {
-        int colonPos = line.indexOf(':');
-        if (colonPos > 0) {
-            String name = line.substring(0, colonPos).trim().toLowerCase();
-            String value = line.substring(colonPos + 1).trim();
-            headers.put(name, value);
+    /**
+     * 可以直接写出的内存数据：池化缓冲区或映射文件切片，否则返回 null
+     */
+    private static ByteBuffer asBuffer(Object item) {
+        if (item instanceof ByteBuffer) {
+            return (ByteBuffer) item;
         }
+        return item instanceof SendfileData ? ((SendfileData) item).getMappedSlice() : null;
     }
 
-    private boolean isKeepAlive(Map<String, String> headers) {
-        String connection = headers.get("connection");
-        if ("close".equalsIgnoreCase(connection)) {
-            return false;
+    private HttpParser borrowParser() {
+        HttpParser parser = parsers.poll();
+        return parser != null ? parser : new HttpParser(DEFAULT_MAX_HEADER_SIZE);
+    }
+
+    private void returnParser(HttpParser parser) {
+        parser.recycle();
+        parsers.offer(parser);
+    }
+
+    /**
+     * 丢弃排队中尚未处理的请求，归还它们的解析器；只在 Poller 线程上调用
+     */
+    private void clearPendingRequests(ConnectionState state) {
+        PendingRequest request;
+        while ((request = state.pendingRequests.poll()) != null) {
+            returnParser(request.parser);
+        }
+    }
+
+    /**
+     * 连接关闭时归还正在解析和排队中的解析器，正在工作线程上处理的那个由 onRequestComplete 归还
+     */
+    private void releaseParsers(ConnectionState state) {
+        if (state.parser != null) {
+            returnParser(state.parser);
+            state.parser = null;
+        }
+        clearPendingRequests(state);
+    }
+
+    /**
+     * 同一连接上同一时刻只处理一个请求，保证响应顺序与请求顺序一致
+     */
+    private void dispatchNext(Poller poller, SelectionKey key, ConnectionState state) {
+        if (state.processing) {
+            return;
+        }
+        PendingRequest request = state.pendingRequests.poll();
+        if (request == null) {
+            return;
+        }
+        state.processing = true;
+        if (!getExecutor().tryExecute(() -> processRequest(poller, key, state, request))) {
+            // 线程池已满，在 Poller 线程上直接回复 503，不在这里执行请求
+            state.processing = false;
+            returnParser(request.parser);
+            poller.sendErrorAndClose(key, state, 503, "Service Unavailable");
         }
-        return true; // HTTP/1.1 默认 keep-alive
     }
 
-    private void closeConnection(SelectionKey key) {
-        SocketChannel channel = (SocketChannel) key.channel();
-        connections.remove(channel);
+    // 在工作线程上执行耗时的请求处理
+    private void processRequest(Poller poller, SelectionKey key, ConnectionState state, PendingRequest request) {
+        NioOutputStream output = new NioOutputStream(poller, key, state);
+        SendfileData sendfile = null;
+        boolean keepAlive = false;
         try {
-            channel.close();
-        } catch (IOException e) {
-            // 忽略关闭错误
+            Processor processor = processorPool.getProcessor(5000);
+            if (processor == null) {
+                output.write(("HTTP/1.1 503 Service Unavailable\r\n"
+                    + "Content-Length: 0\r\nConnection: close\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1));
+            } else {
+                try {
+                    Response response = processor.processNio(request.parser, request.body, output,
+                        (SocketChannel) key.channel(), sendfileThreshold);
+                    if (response != null) {
+                        sendfile = response.takeSendfileData();
+                        // 响应体没有明确边界时只能通过关闭连接来结束
+                        keepAlive = request.keepAlive && response.isBodyDelimited();
+                    }
+                } finally {
+                    processorPool.releaseProcessor(processor);
+                }
+            }
+        } catch (Exception e) {
+            log("Error in request processing: " + e.getMessage());
+            keepAlive = false;
+        } finally {
+            try {
+                output.close();
+            } catch (IOException ignored) {
+                // 连接已不可写
+            }
+        }
+        final SendfileData pendingSendfile = sendfile;
+        final boolean reuse = keepAlive;
+        poller.addEvent(() -> poller.onRequestComplete(key, state, request, pendingSendfile, reuse));
+    }
+
+    /**
+     * 工作线程使用的响应输出流：数据写入池化缓冲区，写满或 flush 时交给 Poller 按顺序发送
+     */
+    private class NioOutputStream extends OutputStream {
+        private final Poller poller;
+        private final SelectionKey key;
+        private final ConnectionState state;
+        private ByteBuffer buffer;
+
+        NioOutputStream(Poller poller, SelectionKey key, ConnectionState state) {
+            this.poller = poller;
+            this.key = key;
+            this.state = state;
+        }
+
+        private ByteBuffer buffer() {
+            if (buffer == null) {
+                buffer = bufferPool.acquire(BUFFER_SIZE);
+            }
+            return buffer;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (!buffer().hasRemaining()) {
+                push();
+            }
+            buffer().put((byte) b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (!buffer().hasRemaining()) {
+                    push();
+                }
+                ByteBuffer target = buffer();
+                int chunk = Math.min(len, target.remaining());
+                target.put(b, off, chunk);
+                off += chunk;
+                len -= chunk;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (buffer != null && buffer.position() > 0) {
+                push();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+            if (buffer != null) {
+                bufferPool.release(buffer);
+                buffer = null;
+            }
+        }
+
+        private void push() throws IOException {
+            ByteBuffer full = buffer;
+            buffer = null;
+            full.flip();
+            if (state.closed) {
+                bufferPool.release(full);
+                throw new ClosedChannelException();
+            }
+            state.outbound.offer(full);
+            if (state.closed) {
+                // Poller 可能在检查之后、入队之前关闭连接并清空了队列，刚入队的缓冲区由这里回收
+                state.drainOutbound(bufferPool);
+                throw new ClosedChannelException();
+            }
+            poller.addEvent(() -> poller.setInterest(key, SelectionKey.OP_WRITE, true));
         }
-        key.cancel();
     }
 
     @Override
     public void stop() throws Exception {
         running = false;
-        if (selector != null) {
-            selector.close();
-        }
         if (serverChannel != null) {
             serverChannel.close();
         }
+        if (pollers != null) {
+            // Poller 线程在退出事件循环时自行关闭连接和 Selector
+            for (Poller poller : pollers) {
+                poller.selector.wakeup();
+            }
+        }
     }
 
     @Override
@@ -314,37 +1071,87 @@ public class Http11NioProtocol extends AbstractProtocol {
         this.processorPool = processorPool;
     }
 
-    private void log(String message) {
-        System.out.printf("[Http11NioProtocol] %s%n", message);
+    public void setBufferPool(ByteBufferPool bufferPool) {
+        this.bufferPool = bufferPool;
     }
 
-    private void startCleanupThread() {
-        Thread cleanup = new Thread(() -> {
-            while (running) {
-                try {
-                    Thread.sleep(1000);
-                    long now = System.currentTimeMillis();
-                    connections.forEach((channel, state) -> {
-                        if (now - state.lastActiveTime > DEFAULT_KEEP_ALIVE_TIMEOUT) {
-                            closeConnection(channel.keyFor(selector));
-                        }
-                    });
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    break;
-                }
-            }
-        });
-        cleanup.setDaemon(true);
-        cleanup.start();
+    public ByteBufferPool getBufferPool() {
+        return bufferPool;
+    }
+
+    public void setSendfileThreshold(long sendfileThreshold) {
+        this.sendfileThreshold = sendfileThreshold;
+    }
+
+    public void setHeaderReadTimeout(long headerReadTimeout) {
+        this.headerReadTimeout = headerReadTimeout;
+    }
+
+    public void setBodyReadTimeout(long bodyReadTimeout) {
+        this.bodyReadTimeout = bodyReadTimeout;
+    }
+
+    public void setKeepAliveTimeout(long keepAliveTimeout) {
+        this.keepAliveTimeout = keepAliveTimeout;
+    }
+
+    public int getPollerCount() {
+        return pollerCount;
     }
 
-    private void processTimeouts() {
-        long now = System.currentTimeMillis();
-        connections.forEach((channel, state) -> {
-            if (now - state.lastActiveTime > DEFAULT_KEEP_ALIVE_TIMEOUT) {
-                closeConnection(channel.keyFor(selector));
+    public void setPollerCount(int pollerCount) {
+        if (pollerCount <= 0) {
+            throw new IllegalArgumentException("pollerCount must be > 0");
+        }
+        this.pollerCount = pollerCount;
+    }
+
+    public void setPollerSelection(ServerConfig.PollerSelection pollerSelection) {
+        this.pollerSelection = pollerSelection;
+    }
+
+    public void setMaxPostSize(int maxPostSize) {
+        if (maxPostSize < 0) {
+            throw new IllegalArgumentException("maxPostSize must be >= 0");
+        }
+        this.maxPostSize = maxPostSize;
+    }
+
+    /**
+     * 当前所有 Poller 上的连接总数
+     */
+    public int getConnectionCount() {
+        int total = 0;
+        if (pollers != null) {
+            for (Poller poller : pollers) {
+                total += poller.getConnectionCount();
             }
-        });
+        }
+        return total;
+    }
+
+    /**
+     * 每个 Poller 上的连接数，按 Poller 编号排列；未初始化时返回空数组
+     */
+    public int[] getPollerConnectionCounts() {
+        if (pollers == null) {
+            return new int[0];
+        }
+        int[] counts = new int[pollers.length];
+        for (int i = 0; i < pollers.length; i++) {
+            counts[i] = pollers[i].getConnectionCount();
+        }
+        return counts;
+    }
+
+    /**
+     * 当前空闲可借用的请求头解析器数量
+     */
+    public int getPooledParserCount() {
+        return parsers.size();
+    }
+
+    private void log(String message) {
+        LOG.info(message);
     }
-} 
\ No newline at end of file
+}
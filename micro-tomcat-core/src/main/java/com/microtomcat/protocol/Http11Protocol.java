@@ -1,18 +1,18 @@
 package com.microtomcat.protocol;
 
+import com.microtomcat.logging.Log;
 import com.microtomcat.processor.ProcessorPool;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.util.concurrent.TimeUnit;
+import java.nio.charset.StandardCharsets;
 import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.net.BindException;
 import javax.servlet.http.HttpServletResponse;
+import com.microtomcat.connector.HttpParseException;
 import com.microtomcat.connector.Request;
 import com.microtomcat.connector.Response;
 import com.microtomcat.container.Context;
@@ -24,42 +24,40 @@ import com.microtomcat.net.ServerSocketFactory;
 import com.microtomcat.net.DefaultServerSocketFactory;
 
 public class Http11Protocol extends AbstractProtocol {
+    private static final Log LOG = Log.getLog(Http11Protocol.class);
     // HTTP/1.1 specific constants
     private static final String HTTP_11 = "HTTP/1.1";
     private static final int DEFAULT_MAX_HEADER_SIZE = 8 * 1024;
     private static final int DEFAULT_MAX_POST_SIZE = 1 * 1024 * 1024;
     private static final int DEFAULT_SOCKET_TIMEOUT = 10000;
     private static final int DEFAULT_KEEP_ALIVE_TIMEOUT = 15000;
-    private static final int DEFAULT_THREAD_POOL_SIZE = 50;
     private static final int DEFAULT_MAX_CONNECTIONS = 1000;
-    
-    private static final int CORE_POOL_SIZE = 5;
-    private static final int MAX_POOL_SIZE = 50;
-    private static final int QUEUE_CAPACITY = 30;
-    private static final long KEEP_ALIVE_TIME = 30L;
+    // 空闲的请求/响应对最多保留这么多，超出的在归还时丢弃
+    private static final int MAX_POOLED_EXCHANGES = 256;
+    // 线程池已满时直接由接收线程回复，不读取请求
+    private static final byte[] SERVICE_UNAVAILABLE = ("HTTP/1.1 503 Service Unavailable\r\n"
+        + "Retry-After: 1\r\nContent-Length: 0\r\nConnection: close\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1);
 
     private ServerSocket serverSocket;
-    private final ThreadPoolExecutor executorService;
-    private ProcessorPool processorPool;
-    private volatile boolean running;
-    private final BlockingQueue<Runnable> taskQueue;
     private final AtomicInteger currentConnections = new AtomicInteger(0);
     private Engine engine;
-    private SessionManager sessionManager;
+    private volatile SessionManager sessionManager;
     private Context context;
     private final ServerSocketFactory serverSocketFactory;
+    private long sendfileThreshold = Response.DEFAULT_SENDFILE_THRESHOLD;
+    private int maxPostSize = DEFAULT_MAX_POST_SIZE;
+    // 请求/响应对象成对借用、回收后归还；不按线程复用，虚拟线程模式下每个任务都是新线程，ThreadLocal 无法复用
+    private final ArrayBlockingQueue<Exchange> exchanges = new ArrayBlockingQueue<>(MAX_POOLED_EXCHANGES);
+
+    private final class Exchange {
+        // Request 创建时绑定会话管理器，管理器更换后旧的请求/响应对不再借出
+        final SessionManager sessionManager = Http11Protocol.this.sessionManager;
+        final Request request = new Request(sessionManager);
+        final Response response = new Response();
+    }
+
     //TODO: Connector -> ProtocolHandler -> Endpoint -> ServerSocketFactory
     public Http11Protocol() {
-        // 使用有界队列和合理的线程池配置
-        this.taskQueue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
-        this.executorService = new ThreadPoolExecutor(
-            CORE_POOL_SIZE,
-            MAX_POOL_SIZE,
-            KEEP_ALIVE_TIME,
-            TimeUnit.SECONDS,
-            taskQueue,
-            new ThreadPoolExecutor.CallerRunsPolicy()  // 使用调用者运行策略而不是直接拒绝
-        );
         this.serverSocketFactory = new DefaultServerSocketFactory();
     }
 
@@ -87,20 +85,19 @@ public class Http11Protocol extends AbstractProtocol {
             while (!Thread.currentThread().isInterrupted()) {
                 try {
                     Socket socket = serverSocket.accept();
-                    log("New connection accepted from: " + socket.getInetAddress());
-                    executorService.execute(() -> {
+                    LOG.debug("New connection accepted from: {}", socket.getInetAddress());
+                    boolean accepted = getExecutor().tryExecute(() -> {
                         try {
                             handleRequest(socket);
                         } catch (Exception e) {
                             log("Error processing request: " + e.getMessage());
                         } finally {
-                            try {
-                                socket.close();
-                            } catch (IOException e) {
-                                log("Error closing socket: " + e.getMessage());
-                            }
+                            closeQuietly(socket);
                         }
                     });
+                    if (!accepted) {
+                        rejectConnection(socket);
+                    }
                 } catch (IOException e) {
                     if (Thread.currentThread().isInterrupted()) {
                         break;
@@ -113,63 +110,108 @@ public class Http11Protocol extends AbstractProtocol {
         }
     }
 
+    /**
+     * 线程池已满：回复 503 并关闭连接，接收线程不处理请求本身
+     */
+    private void rejectConnection(Socket socket) {
+        try {
+            socket.getOutputStream().write(SERVICE_UNAVAILABLE);
+        } catch (IOException e) {
+            LOG.debug("Failed to send 503 to {}: {}", socket.getInetAddress(), e.getMessage());
+        } finally {
+            closeQuietly(socket);
+        }
+    }
+
+    private void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            log("Error closing socket: " + e.getMessage());
+        }
+    }
+
     public void handleRequest(Socket socket) throws IOException {
+        Exchange exchange = exchanges.poll();
+        if (exchange == null || exchange.sessionManager != sessionManager) {
+            exchange = new Exchange();
+        }
+        Request request = exchange.request;
+        Response response = exchange.response;
         try (InputStream input = socket.getInputStream();
              OutputStream output = socket.getOutputStream()) {
             
-            Request request = new Request(input, sessionManager);
-            Response response = new Response(output);
+            request.setInputStream(input);
+            request.setMaxPostSize(maxPostSize);
+            response.setOutputStream(output);
+            response.setSendfileThreshold(sendfileThreshold);
+            if (socket.getChannel() != null) {
+                response.setSocketChannel(socket.getChannel(), false);
+            }
             
-            request.parse();
+            try {
+                request.parse();
+            } catch (HttpParseException e) {
+                log("Malformed request: " + e.getMessage());
+                response.sendError(e.getStatus(), e.getMessage());
+                return;
+            }
             
-            log("Handling request: " + request.getRequestURI());
+            response.setChunkingAllowed(HTTP_11.equals(request.getProtocol()));
+            response.setAcceptEncoding(request.getHeader("Accept-Encoding"));
+            LOG.debug("Handling request: {}", request.getRequestURI());
             
-            log("Using context: " + (context != null ? context.getName() : "null"));
+            LOG.debug("Using context: {}", context != null ? context.getName() : null);
             
             if (context != null) {
                 try {
                     request.setContext(context);
                     context.invoke(request, response);
-                    if (!response.isCommitted()) {
-                        response.setStatus(HttpServletResponse.SC_OK);
-                    }
                 } catch (Exception e) {
                     log("Error processing request: " + e.getMessage());
-                    response.setContentType("text/plain");
-                    response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
-                    String errorMsg = "500 Internal Server Error: " + e.getMessage() + "\n";
-                    output.write(errorMsg.getBytes());
+                    if (!response.isCommitted()) {
+                        sendPlainError(response, HttpServletResponse.SC_INTERNAL_SERVER_ERROR,
+                            "500 Internal Server Error: " + e.getMessage());
+                    }
                 }
             } else {
-                response.setContentType("text/plain");
-                response.setStatus(HttpServletResponse.SC_NOT_FOUND);
-                String errorMsg = "404 Not Found: " + request.getRequestURI() + "\n";
-                output.write(errorMsg.getBytes());
+                sendPlainError(response, HttpServletResponse.SC_NOT_FOUND,
+                    "404 Not Found: " + request.getRequestURI());
             }
-            response.flushBuffer();
+            response.finishResponse();
+        } finally {
+            request.recycle();
+            response.recycle();
+            exchanges.offer(exchange);
         }
     }
 
 
+    /**
+     * 以纯文本写出错误信息，内容经过响应缓冲区，由 finishResponse 统一提交
+     */
+    private void sendPlainError(Response response, int status, String message) throws IOException {
+        response.resetBuffer();
+        response.setStatus(status);
+        response.setContentType("text/plain");
+        response.getWriter().write(message + "\n");
+    }
+
     @Override
     public void stop() throws Exception {
-        running = false;
         if (serverSocket != null) {
             serverSocket.close();
         }
-        executorService.shutdown();
-        if (!executorService.awaitTermination(60, TimeUnit.SECONDS)) {
-            executorService.shutdownNow();
-        }
+        // 线程池可能被其他连接器共用，由创建者负责关闭
     }
 
     @Override
     public void setProcessorPool(ProcessorPool processorPool) {
-        this.processorPool = processorPool;
+        // 阻塞连接器直接在工作线程上使用池化的请求/响应对，不需要 ProcessorPool
     }
 
     private void log(String message) {
-        System.out.printf("[Http11Protocol] %s%n", message);
+        LOG.info(message);
     }
 
     private String readLine(InputStream input) throws IOException {
@@ -189,9 +231,29 @@ public class Http11Protocol extends AbstractProtocol {
 
     public void setSessionManager(SessionManager sessionManager) {
         this.sessionManager = sessionManager;
+        // 丢弃绑定旧管理器的请求/响应对；正在使用中的那些归还后在下次借出时被丢弃
+        exchanges.clear();
     }
 
     public void setContext(Context context) {
         this.context = context;
     }
+
+    public void setSendfileThreshold(long sendfileThreshold) {
+        this.sendfileThreshold = sendfileThreshold;
+    }
+
+    /**
+     * 当前空闲可借用的请求/响应对数量
+     */
+    public int getPooledExchangeCount() {
+        return exchanges.size();
+    }
+
+    public void setMaxPostSize(int maxPostSize) {
+        if (maxPostSize < 0) {
+            throw new IllegalArgumentException("maxPostSize must be >= 0");
+        }
+        this.maxPostSize = maxPostSize;
+    }
 } 
\ No newline at end of file
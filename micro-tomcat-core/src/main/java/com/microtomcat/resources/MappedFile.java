@@ -0,0 +1,127 @@
+package com.microtomcat.resources;
+
+import com.microtomcat.logging.Log;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * MappedFilePool 中的一个只读文件映射，带引用计数。
+ * 池本身持有一个引用，每个正在发送的响应各持有一个；池淘汰它、且所有响应都 release 之后才解除映射，
+ * 因此已经交给连接器的切片在写完之前始终有效。
+ */
+public final class MappedFile {
+    private static final Log LOG = Log.getLog(MappedFile.class);
+    private static final Unmapper UNMAPPER = Unmapper.create();
+
+    private final Path path;
+    private final String etag;
+    private final MappedByteBuffer buffer;
+    private final AtomicInteger refs = new AtomicInteger(1);
+    private final Runnable onUnmap;
+
+    MappedFile(Path path, String etag, MappedByteBuffer buffer, Runnable onUnmap) {
+        this.path = path;
+        this.etag = etag;
+        this.buffer = buffer;
+        this.onUnmap = onUnmap;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    String getETag() {
+        return etag;
+    }
+
+    public long getSize() {
+        return buffer.capacity();
+    }
+
+    /**
+     * 增加一个引用，已经解除映射时返回 false
+     */
+    boolean retain() {
+        for (;;) {
+            int count = refs.get();
+            if (count == 0) {
+                return false;
+            }
+            if (refs.compareAndSet(count, count + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 释放一个引用，最后一个引用释放时解除映射；之后不得再使用从这里取得的切片
+     */
+    public void release() {
+        if (refs.decrementAndGet() == 0) {
+            UNMAPPER.unmap(buffer);
+            onUnmap.run();
+        }
+    }
+
+    boolean isUnmapped() {
+        return refs.get() == 0;
+    }
+
+    /**
+     * 文件中 [offset, offset + length) 部分的只读视图，调用方必须持有引用
+     */
+    public ByteBuffer slice(long offset, long length) {
+        ByteBuffer view = buffer.duplicate();
+        view.position((int) offset);
+        view.limit((int) (offset + length));
+        return view.slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * 立即释放映射内存，不支持时留给 GC：
+     * Java 9 之后通过 Unsafe.invokeCleaner，Java 8 通过 DirectBuffer.cleaner().clean()
+     */
+    private interface Unmapper {
+        void unmap(ByteBuffer buffer);
+
+        static Unmapper create() {
+            try {
+                Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+                Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+                Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+                theUnsafe.setAccessible(true);
+                Object unsafe = theUnsafe.get(null);
+                return buffer -> invoke(invokeCleaner, unsafe, buffer);
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                // Java 8
+            }
+            try {
+                Method cleaner = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+                Method clean = Class.forName("sun.misc.Cleaner").getMethod("clean");
+                return buffer -> {
+                    Object c = invoke(cleaner, buffer);
+                    if (c != null) {
+                        invoke(clean, c);
+                    }
+                };
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                LOG.warn("Explicit unmapping is not supported, mapped files are released by GC");
+                return buffer -> { };
+            }
+        }
+
+        static Object invoke(Method method, Object target, Object... args) {
+            try {
+                return method.invoke(target, args);
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                LOG.debug("Failed to unmap buffer: {}", e.getMessage());
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.microtomcat.resources;
+
+import com.microtomcat.jmx.MBeanRegistry;
+import com.microtomcat.logging.Log;
+
+import javax.management.JMException;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 只读文件映射池，介于 StaticResourceCache 和 transferTo 之间：
+ * 内容放不进堆缓存、但不超过 maxFileSize 的文件映射一次后反复使用，省去每个请求的 open/read。
+ * 映射总字节数不超过 maxMappedBytes，超出时按 LRU 淘汰；被淘汰的映射等正在发送的响应都释放后才解除。
+ * 文件变化（ETag 不同）时重新映射。共享实例注册为 com.microtomcat:type=MappedFilePool。
+ */
+public final class MappedFilePool implements MappedFilePoolMBean {
+    private static final Log LOG = Log.getLog(MappedFilePool.class);
+
+    public static final long DEFAULT_MAX_MAPPED_BYTES = 256L * 1024 * 1024;
+    public static final long DEFAULT_MAX_FILE_SIZE = 16L * 1024 * 1024;
+
+    private static final MappedFilePool SHARED = new MappedFilePool();
+    private static volatile boolean registered;
+
+    // 访问顺序的 LinkedHashMap，由 this 保护
+    private final LinkedHashMap<Path, MappedFile> files = new LinkedHashMap<>(16, 0.75f, true);
+    private long mappedBytes;
+
+    private volatile long maxMappedBytes;
+    private volatile long maxFileSize;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder unmaps = new LongAdder();
+
+    public MappedFilePool() {
+        this(DEFAULT_MAX_MAPPED_BYTES, DEFAULT_MAX_FILE_SIZE);
+    }
+
+    public MappedFilePool(long maxMappedBytes, long maxFileSize) {
+        setMaxMappedBytes(maxMappedBytes);
+        setMaxFileSize(maxFileSize);
+    }
+
+    public static MappedFilePool getShared() {
+        if (!registered) {
+            register();
+        }
+        return SHARED;
+    }
+
+    private static synchronized void register() {
+        if (registered) {
+            return;
+        }
+        registered = true;
+        try {
+            new MBeanRegistry().registerMBean(SHARED, "MappedFilePool");
+        } catch (JMException e) {
+            LOG.warn("Failed to register MBean: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 取得资源的映射并增加一个引用，用完后必须调用 MappedFile.release()。
+     * 资源不适合映射（不是文件、为空、超过大小限制）或映射失败时返回 null，调用方改用其他方式发送
+     */
+    public MappedFile acquire(StaticResource resource) {
+        long length = resource.getLength();
+        if (!resource.isFile() || length == 0 || length > maxFileSize || length > maxMappedBytes) {
+            return null;
+        }
+        Path path = resource.getPath();
+        synchronized (this) {
+            MappedFile existing = files.get(path);
+            if (existing != null && existing.getETag().equals(resource.getETag()) && existing.retain()) {
+                hits.increment();
+                return existing;
+            }
+        }
+
+        misses.increment();
+        MappedFile mapped;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // 文件在 stat 之后被截断时映射会越界，放弃这次映射
+            if (channel.size() < length) {
+                return null;
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            mapped = new MappedFile(path, resource.getETag(), buffer, unmaps::increment);
+        } catch (IOException e) {
+            LOG.debug("Failed to map {}: {}", path, e.getMessage());
+            return null;
+        }
+        // 池持有创建时的引用，调用方另外持有一个
+        mapped.retain();
+        synchronized (this) {
+            MappedFile previous = files.put(path, mapped);
+            if (previous != null) {
+                mappedBytes -= previous.getSize();
+                previous.release();
+            }
+            mappedBytes += mapped.getSize();
+            evict();
+        }
+        return mapped;
+    }
+
+    // 从最久未使用的映射开始淘汰，释放池持有的引用
+    private synchronized void evict() {
+        Iterator<Map.Entry<Path, MappedFile>> it = files.entrySet().iterator();
+        while (mappedBytes > maxMappedBytes && it.hasNext()) {
+            MappedFile file = it.next().getValue();
+            it.remove();
+            mappedBytes -= file.getSize();
+            evictions.increment();
+            file.release();
+        }
+    }
+
+    /**
+     * 释放池持有的所有映射
+     */
+    public synchronized void clear() {
+        for (MappedFile file : files.values()) {
+            file.release();
+        }
+        files.clear();
+        mappedBytes = 0;
+    }
+
+    @Override
+    public long getMaxMappedBytes() {
+        return maxMappedBytes;
+    }
+
+    @Override
+    public void setMaxMappedBytes(long maxMappedBytes) {
+        if (maxMappedBytes < 0) {
+            throw new IllegalArgumentException("maxMappedBytes must be >= 0");
+        }
+        this.maxMappedBytes = maxMappedBytes;
+        evict();
+    }
+
+    @Override
+    public long getMaxFileSize() {
+        return maxFileSize;
+    }
+
+    @Override
+    public void setMaxFileSize(long maxFileSize) {
+        if (maxFileSize < 0 || maxFileSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("maxFileSize must be between 0 and " + Integer.MAX_VALUE);
+        }
+        this.maxFileSize = maxFileSize;
+    }
+
+    @Override
+    public synchronized int getMappedFileCount() {
+        return files.size();
+    }
+
+    @Override
+    public synchronized long getMappedBytes() {
+        return mappedBytes;
+    }
+
+    @Override
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    @Override
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    @Override
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    @Override
+    public long getUnmapCount() {
+        return unmaps.sum();
+    }
+}
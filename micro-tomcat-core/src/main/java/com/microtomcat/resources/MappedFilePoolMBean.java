@@ -0,0 +1,22 @@
+package com.microtomcat.resources;
+
+/**
+ * MappedFilePool 的 JMX 管理接口
+ */
+public interface MappedFilePoolMBean {
+    // 配置
+    long getMaxMappedBytes();
+    void setMaxMappedBytes(long maxMappedBytes);
+    long getMaxFileSize();
+    void setMaxFileSize(long maxFileSize);
+
+    // 当前状态
+    int getMappedFileCount();
+    long getMappedBytes();
+
+    // 累计统计
+    long getHitCount();
+    long getMissCount();
+    long getEvictionCount();
+    long getUnmapCount();
+}
@@ -0,0 +1,47 @@
+package com.microtomcat.resources;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 按文件扩展名确定 MIME 类型，未知扩展名返回 application/octet-stream
+ */
+public final class MimeTypes {
+    public static final String DEFAULT = "application/octet-stream";
+
+    private static final Map<String, String> TYPES = new HashMap<>();
+
+    static {
+        TYPES.put("html", "text/html");
+        TYPES.put("htm", "text/html");
+        TYPES.put("txt", "text/plain");
+        TYPES.put("css", "text/css");
+        TYPES.put("js", "application/javascript");
+        TYPES.put("json", "application/json");
+        TYPES.put("xml", "application/xml");
+        TYPES.put("svg", "image/svg+xml");
+        TYPES.put("jpg", "image/jpeg");
+        TYPES.put("jpeg", "image/jpeg");
+        TYPES.put("png", "image/png");
+        TYPES.put("gif", "image/gif");
+        TYPES.put("ico", "image/x-icon");
+        TYPES.put("webp", "image/webp");
+        TYPES.put("woff", "font/woff");
+        TYPES.put("woff2", "font/woff2");
+        TYPES.put("pdf", "application/pdf");
+        TYPES.put("mp4", "video/mp4");
+    }
+
+    private MimeTypes() {
+    }
+
+    public static String getMimeType(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        if (dot < 0 || dot == fileName.length() - 1) {
+            return DEFAULT;
+        }
+        String type = TYPES.get(fileName.substring(dot + 1).toLowerCase(Locale.ROOT));
+        return type != null ? type : DEFAULT;
+    }
+}
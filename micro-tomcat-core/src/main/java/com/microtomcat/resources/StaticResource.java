@@ -0,0 +1,148 @@
+package com.microtomcat.resources;
+
+import com.microtomcat.connector.HttpDate;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+/**
+ * 静态资源某一时刻的快照：是否存在、类型、长度、修改时间、ETag 和 MIME 类型。
+ * 足够小的文件同时持有内容，发送时不再读文件；大文件只有元数据，内容由调用方从 path 读取。
+ * 编码版本（预压缩文件或压缩后的缓存内容）保留原资源的 MIME 类型，带有 Content-Encoding 和独立的 ETag。
+ * 实例不可变，文件变化后缓存会换成新的实例。
+ */
+public final class StaticResource {
+    private final Path path;
+    private final boolean exists;
+    private final boolean directory;
+    private final long length;
+    private final long lastModified;
+    private final String etag;
+    private final String lastModifiedHttpDate;
+    private final String mimeType;
+    private final String contentEncoding;
+    private final ByteBuffer content;
+
+    private StaticResource(Path path, boolean exists, boolean directory, long length, long lastModified,
+                           ByteBuffer content) {
+        this(path, exists, directory, length, lastModified, content,
+            exists && !directory ? MimeTypes.getMimeType(path.getFileName().toString()) : null, null);
+    }
+
+    private StaticResource(Path path, boolean exists, boolean directory, long length, long lastModified,
+                           ByteBuffer content, String mimeType, String contentEncoding) {
+        this.path = path;
+        this.exists = exists;
+        this.directory = directory;
+        this.length = length;
+        this.lastModified = lastModified;
+        this.content = content != null ? content.asReadOnlyBuffer() : null;
+        boolean file = exists && !directory;
+        // 与 nginx 相同的强 ETag："修改时间-长度"，两者都不变时内容视为不变
+        // 编码版本在 ETag 中加上编码名，与原资源区分
+        this.etag = file ? "\"" + Long.toHexString(lastModified) + "-" + Long.toHexString(length)
+            + (contentEncoding != null ? "-" + contentEncoding : "") + "\"" : null;
+        // 条件 GET 每次都要用到，格式化一次随元数据缓存
+        this.lastModifiedHttpDate = file ? HttpDate.format(lastModified) : null;
+        this.mimeType = mimeType;
+        this.contentEncoding = contentEncoding;
+    }
+
+    static StaticResource missing(Path path) {
+        return new StaticResource(path, false, false, -1, -1, null);
+    }
+
+    static StaticResource directory(Path path, long lastModified) {
+        return new StaticResource(path, true, true, -1, lastModified, null);
+    }
+
+    static StaticResource file(Path path, long length, long lastModified, ByteBuffer content) {
+        return new StaticResource(path, true, false, length, lastModified, content);
+    }
+
+    /**
+     * source 按 encoding 编码后的版本，内容来自 encoded（预压缩文件），或直接给出的 content（内存中压缩的结果）
+     */
+    static StaticResource encoded(StaticResource source, StaticResource encoded, String encoding) {
+        return new StaticResource(encoded.path, true, false, encoded.length, encoded.lastModified, encoded.content,
+            source.mimeType, encoding);
+    }
+
+    static StaticResource encoded(StaticResource source, ByteBuffer content, String encoding) {
+        return new StaticResource(source.path, true, false, content.remaining(), source.lastModified, content,
+            source.mimeType, encoding);
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public boolean exists() {
+        return exists;
+    }
+
+    public boolean isDirectory() {
+        return directory;
+    }
+
+    public boolean isFile() {
+        return exists && !directory;
+    }
+
+    /**
+     * 文件长度，不存在或是目录时为 -1
+     */
+    public long getLength() {
+        return length;
+    }
+
+    /**
+     * 最后修改时间（毫秒），不存在时为 -1
+     */
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * Last-Modified 响应头的值，只有普通文件才有
+     */
+    public String getLastModifiedHttpDate() {
+        return lastModifiedHttpDate;
+    }
+
+    /**
+     * 带引号的强 ETag，只有普通文件才有
+     */
+    public String getETag() {
+        return etag;
+    }
+
+    public String getMimeType() {
+        return mimeType;
+    }
+
+    /**
+     * 编码版本的 Content-Encoding，原资源为 null
+     */
+    public String getContentEncoding() {
+        return contentEncoding;
+    }
+
+    /**
+     * 内容是否在缓存中
+     */
+    public boolean hasContent() {
+        return content != null;
+    }
+
+    /**
+     * 缓存的内容，每次返回独立的只读视图，调用方可以自由移动 position；内容不在缓存中时返回 null
+     */
+    public ByteBuffer getContent() {
+        return content != null ? content.duplicate() : null;
+    }
+
+    int getContentSize() {
+        return content != null ? content.capacity() : 0;
+    }
+}
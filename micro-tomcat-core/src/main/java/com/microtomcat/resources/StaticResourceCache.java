@@ -0,0 +1,388 @@
+package com.microtomcat.resources;
+
+import com.microtomcat.jmx.MBeanRegistry;
+import com.microtomcat.logging.Log;
+
+import javax.management.JMException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * 静态资源缓存，以规范化后的绝对路径为键，按 LRU 淘汰，同时受总字节数和条目数限制。
+ * 不超过 maxObjectSize 的文件连同内容一起缓存，更大的文件只缓存元数据；不存在的路径也会缓存。
+ * 条目在 ttlMillis 内直接使用，到期后取一次文件属性重新校验，长度和修改时间都没变就继续使用。
+ * 内容在缓存中的资源可以附带一份压缩结果，计入同一条目的字节数，随条目一起淘汰或失效。
+ * 共享实例注册为 com.microtomcat:type=StaticResourceCache。
+ */
+public final class StaticResourceCache implements StaticResourceCacheMBean {
+    private static final Log LOG = Log.getLog(StaticResourceCache.class);
+
+    public static final long DEFAULT_MAX_SIZE = 10 * 1024 * 1024;
+    public static final int DEFAULT_MAX_ENTRIES = 1000;
+    public static final long DEFAULT_MAX_OBJECT_SIZE = 512 * 1024;
+    public static final long DEFAULT_TTL_MILLIS = 5000;
+
+    private static final StaticResourceCache SHARED = new StaticResourceCache();
+    private static volatile boolean registered;
+
+    private static final class Entry {
+        final StaticResource resource;
+        // 下一次需要到文件系统校验的时间
+        volatile long nextCheck;
+        // 压缩结果，压缩后不更小时为 null；在缓存的锁内先写 precompressed 再写 precompressedEncoding
+        volatile StaticResource precompressed;
+        volatile String precompressedEncoding;
+
+        Entry(StaticResource resource, long nextCheck) {
+            this.resource = resource;
+            this.nextCheck = nextCheck;
+        }
+
+        long size() {
+            StaticResource encoded = precompressed;
+            return resource.getContentSize() + (encoded != null ? encoded.getContentSize() : 0);
+        }
+    }
+
+    private static final Map<String, String> SIDECAR_SUFFIXES = new HashMap<>();
+
+    static {
+        SIDECAR_SUFFIXES.put("gzip", ".gz");
+        SIDECAR_SUFFIXES.put("br", ".br");
+    }
+
+    // 访问顺序的 LinkedHashMap，最久未使用的条目在最前面；由 this 保护
+    private final LinkedHashMap<Path, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long cachedBytes;
+
+    private volatile long maxSize;
+    private volatile int maxEntries;
+    private volatile long maxObjectSize;
+    private volatile long ttlMillis;
+    private volatile boolean useDirectBuffers;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder revalidations = new LongAdder();
+    private final LongAdder precompressions = new LongAdder();
+
+    public StaticResourceCache() {
+        this(DEFAULT_MAX_SIZE, DEFAULT_MAX_ENTRIES, DEFAULT_MAX_OBJECT_SIZE, DEFAULT_TTL_MILLIS);
+    }
+
+    public StaticResourceCache(long maxSize, int maxEntries, long maxObjectSize, long ttlMillis) {
+        setMaxSize(maxSize);
+        setMaxEntries(maxEntries);
+        setMaxObjectSize(maxObjectSize);
+        setTtlMillis(ttlMillis);
+    }
+
+    public static StaticResourceCache getShared() {
+        if (!registered) {
+            register();
+        }
+        return SHARED;
+    }
+
+    private static synchronized void register() {
+        if (registered) {
+            return;
+        }
+        registered = true;
+        try {
+            new MBeanRegistry().registerMBean(SHARED, "StaticResourceCache");
+        } catch (JMException e) {
+            LOG.warn("Failed to register MBean: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 查找资源，从不返回 null；不存在的路径返回 exists() 为 false 的资源
+     */
+    public StaticResource lookup(Path path) {
+        Path key = path.toAbsolutePath().normalize();
+        long now = System.currentTimeMillis();
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+        }
+        if (entry != null) {
+            if (now < entry.nextCheck) {
+                hits.increment();
+                return entry.resource;
+            }
+            revalidations.increment();
+            if (isUnchanged(entry.resource, readAttributes(key))) {
+                entry.nextCheck = now + ttlMillis;
+                hits.increment();
+                return entry.resource;
+            }
+        }
+
+        misses.increment();
+        StaticResource resource = load(key);
+        put(key, new Entry(resource, now + ttlMillis));
+        return resource;
+    }
+
+    /**
+     * 同目录下按 encoding 预压缩的文件（gzip 对应 .gz，br 对应 .br），作为 resource 的编码版本返回。
+     * 没有这样的文件、或它比原文件旧时返回 null
+     */
+    public StaticResource lookupSidecar(StaticResource resource, String encoding) {
+        String suffix = SIDECAR_SUFFIXES.get(encoding);
+        if (suffix == null || !resource.isFile() || resource.getContentEncoding() != null) {
+            return null;
+        }
+        Path path = resource.getPath();
+        StaticResource sidecar = lookup(path.resolveSibling(path.getFileName() + suffix));
+        if (!sidecar.isFile() || sidecar.getLastModified() < resource.getLastModified()) {
+            return null;
+        }
+        return StaticResource.encoded(resource, sidecar, encoding);
+    }
+
+    /**
+     * 内容在缓存中的资源用 compressor 压缩后的版本。结果保存在 resource 的缓存条目上，同一版本的文件只压缩一次，
+     * 文件变化后条目被替换，压缩结果随之失效。内容不在缓存中、或压缩后不更小时返回 null
+     */
+    public StaticResource lookupPrecompressed(StaticResource resource, String encoding,
+                                              Function<ByteBuffer, byte[]> compressor) {
+        ByteBuffer content = resource.getContent();
+        if (content == null || resource.getContentEncoding() != null) {
+            return null;
+        }
+        Path key = resource.getPath();
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+        }
+        if (entry != null && entry.resource != resource) {
+            entry = null;
+        }
+        if (entry != null && encoding.equals(entry.precompressedEncoding)) {
+            return entry.precompressed;
+        }
+
+        precompressions.increment();
+        byte[] compressed = compressor.apply(content);
+        StaticResource encoded = compressed.length < resource.getLength()
+            ? StaticResource.encoded(resource, ByteBuffer.wrap(compressed), encoding) : null;
+        if (entry != null) {
+            synchronized (this) {
+                // 条目仍在缓存中才计入，已被淘汰的条目不再占用字节数
+                if (entries.get(key) == entry && entry.precompressedEncoding == null) {
+                    entry.precompressed = encoded;
+                    entry.precompressedEncoding = encoding;
+                    cachedBytes += encoded != null ? encoded.getContentSize() : 0;
+                    evict();
+                }
+            }
+        }
+        return encoded;
+    }
+
+    private StaticResource load(Path key) {
+        BasicFileAttributes attrs = readAttributes(key);
+        if (attrs == null) {
+            return StaticResource.missing(key);
+        }
+        long lastModified = attrs.lastModifiedTime().toMillis();
+        if (attrs.isDirectory()) {
+            return StaticResource.directory(key, lastModified);
+        }
+        if (!attrs.isRegularFile()) {
+            return StaticResource.missing(key);
+        }
+        long length = attrs.size();
+        if (length > Math.min(maxObjectSize, maxSize)) {
+            return StaticResource.file(key, length, lastModified, null);
+        }
+        try {
+            ByteBuffer content = readContent(key, (int) length);
+            return StaticResource.file(key, content.remaining(), lastModified, content);
+        } catch (IOException e) {
+            LOG.debug("Failed to read {} into cache: {}", key, e.getMessage());
+            return StaticResource.file(key, length, lastModified, null);
+        }
+    }
+
+    private ByteBuffer readContent(Path path, int length) throws IOException {
+        ByteBuffer content = useDirectBuffers ? ByteBuffer.allocateDirect(length) : ByteBuffer.allocate(length);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // 读取期间文件被截断时只保留读到的部分，下一次校验会发现长度变化
+            while (content.hasRemaining() && channel.read(content) >= 0) {
+                // 继续读
+            }
+        }
+        content.flip();
+        return content;
+    }
+
+    private static BasicFileAttributes readAttributes(Path path) {
+        try {
+            return Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            LOG.debug("Failed to stat {}: {}", path, e.getMessage());
+            return null;
+        }
+    }
+
+    private static boolean isUnchanged(StaticResource resource, BasicFileAttributes attrs) {
+        if (attrs == null || (!attrs.isDirectory() && !attrs.isRegularFile())) {
+            return !resource.exists();
+        }
+        if (!resource.exists() || resource.isDirectory() != attrs.isDirectory()) {
+            return false;
+        }
+        return resource.getLastModified() == attrs.lastModifiedTime().toMillis()
+            && (resource.isDirectory() || resource.getLength() == attrs.size());
+    }
+
+    private synchronized void put(Path key, Entry entry) {
+        Entry previous = entries.put(key, entry);
+        if (previous != null) {
+            cachedBytes -= previous.size();
+        }
+        cachedBytes += entry.size();
+        evict();
+    }
+
+    // 从最久未使用的条目开始淘汰，直到同时满足字节数和条目数限制
+    private synchronized void evict() {
+        Iterator<Map.Entry<Path, Entry>> it = entries.entrySet().iterator();
+        while ((cachedBytes > maxSize || entries.size() > maxEntries) && it.hasNext()) {
+            cachedBytes -= it.next().getValue().size();
+            it.remove();
+            evictions.increment();
+        }
+    }
+
+    /**
+     * 缓存的内容是否使用直接内存，默认使用堆内存
+     */
+    public void setUseDirectBuffers(boolean useDirectBuffers) {
+        this.useDirectBuffers = useDirectBuffers;
+    }
+
+    public boolean isUseDirectBuffers() {
+        return useDirectBuffers;
+    }
+
+    @Override
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    @Override
+    public void setMaxSize(long maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("maxSize must be >= 0");
+        }
+        this.maxSize = maxSize;
+        evict();
+    }
+
+    @Override
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    @Override
+    public void setMaxEntries(int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be > 0");
+        }
+        this.maxEntries = maxEntries;
+        evict();
+    }
+
+    @Override
+    public long getMaxObjectSize() {
+        return maxObjectSize;
+    }
+
+    @Override
+    public void setMaxObjectSize(long maxObjectSize) {
+        if (maxObjectSize < 0) {
+            throw new IllegalArgumentException("maxObjectSize must be >= 0");
+        }
+        this.maxObjectSize = maxObjectSize;
+    }
+
+    @Override
+    public long getTtlMillis() {
+        return ttlMillis;
+    }
+
+    @Override
+    public void setTtlMillis(long ttlMillis) {
+        if (ttlMillis < 0) {
+            throw new IllegalArgumentException("ttlMillis must be >= 0");
+        }
+        this.ttlMillis = ttlMillis;
+    }
+
+    @Override
+    public synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    @Override
+    public synchronized long getCachedBytes() {
+        return cachedBytes;
+    }
+
+    @Override
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    @Override
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    @Override
+    public double getHitRatio() {
+        long hit = hits.sum();
+        long total = hit + misses.sum();
+        return total > 0 ? (double) hit / total : 0;
+    }
+
+    @Override
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    @Override
+    public long getRevalidationCount() {
+        return revalidations.sum();
+    }
+
+    @Override
+    public long getPrecompressCount() {
+        return precompressions.sum();
+    }
+
+    @Override
+    public synchronized void clear() {
+        entries.clear();
+        cachedBytes = 0;
+    }
+}
@@ -0,0 +1,31 @@
+package com.microtomcat.resources;
+
+/**
+ * StaticResourceCache 的 JMX 管理接口
+ */
+public interface StaticResourceCacheMBean {
+    // 配置
+    long getMaxSize();
+    void setMaxSize(long maxSize);
+    int getMaxEntries();
+    void setMaxEntries(int maxEntries);
+    long getMaxObjectSize();
+    void setMaxObjectSize(long maxObjectSize);
+    long getTtlMillis();
+    void setTtlMillis(long ttlMillis);
+
+    // 当前状态
+    int getEntryCount();
+    long getCachedBytes();
+
+    // 累计统计
+    long getHitCount();
+    long getMissCount();
+    double getHitRatio();
+    long getEvictionCount();
+    long getRevalidationCount();
+    long getPrecompressCount();
+
+    // 操作
+    void clear();
+}
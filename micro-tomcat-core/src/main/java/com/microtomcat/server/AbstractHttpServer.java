@@ -1,29 +1,70 @@
 package com.microtomcat.server;
 
+import com.microtomcat.logging.Log;
 import java.io.IOException;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 
 import com.microtomcat.container.Engine;
+import com.microtomcat.container.StartupTimeline;
+import com.microtomcat.lifecycle.Lifecycle;
 import com.microtomcat.lifecycle.LifecycleException;
 import com.microtomcat.processor.ProcessorPool;
 
 public abstract class AbstractHttpServer {
+    private static final Log LOG = Log.getLog(AbstractHttpServer.class);
     protected final ServerConfig config;
     protected static final String WEB_ROOT = "webroot";
     protected ProcessorPool processorPool;
     protected Engine engine;
+    private StartupTimeline startupTimeline;
     
     protected AbstractHttpServer(ServerConfig config) {
         this.config = config;
     }
+
+    public ServerConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * 设置容器树的根，服务器启动时按 ServerConfig 配置启动
+     */
+    public void setEngine(Engine engine) {
+        this.engine = engine;
+    }
+
+    public Engine getEngine() {
+        return engine;
+    }
+
+    /**
+     * 最近一次启动容器树时记录的时间线，没有 Engine 时为 null
+     */
+    public StartupTimeline getStartupTimeline() {
+        return startupTimeline;
+    }
+
+    /**
+     * 按配置的并行度启动 Engine 及其下的 Host、Context，并记录启动时间线；
+     * Engine 启动完成时时间线输出到日志
+     */
+    protected void startContainers() throws LifecycleException {
+        if (engine == null || Lifecycle.STARTED.equals(engine.getState())) {
+            return;
+        }
+        engine.setStartStopThreads(config.getStartStopThreads());
+        startupTimeline = StartupTimeline.attach(engine);
+        try {
+            engine.start();
+        } finally {
+            startupTimeline.detach();
+        }
+    }
     
     public abstract void start() throws LifecycleException;
     public abstract void stop() throws LifecycleException;
     
     protected void log(String message) {
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_TIME);
-        System.out.printf("[%s] %s%n", timestamp, message);
+        LOG.info(message);
     }
     
     protected void initInternal() throws LifecycleException {
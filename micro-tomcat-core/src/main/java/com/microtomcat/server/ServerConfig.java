@@ -1,27 +1,59 @@
 package com.microtomcat.server;
 
+import com.microtomcat.net.WorkerExecutor;
+
 public class ServerConfig {
+    /**
+     * NIO 连接在各个 Poller 之间的分配策略
+     */
+    public enum PollerSelection {
+        ROUND_ROBIN,
+        LEAST_CONNECTIONS
+    }
+
     private final int port;
     private final boolean nonBlocking;
     private final int threadPoolSize;
-    
+
     private final String webRoot;
-    
+
+    // NIO 多 Reactor 配置：默认每个 CPU 核一个 Poller（至少 1 个，最多 8 个）
+    private int pollerCount = Math.max(1, Math.min(8, Runtime.getRuntime().availableProcessors()));
+    private PollerSelection pollerSelection = PollerSelection.ROUND_ROBIN;
+
+    // 静态文件达到该大小时使用 FileChannel.transferTo 零拷贝发送
+    private long sendfileThreshold = 48 * 1024;
+
+    // 请求体允许的最大字节数，两种连接器都按它回复 413
+    private int maxPostSize = 1024 * 1024;
+
+    // NIO 连接超时（毫秒）：等待请求头、等待请求体、两个请求之间的空闲时间
+    private long headerReadTimeout = 20000;
+    private long bodyReadTimeout = 60000;
+    private long keepAliveTimeout = 20000;
+
+    // 工作线程：threadPoolSize 个线程同时处理请求，另有 workerQueueSize 个请求可以排队，再多的直接回复 503
+    private WorkerExecutor.Mode workerMode = WorkerExecutor.Mode.PLATFORM;
+    private int workerQueueSize = WorkerExecutor.DEFAULT_MAX_QUEUE_SIZE;
+
+    // 容器树中兄弟容器（Host、Context）并行启动/停止的线程数；1 表示串行，0 表示每个 CPU 核一个
+    private int startStopThreads = 1;
+
     public ServerConfig(int port, boolean nonBlocking, int threadPoolSize, String webRoot) {
         this.port = port;
         this.nonBlocking = nonBlocking;
         this.threadPoolSize = threadPoolSize;
         this.webRoot = webRoot;
     }
-    
+
     public boolean isNonBlocking() {
         return nonBlocking;
     }
-    
+
     public int getPort() {
         return port;
     }
-    
+
     public String getWebRoot() {
         return webRoot;
     }
@@ -29,6 +61,116 @@ public class ServerConfig {
     public int getThreadPoolSize() {
         return threadPoolSize;
     }
-    
+
+    public int getPollerCount() {
+        return pollerCount;
+    }
+
+    public void setPollerCount(int pollerCount) {
+        if (pollerCount <= 0) {
+            throw new IllegalArgumentException("pollerCount must be > 0");
+        }
+        this.pollerCount = pollerCount;
+    }
+
+    public PollerSelection getPollerSelection() {
+        return pollerSelection;
+    }
+
+    public void setPollerSelection(PollerSelection pollerSelection) {
+        if (pollerSelection == null) {
+            throw new IllegalArgumentException("pollerSelection must not be null");
+        }
+        this.pollerSelection = pollerSelection;
+    }
+
+    public long getSendfileThreshold() {
+        return sendfileThreshold;
+    }
+
+    public void setSendfileThreshold(long sendfileThreshold) {
+        if (sendfileThreshold < 0) {
+            throw new IllegalArgumentException("sendfileThreshold must be >= 0");
+        }
+        this.sendfileThreshold = sendfileThreshold;
+    }
+
+    public int getMaxPostSize() {
+        return maxPostSize;
+    }
+
+    public void setMaxPostSize(int maxPostSize) {
+        if (maxPostSize < 0) {
+            throw new IllegalArgumentException("maxPostSize must be >= 0");
+        }
+        this.maxPostSize = maxPostSize;
+    }
+
+    public long getHeaderReadTimeout() {
+        return headerReadTimeout;
+    }
+
+    public void setHeaderReadTimeout(long headerReadTimeout) {
+        if (headerReadTimeout <= 0) {
+            throw new IllegalArgumentException("headerReadTimeout must be > 0");
+        }
+        this.headerReadTimeout = headerReadTimeout;
+    }
+
+    public long getBodyReadTimeout() {
+        return bodyReadTimeout;
+    }
+
+    public void setBodyReadTimeout(long bodyReadTimeout) {
+        if (bodyReadTimeout <= 0) {
+            throw new IllegalArgumentException("bodyReadTimeout must be > 0");
+        }
+        this.bodyReadTimeout = bodyReadTimeout;
+    }
+
+    public long getKeepAliveTimeout() {
+        return keepAliveTimeout;
+    }
+
+    public void setKeepAliveTimeout(long keepAliveTimeout) {
+        if (keepAliveTimeout <= 0) {
+            throw new IllegalArgumentException("keepAliveTimeout must be > 0");
+        }
+        this.keepAliveTimeout = keepAliveTimeout;
+    }
+
+    public WorkerExecutor.Mode getWorkerMode() {
+        return workerMode;
+    }
+
+    public void setWorkerMode(WorkerExecutor.Mode workerMode) {
+        if (workerMode == null) {
+            throw new IllegalArgumentException("workerMode must not be null");
+        }
+        this.workerMode = workerMode;
+    }
+
+    public int getWorkerQueueSize() {
+        return workerQueueSize;
+    }
+
+    public void setWorkerQueueSize(int workerQueueSize) {
+        if (workerQueueSize < 0) {
+            throw new IllegalArgumentException("workerQueueSize must be >= 0");
+        }
+        this.workerQueueSize = workerQueueSize;
+    }
+
+    public int getStartStopThreads() {
+        return startStopThreads;
+    }
+
+    public void setStartStopThreads(int startStopThreads) {
+        if (startStopThreads < 0) {
+            throw new IllegalArgumentException("startStopThreads must be >= 0");
+        }
+        this.startStopThreads = startStopThreads;
+    }
+
     // getters...
-} 
\ No newline at end of file
+}
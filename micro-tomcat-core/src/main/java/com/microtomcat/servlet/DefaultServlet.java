@@ -1,16 +1,24 @@
 package com.microtomcat.servlet;
 
+import com.microtomcat.logging.Log;
 import javax.servlet.*;
 import javax.servlet.http.*;
 import java.io.*;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import com.microtomcat.connector.Response;
+import com.microtomcat.connector.ServletResponseWrapper;
+import com.microtomcat.resources.StaticResource;
+import com.microtomcat.resources.StaticResourceCache;
 
 public class DefaultServlet extends HttpServlet {
+    private static final Log LOG = Log.getLog(DefaultServlet.class);
     private ServletConfig config;
     private String webRoot;
+    private Path rootPath;
+    private StaticResourceCache cache = StaticResourceCache.getShared();
 
     @Override
     public void init(ServletConfig config) throws javax.servlet.ServletException {
@@ -31,7 +39,8 @@ public class DefaultServlet extends HttpServlet {
         if (this.webRoot == null) {
             throw new javax.servlet.ServletException("Failed to initialize DefaultServlet: webRoot is null");
         }
-        System.out.println("Debug DefaultServlet init with webRoot : " + webRoot);
+        this.rootPath = Paths.get(webRoot).toAbsolutePath().normalize();
+        LOG.info("DefaultServlet init with webRoot: {}", webRoot);
     }
 
     @Override
@@ -43,32 +52,31 @@ public class DefaultServlet extends HttpServlet {
         
         String uri = request.getRequestURI();
         String contextPath = request.getContextPath();
-        System.out.println("Debug DefaultServlet doGet uri: " + uri);
-        System.out.println("Debug DefaultServlet doGet contextPath: " + contextPath);
-        System.out.println("Debug DefaultServlet doGet webRoot: " + webRoot);
+        LOG.debug("doGet uri: {}, contextPath: {}, webRoot: {}", uri, contextPath, webRoot);
         
         // 移除上下文路径，获取相对路径
         if (uri.startsWith(contextPath)) {
             uri = uri.substring(contextPath.length());
         }
         
-        // 构建文件的完整路径
-        Path filePath = Paths.get(webRoot, uri);
+        // 构建文件的完整路径，规范化后不能跳出 webRoot
+        Path filePath = rootPath.resolve(uri.replaceFirst("^/+", "")).normalize();
+        StaticResource resource = filePath.startsWith(rootPath) ? cache.lookup(filePath) : null;
         
         // 检查文件是否存在
-        if (!Files.exists(filePath)) {
+        if (resource == null || !resource.exists()) {
             response.sendError(HttpServletResponse.SC_NOT_FOUND, 
                 "File Not Found: " + uri);
             return;
         }
         
         // 检查是否是目录
-        if (Files.isDirectory(filePath)) {
+        if (resource.isDirectory()) {
             // 如果是目录，尝试查找欢迎页面
             for (String welcomeFile : new String[]{"index.html", "index.htm"}) {
-                Path welcomePath = filePath.resolve(welcomeFile);
-                if (Files.exists(welcomePath) && Files.isRegularFile(welcomePath)) {
-                    sendFile(welcomePath, response);
+                StaticResource welcome = cache.lookup(filePath.resolve(welcomeFile));
+                if (welcome.isFile()) {
+                    sendFile(welcome, request, response);
                     return;
                 }
             }
@@ -78,13 +86,7 @@ public class DefaultServlet extends HttpServlet {
             return;
         }
         
-        // 如果是普通文件，发送文件内容
-        if (Files.isRegularFile(filePath)) {
-            sendFile(filePath, response);
-        } else {
-            response.sendError(HttpServletResponse.SC_NOT_FOUND, 
-                "File Not Found: " + uri);
-        }
+        sendFile(resource, request, response);
     }
 
     @Override
@@ -94,39 +96,63 @@ public class DefaultServlet extends HttpServlet {
             "HTTP method POST is not supported by this URL");
     }
 
+    /**
+     * 替换使用的资源缓存，默认使用共享实例
+     */
+    public void setCache(StaticResourceCache cache) {
+        this.cache = cache;
+    }
+
     @Override
     public String getServletInfo() {
         return "DefaultServlet handling static resources";
     }
 
+    /**
+     * 只穿过连接器自己的外观对象；其他包装（HttpServlet.doHead 的 NoBodyResponse、过滤器的包装等）
+     * 可能改变输出，内容必须经由它们写出
+     */
+    private Response unwrap(ServletResponse response) {
+        if (response instanceof ServletResponseWrapper) {
+            response = ((ServletResponseWrapper) response).getResponse();
+        }
+        return response instanceof Response ? (Response) response : null;
+    }
+
     // 抽取发送文件的逻辑为独立方法
-    private void sendFile(Path filePath, HttpServletResponse response) throws IOException {
+    private void sendFile(StaticResource resource, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        response.setHeader("Server", "MicroTomcat");
+
+        // 能拿到底层 Response 时由它发送：条件 GET、Range、预压缩版本都由它处理，
+        // 缓存中的内容直接写出，大文件由连接器零拷贝发送
+        Response connectorResponse = unwrap(response);
+        if (connectorResponse != null) {
+            connectorResponse.sendStaticResource(resource, request);
+            LOG.debug("sendFile - Content written");
+            return;
+        }
+
+        // 被包装成其他实现时只支持条件 GET，总是发送未压缩的整个文件
+        if (Response.checkNotModified(request, response, resource)) {
+            return;
+        }
         response.setStatus(HttpServletResponse.SC_OK);
         
         // 设置 Content-Type (不带 charset)
-        String contentType = getServletContext().getMimeType(filePath.toString());
-        if (contentType != null) {
-            response.setContentType(contentType);
+        response.setContentType(resource.getMimeType());
+        response.setContentLengthLong(resource.getLength());
+        ServletOutputStream outputStream = response.getOutputStream();
+        ByteBuffer content = resource.getContent();
+        if (content != null) {
+            byte[] bytes = new byte[content.remaining()];
+            content.get(bytes);
+            outputStream.write(bytes);
         } else {
-            if (filePath.toString().toLowerCase().endsWith(".html")) {
-                response.setContentType("text/html");
-            } else {
-                response.setContentType("application/octet-stream");
-            }
+            Files.copy(resource.getPath(), outputStream);
         }
-        
-        response.setHeader("Server", "MicroTomcat");
-        
-        // 读取文件内容
-        byte[] content = Files.readAllBytes(filePath);
-        System.out.println("DEBUG: File content read: " + new String(content, "UTF-8"));
-        response.setContentLength(content.length);
-        
-        // 写入响应体
-        ServletOutputStream outputStream = response.getOutputStream();
-        outputStream.write(content);
         outputStream.flush();
         
-        System.out.println("DEBUG: DefaultServlet sendFile - Content written");
+        LOG.debug("sendFile - Content written");
     }
-} 
\ No newline at end of file
+}
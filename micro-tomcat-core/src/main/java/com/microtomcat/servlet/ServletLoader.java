@@ -1,5 +1,6 @@
 package com.microtomcat.servlet;
 
+import com.microtomcat.logging.Log;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.ByteArrayOutputStream;
@@ -12,6 +13,7 @@ import java.lang.reflect.InvocationTargetException;
 import javax.servlet.Servlet;
 
 public class ServletLoader extends URLClassLoader {
+    private static final Log LOG = Log.getLog(ServletLoader.class);
     private final String webRoot;
     private final String classesPath;
     private final Map<String, javax.servlet.Servlet> servletCache = new ConcurrentHashMap<>();
@@ -72,6 +74,6 @@ public class ServletLoader extends URLClassLoader {
     }
 
     private void log(String message) {
-        System.out.println("[ServletLoader] " + message);
+        LOG.info(message);
     }
 } 
\ No newline at end of file
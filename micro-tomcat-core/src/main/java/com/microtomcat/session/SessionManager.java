@@ -5,18 +5,26 @@ import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import javax.servlet.ServletContext;
 
 public class SessionManager {
+    // 所有 SessionManager 共用一个后台线程清理过期会话，而不是每个 Context 一个线程
+    private static final ScheduledExecutorService CLEANER = Executors.newSingleThreadScheduledExecutor(task -> {
+        Thread thread = new Thread(task, "session-cleaner");
+        thread.setDaemon(true);
+        return thread;
+    });
+
     private final Map<String, Session> sessions = new ConcurrentHashMap<>();
-    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private final ScheduledFuture<?> cleanup;
     protected final ServletContext servletContext;
     
     public SessionManager(ServletContext servletContext) {
         this.servletContext = servletContext;
         // 每分钟检查一次过期的会话
-        scheduler.scheduleAtFixedRate(this::cleanExpiredSessions, 1, 1, TimeUnit.MINUTES);
+        this.cleanup = CLEANER.scheduleAtFixedRate(this::cleanExpiredSessions, 1, 1, TimeUnit.MINUTES);
     }
 
     public Session createSession() {
@@ -48,7 +56,7 @@ public class SessionManager {
     }
 
     public void shutdown() {
-        scheduler.shutdown();
+        cleanup.cancel(false);
     }
 
     public void invalidateAll() {
@@ -3,22 +3,15 @@ package com.microtomcat.session.distributed;
 import com.microtomcat.session.Session;
 import com.microtomcat.session.SessionManager;
 import java.util.UUID;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
 import javax.servlet.ServletContext;
 import com.microtomcat.session.StandardSession;
 
 public class DistributedSessionManager extends SessionManager {
     private final SessionStoreAdapter sessionStore;
-    private final ScheduledExecutorService scheduler;
     
     public DistributedSessionManager(ServletContext servletContext, SessionStoreAdapter sessionStore) {
         super(servletContext);
         this.sessionStore = sessionStore;
-        this.scheduler = Executors.newSingleThreadScheduledExecutor();
-        // 每分钟检查过期会话
-        scheduler.scheduleAtFixedRate(this::cleanExpiredSessions, 1, 1, TimeUnit.MINUTES);
     }
     
     @Override
@@ -64,10 +57,4 @@ public class DistributedSessionManager extends SessionManager {
     public SessionStoreAdapter getSessionStore() {
         return sessionStore;
     }
-    
-    @Override
-    public void shutdown() {
-        scheduler.shutdown();
-        super.shutdown();
-    }
 } 
\ No newline at end of file
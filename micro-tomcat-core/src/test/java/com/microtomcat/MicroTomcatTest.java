@@ -4,6 +4,7 @@ import com.microtomcat.container.Context;
 import com.microtomcat.connector.Request;
 import com.microtomcat.connector.Response;
 import com.microtomcat.protocol.Http11Protocol;
+import com.microtomcat.session.SessionManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.AfterEach;
@@ -18,6 +19,8 @@ import javax.servlet.ServletException;
 
 import java.io.*;
 import java.net.Socket;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
 
 import static org.mockito.ArgumentMatchers.any;
@@ -163,6 +166,55 @@ public class MicroTomcatTest {
         verify(mockContext, never()).service(any(Request.class), any(Response.class));
     }
 
+    @Test
+    void testRequestResponseReusedAcrossThreads() throws Exception {
+        Http11Protocol protocol = (Http11Protocol) server.getProtocol();
+        List<Request> requests = new CopyOnWriteArrayList<>();
+        doAnswer(invocation -> requests.add(invocation.getArgument(0)))
+            .when(mockContext).invoke(any(Request.class), any(Response.class));
+
+        // 每个请求都在新线程上处理，模拟虚拟线程模式
+        for (int i = 0; i < 2; i++) {
+            Socket socket = mock(Socket.class);
+            when(socket.getInputStream()).thenReturn(new ByteArrayInputStream(
+                "GET /reuse HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes()));
+            when(socket.getOutputStream()).thenReturn(new ByteArrayOutputStream());
+            Thread worker = new Thread(() -> {
+                try {
+                    protocol.handleRequest(socket);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            worker.start();
+            worker.join();
+        }
+
+        assertEquals(2, requests.size());
+        assertSame(requests.get(0), requests.get(1), "Request is borrowed from the pool, not per thread");
+        assertEquals(1, protocol.getPooledExchangeCount());
+    }
+
+    @Test
+    void testPooledRequestsFollowSessionManagerChange() throws Exception {
+        Http11Protocol protocol = (Http11Protocol) server.getProtocol();
+        doAnswer(invocation -> ((Request) invocation.getArgument(0)).getSession(false))
+            .when(mockContext).invoke(any(Request.class), any(Response.class));
+        Socket socket = mock(Socket.class);
+        when(socket.getOutputStream()).thenReturn(new ByteArrayOutputStream());
+        when(socket.getInputStream()).thenAnswer(invocation -> new ByteArrayInputStream(
+            "GET /session HTTP/1.1\r\nHost: localhost\r\nCookie: JSESSIONID=abc\r\n\r\n".getBytes()));
+
+        protocol.handleRequest(socket);
+        assertEquals(1, protocol.getPooledExchangeCount());
+
+        // 更换管理器后，池中绑定旧管理器的请求不再被借出
+        SessionManager replacement = mock(SessionManager.class);
+        protocol.setSessionManager(replacement);
+        protocol.handleRequest(socket);
+        verify(replacement).getSession("abc");
+    }
+
     @Test
     void testServerStartAndStop() throws Exception {
         // 创建一个可以被中断的服务器
@@ -0,0 +1,51 @@
+package com.microtomcat.connector;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ByteRangeTest {
+
+    @Test
+    void testParsesAllForms() {
+        List<ByteRange> ranges = ByteRange.parse("bytes=0-9", 100);
+        assertEquals(1, ranges.size());
+        assertEquals(0, ranges.get(0).getStart());
+        assertEquals(10, ranges.get(0).getLength());
+        assertEquals("bytes 0-9/100", ranges.get(0).toContentRange(100));
+
+        assertEquals("[90-99]", ByteRange.parse("bytes=90-", 100).toString());
+        assertEquals("[80-99]", ByteRange.parse("bytes=-20", 100).toString());
+        assertEquals("[0-99]", ByteRange.parse("bytes=-500", 100).toString());
+        assertEquals("[50-99]", ByteRange.parse("Bytes=50-1000", 100).toString());
+    }
+
+    @Test
+    void testSortsAndCoalescesRanges() {
+        assertEquals("[0-9, 20-29]", ByteRange.parse("bytes=20-29, 0-9", 100).toString());
+        assertEquals("[0-29]", ByteRange.parse("bytes=0-9,10-19,5-29", 100).toString());
+        assertEquals("[0-9]", ByteRange.parse("bytes=0-9,200-300", 100).toString());
+    }
+
+    @Test
+    void testUnsatisfiableAndInvalid() {
+        assertTrue(ByteRange.parse("bytes=100-", 100).isEmpty());
+        assertTrue(ByteRange.parse("bytes=-0", 100).isEmpty());
+        assertTrue(ByteRange.parse("bytes=0-", 0).isEmpty());
+
+        assertNull(ByteRange.parse(null, 100));
+        assertNull(ByteRange.parse("items=0-9", 100));
+        assertNull(ByteRange.parse("bytes=", 100));
+        assertNull(ByteRange.parse("bytes=9-0", 100));
+        assertNull(ByteRange.parse("bytes=a-b", 100));
+        assertNull(ByteRange.parse("bytes=--5", 100));
+        assertNull(ByteRange.parse("bytes=5", 100));
+        StringBuilder many = new StringBuilder("bytes=0-0");
+        for (int i = 1; i <= ByteRange.MAX_RANGES; i++) {
+            many.append(',').append(i * 2).append('-').append(i * 2);
+        }
+        assertNull(ByteRange.parse(many.toString(), 100));
+    }
+}
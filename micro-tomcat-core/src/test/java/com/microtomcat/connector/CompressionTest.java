@@ -0,0 +1,87 @@
+package com.microtomcat.connector;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompressionTest {
+
+    static byte[] text(int size) {
+        byte[] bytes = new byte[size];
+        for (int i = 0; i < size; i++) {
+            bytes[i] = (byte) "hello compression ".charAt(i % 18);
+        }
+        return bytes;
+    }
+
+    static byte[] inflate(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int n;
+        while ((n = in.read(buffer)) > 0) {
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    void testNegotiatesAcceptEncoding() {
+        Compression compression = new Compression();
+        assertEquals("gzip", compression.negotiate("deflate, gzip;q=0.8"));
+        assertEquals("deflate", compression.negotiate("gzip;q=0, deflate"));
+        assertEquals("gzip", compression.negotiate("*"));
+        assertNull(compression.negotiate("identity"));
+        assertNull(compression.negotiate("*;q=0"));
+        assertNull(compression.negotiate(null));
+
+        assertTrue(Compression.accepts("gzip, BR", "br"));
+        assertFalse(Compression.accepts("br;q=0, *", "br"));
+        assertTrue(Compression.accepts("br;q=0, *", "gzip"));
+    }
+
+    @Test
+    void testCompressibleTypes() {
+        Compression compression = new Compression();
+        assertTrue(compression.isCompressible("text/html; charset=UTF-8"));
+        assertTrue(compression.isCompressible("application/json"));
+        assertTrue(compression.isCompressible("image/svg+xml"));
+        assertFalse(compression.isCompressible("image/png"));
+        assertFalse(compression.isCompressible(null));
+
+        compression.setCompressibleMimeTypes("application/*");
+        assertTrue(compression.isCompressible("application/wasm"));
+        assertFalse(compression.isCompressible("text/css"));
+        assertThrows(IllegalArgumentException.class, () -> compression.setLevel(10));
+    }
+
+    @Test
+    void testCompressRoundTripsAndReusesDeflaters() throws IOException {
+        Compression compression = new Compression();
+        byte[] original = text(50000);
+
+        byte[] gzipped = compression.compress(ByteBuffer.wrap(original), Compression.GZIP);
+        assertTrue(gzipped.length < original.length / 4);
+        assertArrayEquals(original, inflate(new GZIPInputStream(new ByteArrayInputStream(gzipped))));
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(original.length);
+        direct.put(original).flip();
+        byte[] deflated = compression.compress(direct, Compression.DEFLATE);
+        assertArrayEquals(original, inflate(new InflaterInputStream(new ByteArrayInputStream(deflated))));
+        assertEquals(0, direct.position(), "Source position is untouched");
+
+        assertEquals(2, compression.getPooledDeflaterCount());
+        compression.compress(ByteBuffer.wrap("again".getBytes(StandardCharsets.US_ASCII)), Compression.GZIP);
+        assertEquals(2, compression.getPooledDeflaterCount(), "Deflater is borrowed and returned");
+        assertEquals(3, compression.getCompressedCount());
+        assertEquals(original.length * 2L + 5, compression.getBytesIn());
+    }
+}
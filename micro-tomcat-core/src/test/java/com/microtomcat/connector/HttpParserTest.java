@@ -0,0 +1,117 @@
+package com.microtomcat.connector;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HttpParserTest {
+    private HttpParser parser;
+
+    @BeforeEach
+    void setUp() {
+        parser = new HttpParser(256);
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    @Test
+    void testParseRequestLineAndHeaders() throws IOException {
+        String head = "GET /index.html?a=1 HTTP/1.1\r\nHost: localhost\r\nX-Test:  value  \r\n\r\n";
+        assertTrue(parser.parse(new ByteArrayInputStream(bytes(head))));
+
+        assertEquals("GET", parser.getMethod());
+        assertEquals("/index.html?a=1", parser.getRequestUri());
+        assertEquals("HTTP/1.1", parser.getProtocol());
+        assertEquals(2, parser.getHeaderCount());
+        assertEquals("localhost", parser.getHeader("host"));
+        assertEquals("value", parser.getHeader("X-TEST"));
+        assertNull(parser.getHeader("Missing"));
+        assertEquals(head.length(), parser.getHeadLength());
+    }
+
+    @Test
+    void testIncrementalParseLeavesBodyInBuffer() throws HttpParseException {
+        ByteBuffer buffer = ByteBuffer.allocate(128);
+        buffer.put(bytes("POST /form HTTP/1.1\r\nContent-Le"));
+        buffer.flip();
+        assertFalse(parser.parse(buffer));
+
+        buffer.clear();
+        buffer.put(bytes("ngth: 5\r\n\r\nhello"));
+        buffer.flip();
+        assertTrue(parser.parse(buffer));
+
+        assertEquals(5, parser.getContentLength());
+        assertEquals(5, buffer.remaining());
+        assertEquals('h', buffer.get());
+    }
+
+    @Test
+    void testRemainingInputReturnsBodyBytes() throws IOException {
+        assertTrue(parser.parse(new ByteArrayInputStream(bytes("POST / HTTP/1.1\r\nContent-Length: 3\r\n\r\nabc"))));
+        InputStream body = parser.getRemainingInput(new ByteArrayInputStream(new byte[0]));
+        byte[] read = new byte[3];
+        assertEquals(3, body.read(read));
+        assertEquals("abc", new String(read, StandardCharsets.ISO_8859_1));
+    }
+
+    @Test
+    void testKeepAliveAndChunked() throws IOException {
+        assertTrue(parser.parse(new ByteArrayInputStream(
+            bytes("POST / HTTP/1.1\r\nConnection: Close\r\nTransfer-Encoding: gzip, chunked\r\n\r\n"))));
+        assertFalse(parser.isKeepAlive());
+        assertTrue(parser.isChunked());
+
+        parser.recycle();
+        assertTrue(parser.parse(new ByteArrayInputStream(bytes("GET / HTTP/1.0\r\nConnection: keep-alive\r\n\r\n"))));
+        assertTrue(parser.isKeepAlive());
+        assertFalse(parser.isChunked());
+        assertEquals(-1, parser.getContentLength());
+    }
+
+    @Test
+    void testRepeatedHeadersAllConsidered() throws IOException {
+        assertTrue(parser.parse(new ByteArrayInputStream(
+            bytes("POST / HTTP/1.1\r\nTransfer-Encoding: gzip\r\nTransfer-Encoding: chunked\r\n"
+                + "Content-Length: 5\r\ncontent-length: 5\r\n\r\n"))));
+        assertTrue(parser.isChunked());
+        assertEquals(5, parser.getContentLength());
+
+        parser.recycle();
+        assertTrue(parser.parse(new ByteArrayInputStream(
+            bytes("POST / HTTP/1.1\r\nContent-Length: 5\r\nContent-Length: 50\r\n\r\n"))));
+        assertThrows(NumberFormatException.class, parser::getContentLength);
+    }
+
+    @Test
+    void testHeaderSizeLimit() {
+        StringBuilder head = new StringBuilder("GET / HTTP/1.1\r\n");
+        while (head.length() < 300) {
+            head.append("X-Filler: 0123456789\r\n");
+        }
+        HttpParseException e = assertThrows(HttpParseException.class,
+            () -> parser.parse(new ByteArrayInputStream(bytes(head.toString()))));
+        assertEquals(431, e.getStatus());
+    }
+
+    @Test
+    void testInvalidRequestLine() {
+        HttpParseException e = assertThrows(HttpParseException.class,
+            () -> parser.parse(new ByteArrayInputStream(bytes("GARBAGE\r\n\r\n"))));
+        assertEquals(400, e.getStatus());
+    }
+
+    @Test
+    void testEmptyStreamReturnsFalse() throws IOException {
+        assertFalse(parser.parse(new ByteArrayInputStream(new byte[0])));
+    }
+}
@@ -0,0 +1,152 @@
+package com.microtomcat.connector;
+
+import com.microtomcat.session.Session;
+import com.microtomcat.session.SessionManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.servlet.http.Cookie;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class RequestTest {
+    private SessionManager sessionManager;
+
+    @BeforeEach
+    void setUp() {
+        sessionManager = mock(SessionManager.class);
+    }
+
+    private Request parse(String raw) throws IOException {
+        Request request = new Request(
+            new ByteArrayInputStream(raw.getBytes(StandardCharsets.UTF_8)), sessionManager);
+        request.parse();
+        return request;
+    }
+
+    @Test
+    void testQueryStringParameters() throws IOException {
+        Request request = parse("GET /search?q=hello+world&tag=a&tag=b%26c&empty HTTP/1.1\r\n\r\n");
+
+        assertEquals("/search", request.getRequestURI());
+        assertEquals("q=hello+world&tag=a&tag=b%26c&empty", request.getQueryString());
+        assertEquals("hello world", request.getParameter("q"));
+        assertArrayEquals(new String[] {"a", "b&c"}, request.getParameterValues("tag"));
+        assertEquals("", request.getParameter("empty"));
+        assertNull(request.getParameter("missing"));
+    }
+
+    @Test
+    void testFormBodyParameters() throws IOException {
+        String body = "name=%E4%BD%A0%E5%A5%BD&x=1";
+        Request request = parse("POST /form?x=0 HTTP/1.1\r\n"
+            + "Content-Type: application/x-www-form-urlencoded\r\n"
+            + "Content-Length: " + body.length() + "\r\n\r\n" + body);
+
+        assertEquals("你好", request.getParameter("name"));
+        assertArrayEquals(new String[] {"0", "1"}, request.getParameterValues("x"));
+        assertEquals(body, request.getBody());
+    }
+
+    @Test
+    void testCookiesParsedFromHeader() throws IOException {
+        Request request = parse("GET / HTTP/1.1\r\nCookie: a=1; JSESSIONID=\"abc\"; $Version=1\r\n\r\n");
+
+        Cookie[] cookies = request.getCookies();
+        assertEquals(2, cookies.length);
+        assertEquals("a", cookies[0].getName());
+        assertEquals("abc", cookies[1].getValue());
+        assertEquals("abc", request.getRequestedSessionId());
+        assertTrue(request.isRequestedSessionIdFromCookie());
+        assertNull(parse("GET / HTTP/1.1\r\n\r\n").getCookies());
+    }
+
+    @Test
+    void testSessionLookedUpByCookie() throws IOException {
+        Session session = mock(Session.class);
+        when(sessionManager.getSession("abc")).thenReturn(session);
+
+        Request request = parse("GET / HTTP/1.1\r\nCookie: JSESSIONID=abc\r\n\r\n");
+        assertNotNull(request.getSession(false));
+        verify(sessionManager).getSession("abc");
+        verify(sessionManager, never()).createSession();
+    }
+
+    @Test
+    void testServerNameAndPortFromHostHeader() throws IOException {
+        assertEquals("www.example.com", parse("GET / HTTP/1.1\r\nHost: WWW.Example.com:8443\r\n\r\n").getServerName());
+        assertEquals(8443, parse("GET / HTTP/1.1\r\nHost: www.example.com:8443\r\n\r\n").getServerPort());
+        assertEquals(80, parse("GET / HTTP/1.1\r\nHost: www.example.com\r\n\r\n").getServerPort());
+
+        Request ipv6 = parse("GET / HTTP/1.1\r\nHost: [::1]:9000\r\n\r\n");
+        assertEquals("[::1]", ipv6.getServerName());
+        assertEquals(9000, ipv6.getServerPort());
+
+        Request noHost = parse("GET / HTTP/1.0\r\n\r\n");
+        assertEquals("localhost", noHost.getServerName());
+        assertEquals(8080, noHost.getServerPort());
+    }
+
+    @Test
+    void testRecycleClearsStateForReuse() throws IOException {
+        Request request = new Request(sessionManager);
+        request.setInputStream(new ByteArrayInputStream(
+            "GET /a?x=1 HTTP/1.1\r\nCookie: a=1\r\nX-One: 1\r\n\r\n".getBytes(StandardCharsets.UTF_8)));
+        request.parse();
+        request.setAttribute("k", "v");
+        assertEquals("1", request.getParameter("x"));
+        assertEquals(1, request.getCookies().length);
+        ServletRequestWrapper facade = request.getFacade();
+
+        request.recycle();
+        request.setInputStream(new ByteArrayInputStream(
+            "POST /b HTTP/1.1\r\n\r\n".getBytes(StandardCharsets.UTF_8)));
+        request.parse();
+
+        assertEquals("POST", request.getMethod());
+        assertEquals("/b", request.getRequestURI());
+        assertNull(request.getQueryString());
+        assertNull(request.getParameter("x"));
+        assertNull(request.getCookies());
+        assertNull(request.getHeader("X-One"));
+        assertNull(request.getAttribute("k"));
+        assertSame(facade, request.getFacade());
+    }
+
+    @Test
+    void testDateHeader() throws IOException {
+        Request request = parse("GET / HTTP/1.1\r\n"
+            + "If-Modified-Since: Sun, 06 Nov 1994 08:49:37 GMT\r\n"
+            + "X-Bad-Date: yesterday\r\n\r\n");
+
+        assertEquals(784111777000L, request.getDateHeader("If-Modified-Since"));
+        assertEquals(-1L, request.getDateHeader("Date"));
+        assertThrows(IllegalArgumentException.class, () -> request.getDateHeader("X-Bad-Date"));
+    }
+
+    @Test
+    void testOversizedContentLengthRejectedBeforeReading() throws IOException {
+        HttpParseException tooLarge = assertThrows(HttpParseException.class, () -> parse("POST /upload HTTP/1.1\r\n"
+            + "Content-Length: 2147483648\r\n\r\n"));
+        assertEquals(413, tooLarge.getStatus());
+
+        Request request = new Request(new ByteArrayInputStream(("POST /upload HTTP/1.1\r\n"
+            + "Content-Length: 11\r\n\r\nhello world").getBytes(StandardCharsets.US_ASCII)), sessionManager);
+        request.setMaxPostSize(10);
+        assertEquals(413, assertThrows(HttpParseException.class, request::parse).getStatus());
+
+        assertEquals("hello world", parse("POST /upload HTTP/1.1\r\n"
+            + "Content-Length: 11\r\n\r\nhello world").getBody());
+    }
+
+    @Test
+    void testChunkedWithContentLengthRejected() {
+        HttpParseException ambiguous = assertThrows(HttpParseException.class, () -> parse("POST /upload HTTP/1.1\r\n"
+            + "Transfer-Encoding: chunked\r\nContent-Length: 5\r\n\r\nhello"));
+        assertEquals(400, ambiguous.getStatus());
+    }
+}
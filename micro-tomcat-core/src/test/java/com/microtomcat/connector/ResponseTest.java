@@ -0,0 +1,583 @@
+package com.microtomcat.connector;
+
+import com.microtomcat.resources.MappedFilePool;
+import com.microtomcat.resources.StaticResource;
+import com.microtomcat.resources.StaticResourceCache;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ResponseTest {
+
+    @Test
+    void testRecycleClearsStateForReuse() throws IOException {
+        Response response = new Response();
+        ByteArrayOutputStream first = new ByteArrayOutputStream();
+        response.setOutputStream(first);
+        response.setStatus(404);
+        response.setHeader("X-Test", "1");
+        PrintWriter writer = response.getWriter();
+        writer.write("first");
+        writer.close();
+        response.flushBuffer();
+        assertTrue(response.isCommitted());
+
+        response.recycle();
+        ByteArrayOutputStream second = new ByteArrayOutputStream();
+        response.setOutputStream(second);
+
+        assertFalse(response.isCommitted());
+        assertEquals(200, response.getStatus());
+        assertNull(response.getHeader("X-Test"));
+        response.getWriter().write("second");
+        response.finishResponse();
+
+        String output = new String(second.toByteArray(), StandardCharsets.ISO_8859_1);
+        assertTrue(output.startsWith("HTTP/1.1 200 OK"));
+        assertTrue(output.contains("Content-Length: 6\r\n"));
+        assertTrue(output.endsWith("second"), "Writer should survive close() and recycle()");
+        assertFalse(output.contains("X-Test"));
+    }
+
+    @Test
+    void testFacadeIsReused() {
+        Response response = new Response();
+        ServletResponseWrapper facade = response.getFacade();
+        response.recycle();
+        assertSame(facade, response.getFacade());
+    }
+
+    @Test
+    void testSmallBodyGetsContentLength() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Response response = new Response(out);
+        PrintWriter writer = response.getWriter();
+        writer.write("hello");
+        assertFalse(response.isCommitted(), "getWriter() must not commit the response");
+        response.setStatus(201);
+
+        response.finishResponse();
+        response.finishResponse();
+
+        String output = new String(out.toByteArray(), StandardCharsets.ISO_8859_1);
+        assertTrue(output.startsWith("HTTP/1.1 201 "));
+        assertTrue(output.contains("Content-Length: 5\r\n"));
+        assertFalse(output.contains("Transfer-Encoding"));
+        assertTrue(output.endsWith("\r\n\r\nhello"));
+        assertTrue(response.isBodyDelimited());
+    }
+
+    @Test
+    void testLargeBodyStreamsChunked() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Response response = new Response(out);
+        response.setBufferSize(16);
+        ServletOutputStream stream = response.getOutputStream();
+
+        stream.write("0123456789".getBytes(StandardCharsets.ISO_8859_1));
+        assertEquals(0, out.size(), "Body within the buffer stays buffered");
+        stream.write("abcdefghij".getBytes(StandardCharsets.ISO_8859_1));
+        assertTrue(response.isCommitted(), "Overflowing the buffer commits the response");
+        int afterOverflow = out.size();
+        stream.write("XYZ".getBytes(StandardCharsets.ISO_8859_1));
+        assertEquals(afterOverflow, out.size());
+        response.finishResponse();
+
+        String output = new String(out.toByteArray(), StandardCharsets.ISO_8859_1);
+        assertTrue(output.contains("Transfer-Encoding: chunked\r\n"));
+        assertFalse(output.contains("Content-Length"));
+        assertTrue(output.endsWith("\r\n\r\na\r\n0123456789\r\nd\r\nabcdefghijXYZ\r\n0\r\n\r\n"));
+        assertTrue(response.isBodyDelimited());
+    }
+
+    @Test
+    void testSendMappedWritesSliceToChannel(@TempDir Path dir) throws IOException {
+        Path file = Files.write(dir.resolve("data.bin"), "0123456789".getBytes(StandardCharsets.ISO_8859_1));
+        StaticResource resource = new StaticResourceCache(0, 10, 0, 0).lookup(file);
+        MappedFilePool pool = new MappedFilePool(1024, 1024);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Response response = new Response(out);
+        response.setSocketChannel(Channels.newChannel(out), false);
+
+        response.sendMapped(pool.acquire(resource), 2, 5);
+
+        String output = new String(out.toByteArray(), StandardCharsets.ISO_8859_1);
+        assertTrue(output.contains("Content-Length: 5\r\n"));
+        assertTrue(output.endsWith("\r\n\r\n23456"));
+        assertEquals(0, pool.getUnmapCount(), "Response released only its own reference");
+        pool.clear();
+        assertEquals(1, pool.getUnmapCount());
+    }
+
+    @Test
+    void testRecycleClosesUnclaimedSendfile(@TempDir Path dir) throws IOException {
+        Path file = Files.write(dir.resolve("data.bin"), "0123456789".getBytes(StandardCharsets.ISO_8859_1));
+        StaticResource resource = new StaticResourceCache(0, 10, 0, 0).lookup(file);
+        MappedFilePool pool = new MappedFilePool(1024, 1024);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Response response = new Response(out);
+        response.setSocketChannel(Channels.newChannel(out), true);
+
+        // 映射切片已登记给连接器，之后请求处理出错，连接器没有取走
+        response.sendMapped(pool.acquire(resource), 0, 10);
+        assertNotNull(response.getSendfileData());
+        pool.clear();
+        assertEquals(0, pool.getUnmapCount());
+        response.recycle();
+        assertEquals(1, pool.getUnmapCount(), "Recycle releases the mapping reference");
+
+        response.setOutputStream(out);
+        response.setSendfileThreshold(0);
+        response.setSocketChannel(Channels.newChannel(out), true);
+        response.sendFile(file.toFile(), 0, 10);
+        SendfileData unclaimed = response.getSendfileData();
+        response.recycle();
+        assertThrows(ClosedChannelException.class, () -> unclaimed.transferTo(Channels.newChannel(out)));
+
+        // 连接器取走后由它负责关闭，recycle 不再触碰
+        response.setOutputStream(out);
+        response.setSendfileThreshold(0);
+        response.setSocketChannel(Channels.newChannel(out), true);
+        response.sendFile(file.toFile(), 0, 10);
+        SendfileData taken = response.takeSendfileData();
+        response.recycle();
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+        assertTrue(taken.transferTo(Channels.newChannel(target)));
+        assertEquals("0123456789", target.toString("ISO-8859-1"));
+        taken.close();
+    }
+
+    /**
+     * 每次只接受 budget 个字节的通道，用完后像写满的非阻塞 socket 一样返回 0
+     */
+    private static class ThrottledChannel implements WritableByteChannel {
+        final ByteArrayOutputStream received = new ByteArrayOutputStream();
+        int budget;
+
+        @Override
+        public int write(ByteBuffer src) {
+            int n = Math.min(budget, src.remaining());
+            for (int i = 0; i < n; i++) {
+                received.write(src.get());
+            }
+            budget -= n;
+            return n;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    @Test
+    void testSendFileBelowThresholdBypassesTransfer(@TempDir Path dir) throws IOException {
+        Path file = Files.write(dir.resolve("small.txt"), "0123456789".getBytes(StandardCharsets.ISO_8859_1));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        WritableByteChannel channel = mock(WritableByteChannel.class);
+        Response response = new Response(out);
+        response.setSendfileThreshold(11);
+        response.setSocketChannel(channel, true);
+
+        response.sendFile(file.toFile(), 0, 10);
+
+        assertNull(response.getSendfileData(), "Small files are copied through the response buffer");
+        verifyNoInteractions(channel);
+        String output = new String(out.toByteArray(), StandardCharsets.ISO_8859_1);
+        assertTrue(output.contains("Content-Length: 10\r\n"));
+        assertTrue(output.endsWith("\r\n\r\n0123456789"));
+    }
+
+    @Test
+    void testSendfileResumesAfterPartialWrite(@TempDir Path dir) throws IOException {
+        byte[] content = new byte[100000];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+        Path file = Files.write(dir.resolve("large.bin"), content);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Response response = new Response(out);
+        response.setSendfileThreshold(0);
+        response.setSocketChannel(mock(WritableByteChannel.class), true);
+        response.sendFile(file.toFile(), 100, content.length - 100);
+        assertTrue(out.toString("ISO-8859-1").endsWith("Content-Length: 99900\r\n\r\n"),
+            "Only the headers go through the output stream");
+
+        // 连接器在 OP_WRITE 就绪时反复调用，每次只写出通道能接受的部分
+        SendfileData data = response.takeSendfileData();
+        ThrottledChannel channel = new ThrottledChannel();
+        channel.budget = 30000;
+        assertFalse(data.transferTo(channel));
+        assertEquals(69900, data.getRemaining());
+        assertFalse(data.transferTo(channel), "A full channel leaves the position unchanged");
+        assertEquals(69900, data.getRemaining());
+        channel.budget = Integer.MAX_VALUE;
+        assertTrue(data.transferTo(channel));
+        assertEquals(0, data.getRemaining());
+        data.close();
+
+        assertArrayEquals(Arrays.copyOfRange(content, 100, content.length), channel.received.toByteArray());
+    }
+
+    @Test
+    void testSendFileTransfersDirectlyOnBlockingChannel(@TempDir Path dir) throws IOException {
+        Path file = Files.write(dir.resolve("data.bin"), "0123456789".getBytes(StandardCharsets.ISO_8859_1));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Response response = new Response(out);
+        response.setSendfileThreshold(0);
+        // 阻塞连接在请求线程上直接 transferTo 到同一个 socket
+        response.setSocketChannel(Channels.newChannel(out), false);
+
+        response.sendFile(file.toFile(), 3, 4);
+
+        assertNull(response.getSendfileData(), "Blocking transfer completes before sendFile returns");
+        String output = new String(out.toByteArray(), StandardCharsets.ISO_8859_1);
+        assertTrue(output.contains("Content-Length: 4\r\n"));
+        assertTrue(output.endsWith("\r\n\r\n3456"));
+        assertEquals(4, response.getBytesWritten());
+    }
+
+    @Test
+    void testHttp10UnknownLengthClosesConnection() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Response response = new Response(out);
+        response.setChunkingAllowed(false);
+        response.getWriter().write("partial");
+        response.flushBuffer();
+        response.finishResponse();
+
+        String output = new String(out.toByteArray(), StandardCharsets.ISO_8859_1);
+        assertTrue(output.contains("Connection: close\r\n"));
+        assertTrue(output.endsWith("\r\n\r\npartial"));
+        assertFalse(response.isBodyDelimited());
+    }
+
+    @Test
+    void testSendErrorDiscardsBufferedBody() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Response response = new Response(out);
+        response.getWriter().write("discarded");
+        response.sendError(404, "missing");
+        response.getWriter().write("ignored");
+        response.finishResponse();
+
+        String output = new String(out.toByteArray(), StandardCharsets.UTF_8);
+        assertTrue(output.contains("missing"));
+        assertFalse(output.contains("discarded"));
+        assertFalse(output.contains("ignored"));
+        assertTrue(output.contains("Content-Length: "));
+    }
+
+    @Test
+    void testHeadersSerializedWithCanonicalNames() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Response response = new Response(out);
+        response.setStatus(404);
+        response.setHeader("Content-Type", "text/plain");
+        response.setHeader("X-Custom", "a\r\nInjected: 1");
+        response.addHeader("cache-control", "no-cache");
+        assertEquals("text/plain", response.getContentType());
+        assertEquals("no-cache", response.getHeader("Cache-Control"));
+        assertTrue(response.getHeaderNames().contains("x-custom"));
+
+        response.finishResponse();
+
+        String output = new String(out.toByteArray(), StandardCharsets.ISO_8859_1);
+        assertTrue(output.startsWith("HTTP/1.1 404 Not Found\r\nServer: MicroTomcat\r\nDate: "));
+        assertTrue(output.contains("\r\nContent-Type: text/plain; charset=UTF-8\r\n"));
+        assertTrue(output.contains("\r\nCache-Control: no-cache\r\n"));
+        assertTrue(output.contains("\r\nx-custom: a  Injected: 1\r\n"));
+        assertTrue(output.contains("\r\nContent-Length: 0\r\n"));
+    }
+
+    @Test
+    void testConditionalGetReturnsNotModified() throws IOException {
+        String etag = "\"5f-a\"";
+        long lastModified = 1_000_000_000_000L;
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Response response = new Response(out);
+        assertTrue(Response.checkNotModified(conditional("GET", "W/\"x\", " + etag, null), response,
+            etag, lastModified));
+        response.finishResponse();
+        String output = new String(out.toByteArray(), StandardCharsets.ISO_8859_1);
+        assertTrue(output.startsWith("HTTP/1.1 304 "));
+        assertTrue(output.contains("ETag: " + etag + "\r\n"));
+        assertTrue(output.contains("Last-Modified: " + HttpDate.format(lastModified) + "\r\n"));
+        assertFalse(output.contains("Content-Length"));
+        assertTrue(output.endsWith("\r\n\r\n"));
+
+        // If-None-Match 存在时忽略 If-Modified-Since
+        assertFalse(Response.checkNotModified(conditional("GET", "\"other\"", HttpDate.format(lastModified)),
+            new Response(), etag, lastModified));
+        assertTrue(Response.checkNotModified(conditional("HEAD", null, HttpDate.format(lastModified + 500)),
+            new Response(), etag, lastModified));
+        assertFalse(Response.checkNotModified(conditional("GET", null, HttpDate.format(lastModified - 1000)),
+            new Response(), etag, lastModified));
+        assertFalse(Response.checkNotModified(conditional("POST", etag, null), new Response(), etag, lastModified));
+        assertFalse(Response.checkNotModified(conditional("GET", null, "not a date"),
+            new Response(), etag, lastModified));
+    }
+
+    private static HttpServletRequest conditional(String method, String ifNoneMatch, String ifModifiedSince) {
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        when(request.getMethod()).thenReturn(method);
+        when(request.getHeader("If-None-Match")).thenReturn(ifNoneMatch);
+        when(request.getHeader("If-Modified-Since")).thenReturn(ifModifiedSince);
+        return request;
+    }
+
+    @Test
+    void testRangeRequestsReturnPartialContent(@TempDir Path dir) throws IOException {
+        Path file = Files.write(dir.resolve("data.txt"), "0123456789".getBytes(StandardCharsets.ISO_8859_1));
+        StaticResource resource = new StaticResourceCache(1024, 10, 1024, 60000).lookup(file);
+
+        String single = serveRange(resource, "bytes=2-4", null);
+        assertTrue(single.startsWith("HTTP/1.1 206 "));
+        assertTrue(single.contains("Content-Range: bytes 2-4/10\r\n"));
+        assertTrue(single.contains("Content-Length: 3\r\n"));
+        assertTrue(single.endsWith("\r\n\r\n234"));
+
+        String multi = serveRange(resource, "bytes=0-1,-2", resource.getETag());
+        int boundaryStart = multi.indexOf("boundary=") + 9;
+        String boundary = multi.substring(boundaryStart, multi.indexOf("\r\n", boundaryStart));
+        String body = "\r\n--" + boundary + "\r\nContent-Type: text/plain; charset=UTF-8\r\nContent-Range: bytes 0-1/10"
+            + "\r\n\r\n01\r\n--" + boundary + "\r\nContent-Type: text/plain; charset=UTF-8\r\nContent-Range: bytes 8-9/10"
+            + "\r\n\r\n89\r\n--" + boundary + "--\r\n";
+        assertTrue(multi.startsWith("HTTP/1.1 206 "));
+        assertTrue(multi.contains("Content-Type: multipart/byteranges; boundary=" + boundary + "\r\n"));
+        assertTrue(multi.contains("Content-Length: " + body.length() + "\r\n"));
+        assertTrue(multi.endsWith("\r\n\r\n" + body));
+
+        String unsatisfiable = serveRange(resource, "bytes=10-", null);
+        assertTrue(unsatisfiable.startsWith("HTTP/1.1 416 "));
+        assertTrue(unsatisfiable.contains("Content-Range: bytes */10\r\n"));
+
+        // 资源已经变化时 If-Range 不匹配，发送整个文件
+        String stale = serveRange(resource, "bytes=2-4", "\"stale\"");
+        assertTrue(stale.startsWith("HTTP/1.1 200 "));
+        assertTrue(stale.contains("Accept-Ranges: bytes\r\n"));
+        assertTrue(stale.endsWith("\r\n\r\n0123456789"));
+        assertTrue(serveRange(resource, "bytes=2-4", resource.getLastModifiedHttpDate()).startsWith("HTTP/1.1 206 "));
+    }
+
+    @Test
+    void testHeadSendsStaticHeadersWithoutBody(@TempDir Path dir) throws IOException {
+        Path file = Files.write(dir.resolve("data.txt"), "0123456789".getBytes(StandardCharsets.ISO_8859_1));
+        // 内容在堆缓存中，和只能从文件发送两种情况
+        for (StaticResourceCache cache : new StaticResourceCache[] {
+                new StaticResourceCache(1024, 10, 1024, 60000), new StaticResourceCache(0, 10, 0, 0)}) {
+            StaticResource resource = cache.lookup(file);
+            HttpServletRequest request = mock(HttpServletRequest.class);
+            when(request.getMethod()).thenReturn("HEAD");
+            when(request.getHeader("Range")).thenReturn("bytes=2-4");
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            Response response = new Response(out);
+            response.setSendfileThreshold(0);
+            response.setSocketChannel(Channels.newChannel(out), true);
+
+            response.sendStaticResource(resource, request);
+            response.finishResponse();
+
+            String output = new String(out.toByteArray(), StandardCharsets.ISO_8859_1);
+            assertTrue(output.startsWith("HTTP/1.1 200 "));
+            assertTrue(output.contains("Content-Length: 10\r\n"));
+            assertTrue(output.contains("ETag: " + resource.getETag() + "\r\n"));
+            assertTrue(output.endsWith("\r\n\r\n"), "No body after the headers: " + output);
+            assertNull(response.getSendfileData());
+            assertTrue(response.isBodyDelimited(), "Connection stays reusable");
+        }
+    }
+
+    private static String serveRange(StaticResource resource, String range, String ifRange) throws IOException {
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        when(request.getMethod()).thenReturn("GET");
+        when(request.getHeader("Range")).thenReturn(range);
+        when(request.getHeader("If-Range")).thenReturn(ifRange);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Response response = new Response(out);
+        response.sendStaticResource(resource, request);
+        response.finishResponse();
+        return new String(out.toByteArray(), StandardCharsets.ISO_8859_1);
+    }
+
+    @Test
+    void testCompressesBufferedAndStreamedBodies() throws IOException {
+        Compression compression = new Compression();
+        byte[] small = CompressionTest.text(3000);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Response response = new Response(out);
+        response.setCompression(compression);
+        response.setAcceptEncoding("gzip, deflate");
+        response.setContentType("text/plain");
+        response.getOutputStream().write(small);
+        response.finishResponse();
+
+        byte[] all = out.toByteArray();
+        String head = headOf(all);
+        int length = Integer.parseInt(head.replaceAll("(?s).*Content-Length: (\\d+)\r\n.*", "$1"));
+        assertTrue(length < small.length);
+        assertTrue(head.contains("Content-Encoding: gzip\r\n"));
+        assertTrue(head.contains("Vary: Accept-Encoding\r\n"));
+        assertArrayEquals(small, CompressionTest.inflate(new GZIPInputStream(
+            new ByteArrayInputStream(all, head.length(), length))));
+
+        // 超出缓冲区的响应体流式压缩，按 chunked 发送
+        byte[] large = CompressionTest.text(100000);
+        out.reset();
+        response.recycle();
+        response.setOutputStream(out);
+        response.setAcceptEncoding("deflate");
+        response.setContentType("application/json");
+        response.getOutputStream().write(large, 0, 5000);
+        response.flushBuffer();
+        response.getOutputStream().write(large, 5000, large.length - 5000);
+        response.finishResponse();
+
+        all = out.toByteArray();
+        head = headOf(all);
+        assertTrue(head.contains("Content-Encoding: deflate\r\n"));
+        assertTrue(head.contains("Transfer-Encoding: chunked\r\n"));
+        assertFalse(head.contains("Content-Length"));
+        byte[] body = dechunk(Arrays.copyOfRange(all, head.length(), all.length));
+        assertArrayEquals(large, CompressionTest.inflate(new InflaterInputStream(new ByteArrayInputStream(body))));
+        assertEquals(2, compression.getPooledDeflaterCount(), "Deflaters are returned after each response");
+
+        // 不接受压缩的客户端、太小的响应体和不可压缩的类型原样发送
+        out.reset();
+        response.recycle();
+        response.setOutputStream(out);
+        response.setContentType("text/plain");
+        response.getOutputStream().write(small);
+        response.finishResponse();
+        head = headOf(out.toByteArray());
+        assertFalse(head.contains("Content-Encoding"));
+        assertTrue(head.contains("Vary: Accept-Encoding\r\n"));
+        assertEquals(2, compression.getCompressedCount());
+    }
+
+    @Test
+    void testMalformedContentLengthHeaderTreatedAsUnknown() throws IOException {
+        byte[] text = CompressionTest.text(3000);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Response response = new Response(out);
+        response.setCompression(new Compression());
+        response.setAcceptEncoding("gzip");
+        response.setContentType("text/plain");
+        response.setHeader("Content-Length", "not-a-number");
+        response.getOutputStream().write(text);
+        response.finishResponse();
+
+        byte[] all = out.toByteArray();
+        String head = headOf(all);
+        assertTrue(head.startsWith("HTTP/1.1 200 "), head);
+        assertTrue(head.contains("Content-Encoding: gzip\r\n"));
+        int length = Integer.parseInt(head.replaceAll("(?s).*Content-Length: (\\d+)\r\n.*", "$1"));
+        assertArrayEquals(text, CompressionTest.inflate(new GZIPInputStream(
+            new ByteArrayInputStream(all, head.length(), length))));
+    }
+
+    @Test
+    void testStaticResourceUsesSidecarOrPrecompressedContent(@TempDir Path dir) throws IOException {
+        StaticResourceCache cache = StaticResourceCache.getShared();
+        Path script = Files.write(dir.resolve("app.js"), CompressionTest.text(4000));
+        Path css = Files.write(dir.resolve("site.css"), CompressionTest.text(4000));
+        Files.write(dir.resolve("app.js.br"), "brotli".getBytes(StandardCharsets.ISO_8859_1));
+
+        String brotli = serveEncoded(cache.lookup(script), "gzip, br");
+        assertTrue(brotli.contains("Content-Encoding: br\r\n"));
+        assertTrue(brotli.contains("Content-Type: application/javascript"));
+        assertTrue(brotli.contains("-br\"\r\n"), "Encoded variant has its own ETag");
+        assertTrue(brotli.endsWith("\r\n\r\nbrotli"));
+        String identity = serveEncoded(cache.lookup(script), null);
+        assertTrue(identity.contains("Vary: Accept-Encoding\r\n"));
+        assertFalse(identity.contains("Content-Encoding"));
+
+        long precompressions = cache.getPrecompressCount();
+        String first = serveEncoded(cache.lookup(css), "gzip");
+        String second = serveEncoded(cache.lookup(css), "gzip");
+        assertTrue(first.contains("Content-Encoding: gzip\r\n"));
+        assertEquals(first.substring(first.indexOf("ETag")), second.substring(second.indexOf("ETag")));
+        assertEquals(precompressions + 1, cache.getPrecompressCount(), "Hot asset is compressed once");
+        byte[] all = first.getBytes(StandardCharsets.ISO_8859_1);
+        int bodyStart = first.indexOf("\r\n\r\n") + 4;
+        assertArrayEquals(CompressionTest.text(4000), CompressionTest.inflate(new GZIPInputStream(
+            new ByteArrayInputStream(all, bodyStart, all.length - bodyStart))));
+    }
+
+    private static String serveEncoded(StaticResource resource, String acceptEncoding) throws IOException {
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        when(request.getMethod()).thenReturn("GET");
+        when(request.getHeader("Accept-Encoding")).thenReturn(acceptEncoding);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Response response = new Response(out);
+        response.sendStaticResource(resource, request);
+        response.finishResponse();
+        return new String(out.toByteArray(), StandardCharsets.ISO_8859_1);
+    }
+
+    private static String headOf(byte[] response) {
+        String text = new String(response, StandardCharsets.ISO_8859_1);
+        return text.substring(0, text.indexOf("\r\n\r\n") + 4);
+    }
+
+    private static byte[] dechunk(byte[] chunked) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        int pos = 0;
+        for (;;) {
+            int lineEnd = pos;
+            while (chunked[lineEnd] != '\r') {
+                lineEnd++;
+            }
+            int size = Integer.parseInt(new String(chunked, pos, lineEnd - pos, StandardCharsets.ISO_8859_1), 16);
+            if (size == 0) {
+                return body.toByteArray();
+            }
+            body.write(chunked, lineEnd + 2, size);
+            pos = lineEnd + 2 + size + 2;
+        }
+    }
+
+    @Test
+    void testHttpDateParsesAllFormats() {
+        long expected = 784111777000L;
+        assertEquals(expected, HttpDate.parse("Sun, 06 Nov 1994 08:49:37 GMT"));
+        assertEquals(expected, HttpDate.parse("Sunday, 06-Nov-94 08:49:37 GMT"));
+        assertEquals(expected, HttpDate.parse("Sun Nov  6 08:49:37 1994"));
+        assertEquals(-1, HttpDate.parse("Sun, 06 Nov 1994 08:49:37 GMT junk"));
+        assertEquals(-1, HttpDate.parse(null));
+    }
+
+    @Test
+    void testHttpDateFormat() {
+        assertEquals("Thu, 01 Jan 1970 00:00:00 GMT", HttpDate.format(0));
+        assertTrue(HttpDate.getCurrentDate().endsWith(" GMT"));
+        assertEquals("HTTP/1.1 503 Service Unavailable\r\n",
+            new String(HttpMessages.getStatusLine(503), StandardCharsets.ISO_8859_1));
+        assertEquals("HTTP/1.1 799 Unknown\r\n",
+            new String(HttpMessages.getStatusLine(799), StandardCharsets.ISO_8859_1));
+    }
+}
@@ -0,0 +1,78 @@
+package com.microtomcat.container;
+
+import com.microtomcat.connector.Request;
+import com.microtomcat.connector.Response;
+import com.microtomcat.pipeline.PipelineStats;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.servlet.Servlet;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ContainerPipelineTest {
+    private Engine engine;
+    private Host host;
+    private Context context;
+    private Servlet servlet;
+    private Request request;
+    private Response response;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        engine = new Engine("pipeline-test", "localhost");
+        host = new Host("localhost");
+        context = new Context("", "webroot");
+        engine.addChild(host);
+        host.addChild(context);
+
+        servlet = mock(Servlet.class);
+        context.addServlet("test", servlet);
+        context.addServletMapping("/test", "test");
+
+        request = mock(Request.class);
+        response = mock(Response.class);
+        when(request.getServerName()).thenReturn("localhost");
+        when(request.getUri()).thenReturn("/test");
+        when(request.getRequestURI()).thenReturn("/test");
+    }
+
+    @Test
+    void testRequestPassesThroughEveryPipeline() throws Exception {
+        List<String> executed = new ArrayList<>();
+        engine.getPipeline().addValve((request, response, valveContext) -> {
+            executed.add("engine-valve");
+            valveContext.invokeNext(request, response);
+        });
+        host.getPipeline().addValve((request, response, valveContext) -> {
+            executed.add("host-valve");
+            valveContext.invokeNext(request, response);
+        });
+        context.getPipeline().addValve((request, response, valveContext) -> {
+            executed.add("context-valve");
+            valveContext.invokeNext(request, response);
+        });
+
+        engine.invoke(request, response);
+
+        assertEquals("[engine-valve, host-valve, context-valve]", executed.toString());
+        verify(servlet, times(1)).service(request, response);
+    }
+
+    @Test
+    void testStageLatencyIsRecordedPerContainer() throws Exception {
+        PipelineStats stats = PipelineStats.getInstance();
+        String wrapperStage = "Engine[pipeline-test]/Host[localhost]/Context[]/Wrapper[test]";
+        long before = stats.getCount(wrapperStage);
+
+        engine.invoke(request, response);
+
+        assertEquals(before + 1, stats.getCount(wrapperStage));
+        assertTrue(stats.getCount("Engine[pipeline-test]") > 0);
+        assertTrue(stats.getCount("Engine[pipeline-test]/Host[localhost]") > 0);
+        assertTrue(stats.getCount("Engine[pipeline-test]/Host[localhost]/Context[]") > 0);
+    }
+}
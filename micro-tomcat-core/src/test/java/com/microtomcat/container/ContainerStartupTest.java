@@ -0,0 +1,159 @@
+package com.microtomcat.container;
+
+import com.microtomcat.lifecycle.Lifecycle;
+import com.microtomcat.lifecycle.LifecycleException;
+import com.microtomcat.server.AbstractHttpServer;
+import com.microtomcat.server.ServerConfig;
+import org.junit.jupiter.api.Test;
+
+import javax.servlet.GenericServlet;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContainerStartupTest {
+    private static final int CONTEXTS = 3;
+
+    /**
+     * 所有上下文的 Servlet 都到达屏障才能完成初始化，逐个启动时会超时
+     */
+    public static class BarrierServlet extends GenericServlet {
+        static volatile CyclicBarrier barrier;
+        static final Set<String> THREADS = ConcurrentHashMap.newKeySet();
+
+        @Override
+        public void init() throws ServletException {
+            THREADS.add(Thread.currentThread().getName());
+            try {
+                barrier.await(5, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                throw new ServletException("Contexts were not started in parallel", e);
+            }
+        }
+
+        @Override
+        public void service(ServletRequest req, ServletResponse res) {
+        }
+    }
+
+    public static class FailingServlet extends GenericServlet {
+        @Override
+        public void init() throws ServletException {
+            throw new ServletException("boom");
+        }
+
+        @Override
+        public void service(ServletRequest req, ServletResponse res) {
+        }
+    }
+
+    private Engine createEngine(String name, String servletClass) throws Exception {
+        Engine engine = new Engine(name, "localhost");
+        Host host = new Host("localhost");
+        engine.addChild(host);
+        for (int i = 0; i < CONTEXTS; i++) {
+            Context context = new Context("/app" + i, "webroot");
+            Wrapper wrapper = new Wrapper("servlet", servletClass);
+            wrapper.setLoadOnStartup(0);
+            context.addChild(wrapper);
+            host.addChild(context);
+        }
+        return engine;
+    }
+
+    @Test
+    void testSiblingsStartInParallelAfterParent() throws Exception {
+        Engine engine = createEngine("parallel-start", BarrierServlet.class.getName());
+        engine.setStartStopThreads(CONTEXTS + 1);
+        BarrierServlet.barrier = new CyclicBarrier(CONTEXTS);
+        BarrierServlet.THREADS.clear();
+        StartupTimeline timeline = StartupTimeline.attach(engine);
+
+        engine.start();
+        try {
+            // 能越过屏障说明三个上下文的启动同时在进行，而且都在启动线程池上执行
+            assertFalse(BarrierServlet.THREADS.isEmpty());
+            for (String thread : BarrierServlet.THREADS) {
+                assertTrue(thread.startsWith("container-start-"), thread);
+            }
+
+            List<StartupTimeline.Entry> entries = timeline.getEntries();
+            StartupTimeline.Entry host = find(entries, "Engine[parallel-start]/Host[localhost]", "start");
+            for (int i = 0; i < CONTEXTS; i++) {
+                StartupTimeline.Entry context =
+                    find(entries, "Engine[parallel-start]/Host[localhost]/Context[/app" + i + "]", "start");
+                assertTrue(context.getStartMillis() >= host.getStartMillis());
+                assertTrue(context.getStartMillis() + context.getDurationMillis()
+                    <= host.getStartMillis() + host.getDurationMillis() + 0.001);
+            }
+            assertTrue(timeline.format().contains("Wrapper[servlet]"));
+        } finally {
+            timeline.detach();
+            engine.stop();
+        }
+    }
+
+    @Test
+    void testChildFailureFailsParentStart() throws Exception {
+        Engine engine = createEngine("failing-start", FailingServlet.class.getName());
+        engine.setStartStopThreads(2);
+
+        LifecycleException failure = assertThrows(LifecycleException.class, engine::start);
+        assertEquals(CONTEXTS - 1, countSuppressed(failure));
+    }
+
+    @Test
+    void testServerStartsEngineFromConfig() throws Exception {
+        ServerConfig config = new ServerConfig(0, false, 1, "webroot");
+        config.setStartStopThreads(CONTEXTS + 1);
+        AbstractHttpServer server = new AbstractHttpServer(config) {
+            @Override
+            public void start() throws LifecycleException {
+                startContainers();
+            }
+
+            @Override
+            public void stop() {
+            }
+        };
+        Engine engine = createEngine("server-start", BarrierServlet.class.getName());
+        BarrierServlet.barrier = new CyclicBarrier(CONTEXTS);
+        server.setEngine(engine);
+
+        // 只有按配置并行启动，三个上下文才能同时越过屏障
+        server.start();
+        try {
+            assertEquals(Lifecycle.STARTED, engine.getState());
+            assertEquals(CONTEXTS + 1, engine.getStartStopThreads());
+            find(server.getStartupTimeline().getEntries(), "Engine[server-start]/Host[localhost]", "start");
+        } finally {
+            engine.stop();
+        }
+    }
+
+    private static int countSuppressed(Throwable failure) {
+        // 失败沿 Host -> Engine 向上包装，汇总了兄弟容器失败的异常在 Host 这一层
+        for (Throwable t = failure; t != null; t = t.getCause()) {
+            if (t.getSuppressed().length > 0) {
+                return t.getSuppressed().length;
+            }
+        }
+        return 0;
+    }
+
+    private static StartupTimeline.Entry find(List<StartupTimeline.Entry> entries, String container, String phase) {
+        for (StartupTimeline.Entry entry : entries) {
+            if (entry.getContainer().equals(container) && entry.getPhase().equals(phase)) {
+                return entry;
+            }
+        }
+        throw new AssertionError("No " + phase + " entry for " + container);
+    }
+}
@@ -0,0 +1,86 @@
+package com.microtomcat.container;
+
+import com.microtomcat.connector.Request;
+import com.microtomcat.connector.Response;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class HostMapperTest {
+
+    @Test
+    void testExactAliasWildcardAndDefault() {
+        Host local = new Host("localhost");
+        Host example = new Host("www.example.com");
+        example.addAlias("Example.com");
+        Host wildcard = new Host("*.example.com");
+        Host deep = new Host("*.eu.example.com");
+
+        HostMapper mapper = HostMapper.compile(new Host[] {local, example, wildcard, deep}, "localhost");
+
+        assertSame(example, mapper.map("www.example.com"));
+        assertSame(example, mapper.map("example.com"));
+        assertSame(wildcard, mapper.map("api.example.com"));
+        assertSame(deep, mapper.map("shop.eu.example.com"));
+        assertSame(wildcard, mapper.map("a.b.example.com"));
+        assertSame(local, mapper.map("unknown.org"));
+        assertSame(local, mapper.map(null));
+    }
+
+    @Test
+    void testContextLookupUsesLongestPathPrefix() throws Exception {
+        Host host = new Host("localhost");
+        Context root = new Context("", "webroot");
+        Context api = new Context("/api", "webroot");
+        Context apiV2 = new Context("/api/v2", "webroot");
+        host.addChild(root);
+        host.addChild(api);
+        host.addChild(apiV2);
+
+        assertSame(apiV2, host.map("/api/v2/users"));
+        assertSame(apiV2, host.map("/api/v2"));
+        assertSame(api, host.map("/api/v1/users"));
+        assertSame(root, host.map("/apiary"));
+        assertSame(root, host.map("/"));
+
+        host.removeChild(apiV2);
+        assertSame(api, host.map("/api/v2/users"));
+    }
+
+    @Test
+    void testEngineRoutingFollowsContainerEvents() throws Exception {
+        Engine engine = new Engine("routing-test", "localhost");
+        Host local = new Host("localhost");
+        Host other = new Host("other.org");
+        engine.addChild(local);
+        engine.addChild(other);
+
+        Request request = mock(Request.class);
+        Response response = mock(Response.class);
+        when(request.getServerName()).thenReturn("alias.org");
+        when(request.getUri()).thenReturn("/");
+
+        // 别名登记之前落到默认主机，默认主机没有上下文
+        engine.invoke(request, response);
+        verify(response).sendError(404, "Context not found for: /");
+
+        other.addAlias("alias.org");
+        Context context = new Context("", "webroot");
+        other.addChild(context);
+        List<String> reached = new ArrayList<>();
+        context.getPipeline().addValve((req, resp, valveContext) -> reached.add(req.getServerName()));
+
+        engine.invoke(request, response);
+        assertEquals(Collections.singletonList("alias.org"), reached);
+
+        other.removeAlias("alias.org");
+        engine.invoke(request, response);
+        assertEquals(1, reached.size());
+        verify(response, times(2)).sendError(404, "Context not found for: /");
+    }
+}
@@ -0,0 +1,83 @@
+package com.microtomcat.container;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ServletMapperTest {
+
+    private static ServletMapper mapper(String... patternsAndNames) {
+        Map<String, String> mappings = new LinkedHashMap<>();
+        for (int i = 0; i < patternsAndNames.length; i += 2) {
+            mappings.put(patternsAndNames[i], patternsAndNames[i + 1]);
+        }
+        return ServletMapper.compile(mappings);
+    }
+
+    @Test
+    void testMatchOrderAndResolvedPaths() {
+        ServletMapper mapper = mapper(
+            "/foo/bar/test.jsp", "exact",
+            "/foo/bar/*", "longPrefix",
+            "/foo/*", "shortPrefix",
+            "*.jsp", "extension",
+            "/*", "default");
+
+        ServletMapper.Result exact = mapper.map("/foo/bar/test.jsp");
+        assertEquals("exact", exact.getServletName());
+        assertEquals("/foo/bar/test.jsp", exact.getServletPath());
+        assertNull(exact.getPathInfo());
+
+        ServletMapper.Result prefix = mapper.map("/foo/bar/other.jsp");
+        assertEquals("longPrefix", prefix.getServletName());
+        assertEquals("/foo/bar", prefix.getServletPath());
+        assertEquals("/other.jsp", prefix.getPathInfo());
+
+        ServletMapper.Result bare = mapper.map("/foo");
+        assertEquals("shortPrefix", bare.getServletName());
+        assertEquals("/foo", bare.getServletPath());
+        assertNull(bare.getPathInfo());
+
+        ServletMapper.Result extension = mapper.map("/other/test.jsp");
+        assertEquals("extension", extension.getServletName());
+        assertEquals("/other/test.jsp", extension.getServletPath());
+
+        ServletMapper.Result fallback = mapper.map("/something-else.html");
+        assertEquals("default", fallback.getServletName());
+        assertEquals("", fallback.getServletPath());
+        assertEquals("/something-else.html", fallback.getPathInfo());
+    }
+
+    @Test
+    void testPrefixMatchesWholeSegmentsOnly() {
+        ServletMapper mapper = mapper("/api/*", "api", "*.do", "action");
+
+        assertEquals("api", mapper.map("/api/users").getServletName());
+        assertNull(mapper.map("/apis"));
+        assertEquals("action", mapper.map("/apix/run.do").getServletName());
+        // 扩展名只看最后一个路径段
+        assertNull(mapper.map("/dir.do/file"));
+        assertNull(ServletMapper.EMPTY.map("/api"));
+    }
+
+    @Test
+    void testManyMappings() {
+        Map<String, String> mappings = new LinkedHashMap<>();
+        for (int i = 0; i < 400; i++) {
+            mappings.put("/api/v1/resource" + i + "/*", "prefix" + i);
+            mappings.put("/exact/" + i, "exact" + i);
+        }
+        ServletMapper mapper = ServletMapper.compile(mappings);
+
+        for (int i = 0; i < 400; i++) {
+            ServletMapper.Result result = mapper.map("/api/v1/resource" + i + "/item");
+            assertEquals("prefix" + i, result.getServletName());
+            assertEquals("/item", result.getPathInfo());
+            assertEquals("exact" + i, mapper.map("/exact/" + i).getServletName());
+        }
+        assertNull(mapper.map("/api/v1/resource400/item"));
+    }
+}
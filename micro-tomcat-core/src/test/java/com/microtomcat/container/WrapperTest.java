@@ -0,0 +1,154 @@
+package com.microtomcat.container;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.servlet.GenericServlet;
+import javax.servlet.Servlet;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.UnavailableException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WrapperTest {
+    private Context context;
+
+    public static class CountingServlet extends GenericServlet {
+        static final AtomicInteger INITS = new AtomicInteger();
+
+        @Override
+        public void init() {
+            INITS.incrementAndGet();
+            try {
+                // 放大并发初始化的窗口
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public void service(ServletRequest req, ServletResponse res) {
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    public static class NotThreadSafeServlet extends GenericServlet implements javax.servlet.SingleThreadModel {
+        @Override
+        public void service(ServletRequest req, ServletResponse res) {
+        }
+    }
+
+    public static class OrderedServlet extends GenericServlet {
+        static final List<String> LOADED = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public void init() {
+            LOADED.add(getServletName());
+        }
+
+        @Override
+        public void service(ServletRequest req, ServletResponse res) {
+        }
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+        context = new Context("/wrapper-test", "webroot");
+    }
+
+    @Test
+    void testConcurrentFirstRequestsInitializeOnce() throws Exception {
+        Wrapper wrapper = new Wrapper("counting", CountingServlet.class.getName());
+        context.addChild(wrapper);
+        CountingServlet.INITS.set(0);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Servlet>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    Servlet servlet = wrapper.allocate();
+                    wrapper.deallocate(servlet);
+                    return servlet;
+                }));
+            }
+            start.countDown();
+            Servlet first = results.get(0).get(5, TimeUnit.SECONDS);
+            for (Future<Servlet> result : results) {
+                assertSame(first, result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, CountingServlet.INITS.get());
+        assertEquals(1, wrapper.getInstanceCount());
+        assertEquals(0, wrapper.getActiveAllocations());
+    }
+
+    @Test
+    void testSingleThreadModelPoolIsBounded() throws Exception {
+        Wrapper wrapper = new Wrapper("stm", NotThreadSafeServlet.class.getName());
+        wrapper.setMaxInstances(2);
+        wrapper.setWaitTimeout(50);
+        context.addChild(wrapper);
+
+        Servlet first = wrapper.allocate();
+        Servlet second = wrapper.allocate();
+        assertNotSame(first, second);
+        assertTrue(wrapper.isSingleThreadModel());
+        assertEquals(1.0, wrapper.getPoolUtilization(), 0.0);
+
+        assertThrows(UnavailableException.class, wrapper::allocate);
+        assertEquals(1, wrapper.getWaitTimeouts());
+
+        wrapper.deallocate(second);
+        assertSame(second, wrapper.allocate());
+        assertEquals(2, wrapper.getInstanceCount());
+        assertTrue(wrapper.getMaxWaitMillis() < 1000);
+    }
+
+    @Test
+    void testLoadOnStartupOrder() throws Exception {
+        Wrapper second = new Wrapper("second", OrderedServlet.class.getName());
+        second.setLoadOnStartup(2);
+        Wrapper lazy = new Wrapper("lazy", OrderedServlet.class.getName());
+        Wrapper first = new Wrapper("first", OrderedServlet.class.getName());
+        first.setLoadOnStartup(0);
+        context.addChild(second);
+        context.addChild(lazy);
+        context.addChild(first);
+        OrderedServlet.LOADED.clear();
+
+        context.start();
+        try {
+            assertEquals("[first, second]", OrderedServlet.LOADED.toString());
+            assertFalse(lazy.isLoaded());
+            assertTrue(lazy.isAvailable());
+
+            roundTrip(lazy);
+            assertEquals("[first, second, lazy]", OrderedServlet.LOADED.toString());
+        } finally {
+            context.stop();
+        }
+        assertFalse(first.isLoaded());
+    }
+
+    private static void roundTrip(Wrapper wrapper) throws Exception {
+        Servlet servlet = wrapper.allocate();
+        wrapper.deallocate(servlet);
+    }
+}
@@ -0,0 +1,105 @@
+package com.microtomcat.filter;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.servlet.*;
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class FilterManagerTest {
+    private FilterManager filterManager;
+    private List<String> executed;
+
+    @BeforeEach
+    void setUp() {
+        filterManager = new FilterManager(mock(ServletContext.class));
+        executed = new ArrayList<>();
+    }
+
+    private Filter recordingFilter(String name) {
+        return new Filter() {
+            @Override
+            public void init(FilterConfig filterConfig) {
+            }
+
+            @Override
+            public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+                    throws IOException, ServletException {
+                executed.add(name);
+                chain.doFilter(request, response);
+            }
+
+            @Override
+            public void destroy() {
+            }
+        };
+    }
+
+    private List<String> run(String path) throws Exception {
+        executed.clear();
+        filterManager.createFilterChain(path).doFilter(null, null);
+        return new ArrayList<>(executed);
+    }
+
+    @Test
+    void testFiltersRunInDeclarationOrderAcrossPatternKinds() throws Exception {
+        filterManager.addFilter("all", recordingFilter("all"));
+        filterManager.addFilter("api", recordingFilter("api"));
+        filterManager.addFilter("deep", recordingFilter("deep"));
+        filterManager.addFilter("jsp", recordingFilter("jsp"));
+        filterManager.addFilterMapping("/*", "all");
+        filterManager.addFilterMapping("/api/*", "api");
+        filterManager.addFilterMapping("/api/v1/*", "deep");
+        filterManager.addFilterMapping("*.jsp", "jsp");
+
+        assertEquals(Arrays.asList("all", "api", "deep", "jsp"), run("/api/v1/page.jsp"));
+        assertEquals(Arrays.asList("all", "api"), run("/api/v2"));
+        assertEquals(Collections.singletonList("all"), run("/apis"));
+    }
+
+    @Test
+    void testMultiplePatternsPerFilter() throws Exception {
+        filterManager.addFilter("secure", recordingFilter("secure"));
+        filterManager.addFilterMapping("/admin/*", "secure");
+        filterManager.addFilterMapping("/login", "secure");
+
+        assertEquals(Collections.singletonList("secure"), run("/admin/users"));
+        assertEquals(Collections.singletonList("secure"), run("/login"));
+        assertTrue(run("/public").isEmpty());
+    }
+
+    @Test
+    void testConfigurationChangeInvalidatesCachedChains() throws Exception {
+        filterManager.addFilter("first", recordingFilter("first"));
+        filterManager.addFilterMapping("/*", "first");
+        assertEquals(Collections.singletonList("first"), run("/x"));
+
+        filterManager.addFilter("second", recordingFilter("second"));
+        filterManager.addFilterMapping("/x", "second");
+        assertEquals(Arrays.asList("first", "second"), run("/x"));
+    }
+
+    @Test
+    void testChainArraysAreShared() {
+        Filter filter = mock(Filter.class);
+        Map<String, List<String>> patterns = new HashMap<>();
+        patterns.put("f", Arrays.asList("/a/*", "*.do"));
+        FilterMapper mapper = FilterMapper.compile(
+            Collections.<Map.Entry<String, Filter>>singletonList(new AbstractMap.SimpleEntry<>("f", filter)), patterns);
+
+        Filter[] first = mapper.match("/a/b");
+        assertArrayEquals(new Filter[] {filter}, first);
+        assertSame(first, mapper.match("/a/c"));
+        assertSame(FilterMapper.NO_FILTERS, mapper.match("/b"));
+    }
+}
@@ -0,0 +1,65 @@
+package com.microtomcat.logging;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LogManagerTest {
+    private static final String PREFIX = "com.microtomcat.logtest";
+
+    @AfterEach
+    void resetLevels() {
+        LogManager.setLevel(PREFIX, null);
+        LogManager.setLevel(PREFIX + ".quiet", null);
+    }
+
+    @Test
+    void testPrefixLevelAppliesToExistingLogs() {
+        Log log = Log.getLog(PREFIX + ".a.Component");
+        Log other = Log.getLog(PREFIX + ".quiet.Component");
+
+        LogManager.configure(PREFIX + "=DEBUG," + PREFIX + ".quiet=ERROR");
+        assertTrue(log.isDebugEnabled());
+        assertFalse(log.isTraceEnabled());
+        assertFalse(other.isEnabled(LogLevel.WARN));
+        assertTrue(other.isEnabled(LogLevel.ERROR));
+
+        LogManager.setLevel(PREFIX, null);
+        assertEquals(LogManager.getLevel().compareTo(LogLevel.DEBUG) <= 0, log.isDebugEnabled());
+    }
+
+    @Test
+    void testInvalidLevelRejected() {
+        assertThrows(IllegalArgumentException.class, () -> LogManager.configure(PREFIX + "=LOUD"));
+        assertThrows(IllegalArgumentException.class, () -> LogManager.configure(" "));
+        assertEquals(LogLevel.WARN, LogLevel.parse("warning"));
+    }
+
+    @Test
+    void testFormatsOnWriterThread() {
+        Log log = Log.getLog(PREFIX + ".Formatter");
+        LogManager.setLevel(PREFIX, LogLevel.INFO);
+
+        PrintStream original = System.out;
+        ByteArrayOutputStream captured = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(captured, true));
+        try {
+            LogManager.flush(1000);
+            log.debug("hidden {}", "value");
+            log.info("request {} took {} ms", "/index.html", 12);
+            log.warn("failed", new IllegalStateException("boom"));
+            LogManager.flush(1000);
+        } finally {
+            System.setOut(original);
+        }
+
+        String output = captured.toString();
+        assertFalse(output.contains("hidden"), output);
+        assertTrue(output.contains("[" + PREFIX + ".Formatter] request /index.html took 12 ms"), output);
+        assertTrue(output.contains("java.lang.IllegalStateException: boom"), output);
+    }
+}
@@ -0,0 +1,78 @@
+package com.microtomcat.net;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ByteBufferPoolTest {
+    private ByteBufferPool pool;
+
+    @BeforeEach
+    void setUp() {
+        pool = new ByteBufferPool(new int[]{1024, 4096}, 2);
+    }
+
+    @Test
+    void testAcquireRoundsUpToSizeClass() {
+        ByteBuffer buffer = pool.acquire(1500);
+        assertTrue(buffer.isDirect(), "Pooled buffers should be direct");
+        assertEquals(4096, buffer.capacity());
+        assertEquals(1, pool.getInUseSlabs());
+        assertEquals(4096, pool.getInUseBytes());
+    }
+
+    @Test
+    void testReleasedBufferIsReused() {
+        ByteBuffer first = pool.acquire(100);
+        first.put((byte) 1);
+        pool.release(first);
+        assertEquals(0, pool.getInUseSlabs());
+        assertEquals(1, pool.getFreeSlabs());
+
+        ByteBuffer second = pool.acquire(100);
+        assertSame(first, second, "Free slab should be reused");
+        assertEquals(0, second.position(), "Reused slab should be cleared");
+        assertEquals(1, pool.getTotalAllocations());
+    }
+
+    @Test
+    void testFreeListIsBounded() {
+        ByteBuffer a = pool.acquire(1024);
+        ByteBuffer b = pool.acquire(1024);
+        ByteBuffer c = pool.acquire(1024);
+        pool.release(a);
+        pool.release(b);
+        pool.release(c);
+        assertEquals(2, pool.getFreeSlabs());
+        assertEquals(0, pool.getInUseSlabs());
+    }
+
+    @Test
+    void testOversizedRequestIsNotPooled() {
+        ByteBuffer buffer = pool.acquire(10000);
+        assertEquals(10000, buffer.capacity());
+        assertEquals(1, pool.getUnpooledAllocations());
+        assertEquals(0, pool.getInUseSlabs());
+        pool.release(buffer);
+        assertEquals(0, pool.getFreeSlabs());
+    }
+
+    @Test
+    void testDoubleReleaseIsIgnored() {
+        ByteBuffer buffer = pool.acquire(1024);
+        pool.release(buffer);
+        pool.release(buffer);
+        assertEquals(1, pool.getFreeSlabs(), "Buffer enters the free list only once");
+        assertEquals(0, pool.getInUseSlabs());
+        assertEquals(1, pool.getInvalidReleases());
+
+        // 两次借用不会拿到同一块缓冲区
+        assertNotSame(pool.acquire(1024), pool.acquire(1024));
+        pool.release(ByteBuffer.allocateDirect(1024));
+        assertEquals(2, pool.getInvalidReleases(), "Foreign buffers are not adopted");
+        assertEquals(2, pool.getInUseSlabs());
+    }
+}
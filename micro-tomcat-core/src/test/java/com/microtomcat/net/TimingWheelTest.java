@@ -0,0 +1,79 @@
+package com.microtomcat.net;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimingWheelTest {
+    private TimingWheel<String> wheel;
+    private List<String> expired;
+
+    @BeforeEach
+    void setUp() {
+        wheel = new TimingWheel<>(100, 8);
+        expired = new ArrayList<>();
+    }
+
+    @Test
+    void testExpiresOnlyAfterDeadline() {
+        TimingWheel.Timeout<String> timeout = wheel.newTimeout("a");
+        wheel.schedule(timeout, 250, 1000);
+
+        assertEquals(0, wheel.expire(1200, expired::add));
+        assertTrue(timeout.isScheduled());
+        assertEquals(1, wheel.expire(1300, expired::add));
+        assertEquals("a", expired.get(0));
+        assertFalse(timeout.isScheduled());
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void testRescheduleResetsDeadline() {
+        TimingWheel.Timeout<String> timeout = wheel.newTimeout("a");
+        wheel.schedule(timeout, 200, 1000);
+        wheel.expire(1100, expired::add);
+        wheel.schedule(timeout, 200, 1100);
+
+        assertEquals(0, wheel.expire(1200, expired::add));
+        assertEquals(1, wheel.expire(1300, expired::add));
+        assertEquals(1, expired.size());
+    }
+
+    @Test
+    void testCancelledTimeoutNeverExpires() {
+        TimingWheel.Timeout<String> timeout = wheel.newTimeout("a");
+        wheel.schedule(timeout, 100, 1000);
+        wheel.cancel(timeout);
+
+        assertEquals(0, wheel.expire(5000, expired::add));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void testDelayLongerThanOneRevolution() {
+        // 8 格 * 100ms 一圈，2000ms 需要转两圈多
+        TimingWheel.Timeout<String> timeout = wheel.newTimeout("a");
+        wheel.schedule(timeout, 2000, 1000);
+
+        for (long now = 1100; now < 3000; now += 100) {
+            assertEquals(0, wheel.expire(now, expired::add), "expired early at " + now);
+        }
+        assertEquals(1, wheel.expire(3000, expired::add));
+    }
+
+    @Test
+    void testSkippedTicksStillExpire() {
+        wheel.schedule(wheel.newTimeout("a"), 100, 1000);
+        wheel.schedule(wheel.newTimeout("b"), 300, 1000);
+        wheel.schedule(wheel.newTimeout("c"), 5000, 1000);
+
+        assertEquals(2, wheel.expire(1900, expired::add));
+        assertTrue(expired.contains("a"));
+        assertTrue(expired.contains("b"));
+        assertEquals(1, wheel.size());
+    }
+}
@@ -0,0 +1,88 @@
+package com.microtomcat.net;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WorkerExecutorTest {
+    private WorkerExecutor executor;
+
+    @AfterEach
+    void tearDown() {
+        if (executor != null) {
+            executor.shutdown(1000);
+        }
+    }
+
+    @Test
+    void testRejectsWhenThreadsAndQueueAreFull() throws Exception {
+        executor = new WorkerExecutor("test-full", WorkerExecutor.Mode.PLATFORM, 1, 1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Runnable blocking = () -> {
+            started.countDown();
+            await(release);
+        };
+
+        assertTrue(executor.tryExecute(blocking));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        assertTrue(executor.tryExecute(blocking), "One task may wait in the queue");
+        assertFalse(executor.tryExecute(blocking), "Third task exceeds threads + queue");
+        assertThrows(RejectedExecutionException.class, () -> executor.execute(blocking));
+
+        assertEquals(1, executor.getActiveCount());
+        assertEquals(1, executor.getQueueSize());
+        assertEquals(2, executor.getRejectedCount());
+
+        release.countDown();
+        waitForCompleted(2);
+        assertTrue(executor.tryExecute(() -> { }), "Capacity is returned when tasks finish");
+    }
+
+    @Test
+    void testRecordsQueueWait() throws Exception {
+        executor = new WorkerExecutor("test-wait", WorkerExecutor.Mode.PLATFORM, 1, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(() -> await(release));
+        executor.execute(() -> { });
+
+        Thread.sleep(50);
+        release.countDown();
+        waitForCompleted(2);
+
+        assertEquals(2, executor.getSubmittedCount());
+        assertTrue(executor.getMaxQueueWaitMillis() >= 40,
+            "Queued task should have waited for the blocking one: " + executor.getMaxQueueWaitMillis());
+    }
+
+    @Test
+    void testVirtualModeRunsTasks() throws Exception {
+        // Java 21 之前的 JVM 会退回平台线程，两种情况下任务都应执行
+        executor = new WorkerExecutor("test-virtual", WorkerExecutor.Mode.VIRTUAL, 2, 0);
+        CountDownLatch done = new CountDownLatch(1);
+        executor.execute(done::countDown);
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(executor.isVirtual() ? "VIRTUAL" : "PLATFORM", executor.getMode());
+    }
+
+    private void waitForCompleted(long count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (executor.getCompletedCount() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(count, executor.getCompletedCount());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
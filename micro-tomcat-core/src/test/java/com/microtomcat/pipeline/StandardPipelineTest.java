@@ -0,0 +1,94 @@
+package com.microtomcat.pipeline;
+
+import com.microtomcat.connector.Request;
+import com.microtomcat.connector.Response;
+import com.microtomcat.pipeline.valve.AccessLogValve;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class StandardPipelineTest {
+    private StandardPipeline pipeline;
+    private List<String> executed;
+    private Request request;
+    private Response response;
+
+    @BeforeEach
+    void setUp() {
+        pipeline = new StandardPipeline();
+        executed = new ArrayList<>();
+        request = mock(Request.class);
+        response = mock(Response.class);
+    }
+
+    private Valve recordingValve(String name) {
+        return (request, response, context) -> {
+            executed.add(name);
+            context.invokeNext(request, response);
+        };
+    }
+
+    @Test
+    void testValvesRunInOrderBeforeBasic() throws Exception {
+        pipeline.addValve(recordingValve("a"));
+        pipeline.addValve(recordingValve("b"));
+        pipeline.setBasic(recordingValve("basic"));
+        pipeline.start();
+
+        pipeline.invoke(request, response);
+        pipeline.invoke(request, response);
+
+        assertEquals(6, executed.size());
+        assertEquals("[a, b, basic, a, b, basic]", executed.toString());
+    }
+
+    @Test
+    void testPassThroughValveIsCompiledOut() throws Exception {
+        AccessLogValve accessLog = new AccessLogValve();
+        accessLog.setEnabled(false);
+        pipeline.addValve(accessLog);
+        pipeline.addValve(recordingValve("a"));
+        pipeline.setBasic(recordingValve("basic"));
+
+        assertEquals(2, pipeline.getCompiledValves().length);
+        assertEquals(2, pipeline.getValves().length);
+
+        accessLog.setEnabled(true);
+        pipeline.rebuild();
+        assertEquals(3, pipeline.getCompiledValves().length);
+    }
+
+    @Test
+    void testReentrantInvokeRestoresPosition() throws Exception {
+        pipeline.addValve((request, response, context) -> {
+            executed.add("outer");
+            if (executed.size() == 1) {
+                // 同一线程上重入同一管道，例如请求转发
+                pipeline.invoke(request, response);
+            }
+            context.invokeNext(request, response);
+        });
+        pipeline.setBasic(recordingValve("basic"));
+
+        pipeline.invoke(request, response);
+
+        assertEquals("[outer, outer, basic, basic]", executed.toString());
+    }
+
+    @Test
+    void testValveAddedAfterStartIsVisibleToNextRequest() throws Exception {
+        pipeline.setBasic(recordingValve("basic"));
+        pipeline.start();
+        pipeline.invoke(request, response);
+
+        pipeline.addValve(recordingValve("late"));
+        pipeline.invoke(request, response);
+
+        assertEquals("[basic, late, basic]", executed.toString());
+    }
+}
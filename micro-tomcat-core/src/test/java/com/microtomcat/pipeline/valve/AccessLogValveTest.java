@@ -0,0 +1,121 @@
+package com.microtomcat.pipeline.valve;
+
+import com.microtomcat.connector.Request;
+import com.microtomcat.connector.Response;
+import com.microtomcat.pipeline.ValveContext;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class AccessLogValveTest {
+    @TempDir
+    Path logDir;
+
+    private AccessLogValve createValve() {
+        AccessLogValve valve = new AccessLogValve();
+        valve.setDirectory(logDir.toString());
+        valve.setPrefix("access.");
+        valve.setSuffix(".log");
+        valve.setFileDateFormat("");
+        valve.setFlushIntervalMillis(5);
+        return valve;
+    }
+
+    private Request mockRequest(String uri, String query) {
+        Request request = mock(Request.class);
+        when(request.getMethod()).thenReturn("GET");
+        when(request.getUri()).thenReturn(uri);
+        when(request.getQueryString()).thenReturn(query);
+        when(request.getProtocol()).thenReturn("HTTP/1.1");
+        when(request.getHeader("X-Test")).thenReturn("yes");
+        return request;
+    }
+
+    private List<String> readAllLines() throws Exception {
+        List<String> lines = new ArrayList<>();
+        try (Stream<Path> files = Files.list(logDir)) {
+            for (Path file : files.sorted().collect(Collectors.toList())) {
+                lines.addAll(Files.readAllLines(file, StandardCharsets.UTF_8));
+            }
+        }
+        return lines;
+    }
+
+    @Test
+    void testRecordsStatusBytesAndRequestFields() throws Exception {
+        AccessLogValve valve = createValve();
+        valve.setPattern("\"%r\" %s %b %{X-Test}i %{Missing}i");
+        valve.start();
+
+        Response response = mock(Response.class);
+        when(response.getStatus()).thenReturn(404);
+        when(response.getBytesWritten()).thenReturn(123L);
+        ValveContext next = mock(ValveContext.class);
+        valve.invoke(mockRequest("/a", "x=1"), response, next);
+        verify(next).invokeNext(any(), any());
+
+        valve.stop();
+
+        assertEquals(Collections.singletonList("\"GET /a?x=1 HTTP/1.1\" 404 123 yes -"), readAllLines());
+        assertEquals(1, valve.getWrittenRecords());
+        assertEquals(0, valve.getDroppedRecords());
+    }
+
+    @Test
+    void testRotatesBySize() throws Exception {
+        AccessLogValve valve = createValve();
+        valve.setPattern("%U");
+        valve.setMaxFileSize(20);
+        valve.start();
+
+        Response response = mock(Response.class);
+        for (int i = 0; i < 10; i++) {
+            valve.log(mockRequest("/request-" + i, null), response, 0);
+            // 每条记录单独写出，才能按记录边界轮转
+            while (valve.getQueueDepth() > 0) {
+                Thread.sleep(1);
+            }
+        }
+        valve.stop();
+
+        List<String> lines = readAllLines();
+        assertEquals(10, lines.size());
+        assertTrue(valve.getRotations() > 0);
+        try (Stream<Path> files = Files.list(logDir)) {
+            assertTrue(files.count() > 1);
+        }
+    }
+
+    @Test
+    void testFullRingBufferDropsInsteadOfBlocking() {
+        AccessLogRingBuffer buffer = new AccessLogRingBuffer(4, 0);
+        for (int i = 0; i < 4; i++) {
+            AccessLogRecord record = buffer.claim();
+            assertNotNull(record);
+            buffer.publish(record);
+        }
+        assertNull(buffer.claim());
+        assertEquals(1, buffer.getDropped());
+        assertEquals(4, buffer.size());
+
+        assertNotNull(buffer.peek());
+        buffer.release();
+        assertNotNull(buffer.claim());
+    }
+
+    @Test
+    void testPatternRejectsUnknownCode() {
+        assertThrows(IllegalArgumentException.class, () -> AccessLogPattern.compile("%Z"));
+    }
+}
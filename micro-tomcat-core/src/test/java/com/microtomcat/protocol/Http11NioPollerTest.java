@@ -0,0 +1,105 @@
+package com.microtomcat.protocol;
+
+import com.microtomcat.processor.ProcessorPool;
+import com.microtomcat.server.ServerConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Acceptor 接收连接后按策略分配给多个 Poller
+ */
+class Http11NioPollerTest {
+
+    private Http11NioProtocol protocol;
+    private Thread acceptor;
+    private int port;
+    private final List<Socket> clients = new ArrayList<>();
+
+    private void start(ServerConfig.PollerSelection selection) throws Exception {
+        try (ServerSocket probe = new ServerSocket(0)) {
+            port = probe.getLocalPort();
+        }
+        protocol = new Http11NioProtocol();
+        protocol.setPort(port);
+        protocol.setPollerCount(3);
+        protocol.setPollerSelection(selection);
+        protocol.setProcessorPool(mock(ProcessorPool.class));
+        protocol.init();
+        acceptor = new Thread(() -> {
+            try {
+                protocol.start();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        });
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        for (Socket client : clients) {
+            client.close();
+        }
+        protocol.stop();
+        acceptor.join(5000);
+    }
+
+    private static void await(BooleanSupplier condition, String message) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, message);
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * 建立一个连接并等待 Acceptor 把它分配给某个 Poller
+     */
+    private Socket connect() throws IOException, InterruptedException {
+        int expected = protocol.getConnectionCount() + 1;
+        Socket client = new Socket("localhost", port);
+        clients.add(client);
+        await(() -> protocol.getConnectionCount() == expected, "Connection was not registered");
+        return client;
+    }
+
+    @Test
+    void testRoundRobinSpreadsConnections() throws Exception {
+        start(ServerConfig.PollerSelection.ROUND_ROBIN);
+        for (int i = 0; i < 6; i++) {
+            connect();
+        }
+        assertArrayEquals(new int[] {2, 2, 2}, protocol.getPollerConnectionCounts());
+    }
+
+    @Test
+    void testLeastConnectionsFillsEmptiestPoller() throws Exception {
+        start(ServerConfig.PollerSelection.LEAST_CONNECTIONS);
+        Socket first = connect();
+        connect();
+        connect();
+        assertArrayEquals(new int[] {1, 1, 1}, protocol.getPollerConnectionCounts());
+
+        // 第一个 Poller 上的连接关闭后，新连接回到这个 Poller
+        first.close();
+        await(() -> protocol.getConnectionCount() == 2, "Closed connection was not removed");
+        assertArrayEquals(new int[] {0, 1, 1}, protocol.getPollerConnectionCounts());
+        connect();
+        assertArrayEquals(new int[] {1, 1, 1}, protocol.getPollerConnectionCounts());
+
+        connect();
+        connect();
+        assertArrayEquals(new int[] {2, 2, 1}, protocol.getPollerConnectionCounts());
+    }
+}
@@ -0,0 +1,250 @@
+package com.microtomcat.protocol;
+
+import com.microtomcat.connector.HttpParser;
+import com.microtomcat.connector.Request;
+import com.microtomcat.connector.Response;
+import com.microtomcat.processor.Processor;
+import com.microtomcat.processor.ProcessorPool;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+/**
+ * 通过真实连接验证 NIO 连接器把解析好的请求头和请求体直接交给工作线程
+ */
+class Http11NioRequestTest {
+
+    private Http11NioProtocol protocol;
+    private Thread acceptor;
+    private int port;
+    // 工作线程收到的解析器，用于确认请求头没有被复制后重新解析
+    private final Set<HttpParser> parsers = Collections.synchronizedSet(
+        Collections.newSetFromMap(new IdentityHashMap<>()));
+
+    @BeforeEach
+    void setUp() throws Exception {
+        try (ServerSocket probe = new ServerSocket(0)) {
+            port = probe.getLocalPort();
+        }
+        Processor processor = mock(Processor.class);
+        when(processor.processNio(any(HttpParser.class), any(byte[].class), any(OutputStream.class), any(), anyLong()))
+            .thenAnswer(invocation -> echo(invocation.getArgument(0), invocation.getArgument(1),
+                invocation.getArgument(2)));
+        ProcessorPool processorPool = mock(ProcessorPool.class);
+        when(processorPool.getProcessor(anyLong())).thenReturn(processor);
+
+        protocol = new Http11NioProtocol();
+        protocol.setPort(port);
+        protocol.setPollerCount(1);
+        protocol.setMaxPostSize(64 * 1024);
+        protocol.setProcessorPool(processorPool);
+        protocol.init();
+        acceptor = new Thread(() -> {
+            try {
+                protocol.start();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        });
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        protocol.stop();
+        acceptor.join(5000);
+    }
+
+    /**
+     * 用真实的 Request 接收连接器交来的解析结果，回显 "方法 URI 请求体"
+     */
+    private Response echo(HttpParser parser, byte[] body, OutputStream output) throws IOException {
+        parsers.add(parser);
+        Request request = new Request(null);
+        request.setParsedRequest(parser, body);
+        byte[] content = (request.getMethod() + " " + request.getRequestURI() + " "
+            + new String(body, StandardCharsets.UTF_8)).getBytes(StandardCharsets.UTF_8);
+        output.write(("HTTP/1.1 200 OK\r\nContent-Length: " + content.length + "\r\n\r\n")
+            .getBytes(StandardCharsets.ISO_8859_1));
+        output.write(content);
+        request.recycle();
+
+        Response response = mock(Response.class);
+        when(response.isBodyDelimited()).thenReturn(true);
+        return response;
+    }
+
+    private Socket connect() throws IOException {
+        Socket socket = new Socket("localhost", port);
+        socket.setSoTimeout(5000);
+        return socket;
+    }
+
+    /**
+     * 读取一个带 Content-Length 的响应并返回响应体，连接已关闭时返回 null
+     */
+    private static String readResponse(InputStream in) throws IOException {
+        ByteArrayOutputStream head = new ByteArrayOutputStream();
+        int b;
+        while (!head.toString("ISO-8859-1").endsWith("\r\n\r\n") && (b = in.read()) >= 0) {
+            head.write(b);
+        }
+        if (head.size() == 0) {
+            return null;
+        }
+        String headers = head.toString("ISO-8859-1");
+        assertTrue(headers.startsWith("HTTP/1.1 200"), headers);
+        int start = headers.indexOf("Content-Length: ") + "Content-Length: ".length();
+        int length = Integer.parseInt(headers.substring(start, headers.indexOf('\r', start)));
+        byte[] body = new byte[length];
+        int read = 0;
+        while (read < length) {
+            int n = in.read(body, read, length - read);
+            assertTrue(n > 0, "Response body truncated");
+            read += n;
+        }
+        return new String(body, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void testPipelinedRequestsAnsweredInOrder() throws Exception {
+        try (Socket socket = connect()) {
+            // 两个请求在一次写入中到达
+            socket.getOutputStream().write(("GET /first HTTP/1.1\r\nHost: localhost\r\n\r\n"
+                + "POST /second HTTP/1.1\r\nHost: localhost\r\nContent-Length: 5\r\n\r\nhello")
+                .getBytes(StandardCharsets.ISO_8859_1));
+
+            InputStream in = socket.getInputStream();
+            assertEquals("GET /first ", readResponse(in));
+            assertEquals("POST /second hello", readResponse(in));
+        }
+        assertEquals(2, parsers.size(), "Each queued request keeps its own parser");
+    }
+
+    @Test
+    void testIdleConnectionReturnsParser() throws Exception {
+        try (Socket socket = connect()) {
+            socket.getOutputStream().write("GET /a HTTP/1.1\r\nHost: localhost\r\n\r\n"
+                .getBytes(StandardCharsets.ISO_8859_1));
+            InputStream in = socket.getInputStream();
+            assertEquals("GET /a ", readResponse(in));
+            awaitPooledParsers(1);
+
+            // 下一个请求复用池中的解析器，空闲后再归还
+            socket.getOutputStream().write("GET /b HTTP/1.1\r\nHost: localhost\r\n\r\n"
+                .getBytes(StandardCharsets.ISO_8859_1));
+            assertEquals("GET /b ", readResponse(in));
+            awaitPooledParsers(1);
+        }
+        assertEquals(1, parsers.size(), "Idle keep-alive connection borrows the pooled parser again");
+    }
+
+    private void awaitPooledParsers(int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (protocol.getPooledParserCount() != expected) {
+            assertTrue(System.currentTimeMillis() < deadline, "Parser was not returned to the pool");
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    void testLargeBodyArrivingInPieces() throws Exception {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 3000; i++) {
+            content.append("0123456789");
+        }
+        try (Socket socket = connect()) {
+            OutputStream out = socket.getOutputStream();
+            out.write(("POST /big HTTP/1.1\r\nHost: localhost\r\nContent-Length: " + content.length()
+                + "\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1));
+            byte[] body = content.toString().getBytes(StandardCharsets.ISO_8859_1);
+            for (int off = 0; off < body.length; off += 7000) {
+                out.write(body, off, Math.min(7000, body.length - off));
+                out.flush();
+                Thread.sleep(10);
+            }
+            assertEquals("POST /big " + content, readResponse(socket.getInputStream()));
+        }
+    }
+
+    @Test
+    void testChunkedPostBodyDecoded() throws Exception {
+        try (Socket socket = connect()) {
+            socket.getOutputStream().write(("POST /upload HTTP/1.1\r\nHost: localhost\r\n"
+                + "Transfer-Encoding: chunked\r\n\r\n"
+                + "5\r\nhello\r\n7;ext=1\r\n, world\r\n0\r\nX-Trailer: 1\r\n\r\n")
+                .getBytes(StandardCharsets.ISO_8859_1));
+
+            assertEquals("POST /upload hello, world", readResponse(socket.getInputStream()));
+        }
+    }
+
+    @Test
+    void testChunkedWithContentLengthRejected() throws Exception {
+        try (Socket socket = connect()) {
+            // 后面夹带的请求不能被当作同一连接上的下一个请求处理
+            socket.getOutputStream().write(("POST /upload HTTP/1.1\r\nHost: localhost\r\n"
+                + "Transfer-Encoding: chunked\r\nContent-Length: 4\r\n\r\n"
+                + "0\r\n\r\nGET /smuggled HTTP/1.1\r\nHost: localhost\r\n\r\n")
+                .getBytes(StandardCharsets.ISO_8859_1));
+
+            InputStream in = socket.getInputStream();
+            ByteArrayOutputStream response = new ByteArrayOutputStream();
+            int b;
+            while ((b = in.read()) >= 0) {
+                response.write(b);
+            }
+            assertTrue(response.toString("ISO-8859-1").startsWith("HTTP/1.1 400 "), response.toString("ISO-8859-1"));
+        }
+        assertTrue(parsers.isEmpty(), "Ambiguous request never reaches a worker");
+    }
+
+    @Test
+    void testBodyOverMaxPostSizeRejected() throws Exception {
+        try (Socket socket = connect()) {
+            socket.getOutputStream().write(("POST /upload HTTP/1.1\r\nHost: localhost\r\n"
+                + "Content-Length: " + (64 * 1024 + 1) + "\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1));
+
+            byte[] status = new byte[13];
+            int read = 0;
+            while (read < status.length) {
+                int n = socket.getInputStream().read(status, read, status.length - read);
+                assertTrue(n > 0, "Connection closed before the status line");
+                read += n;
+            }
+            assertEquals("HTTP/1.1 413 ", new String(status, StandardCharsets.ISO_8859_1));
+        }
+        assertTrue(parsers.isEmpty());
+    }
+
+    @Test
+    void testConnectionCloseEndsConnection() throws Exception {
+        try (Socket socket = connect()) {
+            // Connection: close 之后的请求不再处理
+            socket.getOutputStream().write(("GET /last HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n"
+                + "GET /ignored HTTP/1.1\r\nHost: localhost\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1));
+
+            InputStream in = socket.getInputStream();
+            assertEquals("GET /last ", readResponse(in));
+            assertEquals(-1, in.read(), "Server closes the connection after the response");
+        }
+        assertEquals(1, parsers.size());
+    }
+}
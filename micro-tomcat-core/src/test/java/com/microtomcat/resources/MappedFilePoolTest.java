@@ -0,0 +1,84 @@
+package com.microtomcat.resources;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedFilePoolTest {
+    @TempDir
+    Path root;
+
+    // 缓存不保存内容，只提供元数据
+    private final StaticResourceCache cache = new StaticResourceCache(0, 100, 0, 0);
+
+    private StaticResource write(String name, int size, char fill) throws Exception {
+        byte[] bytes = new byte[size];
+        Arrays.fill(bytes, (byte) fill);
+        Path file = Files.write(root.resolve(name), bytes);
+        return cache.lookup(file);
+    }
+
+    @Test
+    void testMappingIsSharedAndSliced() throws Exception {
+        MappedFilePool pool = new MappedFilePool(1024 * 1024, 64 * 1024);
+        StaticResource resource = write("video.bin", 4096, 'v');
+
+        MappedFile first = pool.acquire(resource);
+        MappedFile second = pool.acquire(resource);
+        assertSame(first, second);
+        assertEquals(1, pool.getMissCount());
+        assertEquals(1, pool.getHitCount());
+        assertEquals(4096, pool.getMappedBytes());
+
+        ByteBuffer slice = first.slice(100, 10);
+        assertEquals(10, slice.remaining());
+        assertEquals('v', slice.get());
+        assertTrue(slice.isReadOnly());
+        first.release();
+        second.release();
+        assertEquals(0, pool.getUnmapCount(), "Pool still holds its own reference");
+
+        assertNull(pool.acquire(write("huge.bin", 65 * 1024, 'h')), "Files above maxFileSize are not mapped");
+    }
+
+    @Test
+    void testEvictedMappingStaysValidUntilReleased() throws Exception {
+        MappedFilePool pool = new MappedFilePool(6000, 64 * 1024);
+        MappedFile a = pool.acquire(write("a.bin", 4000, 'a'));
+        MappedFile b = pool.acquire(write("b.bin", 4000, 'b'));
+
+        assertEquals(1, pool.getEvictionCount());
+        assertEquals(1, pool.getMappedFileCount());
+        assertEquals(0, pool.getUnmapCount(), "In-flight mapping must not be unmapped");
+        assertEquals('a', a.slice(3999, 1).get());
+
+        a.release();
+        assertEquals(1, pool.getUnmapCount());
+        b.release();
+        assertEquals(1, pool.getUnmapCount());
+    }
+
+    @Test
+    void testChangedFileIsRemapped() throws Exception {
+        MappedFilePool pool = new MappedFilePool(1024 * 1024, 64 * 1024);
+        StaticResource before = write("app.bin", 1000, 'x');
+        MappedFile old = pool.acquire(before);
+        old.release();
+
+        Files.setLastModifiedTime(before.getPath(), FileTime.fromMillis(before.getLastModified() + 60000));
+        StaticResource after = cache.lookup(before.getPath());
+        MappedFile remapped = pool.acquire(after);
+
+        assertNotSame(old, remapped);
+        assertTrue(old.isUnmapped());
+        assertEquals(1000, pool.getMappedBytes());
+        remapped.release();
+    }
+}
@@ -0,0 +1,108 @@
+package com.microtomcat.resources;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StaticResourceCacheTest {
+    @TempDir
+    Path root;
+
+    private Path write(String name, int size) throws Exception {
+        byte[] bytes = new byte[size];
+        for (int i = 0; i < size; i++) {
+            bytes[i] = (byte) ('a' + i % 26);
+        }
+        return Files.write(root.resolve(name), bytes);
+    }
+
+    @Test
+    void testSecondLookupIsHitWithCachedContent() throws Exception {
+        StaticResourceCache cache = new StaticResourceCache(1024, 10, 512, 60000);
+        Path file = write("index.html", 100);
+
+        StaticResource first = cache.lookup(file);
+        StaticResource second = cache.lookup(root.resolve("sub/../index.html"));
+
+        assertSame(first, second, "Normalized paths share one entry");
+        assertTrue(first.isFile());
+        assertEquals(100, first.getLength());
+        assertEquals("text/html", first.getMimeType());
+        assertNotNull(first.getETag());
+        ByteBuffer content = first.getContent();
+        assertEquals(100, content.remaining());
+        assertEquals('a', content.get());
+        assertEquals(100, first.getContent().remaining(), "Each caller gets an independent view");
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(0.5, cache.getHitRatio(), 0.0001);
+    }
+
+    @Test
+    void testLargeFileKeepsOnlyMetadata() throws Exception {
+        StaticResourceCache cache = new StaticResourceCache(1024, 10, 512, 60000);
+        Path file = write("big.bin", 600);
+
+        StaticResource resource = cache.lookup(file);
+        assertTrue(resource.isFile());
+        assertFalse(resource.hasContent());
+        assertEquals(600, resource.getLength());
+        assertEquals(0, cache.getCachedBytes());
+
+        assertFalse(cache.lookup(root.resolve("missing.txt")).exists());
+        assertSame(cache.lookup(root.resolve("missing.txt")), cache.lookup(root.resolve("missing.txt")));
+    }
+
+    @Test
+    void testEvictsLeastRecentlyUsedByBytesAndCount() throws Exception {
+        StaticResourceCache cache = new StaticResourceCache(1000, 3, 500, 60000);
+        Path a = write("a.txt", 400);
+        Path b = write("b.txt", 400);
+        Path c = write("c.txt", 400);
+
+        cache.lookup(a);
+        cache.lookup(b);
+        cache.lookup(a);
+        cache.lookup(c);
+        // 1200 字节超出上限，最久未使用的 b 被淘汰
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(800, cache.getCachedBytes());
+        long misses = cache.getMissCount();
+        cache.lookup(a);
+        assertEquals(misses, cache.getMissCount());
+        cache.lookup(b);
+        assertEquals(misses + 1, cache.getMissCount());
+
+        cache.lookup(root.resolve("x"));
+        cache.lookup(root.resolve("y"));
+        assertEquals(3, cache.getEntryCount());
+    }
+
+    @Test
+    void testRevalidatesAfterTtl() throws Exception {
+        StaticResourceCache cache = new StaticResourceCache(1024, 10, 512, 0);
+        Path file = write("app.js", 10);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(1_000_000_000L));
+
+        StaticResource before = cache.lookup(file);
+        assertSame(before, cache.lookup(file), "Unchanged file is still served from the cache");
+        assertEquals(1, cache.getRevalidationCount());
+
+        Files.write(file, "changed content".getBytes(StandardCharsets.US_ASCII));
+        Files.setLastModifiedTime(file, FileTime.fromMillis(2_000_000_000L));
+        StaticResource after = cache.lookup(file);
+        assertNotSame(before, after);
+        assertNotEquals(before.getETag(), after.getETag());
+        assertEquals(15, after.getLength());
+
+        Files.delete(file);
+        assertFalse(cache.lookup(file).exists());
+    }
+}
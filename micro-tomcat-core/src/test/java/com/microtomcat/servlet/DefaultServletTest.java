@@ -0,0 +1,65 @@
+package com.microtomcat.servlet;
+
+import com.microtomcat.connector.Response;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.servlet.ServletConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletRequest;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class DefaultServletTest {
+    private static final String CONTENT = "static file content";
+
+    private DefaultServlet servlet;
+
+    @BeforeEach
+    void setUp(@TempDir Path dir) throws Exception {
+        Files.write(dir.resolve("a.txt"), CONTENT.getBytes(StandardCharsets.ISO_8859_1));
+        ServletContext servletContext = mock(ServletContext.class);
+        when(servletContext.getRealPath("/")).thenReturn(dir.toString());
+        ServletConfig config = mock(ServletConfig.class);
+        when(config.getServletContext()).thenReturn(servletContext);
+        servlet = new DefaultServlet();
+        servlet.init(config);
+    }
+
+    private String serve(String method) throws Exception {
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        when(request.getMethod()).thenReturn(method);
+        when(request.getRequestURI()).thenReturn("/a.txt");
+        when(request.getContextPath()).thenReturn("");
+        when(request.getProtocol()).thenReturn("HTTP/1.1");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Response response = new Response(out);
+
+        servlet.service(request, response.getFacade());
+        response.finishResponse();
+        return new String(out.toByteArray(), StandardCharsets.ISO_8859_1);
+    }
+
+    @Test
+    void testGetSendsFile() throws Exception {
+        String output = serve("GET");
+        assertTrue(output.startsWith("HTTP/1.1 200 "));
+        assertTrue(output.contains("Content-Length: " + CONTENT.length() + "\r\n"));
+        assertTrue(output.endsWith("\r\n\r\n" + CONTENT));
+    }
+
+    @Test
+    void testHeadSendsHeadersWithoutBody() throws Exception {
+        // HttpServlet.doHead 用 NoBodyResponse 包装响应，内容必须经由它写出才会被丢弃
+        String output = serve("HEAD");
+        assertTrue(output.startsWith("HTTP/1.1 200 "));
+        assertTrue(output.contains("Content-Length: " + CONTENT.length() + "\r\n"), output);
+        assertTrue(output.endsWith("\r\n\r\n"), "HEAD response has no body: " + output);
+    }
+}
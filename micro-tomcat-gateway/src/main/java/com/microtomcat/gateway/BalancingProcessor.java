@@ -3,6 +3,8 @@ package com.microtomcat.gateway;
 import com.microtomcat.cluster.ClusterNode;
 import com.microtomcat.cluster.ClusterRegistry;
 import com.microtomcat.cluster.NodeStatus;
+import com.microtomcat.connector.HttpParseException;
+import com.microtomcat.connector.HttpParser;
 import com.microtomcat.gateway.lb.LoadBalancer;
 import com.microtomcat.gateway.model.RequestWrapper;
 
@@ -18,6 +20,8 @@ public class BalancingProcessor {
     private final LoadBalancer loadBalancer;
     private final ClusterRegistry clusterRegistry;
     private static final int MAX_RETRIES = 3;
+    // 处理器由 GatewayProcessorPool 借出，同一时刻只处理一个请求，解析器随处理器复用
+    private final HttpParser parser = new HttpParser();
     
     public BalancingProcessor(LoadBalancer loadBalancer, ClusterRegistry clusterRegistry) {
         this.loadBalancer = loadBalancer;
@@ -79,37 +83,40 @@ public class BalancingProcessor {
     }
     
     private RequestWrapper parseRequest(InputStream input) throws IOException {
-        BufferedReader reader = new BufferedReader(new InputStreamReader(input));
-        
-        // 读取请求行
-        String line = reader.readLine();
-        if (line == null) {
+        try {
+            if (!parser.parse(input)) {
+                return null;
+            }
+            return toRequestWrapper();
+        } catch (HttpParseException e) {
             return null;
+        } finally {
+            // 请求头已全部复制到 RequestWrapper，解析器可以交给下一个请求
+            parser.recycle();
         }
+    }
+    
+    private RequestWrapper toRequestWrapper() {
+        RequestWrapper request = new RequestWrapper();
+        request.setMethod(parser.getMethod());
+        request.setUri(parser.getRequestUri());
+        request.setProtocol(parser.getProtocol());
         
-        String[] parts = line.split(" ");
-        if (parts.length != 3) {
-            return null;
+        // 请求头按原样转发，只在需要时生成字符串
+        for (int i = 0; i < parser.getHeaderCount(); i++) {
+            request.addHeader(parser.getHeaderName(i) + ": " + parser.getHeaderValue(i));
         }
         
-        RequestWrapper request = new RequestWrapper();
-        request.setMethod(parts[0]);
-        request.setUri(parts[1]);
-        request.setProtocol(parts[2]);
-        
-        // 读取请求头
-        while ((line = reader.readLine()) != null && !line.isEmpty()) {
-            if (line.startsWith("Cookie:")) {
-                parseCookies(line, request);
-            }
-            request.addHeader(line);
+        String cookieHeader = parser.getHeader("Cookie");
+        if (cookieHeader != null) {
+            parseCookies(cookieHeader, request);
         }
         
         return request;
     }
     
-    private void parseCookies(String cookieLine, RequestWrapper request) {
-        String[] cookies = cookieLine.substring(8).split(";");
+    private void parseCookies(String cookieHeader, RequestWrapper request) {
+        String[] cookies = cookieHeader.split(";");
         for (String cookie : cookies) {
             String[] parts = cookie.trim().split("=");
             if (parts.length == 2 && "JSESSIONID".equals(parts[0])) {